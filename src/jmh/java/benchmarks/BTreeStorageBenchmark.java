@@ -0,0 +1,73 @@
+package benchmarks;
+
+import coffee.Coffee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.BTreeCoffeeStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single item operations on the B-tree storage: a lookup, which is served from the page cache
+ * once the tree is warm, and a replacing save, which commits one leaf and the header through
+ * the journal with two forces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class BTreeStorageBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    private Path directory;
+    private BTreeCoffeeStorage storage;
+    private List<Coffee> cargo;
+    private final Random random = new Random(1);
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coffee-bench");
+        storage = new BTreeCoffeeStorage(directory.resolve("data.btree").toString());
+        cargo = CargoFixtures.randomCargo(size, 42);
+        storage.saveToFile(cargo, false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Coffee get() throws IOException {
+        return storage.get(cargo.get(random.nextInt(size)).getId());
+    }
+
+    @Benchmark
+    public void put() throws IOException {
+        storage.put(cargo.get(random.nextInt(size)));
+    }
+}
@@ -0,0 +1,59 @@
+package benchmarks;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic test data shared by the benchmarks.
+ */
+final class CargoFixtures {
+    private static final String[] ORIGINS = {"Brazil", "Colombia", "Ethiopia", "Kenya", "Vietnam"};
+    private static final String[] MATERIALS = {"Paper", "Plastic", "Jar", "Tin"};
+
+    private CargoFixtures() {
+    }
+
+    /**
+     * Creates {@code size} coffee items of all three types with random but reproducible values.
+     *
+     * @param size the number of items
+     * @param seed the random seed
+     * @return the generated items
+     */
+    static List<Coffee> randomCargo(int size, long seed) {
+        Random random = new Random(seed);
+        List<Coffee> cargo = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cargo.add(randomCoffee(random));
+        }
+        return cargo;
+    }
+
+    static Coffee randomCoffee(Random random) {
+        // scores with one decimal and prices with cents, like data typed into LoadVanCommand
+        QualityParams quality = new QualityParams(
+                1 + random.nextInt(90) / 10.0, 1 + random.nextInt(90) / 10.0, 1 + random.nextInt(90) / 10.0);
+        Packaging packaging = new Packaging(MATERIALS[random.nextInt(MATERIALS.length)], 50 + random.nextInt(950));
+        double weight = 50 + random.nextInt(950);
+        double price = 1 + random.nextInt(5000) / 100.0;
+        return switch (random.nextInt(3)) {
+            case 0 -> new BeanCoffee("Bean blend", weight, price, quality, packaging,
+                    RoastLevel.values()[random.nextInt(3)], ORIGINS[random.nextInt(ORIGINS.length)]);
+            case 1 -> new GroundCoffee("Ground blend", weight, price, quality, packaging,
+                    GrindSize.values()[random.nextInt(3)]);
+            default -> new InstantCoffee("Instant blend", weight, price, quality, packaging,
+                    ConcentrationLevel.values()[random.nextInt(3)]);
+        };
+    }
+}
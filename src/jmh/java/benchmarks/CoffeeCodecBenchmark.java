@@ -0,0 +1,85 @@
+package benchmarks;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-record cost of the text format: {@link Coffee#fromFileString(String)} and
+ * every subclass's {@code toFileString()}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class CoffeeCodecBenchmark {
+    private BeanCoffee bean;
+    private GroundCoffee ground;
+    private InstantCoffee instant;
+    private String beanLine;
+    private String groundLine;
+    private String instantLine;
+
+    @Setup
+    public void setUp() {
+        bean = new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil");
+        ground = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                new Packaging("Plastic", 500.0), GrindSize.COARSE);
+        instant = new InstantCoffee("Nescafe", 100.0, 5.99, new QualityParams(6.0, 7.0, 8.0),
+                new Packaging("Jar", 100.0), ConcentrationLevel.HIGH);
+        beanLine = bean.toFileString();
+        groundLine = ground.toFileString();
+        instantLine = instant.toFileString();
+    }
+
+    @Benchmark
+    public Coffee fromFileStringBean() {
+        return Coffee.fromFileString(beanLine);
+    }
+
+    @Benchmark
+    public Coffee fromFileStringGround() {
+        return Coffee.fromFileString(groundLine);
+    }
+
+    @Benchmark
+    public Coffee fromFileStringInstant() {
+        return Coffee.fromFileString(instantLine);
+    }
+
+    @Benchmark
+    public String toFileStringBean() {
+        return bean.toFileString();
+    }
+
+    @Benchmark
+    public String toFileStringGround() {
+        return ground.toFileString();
+    }
+
+    @Benchmark
+    public String toFileStringInstant() {
+        return instant.toFileString();
+    }
+}
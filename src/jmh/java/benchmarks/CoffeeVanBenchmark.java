@@ -0,0 +1,121 @@
+package benchmarks;
+
+import coffee.Coffee;
+import coffeevan.CargoLayout;
+import coffeevan.CoffeeVan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory van operations: quality search, sorting, top-k by price per kilogram, removal and the totals.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class CoffeeVanBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"OBJECTS", "COLUMNS"})
+    public CargoLayout layout;
+
+    private CoffeeVan van;
+    private List<Coffee> cargo;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cargo = CargoFixtures.randomCargo(size, 42);
+        van = new CoffeeVan(Double.MAX_VALUE, Double.MAX_VALUE, layout);
+        for (Coffee coffee : cargo) {
+            van.addCoffee(coffee);
+        }
+    }
+
+    @Benchmark
+    public List<Coffee> findByQualityNarrow() {
+        return van.findByQuality(7.0, 7.5, 4.0, 4.5, 9.0, 10.0);
+    }
+
+    @Benchmark
+    public List<Coffee> findByQualityWide() {
+        return van.findByQuality(2.0, 9.0, 2.0, 9.0, 2.0, 9.0);
+    }
+
+    /**
+     * Removes one item and puts it back, so the cargo size stays constant between invocations.
+     */
+    @Benchmark
+    public boolean removeCoffeeById() {
+        Coffee coffee = cargo.get(next);
+        next = next + 1 == cargo.size() ? 0 : next + 1;
+        boolean removed = van.removeCoffeeById(coffee.getId());
+        van.addCoffee(coffee);
+        return removed;
+    }
+
+    /**
+     * The ten cheapest items per kilogram; the first call builds the index, later calls read it.
+     */
+    @Benchmark
+    public List<Coffee> topByPricePerKg() {
+        return van.topByPricePerKg(10, true);
+    }
+
+    @Benchmark
+    public double getTotalCost() {
+        return van.getTotalCost();
+    }
+
+    @Benchmark
+    public double getTotalVolume() {
+        return van.getTotalVolume();
+    }
+
+    @Benchmark
+    public double getRemainingBudget() {
+        return van.getRemainingBudget() + van.getRemainingVolume();
+    }
+
+    /**
+     * Sorting an already sorted cargo is much cheaper, so every measurement
+     * starts from a freshly loaded van in insertion order.
+     */
+    @State(Scope.Thread)
+    public static class UnsortedVan {
+        CoffeeVan van;
+
+        @Setup(Level.Invocation)
+        public void load(CoffeeVanBenchmark benchmark) {
+            van = new CoffeeVan(Double.MAX_VALUE, Double.MAX_VALUE);
+            for (Coffee coffee : benchmark.cargo) {
+                van.addCoffee(coffee);
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 10, batchSize = 1)
+    @Warmup(iterations = 3, batchSize = 1)
+    public CoffeeVan sortByPricePerKg(UnsortedVan state) {
+        state.van.sortByPricePerKg();
+        return state.van;
+    }
+}
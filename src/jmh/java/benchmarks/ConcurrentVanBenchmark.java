@@ -0,0 +1,96 @@
+package benchmarks;
+
+import coffee.Coffee;
+import coffeevan.CoffeeVan;
+import coffeevan.ConcurrentCoffeeVan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loaders and readers working on one van at the same time: the synchronized {@link CoffeeVan}
+ * against the {@link ConcurrentCoffeeVan}. Loaders remove a random item or try to load it back
+ * under limits that hold about half of the items, readers look up items and check the remaining
+ * budget. Each group reports the throughput of its loaders and readers separately.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class ConcurrentVanBenchmark {
+    @Param({"10000"})
+    public int size;
+
+    private List<Coffee> cargo;
+    private CoffeeVan van;
+    private ConcurrentCoffeeVan concurrentVan;
+
+    @Setup
+    public void setUp() {
+        cargo = CargoFixtures.randomCargo(size, 42);
+        double volume = 0;
+        double cost = 0;
+        for (Coffee coffee : cargo) {
+            volume += coffee.getTotalVolume();
+            cost += coffee.getPrice();
+        }
+        van = new CoffeeVan(volume / 2, cost / 2);
+        concurrentVan = new ConcurrentCoffeeVan(volume / 2, cost / 2);
+        for (Coffee coffee : cargo) {
+            van.tryAddCoffee(coffee);
+            concurrentVan.tryAddCoffee(coffee);
+        }
+    }
+
+    private Coffee randomItem() {
+        return cargo.get(ThreadLocalRandom.current().nextInt(cargo.size()));
+    }
+
+    @Benchmark
+    @Group("synchronizedVan")
+    @GroupThreads(2)
+    public boolean synchronizedLoad() {
+        Coffee coffee = randomItem();
+        return van.removeCoffeeById(coffee.getId()) || van.tryAddCoffee(coffee);
+    }
+
+    @Benchmark
+    @Group("synchronizedVan")
+    @GroupThreads(2)
+    public double synchronizedRead() {
+        Coffee coffee = van.getById(randomItem().getId());
+        return coffee == null ? van.getRemainingBudget() : coffee.getPrice();
+    }
+
+    @Benchmark
+    @Group("concurrentVan")
+    @GroupThreads(2)
+    public boolean concurrentLoad() {
+        Coffee coffee = randomItem();
+        return concurrentVan.removeCoffeeById(coffee.getId()) || concurrentVan.tryAddCoffee(coffee);
+    }
+
+    @Benchmark
+    @Group("concurrentVan")
+    @GroupThreads(2)
+    public double concurrentRead() {
+        Coffee coffee = concurrentVan.getById(randomItem().getId());
+        return coffee == null ? concurrentVan.getRemainingBudget() : coffee.getPrice();
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.CsvCoffeeImporter;
+import services.CsvImportResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV bulk import at several pool sizes. Every name is quoted and contains the delimiter,
+ * so the quoted path of the parser is measured too.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class CsvImportBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    private Path directory;
+    private Path file;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coffee-bench");
+        file = directory.resolve("data.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("type,id,name,weight,price,aroma,taste,freshness,material,volume,origin,roastLevel,grindSize,concentrationLevel\n");
+            for (Coffee coffee : CargoFixtures.randomCargo(size, 42)) {
+                writer.write(row(coffee));
+            }
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.delete(file);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public CsvImportResult importCsv() throws IOException {
+        return new CsvCoffeeImporter(file).load(pool);
+    }
+
+    private static String row(Coffee coffee) {
+        StringBuilder row = new StringBuilder(128);
+        row.append(coffee instanceof BeanCoffee ? "BEAN" : coffee instanceof GroundCoffee ? "GROUND" : "INSTANT")
+                .append(',').append(coffee.getId())
+                .append(",\"").append(coffee.getName()).append(", \"\"house\"\"\"")
+                .append(',').append(coffee.getWeight())
+                .append(',').append(coffee.getPrice())
+                .append(',').append(coffee.getQuality().getAromaScore())
+                .append(',').append(coffee.getQuality().getTasteScore())
+                .append(',').append(coffee.getQuality().getFreshnessScore())
+                .append(',').append(coffee.getPackaging().getMaterial())
+                .append(',').append(coffee.getPackaging().getVolume());
+        if (coffee instanceof BeanCoffee bean) {
+            row.append(',').append(bean.getOrigin()).append(',').append(bean.getRoastLevel()).append(",,");
+        } else if (coffee instanceof GroundCoffee ground) {
+            row.append(",,,").append(ground.getGrindSize()).append(',');
+        } else {
+            row.append(",,,,").append(((InstantCoffee) coffee).getConcentrationLevel());
+        }
+        return row.append('\n').toString();
+    }
+}
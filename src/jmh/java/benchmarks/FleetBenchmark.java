@@ -0,0 +1,62 @@
+package benchmarks;
+
+import coffee.Coffee;
+import coffeevan.Fleet;
+import coffeevan.RoutingPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fleet-wide queries over the same cargo spread across a growing number of vans.
+ * One van is the sequential baseline: every query then runs in a single task.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class FleetBenchmark {
+    @Param({"200000"})
+    public int size;
+
+    @Param({"1", "16", "256"})
+    public int vans;
+
+    private Fleet fleet;
+
+    @Setup
+    public void setUp() {
+        fleet = new Fleet(vans, Double.MAX_VALUE, Double.MAX_VALUE, RoutingPolicy.byId());
+        for (Coffee coffee : CargoFixtures.randomCargo(size, 42)) {
+            fleet.load(coffee);
+        }
+    }
+
+    @Benchmark
+    public double getTotalCost() {
+        return fleet.getTotalCost() + fleet.getTotalVolume();
+    }
+
+    @Benchmark
+    public List<Coffee> findByQualityWide() {
+        return fleet.findByQuality(2.0, 9.0, 2.0, 9.0, 2.0, 9.0);
+    }
+
+    @Benchmark
+    public List<Coffee> getSortedByPricePerKg() {
+        return fleet.getSortedByPricePerKg();
+    }
+}
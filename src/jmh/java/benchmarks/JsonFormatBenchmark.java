@@ -0,0 +1,107 @@
+package benchmarks;
+
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import coffee.CoffeeRecordWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import services.JsonCoffeeReader;
+import services.JsonCoffeeWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Export and import of a whole cargo as JSON next to the semicolon text format, in memory,
+ * so that only the encoding and decoding are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class JsonFormatBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    private List<Coffee> cargo;
+    private byte[] text;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        cargo = CargoFixtures.randomCargo(size, 42);
+        ByteArrayOutputStream textOut = new ByteArrayOutputStream();
+        writeText(textOut);
+        text = textOut.toByteArray();
+        ByteArrayOutputStream jsonOut = new ByteArrayOutputStream();
+        writeJson(jsonOut);
+        json = jsonOut.toByteArray();
+    }
+
+    @Benchmark
+    public void exportText() throws IOException {
+        writeText(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void exportJson() throws IOException {
+        writeJson(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void importText(Blackhole blackhole) {
+        CoffeeRecordParser parser = new CoffeeRecordParser();
+        int start = 0;
+        for (int i = 0; i < text.length; i++) {
+            if (text[i] == '\n') {
+                blackhole.consume(parser.parse(text, start, i));
+                start = i + 1;
+            }
+        }
+    }
+
+    @Benchmark
+    public void importJson(Blackhole blackhole) throws IOException {
+        try (JsonCoffeeReader reader = new JsonCoffeeReader(new ByteArrayInputStream(json))) {
+            for (Coffee coffee = reader.read(); coffee != null; coffee = reader.read()) {
+                blackhole.consume(coffee);
+            }
+        }
+    }
+
+    private void writeText(OutputStream sink) throws IOException {
+        CoffeeRecordWriter writer = new CoffeeRecordWriter();
+        try (OutputStream out = new BufferedOutputStream(sink, 1 << 16)) {
+            for (Coffee coffee : cargo) {
+                int length = writer.encode(coffee);
+                out.write(writer.buffer(), 0, length);
+                out.write('\n');
+            }
+        }
+    }
+
+    private void writeJson(OutputStream sink) throws IOException {
+        try (JsonCoffeeWriter writer = new JsonCoffeeWriter(sink)) {
+            for (Coffee coffee : cargo) {
+                writer.write(coffee);
+            }
+        }
+    }
+}
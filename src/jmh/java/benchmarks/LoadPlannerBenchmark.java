@@ -0,0 +1,56 @@
+package benchmarks;
+
+import coffee.Coffee;
+import coffeevan.LoadPlan;
+import coffeevan.LoadPlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Planning a van load from a candidate list, with limits that take about a tenth of the candidates.
+ * The one-second time limit caps the large cases, which then return the best plan found.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class LoadPlannerBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    private final LoadPlanner planner = new LoadPlanner();
+    private List<Coffee> candidates;
+    private double maxVolume;
+    private double maxBudget;
+
+    @Setup
+    public void setUp() {
+        candidates = CargoFixtures.randomCargo(size, 42);
+        for (Coffee coffee : candidates) {
+            maxVolume += coffee.getTotalVolume();
+            maxBudget += coffee.getPrice();
+        }
+        maxVolume /= 10;
+        maxBudget /= 10;
+    }
+
+    @Benchmark
+    public LoadPlan plan() {
+        return planner.plan(candidates, maxVolume, maxBudget, Duration.ofSeconds(1));
+    }
+}
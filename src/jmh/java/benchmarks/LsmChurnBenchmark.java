@@ -0,0 +1,106 @@
+package benchmarks;
+
+import coffee.Coffee;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.LsmCoffeeStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cargo churn on the LSM storage: three items saved one by one, as {@code LoadVanCommand} does,
+ * for every item removed by ID, as {@code RemoveByIdCommand} does, next to lookups of stored
+ * items. The write amplification (bytes written to the log and segments, including compactions,
+ * per byte of saved data) and the segment count are reported as secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class LsmChurnBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1048576"})
+    public long memtableBytes;
+
+    private Path directory;
+    private LsmCoffeeStorage storage;
+    private List<String> liveIds;
+    private final Random random = new Random(1);
+
+    /**
+     * The storage figures after the last operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Amplification {
+        public double writeAmplification;
+        public long segments;
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coffee-bench");
+        storage = new LsmCoffeeStorage(directory.resolve("data.lsm").toString(), memtableBytes);
+        List<Coffee> cargo = CargoFixtures.randomCargo(size, 42);
+        storage.saveToFile(cargo, true);
+        liveIds = new ArrayList<>(size);
+        for (Coffee coffee : cargo) {
+            liveIds.add(coffee.getId());
+        }
+        storage.awaitCompaction();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void churn(Amplification amplification) throws IOException {
+        if (random.nextInt(4) == 0 && !liveIds.isEmpty()) {
+            int i = random.nextInt(liveIds.size());
+            String id = liveIds.get(i);
+            liveIds.set(i, liveIds.get(liveIds.size() - 1));
+            liveIds.remove(liveIds.size() - 1);
+            storage.delete(id);
+        } else {
+            Coffee coffee = CargoFixtures.randomCoffee(random);
+            storage.put(coffee);
+            liveIds.add(coffee.getId());
+        }
+        amplification.writeAmplification = storage.getWriteAmplification();
+        amplification.segments = storage.getSegmentCount();
+    }
+
+    @Benchmark
+    public Coffee get() throws IOException {
+        return storage.get(liveIds.get(random.nextInt(liveIds.size())));
+    }
+}
@@ -0,0 +1,76 @@
+package benchmarks;
+
+import coffee.Coffee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.CoffeeStorageService;
+import services.ParallelLoadResult;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sequential {@link CoffeeStorageService#getFromFile()} against the memory-mapped parallel
+ * loader at several pool sizes, to show how loading scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class ParallelLoadBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path directory;
+    private CoffeeStorageService storage;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coffee-bench");
+        Path file = directory.resolve("data.txt");
+        storage = new CoffeeStorageService(file.toString());
+        storage.saveToFile(CargoFixtures.randomCargo(size, 42), false);
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public List<Coffee> sequentialReader() throws IOException {
+        return storage.getFromFile();
+    }
+
+    @Benchmark
+    public ParallelLoadResult parallelMapped() throws IOException {
+        return storage.getFromFileParallel(pool);
+    }
+}
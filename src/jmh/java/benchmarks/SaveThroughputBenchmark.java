@@ -0,0 +1,93 @@
+package benchmarks;
+
+import coffee.Coffee;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.CoffeeStorageService;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save throughput in MB/s: the {@code megabytes} counter is reported per second.
+ * {@code legacyPrintWriter} is the former {@code println(toFileString())} path, for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class SaveThroughputBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    private Path directory;
+    private Path file;
+    private List<Coffee> cargo;
+    private CoffeeStorageService storage;
+    private double fileMegabytes;
+
+    /**
+     * Counts the written megabytes; JMH reports it as a rate next to the operations.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Written {
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coffee-bench");
+        file = directory.resolve("save.txt");
+        cargo = CargoFixtures.randomCargo(size, 42);
+        storage = new CoffeeStorageService(file.toString());
+        storage.saveToFile(cargo, false);
+        fileMegabytes = Files.size(file) / 1e6;
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void saveToFile(Written written) throws IOException {
+        storage.saveToFile(cargo, false);
+        written.megabytes += fileMegabytes;
+    }
+
+    @Benchmark
+    public void legacyPrintWriter(Written written) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new FileWriter(file.toString(), false))) {
+            for (Coffee coffee : cargo) {
+                writer.println(coffee.toFileString());
+            }
+        }
+        written.megabytes += fileMegabytes;
+    }
+}
@@ -0,0 +1,70 @@
+package benchmarks;
+
+import coffee.Coffee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import services.CoffeeStorageService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole-file load and save through {@link CoffeeStorageService}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j2.configurationFile=log4j2-bench.xml", "--add-modules", "jdk.incubator.vector"})
+public class StorageBenchmark {
+    @Param({"100", "1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private Path directory;
+    private List<Coffee> cargo;
+    private CoffeeStorageService reader;
+    private CoffeeStorageService writer;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("coffee-bench");
+        cargo = CargoFixtures.randomCargo(size, 42);
+        reader = new CoffeeStorageService(directory.resolve("read.txt").toString());
+        reader.saveToFile(cargo, false);
+        writer = new CoffeeStorageService(directory.resolve("write.txt").toString());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public List<Coffee> getFromFile() throws IOException {
+        return reader.getFromFile();
+    }
+
+    @Benchmark
+    public void saveToFile() throws IOException {
+        writer.saveToFile(cargo, false);
+    }
+}
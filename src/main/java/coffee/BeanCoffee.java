@@ -70,32 +70,4 @@ public class BeanCoffee extends Coffee {
     public String getOrigin() {
         return origin;
     }
-    /**
-     * Converts this {@code BeanCoffee} object into a line of text for saving to a file.
-     * <p>
-     * Format:
-     * <pre>
-     * BEAN;ID;Name;Weight;Price;Aroma;Taste;Freshness;Material;Volume;Origin;RoastLevel
-     * </pre>
-     * </p>
-     *
-     * @return a formatted string representing this {@code BeanCoffee}
-     */
-    @Override
-    public String toFileString() {
-        return String.join(";",
-                "BEAN",
-                getId(),
-                getName(),
-                String.valueOf(getWeight()),
-                String.valueOf(getPrice()),
-                String.valueOf(getQuality().getAromaScore()),
-                String.valueOf(getQuality().getTasteScore()),
-                String.valueOf(getQuality().getFreshnessScore()),
-                getPackaging().getMaterial(),
-                String.valueOf(getPackaging().getVolume()),
-                origin,
-                String.valueOf(roastLevel)
-        );
-    }
 }
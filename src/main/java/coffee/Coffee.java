@@ -1,13 +1,13 @@
 package coffee;
 
-import coffee.enums.ConcentrationLevel;
-import coffee.enums.GrindSize;
-import coffee.enums.RoastLevel;
+import coffee.codec.CoffeeCodecRegistry;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import packaging.Packaging;
 import qualityparams.QualityParams;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
 import java.util.UUID;
 
 /**
@@ -16,6 +16,8 @@ import java.util.UUID;
  */
 abstract public class Coffee {
     private static final Logger LOGGER = LogManager.getLogger(Coffee.class);
+    private static final ThreadLocal<CoffeeRecordParser> PARSER = ThreadLocal.withInitial(CoffeeRecordParser::new);
+    private static final ThreadLocal<CoffeeRecordWriter> WRITER = ThreadLocal.withInitial(CoffeeRecordWriter::new);
     private final String name;
     private final double weight;
     private final double price;
@@ -111,6 +113,26 @@ abstract public class Coffee {
         return price / weight;
     }
 
+    /**
+     * Two coffee items are equal if they have the same ID, so that a newer version of an
+     * item replaces the older one in sets and maps.
+     *
+     * @param o the object to compare with
+     * @return {@code true} if {@code o} is a coffee item with the same ID
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        return o instanceof Coffee other && Objects.equals(id, other.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
     /**
      * Returns detailed information about the coffee.
      * Each subclass provides its own formatted description.
@@ -122,8 +144,9 @@ abstract public class Coffee {
     /**
      * Converts this coffee object into a text line suitable for file storage.
      * <p>
-     * Each subclass of {@code Coffee} implements its own version of this method
-     * to include specific fields (e.g., roast level, grind size, or concentration level).
+     * The line is written by the {@link coffee.codec.CoffeeCodec} registered for the class
+     * (or its closest superclass), which adds the type specific fields (e.g., roast level,
+     * grind size, or concentration level) after the common ones.
      * The resulting string always uses semicolon (;) as a separator.
      * </p>
      *
@@ -133,8 +156,16 @@ abstract public class Coffee {
      * </pre>
      *
      * @return a string representation of the coffee suitable for saving to file
+     * @throws IllegalArgumentException if no codec is registered for the class
      */
-    public abstract String toFileString();
+    public String toFileString() {
+        if (CoffeeCodecRegistry.getDefault().codecFor(getClass()) == null) {
+            throw new IllegalArgumentException("No coffee codec for type: " + getClass().getName());
+        }
+        CoffeeRecordWriter writer = WRITER.get();
+        int length = writer.encode(this);
+        return new String(writer.buffer(), 0, length, StandardCharsets.UTF_8);
+    }
 
     /**
      * Reconstructs a {@link Coffee} object from a single line of text.
@@ -149,7 +180,7 @@ abstract public class Coffee {
      * </pre>
      *
      * <ul>
-     *   <li><b>TYPE</b> — "BEAN", "GROUND", or "INSTANT"</li>
+     *   <li><b>TYPE</b> — the tag of a registered {@link coffee.codec.CoffeeCodec}: "BEAN", "GROUND", or "INSTANT"</li>
      *   <li><b>ExtraFields</b> — depend on the coffee type:
      *       <ul>
      *         <li>BeanCoffee → origin;roastLevel</li>
@@ -159,45 +190,14 @@ abstract public class Coffee {
      *   </li>
      * </ul>
      *
+     * <p>Parsing is done by {@link CoffeeRecordParser} without splitting the line into substrings.</p>
+     *
      * @param s the line read from the file
      * @return a {@link Coffee} object created from the data, or {@code null} if invalid
      */
     public static Coffee fromFileString(String s) {
         try {
-            String[] parts = s.split(";");
-            if (parts.length < 10) {
-                throw new IllegalArgumentException("Invalid data format: " + s);
-            }
-
-            String type = parts[0];
-            String id = parts[1];
-            String name = parts[2];
-            double weight = Double.parseDouble(parts[3]);
-            double price = Double.parseDouble(parts[4]);
-            double aroma = Double.parseDouble(parts[5]);
-            double taste = Double.parseDouble(parts[6]);
-            double freshness = Double.parseDouble(parts[7]);
-            String material = parts[8];
-            double volume = Double.parseDouble(parts[9]);
-
-            QualityParams q = new QualityParams(aroma, taste, freshness);
-            Packaging p = new Packaging(material, volume);
-
-            //after creating spec coffee object
-            switch (type.toLowerCase()) {
-                case "bean":
-                    String origin = parts[10];
-                    RoastLevel roast = RoastLevel.valueOf(parts[11].toUpperCase());
-                    return new BeanCoffee(name, weight, price, q, p, roast, origin, id);
-                case "ground":
-                    GrindSize grind = GrindSize.valueOf(parts[10].toUpperCase());
-                    return new GroundCoffee(name, weight, price, q, p, grind, id);
-                case "instant":
-                    ConcentrationLevel level = ConcentrationLevel.valueOf(parts[10].toUpperCase());
-                    return new InstantCoffee(name, weight, price, q, p, level, id);
-                default:
-                    throw new IllegalArgumentException("Unknown coffee type: " + type);
-            }
+            return PARSER.get().parse(s);
         } catch (Exception e) {
             LOGGER.error("Critical Error: Failed to parse line from file. Line: '{}'", s, e);
             return null;
@@ -0,0 +1,101 @@
+package coffee;
+
+import coffee.codec.CoffeeCodec;
+import coffee.codec.CoffeeCodecRegistry;
+import coffee.codec.CoffeeFields;
+import coffee.codec.RecordReader;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Streaming parser for the semicolon text format of {@link Coffee#toFileString()}.
+ * <p>
+ * Reads the fields of one record straight from a {@code byte[]} window: numbers are
+ * parsed without intermediate strings, and the type tag is looked up byte by byte in the
+ * {@link CoffeeCodecRegistry}. The common fields are read here, the rest by the
+ * {@link CoffeeCodec} of the tag. Only the resulting coffee object graph is allocated.
+ * <p>
+ * An instance keeps a cursor into the current record and a scratch buffer,
+ * so it must not be shared between threads.
+ */
+public final class CoffeeRecordParser {
+    private final CoffeeCodecRegistry registry;
+    private final RecordReader reader = new RecordReader();
+    // reused to hold a String record as bytes
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Creates a parser for the codecs of {@link CoffeeCodecRegistry#getDefault()}.
+     */
+    public CoffeeRecordParser() {
+        this(CoffeeCodecRegistry.getDefault());
+    }
+
+    /**
+     * @param registry the codecs to parse with
+     */
+    public CoffeeRecordParser(CoffeeCodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Parses one record from a string.
+     *
+     * @param line the record, without line terminator
+     * @return the parsed coffee
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    public Coffee parse(String line) {
+        int length = line.length();
+        if (length > scratch.length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                // non-ASCII text: let the JDK encode it once
+                byte[] utf8 = line.getBytes(StandardCharsets.UTF_8);
+                return parse(utf8, 0, utf8.length);
+            }
+            scratch[i] = (byte) c;
+        }
+        return parse(scratch, 0, length);
+    }
+
+    /**
+     * Parses one UTF-8 encoded record from {@code bytes[from, to)}.
+     *
+     * @param bytes the buffer holding the record
+     * @param from  index of the first byte of the record
+     * @param to    index after the last byte of the record, without line terminator
+     * @return the parsed coffee
+     * @throws IllegalArgumentException if the record is malformed
+     */
+    public Coffee parse(byte[] bytes, int from, int to) {
+        reader.reset(bytes, from, to);
+        reader.nextField();
+        int typeStart = reader.fieldStart();
+        int typeEnd = reader.fieldEnd();
+        CoffeeCodec<?> codec = registry.codecFor(bytes, typeStart, typeEnd);
+
+        String id = reader.nextString();
+        String name = reader.nextString();
+        double weight = reader.nextDouble();
+        double price = reader.nextDouble();
+        double aroma = reader.nextDouble();
+        double taste = reader.nextDouble();
+        double freshness = reader.nextDouble();
+        String material = reader.nextString();
+        double volume = reader.nextDouble();
+
+        if (codec == null) {
+            throw new IllegalArgumentException("Unknown coffee type: "
+                    + new String(bytes, typeStart, typeEnd - typeStart, StandardCharsets.ISO_8859_1));
+        }
+        QualityParams q = new QualityParams(aroma, taste, freshness);
+        Packaging p = new Packaging(material, volume);
+        return codec.decode(new CoffeeFields(id, name, weight, price, q, p), reader);
+    }
+}
@@ -0,0 +1,84 @@
+package coffee;
+
+import coffee.codec.CoffeeCodec;
+import coffee.codec.CoffeeCodecRegistry;
+import coffee.codec.RecordWriter;
+import qualityparams.QualityParams;
+
+/**
+ * Writes coffee records in the semicolon text format of {@link Coffee#toFileString()}
+ * straight into a reusable UTF-8 byte buffer.
+ * <p>
+ * The tag and the common fields are written here, the rest by the {@link CoffeeCodec} that
+ * the {@link CoffeeCodecRegistry} has for the class of the item. Text and numbers go through
+ * a {@link RecordWriter}, without intermediate strings. Classes without a codec go through
+ * {@code toFileString()}, which {@link Coffee} implements with this writer and the default
+ * registry, so an unregistered type is rejected with an {@link IllegalArgumentException}
+ * unless it overrides that method.
+ * <p>
+ * An instance owns its buffer, so it must not be shared between threads.
+ */
+public final class CoffeeRecordWriter {
+    private final CoffeeCodecRegistry registry;
+    private final RecordWriter out = new RecordWriter();
+
+    /**
+     * Creates a writer for the codecs of {@link CoffeeCodecRegistry#getDefault()}.
+     */
+    public CoffeeRecordWriter() {
+        this(CoffeeCodecRegistry.getDefault());
+    }
+
+    /**
+     * @param registry the codecs to write with
+     */
+    public CoffeeRecordWriter(CoffeeCodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Encodes one record, without line terminator, into the buffer.
+     * The previous content of the buffer is discarded.
+     *
+     * @param coffee the item to encode
+     * @return the number of bytes in {@link #buffer()}
+     * @throws IllegalArgumentException if neither the registry nor the default registry has a codec
+     *                                  for the class of the item, and it does not override {@code toFileString()}
+     */
+    public int encode(Coffee coffee) {
+        out.reset();
+        @SuppressWarnings("unchecked")
+        CoffeeCodec<Coffee> codec = (CoffeeCodec<Coffee>) registry.codecFor(coffee.getClass());
+        if (codec == null) {
+            out.writeRaw(coffee.toFileString());
+            return out.length();
+        }
+        out.writeString(codec.tag());
+        out.writeString(coffee.getId());
+        out.writeString(coffee.getName());
+        out.writeDouble(coffee.getWeight());
+        out.writeDouble(coffee.getPrice());
+        QualityParams quality = coffee.getQuality();
+        out.writeDouble(quality.getAromaScore());
+        out.writeDouble(quality.getTasteScore());
+        out.writeDouble(quality.getFreshnessScore());
+        out.writeString(coffee.getPackaging().getMaterial());
+        out.writeDouble(coffee.getPackaging().getVolume());
+        codec.encode(coffee, out);
+        return out.length();
+    }
+
+    /**
+     * @return the buffer holding the last encoded record in {@code [0, length())}
+     */
+    public byte[] buffer() {
+        return out.buffer();
+    }
+
+    /**
+     * @return the length of the last encoded record
+     */
+    public int length() {
+        return out.length();
+    }
+}
@@ -59,32 +59,4 @@ public class GroundCoffee extends Coffee {
     public GrindSize getGrindSize() {
         return grindSize;
     }
-
-    /**
-     * Converts this {@code GroundCoffee} object into a line of text for saving to a file.
-     * <p>
-     * Format:
-     * <pre>
-     * GROUND;ID;Name;Weight;Price;Aroma;Taste;Freshness;Material;Volume;GrindSize
-     * </pre>
-     * </p>
-     *
-     * @return a formatted string representing this {@code GroundCoffee}
-     */
-    @Override
-    public String toFileString() {
-        return String.join(";",
-                "GROUND",
-                getId(),
-                getName(),
-                String.valueOf(getWeight()),
-                String.valueOf(getPrice()),
-                String.valueOf(getQuality().getAromaScore()),
-                String.valueOf(getQuality().getTasteScore()),
-                String.valueOf(getQuality().getFreshnessScore()),
-                getPackaging().getMaterial(),
-                String.valueOf(getPackaging().getVolume()),
-                String.valueOf(grindSize)
-        );
-    }
 }
@@ -58,32 +58,4 @@ public class InstantCoffee extends Coffee {
     public ConcentrationLevel getConcentrationLevel() {
         return concentrationLevel;
     }
-
-    /**
-     * Converts this {@code InstantCoffee} object into a line of text for saving to a file.
-     * <p>
-     * Format:
-     * <pre>
-     * INSTANT;ID;Name;Weight;Price;Aroma;Taste;Freshness;Material;Volume;ConcentrationLevel
-     * </pre>
-     * </p>
-     *
-     * @return a formatted string representing this {@code InstantCoffee}
-     */
-    @Override
-    public String toFileString() {
-        return String.join(";",
-                "INSTANT",
-                getId(),
-                getName(),
-                String.valueOf(getWeight()),
-                String.valueOf(getPrice()),
-                String.valueOf(getQuality().getAromaScore()),
-                String.valueOf(getQuality().getTasteScore()),
-                String.valueOf(getQuality().getFreshnessScore()),
-                getPackaging().getMaterial(),
-                String.valueOf(getPackaging().getVolume()),
-                String.valueOf(concentrationLevel)
-        );
-    }
 }
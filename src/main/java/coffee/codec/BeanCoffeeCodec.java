@@ -0,0 +1,35 @@
+package coffee.codec;
+
+import coffee.BeanCoffee;
+import coffee.enums.RoastLevel;
+
+/**
+ * Codec of {@link BeanCoffee} records: {@code BEAN;...;Origin;RoastLevel}.
+ */
+public final class BeanCoffeeCodec implements CoffeeCodec<BeanCoffee> {
+    private static final RoastLevel[] ROAST_LEVELS = RoastLevel.values();
+
+    @Override
+    public String tag() {
+        return "BEAN";
+    }
+
+    @Override
+    public Class<BeanCoffee> type() {
+        return BeanCoffee.class;
+    }
+
+    @Override
+    public void encode(BeanCoffee coffee, RecordWriter out) {
+        out.writeString(coffee.getOrigin());
+        out.writeEnum(coffee.getRoastLevel());
+    }
+
+    @Override
+    public BeanCoffee decode(CoffeeFields fields, RecordReader in) {
+        String origin = in.nextString();
+        RoastLevel roast = in.nextEnum(ROAST_LEVELS);
+        return new BeanCoffee(fields.getName(), fields.getWeight(), fields.getPrice(), fields.getQuality(),
+                fields.getPackaging(), roast, origin, fields.getId());
+    }
+}
@@ -0,0 +1,48 @@
+package coffee.codec;
+
+import coffee.Coffee;
+
+/**
+ * Reads and writes the type specific part of the text records of one coffee type.
+ * <p>
+ * A record is {@code TAG;ID;Name;Weight;Price;Aroma;Taste;Freshness;Material;Volume}
+ * followed by the fields of the codec. The common part is handled by the
+ * {@link coffee.CoffeeRecordParser} and {@link coffee.CoffeeRecordWriter}; they pick the codec
+ * by the tag or by the class of the item from the {@link CoffeeCodecRegistry}.
+ * <p>
+ * Codecs are found with {@link java.util.ServiceLoader}: list the implementation in
+ * {@code META-INF/services/coffee.codec.CoffeeCodec}. Implementations need a public
+ * no-argument constructor and must be stateless, since one instance serves all threads.
+ *
+ * @param <T> the coffee type
+ */
+public interface CoffeeCodec<T extends Coffee> {
+
+    /**
+     * @return the tag that starts the records, e.g. {@code BEAN}; matched ignoring case
+     */
+    String tag();
+
+    /**
+     * @return the coffee class the codec writes; subclasses without a codec of their own use it too
+     */
+    Class<T> type();
+
+    /**
+     * Writes the fields after the common ones.
+     *
+     * @param coffee the item to write
+     * @param out    the record being built
+     */
+    void encode(T coffee, RecordWriter out);
+
+    /**
+     * Reads the fields after the common ones and creates the item.
+     *
+     * @param fields the common fields, already read
+     * @param in     the record, positioned after the common fields
+     * @return the item
+     * @throws IllegalArgumentException if the fields are malformed
+     */
+    T decode(CoffeeFields fields, RecordReader in);
+}
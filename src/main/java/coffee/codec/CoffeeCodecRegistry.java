@@ -0,0 +1,173 @@
+package coffee.codec;
+
+import coffee.Coffee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * The {@link CoffeeCodec}s known to the text format, by tag and by coffee class.
+ * <p>
+ * Tags are looked up through a table indexed by their first (upper-cased) byte, so a record
+ * only ever compares its tag with the few codecs that start with the same letter; no strings
+ * are created for the lookup. Adding a coffee type means adding a codec, not changing the
+ * parser, the writer or {@link Coffee}.
+ * <p>
+ * Lookups read an immutable snapshot and need no locking; {@link #register(CoffeeCodec)}
+ * publishes a new snapshot.
+ */
+public final class CoffeeCodecRegistry {
+    private static final Logger LOGGER = LogManager.getLogger(CoffeeCodecRegistry.class);
+    private static final int TABLE_SIZE = 128;
+
+    private volatile Snapshot snapshot = new Snapshot(new CoffeeCodec<?>[TABLE_SIZE][], Map.of());
+
+    /**
+     * Creates an empty registry.
+     */
+    public CoffeeCodecRegistry() {
+    }
+
+    /**
+     * @return the registry of the codecs listed in {@code META-INF/services/coffee.codec.CoffeeCodec}
+     */
+    public static CoffeeCodecRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Adds a codec.
+     *
+     * @param codec the codec
+     * @throws IllegalArgumentException if the tag is empty, not ASCII or contains {@code ;},
+     *                                  or the tag or the type already has a codec
+     */
+    public synchronized void register(CoffeeCodec<?> codec) {
+        String tag = codec.tag();
+        Class<?> type = codec.type();
+        if (tag == null || tag.isEmpty() || !tag.chars().allMatch(c -> c > ' ' && c < TABLE_SIZE && c != ';')) {
+            throw new IllegalArgumentException("Invalid coffee codec tag: " + tag);
+        }
+        if (type == null) {
+            throw new IllegalArgumentException("Coffee codec " + tag + " has no type");
+        }
+        if (codecFor(tag) != null) {
+            throw new IllegalArgumentException("Duplicate coffee codec tag: " + tag);
+        }
+        Snapshot current = snapshot;
+        if (current.byType.containsKey(type)) {
+            throw new IllegalArgumentException("Duplicate coffee codec for type: " + type.getName());
+        }
+        CoffeeCodec<?>[][] byTag = current.byTag.clone();
+        int slot = RecordReader.toUpper(tag.charAt(0));
+        CoffeeCodec<?>[] bucket = byTag[slot] == null ? new CoffeeCodec<?>[0] : byTag[slot];
+        bucket = Arrays.copyOf(bucket, bucket.length + 1);
+        bucket[bucket.length - 1] = codec;
+        byTag[slot] = bucket;
+        Map<Class<?>, CoffeeCodec<?>> byType = new HashMap<>(current.byType);
+        byType.put(type, codec);
+        snapshot = new Snapshot(byTag, Map.copyOf(byType));
+    }
+
+    /**
+     * Finds the codec of a record tag, ignoring case.
+     *
+     * @param bytes the buffer holding the tag
+     * @param from  index of the first byte of the tag
+     * @param to    index after the last byte of the tag
+     * @return the codec, or {@code null} if no codec has this tag
+     */
+    public CoffeeCodec<?> codecFor(byte[] bytes, int from, int to) {
+        if (from >= to || bytes[from] < 0) {
+            return null;
+        }
+        CoffeeCodec<?>[] bucket = snapshot.byTag[RecordReader.toUpper(bytes[from])];
+        if (bucket == null) {
+            return null;
+        }
+        for (CoffeeCodec<?> codec : bucket) {
+            if (tagMatches(codec.tag(), bytes, from, to)) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the codec of a record tag, ignoring case.
+     *
+     * @param tag the tag
+     * @return the codec, or {@code null} if no codec has this tag
+     */
+    public CoffeeCodec<?> codecFor(String tag) {
+        for (int i = 0; i < tag.length(); i++) {
+            if (tag.charAt(i) >= TABLE_SIZE) {
+                return null;
+            }
+        }
+        byte[] bytes = new byte[tag.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) tag.charAt(i);
+        }
+        return codecFor(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Finds the codec that writes a coffee class: the codec of the class itself, otherwise
+     * that of its closest superclass that has one.
+     *
+     * @param type the coffee class
+     * @return the codec, or {@code null} if neither the class nor a superclass has one
+     */
+    public CoffeeCodec<?> codecFor(Class<?> type) {
+        Map<Class<?>, CoffeeCodec<?>> byType = snapshot.byType;
+        for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+            CoffeeCodec<?> codec = byType.get(c);
+            if (codec != null) {
+                return codec;
+            }
+        }
+        return null;
+    }
+
+    private static boolean tagMatches(String tag, byte[] bytes, int from, int to) {
+        if (to - from != tag.length()) {
+            return false;
+        }
+        for (int i = 0; i < tag.length(); i++) {
+            if (RecordReader.toUpper(bytes[from + i]) != RecordReader.toUpper(tag.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Snapshot {
+        // codecs by the upper-cased first byte of their tag
+        private final CoffeeCodec<?>[][] byTag;
+        private final Map<Class<?>, CoffeeCodec<?>> byType;
+
+        Snapshot(CoffeeCodec<?>[][] byTag, Map<Class<?>, CoffeeCodec<?>> byType) {
+            this.byTag = byTag;
+            this.byType = byType;
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final CoffeeCodecRegistry INSTANCE = load();
+
+        @SuppressWarnings("rawtypes")
+        private static CoffeeCodecRegistry load() {
+            CoffeeCodecRegistry registry = new CoffeeCodecRegistry();
+            for (CoffeeCodec codec : ServiceLoader.load(CoffeeCodec.class)) {
+                registry.register(codec);
+                LOGGER.debug("Registered coffee codec {} for {}.", codec.tag(), codec.type().getName());
+            }
+            return registry;
+        }
+    }
+}
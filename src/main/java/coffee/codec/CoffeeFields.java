@@ -0,0 +1,57 @@
+package coffee.codec;
+
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+/**
+ * The fields every coffee record starts with, already read when a {@link CoffeeCodec} decodes the rest.
+ */
+public final class CoffeeFields {
+    private final String id;
+    private final String name;
+    private final double weight;
+    private final double price;
+    private final QualityParams quality;
+    private final Packaging packaging;
+
+    /**
+     * @param id        the coffee ID
+     * @param name      the coffee name
+     * @param weight    the coffee weight in grams
+     * @param price     the coffee price in USD
+     * @param quality   the quality parameters
+     * @param packaging the packaging details
+     */
+    public CoffeeFields(String id, String name, double weight, double price, QualityParams quality, Packaging packaging) {
+        this.id = id;
+        this.name = name;
+        this.weight = weight;
+        this.price = price;
+        this.quality = quality;
+        this.packaging = packaging;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getWeight() {
+        return weight;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public QualityParams getQuality() {
+        return quality;
+    }
+
+    public Packaging getPackaging() {
+        return packaging;
+    }
+}
@@ -0,0 +1,32 @@
+package coffee.codec;
+
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+
+/**
+ * Codec of {@link GroundCoffee} records: {@code GROUND;...;GrindSize}.
+ */
+public final class GroundCoffeeCodec implements CoffeeCodec<GroundCoffee> {
+    private static final GrindSize[] GRIND_SIZES = GrindSize.values();
+
+    @Override
+    public String tag() {
+        return "GROUND";
+    }
+
+    @Override
+    public Class<GroundCoffee> type() {
+        return GroundCoffee.class;
+    }
+
+    @Override
+    public void encode(GroundCoffee coffee, RecordWriter out) {
+        out.writeEnum(coffee.getGrindSize());
+    }
+
+    @Override
+    public GroundCoffee decode(CoffeeFields fields, RecordReader in) {
+        return new GroundCoffee(fields.getName(), fields.getWeight(), fields.getPrice(), fields.getQuality(),
+                fields.getPackaging(), in.nextEnum(GRIND_SIZES), fields.getId());
+    }
+}
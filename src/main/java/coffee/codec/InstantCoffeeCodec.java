@@ -0,0 +1,32 @@
+package coffee.codec;
+
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+
+/**
+ * Codec of {@link InstantCoffee} records: {@code INSTANT;...;ConcentrationLevel}.
+ */
+public final class InstantCoffeeCodec implements CoffeeCodec<InstantCoffee> {
+    private static final ConcentrationLevel[] CONCENTRATION_LEVELS = ConcentrationLevel.values();
+
+    @Override
+    public String tag() {
+        return "INSTANT";
+    }
+
+    @Override
+    public Class<InstantCoffee> type() {
+        return InstantCoffee.class;
+    }
+
+    @Override
+    public void encode(InstantCoffee coffee, RecordWriter out) {
+        out.writeEnum(coffee.getConcentrationLevel());
+    }
+
+    @Override
+    public InstantCoffee decode(CoffeeFields fields, RecordReader in) {
+        return new InstantCoffee(fields.getName(), fields.getWeight(), fields.getPrice(), fields.getQuality(),
+                fields.getPackaging(), in.nextEnum(CONCENTRATION_LEVELS), fields.getId());
+    }
+}
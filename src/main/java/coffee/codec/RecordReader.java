@@ -0,0 +1,205 @@
+package coffee.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over the semicolon separated fields of one text record in a {@code byte[]} window.
+ * <p>
+ * Numbers are parsed without intermediate strings, and enum constants are matched byte by
+ * byte, ignoring case. Codecs read the fields of their coffee type through it.
+ * <p>
+ * An instance keeps a cursor into the current record, so it must not be shared between threads.
+ */
+public final class RecordReader {
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    // doubles hold every integer up to 2^53 exactly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private byte[] buf;
+    private int end;
+    private int pos;
+    private int fieldStart;
+    private int fieldEnd;
+
+    /**
+     * Starts reading the UTF-8 encoded record {@code bytes[from, to)}.
+     *
+     * @param bytes the buffer holding the record
+     * @param from  index of the first byte of the record
+     * @param to    index after the last byte of the record, without line terminator
+     */
+    public void reset(byte[] bytes, int from, int to) {
+        this.buf = bytes;
+        this.pos = from;
+        this.end = to;
+    }
+
+    /**
+     * Moves to the next field; its bytes are {@code buffer()[fieldStart(), fieldEnd())}.
+     *
+     * @throws IllegalArgumentException if the record has no more fields
+     */
+    public void nextField() {
+        if (pos > end) {
+            throw new IllegalArgumentException("Invalid data format: missing field");
+        }
+        fieldStart = pos;
+        int i = pos;
+        while (i < end && buf[i] != ';') {
+            i++;
+        }
+        fieldEnd = i;
+        pos = i + 1;
+    }
+
+    /**
+     * @return the buffer holding the record
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * @return index of the first byte of the current field
+     */
+    public int fieldStart() {
+        return fieldStart;
+    }
+
+    /**
+     * @return index after the last byte of the current field
+     */
+    public int fieldEnd() {
+        return fieldEnd;
+    }
+
+    /**
+     * @return the next field as text
+     * @throws IllegalArgumentException if the record has no more fields
+     */
+    public String nextString() {
+        nextField();
+        return new String(buf, fieldStart, fieldEnd - fieldStart, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the next field as the name of an enum constant, ignoring case.
+     *
+     * @param constants the constants of the enum, from {@code values()}
+     * @return the matching constant
+     * @throws IllegalArgumentException if the field names none of them or is missing
+     */
+    public <E extends Enum<E>> E nextEnum(E[] constants) {
+        nextField();
+        for (E constant : constants) {
+            String name = constant.name();
+            int length = fieldEnd - fieldStart;
+            if (length != name.length()) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && toUpper(buf[fieldStart + i]) == name.charAt(i)) {
+                i++;
+            }
+            if (i == length) {
+                return constant;
+            }
+        }
+        throw new IllegalArgumentException("No enum constant " + constants[0].getDeclaringClass().getSimpleName()
+                + "." + latin1(fieldStart, fieldEnd));
+    }
+
+    /**
+     * Parses the next field as a decimal number such as {@code 15.99}, {@code -3} or {@code 1.0E7}.
+     * When the digits fit into a long below 2^53 and the decimal exponent is at most 22,
+     * both the mantissa and the power of ten are exact doubles, so one IEEE multiplication
+     * or division gives the correctly rounded result, identical to {@link Double#parseDouble}.
+     * Everything else (more digits, NaN, hex, whitespace, ...) goes to {@link Double#parseDouble}.
+     *
+     * @return the number
+     * @throws IllegalArgumentException if the field is not a number or is missing
+     */
+    public double nextDouble() {
+        nextField();
+        int i = fieldStart;
+        int to = fieldEnd;
+        boolean negative = false;
+        if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+            negative = buf[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        int intStart = i;
+        while (i < to && isDigit(buf[i])) {
+            mantissa = mantissa * 10 + (buf[i] - '0');
+            if (mantissa != 0) digits++;
+            i++;
+        }
+        boolean anyDigits = i > intStart;
+        if (i < to && buf[i] == '.') {
+            i++;
+            int fracStart = i;
+            while (i < to && isDigit(buf[i])) {
+                mantissa = mantissa * 10 + (buf[i] - '0');
+                if (mantissa != 0) digits++;
+                exponent--;
+                i++;
+            }
+            anyDigits |= i > fracStart;
+        }
+        if (anyDigits && i < to && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < to && (buf[i] == '-' || buf[i] == '+')) {
+                negativeExponent = buf[i] == '-';
+                i++;
+            }
+            int expStart = i;
+            int explicit = 0;
+            while (i < to && isDigit(buf[i]) && explicit < 1000) {
+                explicit = explicit * 10 + (buf[i] - '0');
+                i++;
+            }
+            if (i == expStart) {
+                return slowDouble();
+            }
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+        if (!anyDigits || i != to || digits > 18) {
+            return slowDouble();
+        }
+        double value;
+        if (mantissa == 0) {
+            value = 0.0;
+        } else if (mantissa < MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+            value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        } else {
+            return slowDouble();
+        }
+        return negative ? -value : value;
+    }
+
+    private double slowDouble() {
+        return Double.parseDouble(new String(buf, fieldStart, fieldEnd - fieldStart, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return {@code buffer()[from, to)} as Latin-1 text, for error messages
+     */
+    String latin1(int from, int to) {
+        return new String(buf, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    static int toUpper(int b) {
+        return b >= 'a' && b <= 'z' ? b - 32 : b;
+    }
+}
@@ -0,0 +1,193 @@
+package coffee.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Builds one semicolon separated text record in a reusable UTF-8 byte buffer.
+ * <p>
+ * Fields come out exactly as {@code String.join(";", ...)} of their {@code String.valueOf}
+ * would give them, but without intermediate strings: ASCII text is copied char by char, and
+ * doubles are formatted by {@link #writeDouble(double)}, which gives the same digits as
+ * {@link Double#toString(double)}. Codecs write the fields of their coffee type through it.
+ * <p>
+ * An instance owns its buffer, so it must not be shared between threads.
+ */
+public final class RecordWriter {
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L
+    };
+    // decimals with at most 15 significant digits never share a double, so a match is the shortest one
+    private static final long MAX_DIGITS_VALUE = 1_000_000_000_000_000L;
+
+    private byte[] buf = new byte[256];
+    private int length;
+    private boolean firstField = true;
+
+    /**
+     * Discards the current record and starts a new one.
+     */
+    public void reset() {
+        length = 0;
+        firstField = true;
+    }
+
+    /**
+     * @return the buffer holding the record in {@code [0, length())}
+     */
+    public byte[] buffer() {
+        return buf;
+    }
+
+    /**
+     * @return the length of the record
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Appends a text field ({@code null} as "null").
+     *
+     * @param value the text
+     */
+    public void writeString(String value) {
+        startField();
+        appendString(value);
+    }
+
+    /**
+     * Appends an enum field by its name ({@code null} as "null").
+     *
+     * @param value the constant
+     */
+    public void writeEnum(Enum<?> value) {
+        writeString(value == null ? null : value.name());
+    }
+
+    /**
+     * Appends a number with the digits of {@link Double#toString(double)}.
+     *
+     * @param value the number
+     */
+    public void writeDouble(double value) {
+        startField();
+        appendDouble(value);
+    }
+
+    /**
+     * Appends text that is already a whole record or the rest of one, without a separator in front.
+     *
+     * @param text the text
+     */
+    public void writeRaw(String text) {
+        appendString(text);
+        firstField = false;
+    }
+
+    private void startField() {
+        if (!firstField) {
+            ensureCapacity(1);
+            buf[length++] = ';';
+        }
+        firstField = false;
+    }
+
+    /**
+     * Appends a string as UTF-8, like {@code String.join} would show it ({@code null} as "null").
+     */
+    private void appendString(String value) {
+        if (value == null) {
+            value = "null";
+        }
+        int size = value.length();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // non-ASCII text: let the JDK encode it
+                length -= i;
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buf, length, bytes.length);
+                length += bytes.length;
+                return;
+            }
+            buf[length++] = (byte) c;
+        }
+    }
+
+    /**
+     * Appends the digits of {@link Double#toString(double)}.
+     * <p>
+     * In the plain notation range {@code [1e-3, 1e7)}, the value is tried with 0, 1, 2, ...
+     * fraction digits: the first decimal {@code m / 10^k} that converts back to the same
+     * double is the shortest one. While {@code m} has at most 15 digits no other decimal of
+     * that length maps to the same double, so this is exactly the decimal the JDK picks.
+     * Other values (scientific notation, 16 or 17 digits, NaN, infinities) use the JDK.
+     */
+    private void appendDouble(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude == 0) {
+            appendPlain(Double.doubleToRawLongBits(value) < 0, 0, 0);
+            return;
+        }
+        if (magnitude >= 1e-3 && magnitude < 1e7) {
+            for (int k = 0; k < POWERS_OF_TEN.length; k++) {
+                double scale = POWERS_OF_TEN[k];
+                long m = Math.round(magnitude * scale);
+                if (m >= MAX_DIGITS_VALUE) {
+                    break;
+                }
+                if (m / scale == magnitude) {
+                    appendPlain(value < 0, m, k);
+                    return;
+                }
+            }
+        }
+        appendString(Double.toString(value));
+    }
+
+    /**
+     * Appends {@code m / 10^k} in plain notation, with at least one fraction digit.
+     */
+    private void appendPlain(boolean negative, long m, int k) {
+        ensureCapacity(40);
+        if (negative) {
+            buf[length++] = '-';
+        }
+        long power = POWERS_OF_TEN[k];
+        appendDigits(m / power, 1);
+        buf[length++] = '.';
+        if (k == 0) {
+            buf[length++] = '0';
+        } else {
+            appendDigits(m % power, k);
+        }
+    }
+
+    /**
+     * Appends a non-negative number with at least {@code minDigits} digits (zero padded).
+     */
+    private void appendDigits(long value, int minDigits) {
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        int end = length + digits;
+        for (int i = end - 1; i >= length; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length = end;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (length + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(length + extra, buf.length * 2));
+        }
+    }
+}
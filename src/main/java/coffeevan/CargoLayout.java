@@ -0,0 +1,17 @@
+package coffeevan;
+
+/**
+ * How a {@link CoffeeVan} lays out its cargo for scans.
+ */
+public enum CargoLayout {
+    /**
+     * Cargo kept as coffee objects only; quality searches use a linear scan
+     * or, for large cargos, a k-d tree index.
+     */
+    OBJECTS,
+    /**
+     * Cargo additionally mirrored into primitive columns; quality searches
+     * run as SIMD scans over the columns (needs {@code --add-modules jdk.incubator.vector}).
+     */
+    COLUMNS
+}
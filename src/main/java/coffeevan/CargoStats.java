@@ -0,0 +1,134 @@
+package coffeevan;
+
+import coffee.Coffee;
+
+import java.util.TreeMap;
+
+/**
+ * Aggregates over a group of coffee items that are kept up to date
+ * while items are added and removed, so reading them costs O(1).
+ * <p>
+ * Tracks the item count, the total packaging volume, the total price
+ * and the minimum/maximum price-to-weight ratio.
+ * <p>
+ * A {@link #snapshot()} is a frozen copy that can be read from any thread.
+ */
+public final class CargoStats {
+    private int count;
+    private final CompensatedSum volume = new CompensatedSum();
+    private final CompensatedSum price = new CompensatedSum();
+    // ratio -> number of items with that ratio, needed to restore min/max after removals; null in a snapshot
+    private final TreeMap<Double, Integer> ratios;
+    private double minRatio = Double.NaN;
+    private double maxRatio = Double.NaN;
+
+    /**
+     * Creates empty aggregates.
+     */
+    public CargoStats() {
+        ratios = new TreeMap<>();
+    }
+
+    private CargoStats(CargoStats source) {
+        ratios = null;
+        count = source.count;
+        volume.add(source.volume.get());
+        price.add(source.price.get());
+        minRatio = source.minRatio;
+        maxRatio = source.maxRatio;
+    }
+
+    /**
+     * Copies the current values, without the per-ratio counts that only updates need.
+     *
+     * @return an unmodifiable copy of these aggregates
+     */
+    CargoStats snapshot() {
+        return new CargoStats(this);
+    }
+
+    /**
+     * Includes a coffee item into the aggregates.
+     *
+     * @param coffee the coffee item that was added
+     */
+    void add(Coffee coffee) {
+        checkModifiable();
+        count++;
+        volume.add(coffee.getTotalVolume());
+        price.add(coffee.getPrice());
+        double ratio = coffee.getPriceToWeightRatio();
+        ratios.merge(ratio, 1, Integer::sum);
+        if (count == 1 || Double.compare(ratio, minRatio) < 0) minRatio = ratio;
+        if (count == 1 || Double.compare(ratio, maxRatio) > 0) maxRatio = ratio;
+    }
+
+    /**
+     * Excludes a coffee item from the aggregates.
+     *
+     * @param coffee the coffee item that was removed
+     */
+    void remove(Coffee coffee) {
+        checkModifiable();
+        count--;
+        double ratio = coffee.getPriceToWeightRatio();
+        ratios.computeIfPresent(ratio, (k, n) -> n == 1 ? null : n - 1);
+        if (count == 0) {
+            // start from exact zero again instead of keeping the rounding residue
+            volume.reset();
+            price.reset();
+            minRatio = Double.NaN;
+            maxRatio = Double.NaN;
+            return;
+        }
+        volume.add(-coffee.getTotalVolume());
+        price.add(-coffee.getPrice());
+        if (Double.compare(ratio, minRatio) == 0 && !ratios.containsKey(ratio)) {
+            minRatio = ratios.firstKey();
+        }
+        if (Double.compare(ratio, maxRatio) == 0 && !ratios.containsKey(ratio)) {
+            maxRatio = ratios.lastKey();
+        }
+    }
+
+    private void checkModifiable() {
+        if (ratios == null) {
+            throw new UnsupportedOperationException("A snapshot of cargo stats cannot be changed");
+        }
+    }
+
+    /**
+     * @return the number of items in the group
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the total packaging volume of the group (in milliliters)
+     */
+    public double getTotalVolume() {
+        return volume.get();
+    }
+
+    /**
+     * @return the total price of the group (in USD)
+     */
+    public double getTotalCost() {
+        return price.get();
+    }
+
+    /**
+     * @return the lowest price-to-weight ratio in the group, or {@link Double#NaN} if it is empty
+     */
+    public double getMinPricePerWeight() {
+        return minRatio;
+    }
+
+    /**
+     * @return the highest price-to-weight ratio in the group, or {@link Double#NaN} if it is empty
+     */
+    public double getMaxPricePerWeight() {
+        return maxRatio;
+    }
+}
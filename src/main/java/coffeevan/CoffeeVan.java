@@ -10,13 +10,37 @@ import java.util.*;
  * Represents a coffee delivery van that stores and manages coffee cargo.
  * The van has a maximum capacity and budget, allowing operations such as
  * adding, removing, sorting, and filtering coffee products.
+ * <p>
+ * All methods are synchronized, so that a background thread such as a file follower
+ * can change the cargo while the menu works with it.
  */
 public class CoffeeVan {
     private static final Logger LOGGER = LogManager.getLogger(CoffeeVan.class);
+    /**
+     * Cargo size from which quality searches go through the k-d tree index;
+     * below it a linear scan is cheaper than maintaining the tree.
+     */
+    static final int QUALITY_INDEX_THRESHOLD = 512;
     private final double maxVolume;
     private final double maxBudget;
-    //list for cargo storing
-    private final List<Coffee> cargo = new ArrayList<>();
+    // cargo indexed by ID; the linked map keeps the cargo order for getCargo()
+    private final Map<String, Coffee> cargo = new LinkedHashMap<>();
+    // read-only snapshot of the cargo order, rebuilt lazily after a change
+    private List<Coffee> cargoView;
+    // running aggregates, updated on every change of the cargo
+    private final CargoStats stats = new CargoStats();
+    private final Map<Class<? extends Coffee>, CargoStats> statsByType = new HashMap<>();
+    // built on the first search over a large cargo, then updated on every change
+    private QualityIndex qualityIndex;
+    // built on the first price-per-kg query, then updated on every change
+    private PricePerKgIndex priceIndex;
+    // primitive copy of the cargo, only kept in the COLUMNS layout
+    private final ColumnarCargo columns;
+    // IDs of items added or replaced since the last save, in the order they were changed;
+    // the value tells whether an older version of the item is already saved
+    private final Map<String, Boolean> unsaved = new LinkedHashMap<>();
+    // IDs of saved items that were removed since the last save
+    private final Set<String> unsavedRemovals = new LinkedHashSet<>();
 
     /**
      * Constructs a new {@code CoffeeVan} instance.
@@ -25,29 +49,211 @@ public class CoffeeVan {
      * @param maxBudget the maximum budget (in USD)
      */
     public CoffeeVan(double maxVolume, double maxBudget) {
+        this(maxVolume, maxBudget, CargoLayout.OBJECTS);
+    }
+
+    /**
+     * Constructs a new {@code CoffeeVan} instance with the given cargo layout.
+     *
+     * @param maxVolume the maximum cargo volume (in milliliters)
+     * @param maxBudget the maximum budget (in USD)
+     * @param layout    how the cargo is laid out for scans
+     */
+    public CoffeeVan(double maxVolume, double maxBudget, CargoLayout layout) {
         this.maxVolume = maxVolume;
         this.maxBudget = maxBudget;
-        LOGGER.info("New coffee van created. Volume: {}, Budget: {}", maxVolume, maxBudget);
+        this.columns = layout == CargoLayout.COLUMNS ? new ColumnarCargo() : null;
+        LOGGER.info("New coffee van created. Volume: {}, Budget: {}, Layout: {}", maxVolume, maxBudget, layout);
     }
 
     /**
      * Adds a coffee item to the van’s cargo.
+     * If an item with the same ID is already loaded, it is replaced in place.
      *
      * @param coffee the coffee item to add
      * @return {@code true} if the coffee was added successfully
      * @throws IllegalArgumentException if the provided coffee is {@code null}
      */
-    public boolean addCoffee(Coffee coffee) {
+    public synchronized boolean addCoffee(Coffee coffee) {
 
         if (coffee == null) {
             LOGGER.warn("Attempted to add 'null' coffee to the van.");
             throw new IllegalArgumentException("Invalid value");
         }
-        cargo.add(coffee);
+        Coffee replaced = cargo.put(coffee.getId(), coffee);
+        if (replaced != null) {
+            recordRemoved(replaced);
+        }
+        recordAdded(coffee);
+        markUnsaved(coffee.getId(), replaced != null);
         LOGGER.debug("Added coffee: {}", coffee.getName());
         return true;
     }
 
+    /**
+     * Adds a coffee item only if it fits into the remaining volume and budget,
+     * checking and adding in one step. An item with the same ID is replaced,
+     * so only the difference to the replaced item has to fit.
+     *
+     * @param coffee the coffee item to add
+     * @return {@code true} if the coffee was added; {@code false} if it does not fit
+     * @throws IllegalArgumentException if the provided coffee is {@code null}
+     */
+    public synchronized boolean tryAddCoffee(Coffee coffee) {
+        if (coffee == null) {
+            LOGGER.warn("Attempted to add 'null' coffee to the van.");
+            throw new IllegalArgumentException("Invalid value");
+        }
+        Coffee current = cargo.get(coffee.getId());
+        double addedVolume = coffee.getTotalVolume() - (current == null ? 0 : current.getTotalVolume());
+        double addedCost = coffee.getPrice() - (current == null ? 0 : current.getPrice());
+        if ((addedVolume > 0 && addedVolume > getRemainingVolume()) || (addedCost > 0 && addedCost > getRemainingBudget())) {
+            LOGGER.debug("Coffee {} does not fit into the van.", coffee.getName());
+            return false;
+        }
+        return addCoffee(coffee);
+    }
+
+    /**
+     * Adds all the given items only if together they fit into the remaining volume and budget,
+     * checking and adding in one step: either all of them are added or none.
+     * Items with an ID that is already loaded (or repeated in the list) replace the earlier version.
+     *
+     * @param coffee the coffee items to add
+     * @return {@code true} if the items were added; {@code false} if they do not fit
+     * @throws IllegalArgumentException if the list or one of its items is {@code null}
+     */
+    public synchronized boolean tryAddAll(List<Coffee> coffee) {
+        if (coffee == null) {
+            LOGGER.warn("Attempted to add 'null' coffee to the van.");
+            throw new IllegalArgumentException("Invalid value");
+        }
+        // the version each item replaces, counting the earlier items of the list
+        Map<String, Coffee> pending = new HashMap<>();
+        double addedVolume = 0;
+        double addedCost = 0;
+        for (Coffee item : coffee) {
+            if (item == null) {
+                LOGGER.warn("Attempted to add 'null' coffee to the van.");
+                throw new IllegalArgumentException("Invalid value");
+            }
+            Coffee current = pending.containsKey(item.getId()) ? pending.get(item.getId()) : cargo.get(item.getId());
+            addedVolume += item.getTotalVolume() - (current == null ? 0 : current.getTotalVolume());
+            addedCost += item.getPrice() - (current == null ? 0 : current.getPrice());
+            pending.put(item.getId(), item);
+        }
+        if ((addedVolume > 0 && addedVolume > getRemainingVolume()) || (addedCost > 0 && addedCost > getRemainingBudget())) {
+            LOGGER.debug("{} coffee items do not fit into the van.", coffee.size());
+            return false;
+        }
+        for (Coffee item : coffee) {
+            addCoffee(item);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a coffee item that is already saved, e.g. one just loaded from the file.
+     * Unlike {@link #addCoffee(Coffee)}, it does not count as an unsaved change.
+     *
+     * @param coffee the coffee item to add
+     * @return {@code true} if the coffee was added successfully
+     * @throws IllegalArgumentException if the provided coffee is {@code null}
+     */
+    public synchronized boolean addSavedCoffee(Coffee coffee) {
+        addCoffee(coffee);
+        unsaved.remove(coffee.getId());
+        return true;
+    }
+
+    /**
+     * @return {@code true} if items were added, replaced or removed since the last save
+     */
+    public synchronized boolean hasUnsavedChanges() {
+        return !unsaved.isEmpty() || !unsavedRemovals.isEmpty();
+    }
+
+    /**
+     * Returns the items that were added or replaced since the last save, in the order they were changed.
+     *
+     * @return the unsaved items
+     */
+    public synchronized List<Coffee> getUnsavedCoffee() {
+        List<Coffee> changed = new ArrayList<>(unsaved.size());
+        for (String id : unsaved.keySet()) {
+            changed.add(cargo.get(id));
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the IDs of saved items that were removed since the last save.
+     *
+     * @return the unsaved removals
+     */
+    public synchronized Set<String> getUnsavedRemovals() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(unsavedRemovals));
+    }
+
+    /**
+     * Records that all current changes are saved.
+     */
+    public synchronized void markSaved() {
+        unsaved.clear();
+        unsavedRemovals.clear();
+    }
+
+    /**
+     * Records that the removal of one item is saved.
+     *
+     * @param id the ID of the removed item
+     */
+    public synchronized void markRemovalSaved(String id) {
+        unsavedRemovals.remove(id);
+    }
+
+    private void markUnsaved(String id, boolean replaced) {
+        Boolean olderVersionSaved = unsaved.get(id);
+        if (olderVersionSaved == null) {
+            // an item that was removed and added again before a save still has its saved version
+            olderVersionSaved = replaced || unsavedRemovals.remove(id);
+            unsaved.put(id, olderVersionSaved);
+        }
+    }
+
+    /**
+     * Applies an item read from the storage by someone else's change, e.g. while following the file.
+     * Unlike {@link #addSavedCoffee(Coffee)}, an item with unsaved changes in the van keeps them.
+     *
+     * @param coffee the stored version of the item
+     * @return {@code true} if the van took the stored version
+     */
+    public synchronized boolean applySavedCoffee(Coffee coffee) {
+        if (coffee == null) {
+            throw new IllegalArgumentException("Invalid value");
+        }
+        if (unsaved.containsKey(coffee.getId()) || unsavedRemovals.contains(coffee.getId())) {
+            return false;
+        }
+        return addSavedCoffee(coffee);
+    }
+
+    /**
+     * Applies the removal of a stored item by someone else's change.
+     * An item with unsaved changes in the van is kept.
+     *
+     * @param id the ID of the removed item
+     * @return {@code true} if the item was removed from the van
+     */
+    public synchronized boolean applySavedRemoval(String id) {
+        if (unsaved.containsKey(id) || !cargo.containsKey(id)) {
+            return false;
+        }
+        removeCoffeeById(id);
+        unsavedRemovals.remove(id);
+        return true;
+    }
+
     /**
      * Removes a coffee item from the cargo by its ID.
      *
@@ -55,21 +261,39 @@ public class CoffeeVan {
      * @return {@code true} if the coffee was found and removed; {@code false} otherwise
      */
 
-    public boolean removeCoffeeById(String id) {
+    public synchronized boolean removeCoffeeById(String id) {
         LOGGER.debug("Attempting to remove coffee with ID: {}", id);
-        //using iterator for save deleting an item out of the array
-        Iterator<Coffee> it = cargo.iterator();
-        while (it.hasNext()) {
-            Coffee coffee = it.next();
-            // comparing by uuid ids
-            if (Objects.equals(coffee.getId(), id)) {
-                it.remove();
-                LOGGER.info("Successfully removed coffee: {} (ID: {})", coffee.getName(), id);
-                return true;
-            }
+        Coffee coffee = cargo.remove(id);
+        if (coffee == null) {
+            LOGGER.warn("Could not find coffee with ID {} for removal.", id);
+            return false;
+        }
+        recordRemoved(coffee);
+        Boolean olderVersionSaved = unsaved.remove(id);
+        // an item that was never saved leaves nothing behind in the file
+        if (olderVersionSaved == null || olderVersionSaved) {
+            unsavedRemovals.add(id);
         }
-        LOGGER.warn("Could not find coffee with ID {} for removal.", id);
-        return false;
+        LOGGER.info("Successfully removed coffee: {} (ID: {})", coffee.getName(), id);
+        return true;
+    }
+
+    /**
+     * Looks up a coffee item by its ID.
+     *
+     * @param id the ID of the coffee
+     * @return the coffee with that ID, or {@code null} if it is not in the van
+     */
+    public synchronized Coffee getById(String id) {
+        return cargo.get(id);
+    }
+
+    /**
+     * @param id the ID of the coffee
+     * @return {@code true} if a coffee with that ID is in the van
+     */
+    public synchronized boolean containsId(String id) {
+        return cargo.containsKey(id);
     }
 
     /**
@@ -77,18 +301,14 @@ public class CoffeeVan {
      *
      * @return the total volume (in milliliters)
      */
-    public double getTotalVolume() {
-        double acc = 0;
-        for (Coffee coffee : cargo) {
-            acc += coffee.getTotalVolume();
-        }
-        return acc;
+    public synchronized double getTotalVolume() {
+        return stats.getTotalVolume();
     }
 
     /**
      * Prints detailed information about the van’s cargo to the console.
      */
-    public void displayCargoInfo() {
+    public synchronized void displayCargoInfo() {
         LOGGER.info("--- Coffee Van Report ---");
         LOGGER.info("  Max Volume: {} ml", maxVolume);
         LOGGER.info("  Max Budget: {} $", maxBudget);
@@ -98,7 +318,7 @@ public class CoffeeVan {
         if (cargo.isEmpty()) {
             LOGGER.info("[No coffee in the van]");
         } else {
-            for (Coffee coffee : cargo) {
+            for (Coffee coffee : cargo.values()) {
                 LOGGER.info("    - {}",coffee.getInfo());
             }
         }
@@ -111,12 +331,8 @@ public class CoffeeVan {
      *
      * @return the total cost (in USD)
      */
-    public double getTotalCost() {
-        double acc = 0;
-        for (Coffee coffee : cargo) {
-            acc += coffee.getPrice();
-        }
-        return acc;
+    public synchronized double getTotalCost() {
+        return stats.getTotalCost();
     }
 
     /**
@@ -124,7 +340,7 @@ public class CoffeeVan {
      *
      * @return the remaining volume (in milliliters)
      */
-    public double getRemainingVolume() {
+    public synchronized double getRemainingVolume() {
         return maxVolume - getTotalVolume();
     }
 
@@ -133,28 +349,85 @@ public class CoffeeVan {
      *
      * @return the remaining budget (in USD)
      */
-    public double getRemainingBudget() {
+    public synchronized double getRemainingBudget() {
         return maxBudget - getTotalCost();
     }
 
     /**
+     * @return a snapshot of the aggregates (count, volume, cost, price-per-weight range) over the whole cargo
+     */
+    public synchronized CargoStats getStats() {
+        return stats.snapshot();
+    }
+
+    /**
+     * Returns the aggregates over the cargo items of one coffee type.
+     *
+     * @param type the coffee class, e.g. {@code BeanCoffee.class}
+     * @return a snapshot of the aggregates for that type (empty if the van holds no such coffee)
+     */
+    public synchronized CargoStats getStats(Class<? extends Coffee> type) {
+        CargoStats typeStats = statsByType.get(type);
+        return typeStats != null ? typeStats.snapshot() : new CargoStats().snapshot();
+    }
+
+    /**
+     * Returns a read-only view of the cargo.
+     * Changes have to go through the van so that its aggregates stay correct.
+     *
      * @return the list of all coffee items currently in the van
      */
-    public List<Coffee> getCargo() {
-        return cargo;
+    public synchronized List<Coffee> getCargo() {
+        if (cargoView == null) {
+            cargoView = Collections.unmodifiableList(new ArrayList<>(cargo.values()));
+        }
+        return cargoView;
+    }
+
+    /**
+     * Sorts the coffee cargo by price-to-weight ratio (ascending); items with the same ratio by ID.
+     * Once the price-per-kg index is built (see {@link #topByPricePerKg(int, boolean)}), the order is read from it.
+     */
+    public synchronized void sortByPricePerKg() {
+        List<Coffee> sorted = priceIndex != null
+                ? priceIndex.topK(cargo.size(), true)
+                : PricePerKgIndex.sort(cargo.values());
+        // re-inserting in sorted order keeps the ID index and the cargo order in step
+        cargo.clear();
+        for (Coffee coffee : sorted) {
+            cargo.put(coffee.getId(), coffee);
+        }
+        cargoView = null;
     }
 
     /**
-     * Sorts the coffee cargo by price-to-weight ratio (ascending).
+     * Returns the items with the lowest (or highest) price-to-weight ratio, without sorting the cargo
+     * or changing its order. The first call builds an index over the cargo, which every later change
+     * keeps up to date, so later calls cost O(log n + k).
+     *
+     * @param k         the number of items to return
+     * @param ascending {@code true} for the cheapest items per kilogram, {@code false} for the most expensive
+     * @return at most {@code k} items, cheapest (or most expensive) first; items with the same ratio by ID
+     * @throws IllegalArgumentException if {@code k} is negative
      */
-    public void sortByPricePerKg() {
-        //using Comparator interface to create a custom comparing system
-        Comparator<Coffee> byPricePerKg = Comparator.comparingDouble(Coffee::getPriceToWeightRatio);
-        cargo.sort(byPricePerKg);
+    public synchronized List<Coffee> topByPricePerKg(int k, boolean ascending) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Invalid value");
+        }
+        if (priceIndex == null) {
+            LOGGER.debug("Building price-per-kg index over {} items.", cargo.size());
+            priceIndex = new PricePerKgIndex(cargo.values());
+        }
+        return priceIndex.topK(k, ascending);
     }
 
     /**
      * Finds coffee items that fall within the given quality ranges.
+     * <p>
+     * In the {@link CargoLayout#COLUMNS} layout the search is a SIMD scan over the score columns.
+     * Otherwise small cargos are scanned linearly, and from {@link #QUALITY_INDEX_THRESHOLD}
+     * items on the search goes through a k-d tree over the quality scores.
+     * Both the column scan and the tree return the matching items in no particular order.
      *
      * @param minAroma     minimum aroma score
      * @param maxAroma     maximum aroma score
@@ -164,14 +437,61 @@ public class CoffeeVan {
      * @param maxFreshness maximum freshness score
      * @return a list of coffee items matching the given quality criteria
      */
-    public List<Coffee> findByQuality(double minAroma, double maxAroma, double minTaste, double maxTaste, double minFreshness, double maxFreshness) {
+    public synchronized List<Coffee> findByQuality(double minAroma, double maxAroma, double minTaste, double maxTaste, double minFreshness, double maxFreshness) {
+        if (columns != null) {
+            return columns.find(minAroma, maxAroma, minTaste, maxTaste, minFreshness, maxFreshness);
+        }
+        if (cargo.size() >= QUALITY_INDEX_THRESHOLD) {
+            if (qualityIndex == null) {
+                LOGGER.debug("Building quality index over {} items.", cargo.size());
+                qualityIndex = new QualityIndex(cargo.values());
+            }
+            return qualityIndex.find(minAroma, maxAroma, minTaste, maxTaste, minFreshness, maxFreshness);
+        }
         List<Coffee> foundCoffeeArray = new ArrayList<>();
-        for (Coffee coffee : cargo) {
+        for (Coffee coffee : cargo.values()) {
             if (coffee.getQuality().isInRange(minAroma, maxAroma, minTaste, maxTaste, minFreshness, maxFreshness))
                 foundCoffeeArray.add(coffee);
         }
         return foundCoffeeArray;
     }
 
+    private void recordAdded(Coffee coffee) {
+        cargoView = null;
+        if (qualityIndex != null) {
+            qualityIndex.add(coffee);
+        }
+        if (columns != null) {
+            columns.add(coffee);
+        }
+        if (priceIndex != null) {
+            priceIndex.add(coffee);
+        }
+        stats.add(coffee);
+        statsByType.computeIfAbsent(coffee.getClass(), t -> new CargoStats()).add(coffee);
+    }
+
+    private void recordRemoved(Coffee coffee) {
+        cargoView = null;
+        if (qualityIndex != null) {
+            qualityIndex.remove(coffee);
+            // a van that shrank well below the threshold goes back to scanning
+            if (cargo.size() < QUALITY_INDEX_THRESHOLD / 2) {
+                qualityIndex = null;
+            }
+        }
+        if (columns != null) {
+            columns.remove(coffee);
+        }
+        if (priceIndex != null) {
+            priceIndex.remove(coffee);
+        }
+        stats.remove(coffee);
+        CargoStats typeStats = statsByType.get(coffee.getClass());
+        typeStats.remove(coffee);
+        if (typeStats.getCount() == 0) {
+            statsByType.remove(coffee.getClass());
+        }
+    }
 
 }
@@ -8,6 +8,7 @@ import org.apache.logging.log4j.Logger;
 import services.CoffeeStorageService;
 
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Entry point for the Coffee Van application.
@@ -37,6 +38,11 @@ public class CoffeeVanApp {
             menu.addCommand(MenuEnum.GETFROMFILE, new GetFromFileCommand(coffeeVan, storageService));
             menu.addCommand(MenuEnum.SAVETOFILE, new SaveToFileCommand(coffeeVan, storageService));
             menu.addCommand(MenuEnum.EXIT, new ExitCommand());
+            menu.addCommand(MenuEnum.FOLLOWFILE, new FollowFileCommand(coffeeVan, "coffee_data.txt"));
+            menu.addCommand(MenuEnum.EXPORTJSON, new ExportJsonCommand(coffeeVan, "coffee_data.json"));
+            menu.addCommand(MenuEnum.IMPORTJSON, new ImportJsonCommand(coffeeVan, "coffee_data.json"));
+            menu.addCommand(MenuEnum.IMPORTCSV, new ImportCsvCommand(coffeeVan, "coffee_data.csv"));
+            menu.addCommand(MenuEnum.GETFROMFILEPARALLEL, new GetFromFileCommand(coffeeVan, storageService, ForkJoinPool.commonPool()));
             menu.run();
         } catch (Exception e) {
             LOGGER.fatal("A critical unexpected error occurred. Application is shutting down.", e);
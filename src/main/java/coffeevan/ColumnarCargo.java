@@ -0,0 +1,157 @@
+package coffeevan;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Struct-of-arrays copy of the cargo: weight, price, volume and the three quality
+ * scores are kept in parallel {@code double[]} columns, plus a {@code byte[]} type tag.
+ * <p>
+ * Scans run over the columns with SIMD kernels and never touch the {@link Coffee}
+ * objects; a row's object is only picked up once the row is part of the result.
+ * Rows are removed by moving the last row into the gap, so row order is not cargo order.
+ */
+final class ColumnarCargo {
+    static final byte TAG_BEAN = 0;
+    static final byte TAG_GROUND = 1;
+    static final byte TAG_INSTANT = 2;
+    static final byte TAG_OTHER = 3;
+
+    private int size;
+    private double[] weight = new double[16];
+    private double[] price = new double[16];
+    private double[] volume = new double[16];
+    private double[] aroma = new double[16];
+    private double[] taste = new double[16];
+    private double[] freshness = new double[16];
+    private byte[] type = new byte[16];
+    private Coffee[] rows = new Coffee[16];
+    // ID -> row number, so that removals can find their row
+    private final Map<String, Integer> rowById = new HashMap<>();
+
+    /**
+     * @return the number of rows
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends a row for a coffee item.
+     *
+     * @param coffee the item that was added to the cargo
+     */
+    void add(Coffee coffee) {
+        if (size == rows.length) {
+            grow();
+        }
+        int row = size++;
+        weight[row] = coffee.getWeight();
+        price[row] = coffee.getPrice();
+        volume[row] = coffee.getTotalVolume();
+        QualityParams quality = coffee.getQuality();
+        // rows without quality scores must never match a search, NaN fails every comparison
+        aroma[row] = quality != null ? quality.getAromaScore() : Double.NaN;
+        taste[row] = quality != null ? quality.getTasteScore() : Double.NaN;
+        freshness[row] = quality != null ? quality.getFreshnessScore() : Double.NaN;
+        type[row] = tagOf(coffee);
+        rows[row] = coffee;
+        rowById.put(coffee.getId(), row);
+    }
+
+    /**
+     * Removes the row of a coffee item.
+     *
+     * @param coffee the item that was removed from the cargo
+     */
+    void remove(Coffee coffee) {
+        Integer row = rowById.get(coffee.getId());
+        if (row == null || rows[row] != coffee) {
+            return;
+        }
+        rowById.remove(coffee.getId());
+        int last = --size;
+        if (row != last) {
+            weight[row] = weight[last];
+            price[row] = price[last];
+            volume[row] = volume[last];
+            aroma[row] = aroma[last];
+            taste[row] = taste[last];
+            freshness[row] = freshness[last];
+            type[row] = type[last];
+            rows[row] = rows[last];
+            rowById.put(rows[row].getId(), row);
+        }
+        rows[last] = null;
+    }
+
+    /**
+     * @return the sum of the price column
+     */
+    double sumPrice() {
+        return VectorKernels.sum(price, size);
+    }
+
+    /**
+     * @return the sum of the volume column
+     */
+    double sumVolume() {
+        return VectorKernels.sum(volume, size);
+    }
+
+    /**
+     * Finds the items whose quality scores are inside the given box (bounds inclusive).
+     *
+     * @return the matching items, in row order
+     */
+    List<Coffee> find(double minAroma, double maxAroma, double minTaste, double maxTaste, double minFreshness, double maxFreshness) {
+        int[] matches = VectorKernels.selectInBox(aroma, taste, freshness, size,
+                new double[]{minAroma, minTaste, minFreshness},
+                new double[]{maxAroma, maxTaste, maxFreshness});
+        List<Coffee> found = new ArrayList<>(matches.length);
+        for (int row : matches) {
+            found.add(rows[row]);
+        }
+        return found;
+    }
+
+    /**
+     * @param tag one of the {@code TAG_*} constants
+     * @return the number of rows with that type tag
+     */
+    int countType(byte tag) {
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (type[row] == tag) count++;
+        }
+        return count;
+    }
+
+    private static byte tagOf(Coffee coffee) {
+        if (coffee instanceof BeanCoffee) return TAG_BEAN;
+        if (coffee instanceof GroundCoffee) return TAG_GROUND;
+        if (coffee instanceof InstantCoffee) return TAG_INSTANT;
+        return TAG_OTHER;
+    }
+
+    private void grow() {
+        int capacity = rows.length * 2;
+        weight = Arrays.copyOf(weight, capacity);
+        price = Arrays.copyOf(price, capacity);
+        volume = Arrays.copyOf(volume, capacity);
+        aroma = Arrays.copyOf(aroma, capacity);
+        taste = Arrays.copyOf(taste, capacity);
+        freshness = Arrays.copyOf(freshness, capacity);
+        type = Arrays.copyOf(type, capacity);
+        rows = Arrays.copyOf(rows, capacity);
+    }
+}
@@ -0,0 +1,40 @@
+package coffeevan;
+
+/**
+ * Running sum that keeps a compensation term (Kahan–Neumaier summation),
+ * so that long sequences of additions and subtractions do not drift.
+ */
+final class CompensatedSum {
+    private double sum;
+    private double compensation;
+
+    /**
+     * Adds a value to the sum. Subtraction is done by adding a negative value.
+     *
+     * @param value the value to add
+     */
+    void add(double value) {
+        double t = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            compensation += (sum - t) + value;
+        } else {
+            compensation += (value - t) + sum;
+        }
+        sum = t;
+    }
+
+    /**
+     * Resets the sum to exactly zero.
+     */
+    void reset() {
+        sum = 0;
+        compensation = 0;
+    }
+
+    /**
+     * @return the compensated value of the sum
+     */
+    double get() {
+        return sum + compensation;
+    }
+}
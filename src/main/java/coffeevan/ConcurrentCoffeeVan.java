@@ -0,0 +1,241 @@
+package coffeevan;
+
+import coffee.Coffee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A coffee van for many threads loading, unloading and querying the cargo at once.
+ * <p>
+ * Unlike {@link CoffeeVan}, it takes no van-wide lock: the cargo sits in a
+ * {@link ConcurrentHashMap}, so threads working on different items do not wait for each other.
+ * The volume and budget in use are reserved in one short step under a {@link StampedLock}
+ * before an item becomes visible, and released only after it is gone, so the totals never fall
+ * below the cargo and concurrent loaders can never overshoot the limits.
+ * Reading the totals is an optimistic read that takes no lock unless a reservation overlaps it.
+ * <p>
+ * The operation counters are {@link LongAdder}s, so counting does not make threads contend.
+ */
+public class ConcurrentCoffeeVan {
+    private static final Logger LOGGER = LogManager.getLogger(ConcurrentCoffeeVan.class);
+    private final double maxVolume;
+    private final double maxBudget;
+    private final ConcurrentHashMap<String, Coffee> cargo = new ConcurrentHashMap<>();
+    // guards the reserved volume and cost, which always cover the items in the cargo
+    private final StampedLock lock = new StampedLock();
+    private final CompensatedSum volume = new CompensatedSum();
+    private final CompensatedSum cost = new CompensatedSum();
+    private final LongAdder added = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+
+    /**
+     * Constructs a new {@code ConcurrentCoffeeVan} instance.
+     *
+     * @param maxVolume the maximum cargo volume (in milliliters)
+     * @param maxBudget the maximum budget (in USD)
+     */
+    public ConcurrentCoffeeVan(double maxVolume, double maxBudget) {
+        this.maxVolume = maxVolume;
+        this.maxBudget = maxBudget;
+        LOGGER.info("New concurrent coffee van created. Volume: {}, Budget: {}", maxVolume, maxBudget);
+    }
+
+    /**
+     * Adds a coffee item if it fits into the remaining volume and budget.
+     * An item with the same ID is replaced, so only the difference to the replaced item has to fit.
+     *
+     * @param coffee the coffee item to add
+     * @return {@code true} if the coffee was added; {@code false} if it does not fit
+     * @throws IllegalArgumentException if the provided coffee is {@code null}
+     */
+    public boolean tryAddCoffee(Coffee coffee) {
+        if (coffee == null) {
+            LOGGER.warn("Attempted to add 'null' coffee to the van.");
+            throw new IllegalArgumentException("Invalid value");
+        }
+        // the reservation happens while the map holds the item's bin, so a replacement
+        // of the same ID by another thread sees the new version and reserves against it
+        Coffee result = cargo.compute(coffee.getId(), (id, current) -> reserve(current, coffee) ? coffee : current);
+        if (result != coffee) {
+            rejected.increment();
+            LOGGER.debug("Coffee {} does not fit into the van.", coffee.getName());
+            return false;
+        }
+        added.increment();
+        return true;
+    }
+
+    private boolean reserve(Coffee current, Coffee coffee) {
+        double addedVolume = coffee.getTotalVolume() - (current == null ? 0 : current.getTotalVolume());
+        double addedCost = coffee.getPrice() - (current == null ? 0 : current.getPrice());
+        long stamp = lock.writeLock();
+        try {
+            // a smaller replacement always fits
+            if ((addedVolume > 0 && volume.get() + addedVolume > maxVolume)
+                    || (addedCost > 0 && cost.get() + addedCost > maxBudget)) {
+                return false;
+            }
+            volume.add(addedVolume);
+            cost.add(addedCost);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes a coffee item from the cargo by its ID.
+     *
+     * @param id the ID of the coffee to remove
+     * @return {@code true} if the coffee was found and removed; {@code false} otherwise
+     */
+    public boolean removeCoffeeById(String id) {
+        Coffee coffee = cargo.remove(id);
+        if (coffee == null) {
+            LOGGER.debug("Could not find coffee with ID {} for removal.", id);
+            return false;
+        }
+        long stamp = lock.writeLock();
+        try {
+            volume.add(-coffee.getTotalVolume());
+            cost.add(-coffee.getPrice());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        removed.increment();
+        return true;
+    }
+
+    /**
+     * Looks up a coffee item by its ID.
+     *
+     * @param id the ID of the coffee
+     * @return the coffee with that ID, or {@code null} if it is not in the van
+     */
+    public Coffee getById(String id) {
+        return cargo.get(id);
+    }
+
+    /**
+     * @param id the ID of the coffee
+     * @return {@code true} if a coffee with that ID is in the van
+     */
+    public boolean containsId(String id) {
+        return cargo.containsKey(id);
+    }
+
+    /**
+     * @return the number of items in the van
+     */
+    public int size() {
+        return cargo.size();
+    }
+
+    /**
+     * Returns the volume reserved by the cargo. While items are being added or removed
+     * it may include items that are not (or no longer) visible.
+     *
+     * @return the total volume (in milliliters)
+     */
+    public double getTotalVolume() {
+        return read(volume);
+    }
+
+    /**
+     * Returns the cost reserved by the cargo. While items are being added or removed
+     * it may include items that are not (or no longer) visible.
+     *
+     * @return the total cost (in USD)
+     */
+    public double getTotalCost() {
+        return read(cost);
+    }
+
+    /**
+     * @return the remaining volume (in milliliters)
+     */
+    public double getRemainingVolume() {
+        return maxVolume - getTotalVolume();
+    }
+
+    /**
+     * @return the remaining budget (in USD)
+     */
+    public double getRemainingBudget() {
+        return maxBudget - getTotalCost();
+    }
+
+    private double read(CompensatedSum sum) {
+        long stamp = lock.tryOptimisticRead();
+        double value = sum.get();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                value = sum.get();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns a read-only copy of the cargo, in no particular order.
+     * Items changed while it is taken may or may not be in it.
+     *
+     * @return the coffee items in the van
+     */
+    public List<Coffee> getCargo() {
+        return Collections.unmodifiableList(new ArrayList<>(cargo.values()));
+    }
+
+    /**
+     * Finds coffee items that fall within the given quality ranges, in no particular order.
+     *
+     * @param minAroma     minimum aroma score
+     * @param maxAroma     maximum aroma score
+     * @param minTaste     minimum taste score
+     * @param maxTaste     maximum taste score
+     * @param minFreshness minimum freshness score
+     * @param maxFreshness maximum freshness score
+     * @return a list of coffee items matching the given quality criteria
+     */
+    public List<Coffee> findByQuality(double minAroma, double maxAroma, double minTaste, double maxTaste, double minFreshness, double maxFreshness) {
+        List<Coffee> found = new ArrayList<>();
+        for (Coffee coffee : cargo.values()) {
+            if (coffee.getQuality().isInRange(minAroma, maxAroma, minTaste, maxTaste, minFreshness, maxFreshness)) {
+                found.add(coffee);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return the number of items added or replaced since the van was created
+     */
+    public long getAddedCount() {
+        return added.sum();
+    }
+
+    /**
+     * @return the number of items turned away for lack of volume or budget
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return the number of items removed since the van was created
+     */
+    public long getRemovedCount() {
+        return removed.sum();
+    }
+}
@@ -0,0 +1,309 @@
+package coffeevan;
+
+import coffee.Coffee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Many coffee vans managed as one cargo.
+ * <p>
+ * New items go to the van chosen by a {@link RoutingPolicy}; an item that is already in the fleet
+ * is replaced in its own van, so every ID is in at most one van. Items have to be loaded and
+ * removed through the fleet, which remembers the van of every ID.
+ * <p>
+ * Fleet-wide queries are a scatter-gather on a {@link ForkJoinPool}: the range of vans is split
+ * into tasks, each van answers for its own cargo, and the answers are combined on the way back.
+ * Scans such as {@link #findByQuality} take one task per van; the totals are O(1) per van,
+ * so they only split into tasks of {@link #AGGREGATE_BATCH} vans.
+ */
+public class Fleet {
+    private static final Logger LOGGER = LogManager.getLogger(Fleet.class);
+    /**
+     * Number of vans whose O(1) totals one task adds up; fewer are not worth a task.
+     */
+    static final int AGGREGATE_BATCH = 64;
+    private static final Comparator<Coffee> BY_PRICE_PER_KG = Comparator.comparingDouble(Coffee::getPriceToWeightRatio);
+    private final List<CoffeeVan> vans;
+    private final RoutingPolicy policy;
+    private final ForkJoinPool pool;
+    // van of every item in the fleet
+    private final ConcurrentHashMap<String, CoffeeVan> locations = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a fleet of equal, empty vans that runs its queries on the common pool.
+     *
+     * @param vanCount  the number of vans
+     * @param maxVolume the maximum cargo volume of each van (in milliliters)
+     * @param maxBudget the maximum budget of each van (in USD)
+     * @param policy    chooses the van of a new item
+     * @throws IllegalArgumentException if the van count is not positive
+     */
+    public Fleet(int vanCount, double maxVolume, double maxBudget, RoutingPolicy policy) {
+        this(emptyVans(vanCount, maxVolume, maxBudget), policy, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a fleet of the given vans, taking over the items they hold.
+     *
+     * @param vans   the vans; items with the same ID in two vans are not allowed
+     * @param policy chooses the van of a new item
+     * @param pool   the pool that runs the fleet-wide queries
+     * @throws IllegalArgumentException if there are no vans or an ID is in two of them
+     */
+    public Fleet(List<CoffeeVan> vans, RoutingPolicy policy, ForkJoinPool pool) {
+        if (vans.isEmpty()) {
+            throw new IllegalArgumentException("A fleet needs at least one van");
+        }
+        this.vans = List.copyOf(vans);
+        this.policy = policy;
+        this.pool = pool;
+        for (CoffeeVan van : this.vans) {
+            for (Coffee coffee : van.getCargo()) {
+                if (locations.putIfAbsent(coffee.getId(), van) != null) {
+                    throw new IllegalArgumentException("Coffee " + coffee.getId() + " is in two vans");
+                }
+            }
+        }
+        LOGGER.info("New fleet of {} vans with {} items.", this.vans.size(), locations.size());
+    }
+
+    private static List<CoffeeVan> emptyVans(int vanCount, double maxVolume, double maxBudget) {
+        if (vanCount <= 0) {
+            throw new IllegalArgumentException("A fleet needs at least one van");
+        }
+        List<CoffeeVan> vans = new ArrayList<>(vanCount);
+        for (int i = 0; i < vanCount; i++) {
+            vans.add(new CoffeeVan(maxVolume, maxBudget));
+        }
+        return vans;
+    }
+
+    /**
+     * Loads an item into the van the policy chooses, or replaces it in the van that already holds it.
+     *
+     * @param coffee the coffee item to load
+     * @return {@code true} if the item was loaded; {@code false} if it does not fit into its van
+     * @throws IllegalArgumentException if the provided coffee is {@code null}
+     */
+    public boolean load(Coffee coffee) {
+        if (coffee == null) {
+            throw new IllegalArgumentException("Invalid value");
+        }
+        boolean[] loaded = new boolean[1];
+        // placing the item while its ID is locked keeps two loads of one ID out of two vans
+        locations.compute(coffee.getId(), (id, current) -> {
+            CoffeeVan van = current != null ? current : vans.get(policy.route(coffee, vans));
+            loaded[0] = van.tryAddCoffee(coffee);
+            return loaded[0] ? van : current;
+        });
+        return loaded[0];
+    }
+
+    /**
+     * Removes an item from the van that holds it.
+     *
+     * @param id the ID of the coffee to remove
+     * @return {@code true} if the coffee was found and removed; {@code false} otherwise
+     */
+    public boolean removeById(String id) {
+        boolean[] removed = new boolean[1];
+        locations.computeIfPresent(id, (key, van) -> {
+            removed[0] = van.removeCoffeeById(id);
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * @param id the ID of the coffee
+     * @return the van holding the item, or {@code null} if it is not in the fleet
+     */
+    public CoffeeVan getVanOf(String id) {
+        return locations.get(id);
+    }
+
+    /**
+     * @return the vans of the fleet, in a read-only list
+     */
+    public List<CoffeeVan> getVans() {
+        return vans;
+    }
+
+    /**
+     * @return the number of items in the fleet
+     */
+    public int size() {
+        return scatter(van -> van.getStats().getCount(), Integer::sum, AGGREGATE_BATCH);
+    }
+
+    /**
+     * @return the total cost of all items in the fleet (in USD)
+     */
+    public double getTotalCost() {
+        return scatter(CoffeeVan::getTotalCost, Double::sum, AGGREGATE_BATCH);
+    }
+
+    /**
+     * @return the total volume of all items in the fleet (in milliliters)
+     */
+    public double getTotalVolume() {
+        return scatter(CoffeeVan::getTotalVolume, Double::sum, AGGREGATE_BATCH);
+    }
+
+    /**
+     * Finds the items of all vans that fall within the given quality ranges.
+     * The items come van by van, each van's items in the order {@link CoffeeVan#findByQuality} returns them.
+     *
+     * @param minAroma     minimum aroma score
+     * @param maxAroma     maximum aroma score
+     * @param minTaste     minimum taste score
+     * @param maxTaste     maximum taste score
+     * @param minFreshness minimum freshness score
+     * @param maxFreshness maximum freshness score
+     * @return a list of coffee items matching the given quality criteria
+     */
+    public List<Coffee> findByQuality(double minAroma, double maxAroma, double minTaste, double maxTaste, double minFreshness, double maxFreshness) {
+        return scatter(van -> van.findByQuality(minAroma, maxAroma, minTaste, maxTaste, minFreshness, maxFreshness),
+                Fleet::concat, 1);
+    }
+
+    /**
+     * Lists all items of the fleet by price-to-weight ratio (ascending), without reordering the vans.
+     * Every van sorts a copy of its cargo in its own task, and the sorted runs are then merged.
+     * Items with the same ratio keep the order of their vans.
+     *
+     * @return the sorted items
+     */
+    public List<Coffee> getSortedByPricePerKg() {
+        List<List<Coffee>> runs = scatter(van -> {
+            List<Coffee> run = new ArrayList<>(van.getCargo());
+            run.sort(BY_PRICE_PER_KG);
+            return List.of(run);
+        }, Fleet::concat, 1);
+        return merge(runs);
+    }
+
+    /**
+     * K-way merge of sorted runs through a binary heap of run indices, ordered by the ratio
+     * of each run's current head and then by run index, so that earlier runs win ties.
+     * The ratios are computed once per item and the top run is sifted down in place.
+     */
+    static List<Coffee> merge(List<List<Coffee>> runs) {
+        int total = 0;
+        double[][] ratios = new double[runs.size()][];
+        int[] heap = new int[runs.size()];
+        int size = 0;
+        for (int i = 0; i < runs.size(); i++) {
+            List<Coffee> run = runs.get(i);
+            total += run.size();
+            ratios[i] = new double[run.size()];
+            for (int j = 0; j < run.size(); j++) {
+                ratios[i][j] = run.get(j).getPriceToWeightRatio();
+            }
+            if (!run.isEmpty()) {
+                heap[size++] = i;
+            }
+        }
+        int[] positions = new int[runs.size()];
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(heap, size, i, ratios, positions);
+        }
+        List<Coffee> merged = new ArrayList<>(total);
+        while (size > 0) {
+            int run = heap[0];
+            merged.add(runs.get(run).get(positions[run]));
+            if (++positions[run] == ratios[run].length) {
+                heap[0] = heap[--size];
+            }
+            siftDown(heap, size, 0, ratios, positions);
+        }
+        return merged;
+    }
+
+    private static void siftDown(int[] heap, int size, int index, double[][] ratios, int[] positions) {
+        int run = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && before(heap[child + 1], heap[child], ratios, positions)) {
+                child++;
+            }
+            if (!before(heap[child], run, ratios, positions)) {
+                break;
+            }
+            heap[index] = heap[child];
+            index = child;
+        }
+        heap[index] = run;
+    }
+
+    private static boolean before(int run, int other, double[][] ratios, int[] positions) {
+        int byRatio = Double.compare(ratios[run][positions[run]], ratios[other][positions[other]]);
+        return byRatio < 0 || (byRatio == 0 && run < other);
+    }
+
+    private static <T> List<T> concat(List<T> first, List<T> second) {
+        if (first.isEmpty()) {
+            return second;
+        }
+        if (second.isEmpty()) {
+            return first;
+        }
+        List<T> both = new ArrayList<>(first.size() + second.size());
+        both.addAll(first);
+        both.addAll(second);
+        return both;
+    }
+
+    private <R> R scatter(Function<CoffeeVan, R> query, BinaryOperator<R> combine, int batch) {
+        return pool.invoke(new VanTask<>(vans, 0, vans.size(), query, combine, batch));
+    }
+
+    /**
+     * Asks a range of vans, halving the range until it is at most one batch.
+     */
+    private static final class VanTask<R> extends RecursiveTask<R> {
+        private final List<CoffeeVan> vans;
+        private final int from;
+        private final int to;
+        private final Function<CoffeeVan, R> query;
+        private final BinaryOperator<R> combine;
+        private final int batch;
+
+        VanTask(List<CoffeeVan> vans, int from, int to, Function<CoffeeVan, R> query, BinaryOperator<R> combine, int batch) {
+            this.vans = vans;
+            this.from = from;
+            this.to = to;
+            this.query = query;
+            this.combine = combine;
+            this.batch = batch;
+        }
+
+        @Override
+        protected R compute() {
+            if (to - from <= batch) {
+                R result = query.apply(vans.get(from));
+                for (int i = from + 1; i < to; i++) {
+                    result = combine.apply(result, query.apply(vans.get(i)));
+                }
+                return result;
+            }
+            int middle = (from + to) >>> 1;
+            VanTask<R> right = new VanTask<>(vans, middle, to, query, combine, batch);
+            right.fork();
+            R left = new VanTask<>(vans, from, middle, query, combine, batch).compute();
+            return combine.apply(left, right.join());
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package coffeevan;
+
+import coffee.Coffee;
+
+import java.util.List;
+
+/**
+ * The items a {@link LoadPlanner} chose for a van, with their totals.
+ */
+public final class LoadPlan {
+    private final List<Coffee> items;
+    private final double totalQuality;
+    private final double totalVolume;
+    private final double totalCost;
+    private final boolean optimal;
+
+    LoadPlan(List<Coffee> items, double totalQuality, boolean optimal) {
+        this.items = List.copyOf(items);
+        this.totalQuality = totalQuality;
+        double volume = 0;
+        double cost = 0;
+        for (Coffee coffee : items) {
+            volume += coffee.getTotalVolume();
+            cost += coffee.getPrice();
+        }
+        this.totalVolume = volume;
+        this.totalCost = cost;
+        this.optimal = optimal;
+    }
+
+    /**
+     * @return the chosen items, in the order of the candidate list
+     */
+    public List<Coffee> getItems() {
+        return items;
+    }
+
+    /**
+     * @return the sum of the objective over the chosen items
+     */
+    public double getTotalQuality() {
+        return totalQuality;
+    }
+
+    /**
+     * @return the total volume of the chosen items (in milliliters)
+     */
+    public double getTotalVolume() {
+        return totalVolume;
+    }
+
+    /**
+     * @return the total cost of the chosen items (in USD)
+     */
+    public double getTotalCost() {
+        return totalCost;
+    }
+
+    /**
+     * @return {@code true} if the search finished, so no other choice scores higher;
+     * {@code false} if the time limit cut it short and this is the best choice found until then
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * Loads all chosen items into the van in one step, see {@link CoffeeVan#tryAddAll(List)}.
+     *
+     * @param van the van to load
+     * @return {@code true} if the items were loaded; {@code false} if the van no longer has room for them
+     */
+    public boolean loadInto(CoffeeVan van) {
+        return van.tryAddAll(items);
+    }
+}
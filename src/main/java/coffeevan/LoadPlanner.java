@@ -0,0 +1,408 @@
+package coffeevan;
+
+import coffee.Coffee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import qualityparams.QualityParams;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Chooses which candidate items to load so that their total quality is the highest possible
+ * while their volume and cost stay within the van's limits (a knapsack with two constraints).
+ * <p>
+ * The search is a depth-first branch and bound over the candidates ordered by quality per unit
+ * of a combined weight, a mix of each item's volume and cost as fractions of the limits.
+ * A branch is cut off when even the fractional best case of that combined weight, which is
+ * an upper bound for both constraints together, cannot beat the best choice found so far.
+ * The mix is chosen once per plan so that this bound is as tight as possible.
+ * The first levels of the tree are split into fork-join tasks that share the best choice,
+ * so a good choice found by one task cuts branches in all of them.
+ * <p>
+ * The search starts from the greedy choice and keeps the best choice found, so when the time
+ * limit runs out it returns that choice, marked as not {@linkplain LoadPlan#isOptimal() optimal}.
+ */
+public class LoadPlanner {
+    private static final Logger LOGGER = LogManager.getLogger(LoadPlanner.class);
+    /**
+     * Nodes a task visits between two looks at the clock.
+     */
+    static final int CLOCK_INTERVAL = 1024;
+    // quality differences below this are rounding, not a better choice
+    private static final double EPSILON = 1e-9;
+    private final ToDoubleFunction<Coffee> objective;
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a planner that maximizes the {@linkplain #averageQuality(Coffee) average quality score}
+     * of each item and searches on the common pool.
+     */
+    public LoadPlanner() {
+        this(LoadPlanner::averageQuality, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param objective the quality of one item, not negative; the planner maximizes its sum
+     * @param pool      the pool that runs the search
+     */
+    public LoadPlanner(ToDoubleFunction<Coffee> objective, ForkJoinPool pool) {
+        this.objective = objective;
+        this.pool = pool;
+    }
+
+    /**
+     * @param coffee a coffee item
+     * @return the mean of its aroma, taste and freshness scores
+     */
+    public static double averageQuality(Coffee coffee) {
+        QualityParams quality = coffee.getQuality();
+        return (quality.getAromaScore() + quality.getTasteScore() + quality.getFreshnessScore()) / 3;
+    }
+
+    /**
+     * Plans what to add to a van within its remaining volume and budget.
+     * Candidates with an ID that is already in the van are left out.
+     *
+     * @param candidates the items to choose from
+     * @param van        the van to plan for
+     * @param timeLimit  how long to search before settling for the best choice found
+     * @return the plan
+     * @throws IllegalArgumentException if a candidate is {@code null} or has a negative quality
+     */
+    public LoadPlan plan(List<Coffee> candidates, CoffeeVan van, Duration timeLimit) {
+        List<Coffee> notLoaded = new ArrayList<>(candidates.size());
+        for (Coffee coffee : candidates) {
+            if (coffee == null) {
+                throw new IllegalArgumentException("Invalid value");
+            }
+            if (!van.containsId(coffee.getId())) {
+                notLoaded.add(coffee);
+            }
+        }
+        return plan(notLoaded, van.getRemainingVolume(), van.getRemainingBudget(), timeLimit);
+    }
+
+    /**
+     * Plans what to load within the given volume and budget.
+     * Of candidates with the same ID only the first is considered.
+     *
+     * @param candidates the items to choose from
+     * @param maxVolume  the volume available (in milliliters)
+     * @param maxBudget  the budget available (in USD)
+     * @param timeLimit  how long to search before settling for the best choice found
+     * @return the plan
+     * @throws IllegalArgumentException if a candidate is {@code null} or has a negative quality
+     */
+    public LoadPlan plan(List<Coffee> candidates, double maxVolume, double maxBudget, Duration timeLimit) {
+        long start = System.nanoTime();
+        Search search = new Search(candidates, Math.max(0, maxVolume), Math.max(0, maxBudget),
+                start + Math.min(timeLimit.toNanos(), Long.MAX_VALUE / 2));
+        search.run(pool);
+        LoadPlan plan = search.toPlan();
+        LOGGER.info("Planned {} of {} candidates in {} ms. Quality: {}, optimal: {}", plan.getItems().size(),
+                candidates.size(), (System.nanoTime() - start) / 1_000_000, plan.getTotalQuality(), plan.isOptimal());
+        return plan;
+    }
+
+    /**
+     * One planning run: the candidates that can be chosen, in search order, and the best choice so far.
+     */
+    private final class Search {
+        private final Coffee[] items;
+        // index in the candidate list
+        private final int[] position;
+        private final double[] value;
+        private final double[] volume;
+        private final double[] cost;
+        // volume and cost as fractions of the limits, mixed by the volume share
+        private final double[] weight;
+        private final int n;
+        private final double maxVolume;
+        private final double maxBudget;
+        private final double volumeScale;
+        private final double budgetScale;
+        private final long deadline;
+        private volatile double bestValue = -1;
+        private int[] best = new int[0];
+        private volatile boolean timedOut;
+
+        Search(List<Coffee> candidates, double maxVolume, double maxBudget, long deadline) {
+            this.maxVolume = maxVolume;
+            this.maxBudget = maxBudget;
+            this.deadline = deadline;
+
+            Set<String> seen = new HashSet<>();
+            List<Coffee> usable = new ArrayList<>();
+            List<Double> values = new ArrayList<>();
+            List<Integer> positions = new ArrayList<>();
+            for (int c = 0; c < candidates.size(); c++) {
+                Coffee coffee = candidates.get(c);
+                if (coffee == null) {
+                    throw new IllegalArgumentException("Invalid value");
+                }
+                double quality = objective.applyAsDouble(coffee);
+                if (!(quality >= 0)) {
+                    throw new IllegalArgumentException("Quality of coffee " + coffee.getId() + " is " + quality);
+                }
+                // an item worth nothing or too big on its own can never improve a choice
+                if (seen.add(coffee.getId()) && quality > 0
+                        && coffee.getTotalVolume() <= maxVolume && coffee.getPrice() <= maxBudget) {
+                    usable.add(coffee);
+                    values.add(quality);
+                    positions.add(c);
+                }
+            }
+
+            // volume and cost as fractions of the limits; nothing but free items fits a zero limit
+            double volumeFraction = maxVolume > 0 ? 1 / maxVolume : 0;
+            double costFraction = maxBudget > 0 ? 1 / maxBudget : 0;
+            double[] qualities = new double[usable.size()];
+            double[] volumeFractions = new double[usable.size()];
+            double[] costFractions = new double[usable.size()];
+            for (int i = 0; i < usable.size(); i++) {
+                qualities[i] = values.get(i);
+                volumeFractions[i] = usable.get(i).getTotalVolume() * volumeFraction;
+                costFractions[i] = usable.get(i).getPrice() * costFraction;
+            }
+            double share = volumeShare(qualities, volumeFractions, costFractions);
+            this.volumeScale = share * volumeFraction;
+            this.budgetScale = (1 - share) * costFraction;
+
+            // search order: quality per unit of weight, highest first
+            Integer[] order = new Integer[usable.size()];
+            double[] density = new double[usable.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+                double w = share * volumeFractions[i] + (1 - share) * costFractions[i];
+                density[i] = w > 0 ? qualities[i] / w : Double.POSITIVE_INFINITY;
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(density[b], density[a]));
+
+            n = order.length;
+            items = new Coffee[n];
+            position = new int[n];
+            value = new double[n];
+            volume = new double[n];
+            cost = new double[n];
+            weight = new double[n];
+            for (int i = 0; i < n; i++) {
+                Coffee coffee = usable.get(order[i]);
+                items[i] = coffee;
+                position[i] = positions.get(order[i]);
+                value[i] = values.get(order[i]);
+                volume[i] = coffee.getTotalVolume();
+                cost[i] = coffee.getPrice();
+                weight[i] = volume[i] * volumeScale + cost[i] * budgetScale;
+            }
+        }
+
+        /**
+         * Chooses how much volume and cost count in the combined weight: the share of volume
+         * whose fractional best case over all candidates is lowest, which makes the bound tightest.
+         * The bound is unimodal in the share, so a golden-section search finds it.
+         */
+        private static double volumeShare(double[] values, double[] volumes, double[] costs) {
+            if (values.length == 0) {
+                return 0.5;
+            }
+            double ratio = (Math.sqrt(5) - 1) / 2;
+            double low = 0;
+            double high = 1;
+            double left = high - ratio * (high - low);
+            double right = low + ratio * (high - low);
+            double leftBound = rootBound(left, values, volumes, costs);
+            double rightBound = rootBound(right, values, volumes, costs);
+            for (int step = 0; step < 30; step++) {
+                if (leftBound <= rightBound) {
+                    high = right;
+                    right = left;
+                    rightBound = leftBound;
+                    left = high - ratio * (high - low);
+                    leftBound = rootBound(left, values, volumes, costs);
+                } else {
+                    low = left;
+                    left = right;
+                    leftBound = rightBound;
+                    right = low + ratio * (high - low);
+                    rightBound = rootBound(right, values, volumes, costs);
+                }
+            }
+            return (low + high) / 2;
+        }
+
+        private static double rootBound(double share, double[] values, double[] volumes, double[] costs) {
+            Integer[] order = new Integer[values.length];
+            double[] weights = new double[values.length];
+            for (int i = 0; i < values.length; i++) {
+                order[i] = i;
+                weights[i] = share * volumes[i] + (1 - share) * costs[i];
+            }
+            Arrays.sort(order, (a, b) -> Double.compare(values[b] * weights[a], values[a] * weights[b]));
+            double capacity = 1;
+            double total = 0;
+            for (int i : order) {
+                if (weights[i] <= capacity) {
+                    capacity -= weights[i];
+                    total += values[i];
+                } else {
+                    return total + values[i] * capacity / weights[i];
+                }
+            }
+            return total;
+        }
+
+        void run(ForkJoinPool pool) {
+            greedy();
+            // a few levels more than the cores, so that tasks of unequal size still balance
+            int splitDepth = Math.min(n, 32 - Integer.numberOfLeadingZeros(pool.getParallelism()) + 4);
+            pool.invoke(new Branch(0, 0, 0, 0, new int[0], splitDepth));
+        }
+
+        private void greedy() {
+            int[] chosen = new int[n];
+            int count = 0;
+            double total = 0;
+            double usedVolume = 0;
+            double usedCost = 0;
+            for (int i = 0; i < n; i++) {
+                if (usedVolume + volume[i] <= maxVolume && usedCost + cost[i] <= maxBudget) {
+                    usedVolume += volume[i];
+                    usedCost += cost[i];
+                    total += value[i];
+                    chosen[count++] = i;
+                }
+            }
+            offer(total, chosen, count, chosen, 0);
+        }
+
+        /**
+         * Upper bound for any choice that extends the current one with items from {@code from} on:
+         * the fractional best case of the combined weight.
+         */
+        private double bound(int from, double total, double usedVolume, double usedCost) {
+            double capacity = (maxVolume - usedVolume) * volumeScale + (maxBudget - usedCost) * budgetScale;
+            for (int i = from; i < n; i++) {
+                if (weight[i] <= capacity) {
+                    capacity -= weight[i];
+                    total += value[i];
+                } else {
+                    return total + value[i] * capacity / weight[i];
+                }
+            }
+            return total;
+        }
+
+        private synchronized void offer(double total, int[] prefix, int prefixLength, int[] rest, int restLength) {
+            if (total > bestValue) {
+                int[] chosen = Arrays.copyOf(prefix, prefixLength + restLength);
+                System.arraycopy(rest, 0, chosen, prefixLength, restLength);
+                best = chosen;
+                bestValue = total;
+            }
+        }
+
+        /**
+         * Depth-first search below a node: include the next item while it fits, and when the
+         * bound cuts a branch off, go back to the last included item and exclude it instead.
+         */
+        private void search(int from, double total, double usedVolume, double usedCost, int[] prefix) {
+            int[] stack = new int[n - from];
+            int top = 0;
+            int i = from;
+            long nodes = 0;
+            while (true) {
+                if (++nodes % CLOCK_INTERVAL == 0 && (timedOut || System.nanoTime() - deadline > 0)) {
+                    timedOut = true;
+                    return;
+                }
+                if (total > bestValue + EPSILON) {
+                    offer(total, prefix, prefix.length, stack, top);
+                }
+                if (i >= n || bound(i, total, usedVolume, usedCost) <= bestValue + EPSILON) {
+                    if (top == 0) {
+                        return;
+                    }
+                    int last = stack[--top];
+                    total -= value[last];
+                    usedVolume -= volume[last];
+                    usedCost -= cost[last];
+                    i = last + 1;
+                    continue;
+                }
+                if (usedVolume + volume[i] <= maxVolume && usedCost + cost[i] <= maxBudget) {
+                    stack[top++] = i;
+                    total += value[i];
+                    usedVolume += volume[i];
+                    usedCost += cost[i];
+                }
+                i++;
+            }
+        }
+
+        LoadPlan toPlan() {
+            Integer[] chosen = new Integer[best.length];
+            double total = 0;
+            for (int i = 0; i < best.length; i++) {
+                chosen[i] = best[i];
+                total += value[best[i]];
+            }
+            // back to the order of the candidate list
+            Arrays.sort(chosen, (a, b) -> Integer.compare(position[a], position[b]));
+            List<Coffee> chosenItems = new ArrayList<>(chosen.length);
+            for (int i : chosen) {
+                chosenItems.add(items[i]);
+            }
+            return new LoadPlan(chosenItems, total, !timedOut);
+        }
+
+        /**
+         * Branches on the first levels of the tree as separate tasks, then searches each subtree.
+         */
+        private final class Branch extends RecursiveAction {
+            private final int depth;
+            private final double total;
+            private final double usedVolume;
+            private final double usedCost;
+            private final int[] prefix;
+            private final int splitDepth;
+
+            Branch(int depth, double total, double usedVolume, double usedCost, int[] prefix, int splitDepth) {
+                this.depth = depth;
+                this.total = total;
+                this.usedVolume = usedVolume;
+                this.usedCost = usedCost;
+                this.prefix = prefix;
+                this.splitDepth = splitDepth;
+            }
+
+            @Override
+            protected void compute() {
+                if (depth >= splitDepth) {
+                    search(depth, total, usedVolume, usedCost, prefix);
+                    return;
+                }
+                if (timedOut || bound(depth, total, usedVolume, usedCost) <= bestValue + EPSILON) {
+                    return;
+                }
+                Branch exclude = new Branch(depth + 1, total, usedVolume, usedCost, prefix, splitDepth);
+                if (usedVolume + volume[depth] <= maxVolume && usedCost + cost[depth] <= maxBudget) {
+                    int[] included = Arrays.copyOf(prefix, prefix.length + 1);
+                    included[prefix.length] = depth;
+                    ForkJoinTask.invokeAll(new Branch(depth + 1, total + value[depth], usedVolume + volume[depth],
+                            usedCost + cost[depth], included, splitDepth), exclude);
+                } else {
+                    exclude.compute();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package coffeevan;
+
+import coffee.Coffee;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Cargo items kept ordered by price-to-weight ratio in a balanced tree.
+ * <p>
+ * Every item's ratio is computed once, when the item is indexed, instead of in every comparison.
+ * Adding and removing an item costs O(log n), and the k cheapest or most expensive items are
+ * read off one end of the tree in O(log n + k) without sorting the cargo.
+ * Items with the same ratio are ordered by ID. Coffee items are immutable, so the ratio
+ * of an indexed item cannot change.
+ */
+final class PricePerKgIndex {
+    private static final Comparator<Entry> ORDER = Comparator.<Entry>comparingDouble(entry -> entry.ratio)
+            .thenComparing(entry -> entry.coffee.getId());
+    private final TreeSet<Entry> entries = new TreeSet<>(ORDER);
+
+    private static final class Entry {
+        final Coffee coffee;
+        final double ratio;
+
+        Entry(Coffee coffee) {
+            this.coffee = coffee;
+            this.ratio = coffee.getPriceToWeightRatio();
+        }
+    }
+
+    /**
+     * @param cargo the items to index
+     */
+    PricePerKgIndex(Collection<Coffee> cargo) {
+        for (Coffee coffee : cargo) {
+            add(coffee);
+        }
+    }
+
+    void add(Coffee coffee) {
+        entries.add(new Entry(coffee));
+    }
+
+    void remove(Coffee coffee) {
+        entries.remove(new Entry(coffee));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param k         the number of items to return
+     * @param ascending {@code true} for the cheapest items per kilogram, {@code false} for the most expensive
+     * @return at most {@code k} items, cheapest (or most expensive) first
+     */
+    List<Coffee> topK(int k, boolean ascending) {
+        List<Coffee> top = new ArrayList<>(Math.min(k, entries.size()));
+        Iterator<Entry> iterator = ascending ? entries.iterator() : entries.descendingIterator();
+        while (top.size() < k && iterator.hasNext()) {
+            top.add(iterator.next().coffee);
+        }
+        return top;
+    }
+
+    /**
+     * Sorts items in the index order without building the tree, computing each ratio once.
+     *
+     * @param cargo the items to sort
+     * @return the items, cheapest per kilogram first
+     */
+    static List<Coffee> sort(Collection<Coffee> cargo) {
+        Entry[] sorted = new Entry[cargo.size()];
+        int i = 0;
+        for (Coffee coffee : cargo) {
+            sorted[i++] = new Entry(coffee);
+        }
+        Arrays.sort(sorted, ORDER);
+        List<Coffee> coffee = new ArrayList<>(sorted.length);
+        for (Entry entry : sorted) {
+            coffee.add(entry.coffee);
+        }
+        return coffee;
+    }
+}
@@ -0,0 +1,200 @@
+package coffeevan;
+
+import coffee.Coffee;
+import qualityparams.QualityParams;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Three-dimensional k-d tree over the (aroma, taste, freshness) scores of cargo items.
+ * <p>
+ * Answers box queries by visiting only the branches whose split planes intersect
+ * the box, instead of checking every item. Items are inserted as new leaves and
+ * removed by marking their node; the whole tree is rebuilt balanced once it grows
+ * too deep or holds more removed nodes than live ones.
+ */
+final class QualityIndex {
+    private static final int AXES = 3;
+
+    private static final class Node {
+        final Coffee coffee;
+        final double[] point;
+        final int axis;
+        Node left;
+        Node right;
+        boolean removed;
+
+        Node(Coffee coffee, double[] point, int axis) {
+            this.coffee = coffee;
+            this.point = point;
+            this.axis = axis;
+        }
+    }
+
+    private Node root;
+    // ID -> node, so that removals do not have to search the tree
+    private final Map<String, Node> nodes = new HashMap<>();
+    private int removedCount;
+    private int maxDepth;
+    // alternates the side taken on equal keys, so repeated scores do not form a chain
+    private boolean tieGoesLeft;
+
+    /**
+     * Builds a balanced index over the given items.
+     *
+     * @param items the cargo items to index
+     */
+    QualityIndex(Iterable<Coffee> items) {
+        List<Node> all = new ArrayList<>();
+        for (Coffee coffee : items) {
+            double[] point = pointOf(coffee);
+            if (point != null) {
+                all.add(new Node(coffee, point, 0));
+            }
+        }
+        rebuild(all);
+    }
+
+    /**
+     * @return the number of live items in the index
+     */
+    int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Adds an item to the index.
+     *
+     * @param coffee the item that was added to the cargo
+     */
+    void add(Coffee coffee) {
+        double[] point = pointOf(coffee);
+        if (point == null) {
+            return;
+        }
+        if (root == null) {
+            root = new Node(coffee, point, 0);
+            nodes.put(coffee.getId(), root);
+            maxDepth = 1;
+            return;
+        }
+        Node parent = root;
+        int depth = 1;
+        while (true) {
+            depth++;
+            double key = point[parent.axis];
+            double split = parent.point[parent.axis];
+            boolean goLeft = key < split || (key == split && (tieGoesLeft = !tieGoesLeft));
+            Node next = goLeft ? parent.left : parent.right;
+            if (next == null) {
+                Node node = new Node(coffee, point, (parent.axis + 1) % AXES);
+                if (goLeft) parent.left = node;
+                else parent.right = node;
+                nodes.put(coffee.getId(), node);
+                break;
+            }
+            parent = next;
+        }
+        maxDepth = Math.max(maxDepth, depth);
+        // insertions in sorted order degrade the tree into a list; rebuild before that hurts
+        if (maxDepth > 3 * (32 - Integer.numberOfLeadingZeros(nodes.size())) + 8) {
+            rebuild(liveNodes());
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param coffee the item that was removed from the cargo
+     */
+    void remove(Coffee coffee) {
+        Node node = nodes.get(coffee.getId());
+        if (node == null || node.coffee != coffee) {
+            return;
+        }
+        nodes.remove(coffee.getId());
+        node.removed = true;
+        removedCount++;
+        if (removedCount > nodes.size()) {
+            rebuild(liveNodes());
+        }
+    }
+
+    /**
+     * Finds the items whose scores are inside the given box (bounds inclusive).
+     *
+     * @return the matching items, in no particular order
+     */
+    List<Coffee> find(double minAroma, double maxAroma, double minTaste, double maxTaste, double minFreshness, double maxFreshness) {
+        double[] min = {minAroma, minTaste, minFreshness};
+        double[] max = {maxAroma, maxTaste, maxFreshness};
+        List<Coffee> found = new ArrayList<>();
+        if (root == null) {
+            return found;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            double split = node.point[node.axis];
+            if (!node.removed && contains(node.point, min, max)) {
+                found.add(node.coffee);
+            }
+            // equal keys may sit on either side of a split
+            if (node.left != null && min[node.axis] <= split) stack.push(node.left);
+            if (node.right != null && max[node.axis] >= split) stack.push(node.right);
+        }
+        return found;
+    }
+
+    private static boolean contains(double[] point, double[] min, double[] max) {
+        for (int axis = 0; axis < AXES; axis++) {
+            if (point[axis] < min[axis] || point[axis] > max[axis]) return false;
+        }
+        return true;
+    }
+
+    private static double[] pointOf(Coffee coffee) {
+        QualityParams quality = coffee.getQuality();
+        if (quality == null) {
+            return null;
+        }
+        return new double[]{quality.getAromaScore(), quality.getTasteScore(), quality.getFreshnessScore()};
+    }
+
+    private List<Node> liveNodes() {
+        return new ArrayList<>(nodes.values());
+    }
+
+    private void rebuild(List<Node> live) {
+        nodes.clear();
+        removedCount = 0;
+        maxDepth = 0;
+        Node[] array = live.toArray(new Node[0]);
+        root = build(array, 0, array.length, 0, 1);
+    }
+
+    private Node build(Node[] array, int from, int to, int axis, int depth) {
+        if (from >= to) {
+            return null;
+        }
+        Comparator<Node> byAxis = Comparator.comparingDouble(n -> n.point[axis]);
+        Arrays.sort(array, from, to, byAxis);
+        int mid = (from + to) >>> 1;
+        Node source = array[mid];
+        Node node = new Node(source.coffee, source.point, axis);
+        nodes.put(node.coffee.getId(), node);
+        maxDepth = Math.max(maxDepth, depth);
+        int next = (axis + 1) % AXES;
+        node.left = build(array, from, mid, next, depth + 1);
+        node.right = build(array, mid + 1, to, next, depth + 1);
+        return node;
+    }
+}
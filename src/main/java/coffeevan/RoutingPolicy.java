@@ -0,0 +1,67 @@
+package coffeevan;
+
+import coffee.Coffee;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chooses the van of a {@link Fleet} that a new item is loaded into.
+ * An item that is already in the fleet stays in its van, so the policy is only asked for new IDs.
+ */
+@FunctionalInterface
+public interface RoutingPolicy {
+
+    /**
+     * @param coffee the item to load
+     * @param vans   the vans of the fleet, never empty
+     * @return the index of the van to load the item into
+     */
+    int route(Coffee coffee, List<CoffeeVan> vans);
+
+    /**
+     * Spreads items by a hash of their ID, so the same ID always goes to the same van.
+     *
+     * @return the policy
+     */
+    static RoutingPolicy byId() {
+        return (coffee, vans) -> {
+            int hash = coffee.getId().hashCode();
+            // the same mixing as HashMap, since IDs often differ only in their last characters
+            return Math.floorMod(hash ^ (hash >>> 16), vans.size());
+        };
+    }
+
+    /**
+     * Hands items to the vans in turn.
+     *
+     * @return a policy with its own turn counter
+     */
+    static RoutingPolicy roundRobin() {
+        AtomicInteger next = new AtomicInteger();
+        return (coffee, vans) -> Math.floorMod(next.getAndIncrement(), vans.size());
+    }
+
+    /**
+     * Picks the van with the most remaining budget among those with room for the item,
+     * which keeps the vans evenly filled. Looks at every van, so it suits fleets of hundreds of vans,
+     * not of millions.
+     *
+     * @return the policy
+     */
+    static RoutingPolicy mostRoom() {
+        return (coffee, vans) -> {
+            int best = 0;
+            double bestBudget = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < vans.size(); i++) {
+                CoffeeVan van = vans.get(i);
+                double budget = van.getRemainingBudget();
+                if (budget > bestBudget && van.getRemainingVolume() >= coffee.getTotalVolume()) {
+                    best = i;
+                    bestBudget = budget;
+                }
+            }
+            return best;
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package coffeevan;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * SIMD kernels over primitive cargo columns, written with the
+ * {@code jdk.incubator.vector} API (needs {@code --add-modules jdk.incubator.vector}).
+ */
+final class VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    /**
+     * Sums the first {@code length} values of a column.
+     * Every lane keeps its own compensation term, like {@link CompensatedSum}.
+     *
+     * @param column the column to sum
+     * @param length the number of used rows
+     * @return the sum of the rows
+     */
+    static double sum(double[] column, int length) {
+        DoubleVector sum = DoubleVector.zero(SPECIES);
+        DoubleVector compensation = DoubleVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector value = DoubleVector.fromArray(SPECIES, column, i);
+            DoubleVector t = sum.add(value);
+            // Neumaier: add the low-order part lost by whichever operand was smaller
+            VectorMask<Double> sumIsLarger = sum.abs().compare(VectorOperators.GE, value.abs());
+            DoubleVector lost = sum.sub(t).add(value).blend(value.sub(t).add(sum), sumIsLarger.not());
+            compensation = compensation.add(lost);
+            sum = t;
+        }
+        CompensatedSum total = new CompensatedSum();
+        for (int lane = 0; lane < SPECIES.length(); lane++) {
+            total.add(sum.lane(lane));
+            total.add(compensation.lane(lane));
+        }
+        for (; i < length; i++) {
+            total.add(column[i]);
+        }
+        return total.get();
+    }
+
+    /**
+     * Selects the rows whose three values lie inside the given box (bounds inclusive).
+     *
+     * @param a      first column
+     * @param b      second column
+     * @param c      third column
+     * @param length the number of used rows
+     * @param min    lower bounds for a, b and c
+     * @param max    upper bounds for a, b and c
+     * @return the matching row numbers, in ascending order
+     */
+    static int[] selectInBox(double[] a, double[] b, double[] c, int length, double[] min, double[] max) {
+        int[] rows = new int[16];
+        int found = 0;
+        int step = SPECIES.length();
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < bound; i += step) {
+            VectorMask<Double> mask = inRange(DoubleVector.fromArray(SPECIES, a, i), min[0], max[0])
+                    .and(inRange(DoubleVector.fromArray(SPECIES, b, i), min[1], max[1]))
+                    .and(inRange(DoubleVector.fromArray(SPECIES, c, i), min[2], max[2]));
+            long bits = mask.toLong();
+            if (bits == 0) {
+                continue;
+            }
+            if (found + step > rows.length) {
+                rows = Arrays.copyOf(rows, Math.max(rows.length * 2, found + step));
+            }
+            while (bits != 0) {
+                rows[found++] = i + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+            }
+        }
+        for (; i < length; i++) {
+            if (a[i] >= min[0] && a[i] <= max[0] && b[i] >= min[1] && b[i] <= max[1] && c[i] >= min[2] && c[i] <= max[2]) {
+                if (found == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                }
+                rows[found++] = i;
+            }
+        }
+        return Arrays.copyOf(rows, found);
+    }
+
+    private static VectorMask<Double> inRange(DoubleVector values, double min, double max) {
+        return values.compare(VectorOperators.GE, min).and(values.compare(VectorOperators.LE, max));
+    }
+}
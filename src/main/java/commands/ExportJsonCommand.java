@@ -0,0 +1,67 @@
+package commands;
+
+import coffee.Coffee;
+import coffeevan.CoffeeVan;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import services.JsonCoffeeWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Command class responsible for exporting the cargo of the {@link CoffeeVan} as JSON,
+ * for systems that do not read the semicolon text format.
+ *
+ * <p>The items are streamed into the file by a {@link JsonCoffeeWriter}, so the export needs
+ * no more memory than the cargo itself. The file is written next to the target and moved
+ * over it when complete: readers never see half an export.</p>
+ * <p>
+ * Example:
+ * <pre>
+ * [
+ * {"type":"BEAN","id":"1234","name":"Arabica","weight":250.0,"price":15.99,"quality":{"aroma":8.0,"taste":9.0,"freshness":7.0},"packaging":{"material":"Paper","volume":250.0},"origin":"Brazil","roastLevel":"MEDIUM"}
+ * ]
+ * </pre>
+ */
+public class ExportJsonCommand implements Command {
+    private static final Logger LOGGER = LogManager.getLogger(ExportJsonCommand.class);
+    private final CoffeeVan coffeeVan;
+    private final Path file;
+
+    /**
+     * Constructs a new {@code ExportJsonCommand} instance.
+     *
+     * @param coffeeVan the coffee van whose cargo will be exported
+     * @param filename  the JSON file to write
+     */
+    public ExportJsonCommand(CoffeeVan coffeeVan, String filename) {
+        this.coffeeVan = coffeeVan;
+        this.file = Path.of(filename);
+    }
+
+    /**
+     * Writes all items of the van to the JSON file, replacing its previous content.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void execute() throws IOException {
+        LOGGER.info("Exporting cargo to JSON file {}...", file);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long exported;
+        try (JsonCoffeeWriter writer = new JsonCoffeeWriter(Files.newOutputStream(temp))) {
+            for (Coffee coffee : coffeeVan.getCargo()) {
+                writer.write(coffee);
+            }
+            exported = writer.count();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        LOGGER.info("Exported {} items to {}.", exported, file);
+    }
+}
@@ -0,0 +1,70 @@
+package commands;
+
+import coffee.Coffee;
+import coffeevan.CoffeeVan;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import services.DataFileFollower;
+
+import java.io.IOException;
+
+/**
+ * Command that switches follow mode on or off.
+ *
+ * <p>While follow mode is on, records that other processes append to the data file (or to its
+ * mutation log) are loaded into the {@link CoffeeVan} within milliseconds, without reading the
+ * whole file again. Items with unsaved changes in the van keep them.</p>
+ */
+public class FollowFileCommand implements Command {
+    private static final Logger LOGGER = LogManager.getLogger(FollowFileCommand.class);
+    private final CoffeeVan coffeeVan;
+    private final String filename;
+    private DataFileFollower follower;
+
+    /**
+     * Constructs a new {@code FollowFileCommand} instance.
+     *
+     * @param coffeeVan the coffee van that receives the new records
+     * @param filename  the text data file to follow
+     */
+    public FollowFileCommand(CoffeeVan coffeeVan, String filename) {
+        this.coffeeVan = coffeeVan;
+        this.filename = filename;
+    }
+
+    /**
+     * Starts following the file, loading its current content first, or stops following it.
+     *
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public void execute() throws IOException {
+        if (isFollowing()) {
+            follower.close();
+            follower = null;
+            LOGGER.info("Stopped following {}.", filename);
+            return;
+        }
+        DataFileFollower started = new DataFileFollower(filename, new DataFileFollower.Listener() {
+            @Override
+            public void added(Coffee coffee) {
+                coffeeVan.applySavedCoffee(coffee);
+            }
+
+            @Override
+            public void removed(String id) {
+                coffeeVan.applySavedRemoval(id);
+            }
+        });
+        started.start();
+        follower = started;
+        LOGGER.info("Following {}. Choose this option again to stop.", filename);
+    }
+
+    /**
+     * @return {@code true} while follow mode is on
+     */
+    public boolean isFollowing() {
+        return follower != null && follower.isRunning();
+    }
+}
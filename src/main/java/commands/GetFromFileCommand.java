@@ -4,10 +4,14 @@ import coffee.Coffee;
 import coffeevan.CoffeeVan;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import services.CoffeeStorage;
 import services.CoffeeStorageService;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 /**
  * Command class responsible for loading coffee data from a text file
@@ -29,33 +33,82 @@ import java.util.List;
 public class GetFromFileCommand implements Command {
     private static final Logger LOGGER = LogManager.getLogger(GetFromFileCommand.class);
     private final CoffeeVan coffeeVan;
-    private final CoffeeStorageService storageService;
+    private final CoffeeStorage storageService;
+    // set when the file is parsed in parallel chunks instead of streamed
+    private final CoffeeStorageService parallelStorage;
+    private final ForkJoinPool pool;
 
     /**
-     * Constructs a new {@code GetFromFileCommand} instance.
+     * Constructs a new {@code GetFromFileCommand} instance that streams the records.
      *
      * @param coffeeVan the coffee van into which the data will be loaded
      */
-    public GetFromFileCommand(CoffeeVan coffeeVan, CoffeeStorageService storageService) {
+    public GetFromFileCommand(CoffeeVan coffeeVan, CoffeeStorage storageService) {
         this.coffeeVan = coffeeVan;
         this.storageService = storageService;
+        this.parallelStorage = null;
+        this.pool = null;
+    }
+
+    /**
+     * Constructs a new {@code GetFromFileCommand} instance that parses the file in parallel
+     * with {@link CoffeeStorageService#getFromFileParallel(ForkJoinPool)}. This is faster for
+     * large text files, but needs memory for several copies of the loaded items, since they are
+     * all parsed, overlaid with the mutation log and merged by ID before they go into the van.
+     *
+     * @param coffeeVan      the coffee van into which the data will be loaded
+     * @param storageService the storage to read
+     * @param pool           the pool that parses the chunks of the file
+     */
+    public GetFromFileCommand(CoffeeVan coffeeVan, CoffeeStorageService storageService, ForkJoinPool pool) {
+        this.coffeeVan = coffeeVan;
+        this.storageService = storageService;
+        this.parallelStorage = storageService;
+        this.pool = pool;
     }
 
     /**
      * Executes the command to read coffee data from the file
      * and add each valid {@link Coffee} object to the {@link CoffeeVan}.
+     * Items count as saved. The van merges them by ID, the last record winning, so loading
+     * the same file again leaves the cargo as it is.
+     * By default the items are streamed straight into the van, without a list of the whole file
+     * in between, so duplicated records take no extra memory. A command created with a pool
+     * parses the file in parallel instead, which holds the whole file's items in memory
+     * before the first one reaches the van.
+     * Items with unsaved changes in the van, including pending removals, keep those changes,
+     * the same way {@link CoffeeVan#applySavedCoffee(Coffee)} treats records seen while following the file.
      *
      * @throws IOException if an I/O error occurs while reading the file
      */
     @Override
     public void execute() throws IOException {
         LOGGER.info("Loading coffee from file...");
-        List<Coffee> loadedCoffee = storageService.getFromFile();
-        for (Coffee coffee : loadedCoffee) {
-            coffeeVan.addCoffee(coffee);
+        if (parallelStorage != null) {
+            apply(parallelStorage.getFromFileParallel(pool).getCoffee().iterator());
+            return;
+        }
+        try (Stream<Coffee> loadedCoffee = storageService.streamFromFile()) {
+            apply(loadedCoffee.iterator());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        LOGGER.info("Successfully loaded {} items from file.", loadedCoffee.size());
+    }
 
+    private void apply(Iterator<Coffee> records) {
+        int loaded = 0;
+        int kept = 0;
+        while (records.hasNext()) {
+            if (coffeeVan.applySavedCoffee(records.next())) {
+                loaded++;
+            } else {
+                kept++;
+            }
+        }
+        LOGGER.info("Successfully loaded {} records from file.", loaded);
+        if (kept > 0) {
+            LOGGER.warn("Kept unsaved changes instead of {} records from file. Save to write them.", kept);
+        }
     }
 }
 
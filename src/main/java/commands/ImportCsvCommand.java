@@ -0,0 +1,84 @@
+package commands;
+
+import coffee.Coffee;
+import coffeevan.CoffeeVan;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import services.CsvCoffeeImporter;
+import services.CsvImportResult;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command class responsible for bulk importing coffee items from a CSV file into the {@link CoffeeVan}.
+ *
+ * <p>The file is parsed in parallel by a {@link CsvCoffeeImporter}; see there for the accepted
+ * columns and quoting. Imported items are unsaved changes of the van; an item with an ID already
+ * in the van replaces it. Rows that cannot be imported do not stop the import: they are listed
+ * with their line number and the reason in a side report next to the file,
+ * {@code <filename>.errors.csv}. A report left from an earlier import is removed when all rows
+ * are valid.</p>
+ */
+public class ImportCsvCommand implements Command {
+    private static final Logger LOGGER = LogManager.getLogger(ImportCsvCommand.class);
+    private final CoffeeVan coffeeVan;
+    private final Path file;
+    private final Path report;
+
+    /**
+     * Constructs a new {@code ImportCsvCommand} instance.
+     *
+     * @param coffeeVan the coffee van into which the items will be imported
+     * @param filename  the CSV file to read
+     */
+    public ImportCsvCommand(CoffeeVan coffeeVan, String filename) {
+        this.coffeeVan = coffeeVan;
+        this.file = Path.of(filename);
+        this.report = Path.of(filename + ".errors.csv");
+    }
+
+    /**
+     * Reads the CSV file, adds every valid row to the van and writes the report of the invalid ones.
+     *
+     * @throws IOException if the file cannot be read or its header lacks a required column;
+     *                     nothing is imported then
+     */
+    @Override
+    public void execute() throws IOException {
+        LOGGER.info("Importing coffee from CSV file {}...", file);
+        CsvImportResult result = new CsvCoffeeImporter(file).load(ForkJoinPool.commonPool());
+        for (Coffee coffee : result.getCoffee()) {
+            coffeeVan.addCoffee(coffee);
+        }
+        int imported = result.getCoffee().size();
+        if (result.getErrorCount() == 0) {
+            Files.deleteIfExists(report);
+            LOGGER.info("Imported {} items from {}.", imported, file);
+            return;
+        }
+        writeReport(result);
+        LOGGER.warn("Imported {} items from {}, skipped {} invalid rows, see {}.", imported, file, result.getErrorCount(), report);
+    }
+
+    private void writeReport(CsvImportResult result) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write("line,error\n");
+            for (CsvImportResult.RowError error : result.getErrors()) {
+                writer.write(error.getLine() + "," + quote(error.getMessage()) + "\n");
+            }
+            long unreported = result.getErrorCount() - result.getErrors().size();
+            if (unreported > 0) {
+                writer.write("," + quote(unreported + " more invalid rows not listed") + "\n");
+            }
+        }
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,68 @@
+package commands;
+
+import coffee.Coffee;
+import coffeevan.CoffeeVan;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import services.JsonCoffeeReader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Command class responsible for importing coffee items from a JSON file
+ * in the format of {@link ExportJsonCommand} into the {@link CoffeeVan}.
+ *
+ * <p>The file is read element by element by a {@link JsonCoffeeReader}, so any number of items
+ * can be imported with constant memory besides the cargo. Imported items are unsaved changes
+ * of the van; an item with an ID already in the van replaces it. Elements that are not valid
+ * coffee items are skipped and logged; broken JSON stops the import.</p>
+ */
+public class ImportJsonCommand implements Command {
+    private static final Logger LOGGER = LogManager.getLogger(ImportJsonCommand.class);
+    private final CoffeeVan coffeeVan;
+    private final Path file;
+
+    /**
+     * Constructs a new {@code ImportJsonCommand} instance.
+     *
+     * @param coffeeVan the coffee van into which the items will be imported
+     * @param filename  the JSON file to read
+     */
+    public ImportJsonCommand(CoffeeVan coffeeVan, String filename) {
+        this.coffeeVan = coffeeVan;
+        this.file = Path.of(filename);
+    }
+
+    /**
+     * Reads the JSON file and adds every valid item to the van.
+     *
+     * @throws IOException if the file cannot be read or is not a JSON array of objects;
+     *                     the items read before the error stay in the van
+     */
+    @Override
+    public void execute() throws IOException {
+        LOGGER.info("Importing coffee from JSON file {}...", file);
+        int imported = 0;
+        int skipped = 0;
+        try (JsonCoffeeReader reader = new JsonCoffeeReader(Files.newInputStream(file))) {
+            while (true) {
+                Coffee coffee;
+                try {
+                    coffee = reader.read();
+                } catch (IllegalArgumentException e) {
+                    LOGGER.warn("Skipped invalid item {} in {}: {}", reader.count(), file, e.getMessage());
+                    skipped++;
+                    continue;
+                }
+                if (coffee == null) {
+                    break;
+                }
+                coffeeVan.addCoffee(coffee);
+                imported++;
+            }
+        }
+        LOGGER.info("Imported {} items from {}, skipped {}.", imported, file, skipped);
+    }
+}
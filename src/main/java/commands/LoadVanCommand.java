@@ -186,14 +186,15 @@ public class LoadVanCommand implements Command {
             boolean isLoaded;
 
             if (coffeeType.equals("bean")) {
-                isLoaded = coffeeVan.addCoffee(new BeanCoffee(name, weight, price, quality, packaging, roastLevel, origin));
+                isLoaded = coffeeVan.tryAddCoffee(new BeanCoffee(name, weight, price, quality, packaging, roastLevel, origin));
             } else if (coffeeType.equals("ground")) {
-                isLoaded = coffeeVan.addCoffee(new GroundCoffee(name, weight, price, quality, packaging, grindSize));
+                isLoaded = coffeeVan.tryAddCoffee(new GroundCoffee(name, weight, price, quality, packaging, grindSize));
             } else {
-                isLoaded = coffeeVan.addCoffee(new InstantCoffee(name, weight, price, quality, packaging, concentrationLevel));
+                isLoaded = coffeeVan.tryAddCoffee(new InstantCoffee(name, weight, price, quality, packaging, concentrationLevel));
             }
 
-            LOGGER.info(isLoaded ? "Item has been successfully loaded!" : "Something went wrong!");
+            // the van may have filled up while the item was being entered
+            LOGGER.info(isLoaded ? "Item has been successfully loaded!" : "Not enough volume or budget left for this item!");
 
             System.out.print("Want to stop (y/n)? ");
             String answer = sc.nextLine();
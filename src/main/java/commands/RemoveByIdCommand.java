@@ -4,11 +4,9 @@ import coffee.Coffee;
 import coffeevan.CoffeeVan;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import services.CoffeeStorageService;
+import services.CoffeeStorage;
 
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
 import java.util.Scanner;
 
 /**
@@ -17,20 +15,21 @@ import java.util.Scanner;
 public class RemoveByIdCommand implements Command {
     private static final Logger LOGGER = LogManager.getLogger(RemoveByIdCommand.class);
     private final CoffeeVan coffeeVan;
-    private CoffeeStorageService coffeeStorage;
+    private CoffeeStorage coffeeStorage;
 
     /**
      * Constructs a new command for removing coffee by ID.
      *
      * @param coffeeVan the {@link CoffeeVan} instance to operate on
      */
-    public RemoveByIdCommand(CoffeeVan coffeeVan, CoffeeStorageService coffeeStorage) {
+    public RemoveByIdCommand(CoffeeVan coffeeVan, CoffeeStorage coffeeStorage) {
         this.coffeeVan = coffeeVan;
         this.coffeeStorage = coffeeStorage;
     }
 
     /**
      * Reads the ID from console input and removes the matching coffee from the van.
+     * The removal of a saved item is appended to the storage's mutation log instead of rewriting the file.
      */
     @Override
     public void execute() throws IOException {
@@ -45,9 +44,11 @@ public class RemoveByIdCommand implements Command {
             }
         }
         boolean isRemoved = coffeeVan.removeCoffeeById(id);
-        if (isRemoved) {
+        // an item that was never saved leaves no removal to record
+        if (isRemoved && coffeeVan.getUnsavedRemovals().contains(id)) {
             try {
-                coffeeStorage.saveToFile(coffeeVan.getCargo(),false);
+                coffeeStorage.appendRemoval(id);
+                coffeeVan.markRemovalSaved(id);
                 LOGGER.info("Cargo updated file (after removal).");
             } catch (IOException e) {
                 LOGGER.error("Failed to update after removal.", e);
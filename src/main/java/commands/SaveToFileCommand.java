@@ -4,15 +4,20 @@ import coffee.Coffee;
 import coffeevan.CoffeeVan;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import services.CoffeeStorageService;
+import services.CoffeeStorage;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Command class responsible for saving the current cargo (list of coffee objects)
  * from the {@link CoffeeVan} into a text file.
  *
+ * <p>Only the changes since the last save are written: items that were added or replaced
+ * are appended, and removals are recorded as tombstones. Saving an unchanged van writes
+ * nothing.</p>
+ *
  * <p>Each coffee object is serialized into a text line using the
  * {@link Coffee#toFileString()} method and written to the file {@code coffee_data.txt}.
  * This allows persistent storage of van data between program runs.</p>
@@ -27,14 +32,14 @@ import java.util.List;
 public class SaveToFileCommand implements Command {
     private static final Logger LOGGER = LogManager.getLogger(SaveToFileCommand.class);
     private final CoffeeVan coffeeVan;
-    private final CoffeeStorageService storageService;
+    private final CoffeeStorage storageService;
 
     /**
      * Constructs a new {@code LoadFromFileCommand} instance.
      *
      * @param coffeeVan the coffee van whose cargo will be saved to file
      */
-    public SaveToFileCommand(CoffeeVan coffeeVan, CoffeeStorageService storageService) {
+    public SaveToFileCommand(CoffeeVan coffeeVan, CoffeeStorage storageService) {
         this.coffeeVan = coffeeVan;
         this.storageService = storageService;
     }
@@ -46,9 +51,21 @@ public class SaveToFileCommand implements Command {
      */
     @Override
     public void execute() throws IOException {
-        List<Coffee> cargo = coffeeVan.getCargo();
-        LOGGER.info("Saving {} cargo items to file...", cargo.size());
-        storageService.saveToFile(cargo, true);
+        if (!coffeeVan.hasUnsavedChanges()) {
+            LOGGER.info("No unsaved changes, nothing to save.");
+            return;
+        }
+        List<Coffee> unsaved = coffeeVan.getUnsavedCoffee();
+        Set<String> removals = coffeeVan.getUnsavedRemovals();
+        LOGGER.info("Saving {} changed cargo items and {} removals to file...", unsaved.size(), removals.size());
+        // tombstones first, so that an item added again after its removal is not hidden by them
+        if (!removals.isEmpty()) {
+            storageService.appendRemovals(removals);
+        }
+        if (!unsaved.isEmpty()) {
+            storageService.saveToFile(unsaved, true);
+        }
+        coffeeVan.markSaved();
         LOGGER.info("Successfully saved to file!");
     }
 }
@@ -5,35 +5,52 @@ import coffeevan.CoffeeVan;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.List;
+
 /**
- * Command that sorts all coffee items in the {@link CoffeeVan}
- * by their price-to-weight ratio (price per kilogram).
+ * Command that prints the coffee items in the {@link CoffeeVan}
+ * ordered by their price-to-weight ratio (price per kilogram).
+ * <p>
+ * The order is read from the van's price-per-kg index, so the cargo is neither sorted
+ * nor reordered, and with a limit only the cheapest items are visited.
  */
 public class SortCoffeeCommand implements Command {
     private static final Logger LOGGER = LogManager.getLogger(SortCoffeeCommand.class);
     private final CoffeeVan coffeeVan;
+    private final int limit;
+
     /**
-     * Constructs a new command for sorting coffee items.
+     * Constructs a new command that prints all coffee items in order.
      *
      * @param coffeeVan the {@link CoffeeVan} instance to operate on
      */
     public SortCoffeeCommand(CoffeeVan coffeeVan) {
+        this(coffeeVan, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Constructs a new command that prints the cheapest coffee items in order.
+     *
+     * @param coffeeVan the {@link CoffeeVan} instance to operate on
+     * @param limit     the most items to print
+     */
+    public SortCoffeeCommand(CoffeeVan coffeeVan, int limit) {
         this.coffeeVan = coffeeVan;
+        this.limit = limit;
     }
 
     /**
-     * Sorts the van’s coffee list and prints the sorted result.
+     * Prints the van’s coffee items, cheapest per kilogram first.
      */
     @Override
     public void execute() {
-        if (coffeeVan.getCargo().isEmpty()) {
+        List<Coffee> sorted = coffeeVan.topByPricePerKg(limit, true);
+        if (sorted.isEmpty()) {
             LOGGER.warn("Cannot sort: van is empty!");
             return;
         }
-        LOGGER.info("Sorting cargo by price/weight ratio...");
-        coffeeVan.sortByPricePerKg();
-        LOGGER.info("Sorted cargo:");
-        for (Coffee coffee : coffeeVan.getCargo()) {
+        LOGGER.info("Cargo sorted by price/weight ratio:");
+        for (Coffee coffee : sorted) {
             LOGGER.info(coffee.getInfo());
         }
     }
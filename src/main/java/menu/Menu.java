@@ -2,7 +2,6 @@ package menu;
 
 import commands.Command;
 import commands.ExitCommand;
-import commands.GetFromFileCommand;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
@@ -18,7 +17,6 @@ import java.util.Scanner;
  */
 public class Menu {
     private static final Logger LOGGER = LogManager.getLogger(Menu.class);
-    private int idxOfLoad = 0;
     /**
      * Map of available commands, keyed by their menu enumeration.
      */
@@ -54,22 +52,18 @@ public class Menu {
             System.out.println("9. Get data from file");
             System.out.println("10. Load data to file");
             System.out.println("11. Exit");
+            System.out.println("12. Follow data file (on/off)");
+            System.out.println("13. Export cargo to JSON");
+            System.out.println("14. Import cargo from JSON");
+            System.out.println("15. Import cargo from CSV");
+            System.out.println("16. Get data from file (parallel, for large files)");
             System.out.print("Your choice: ");
             try {
                 int choice = scanner.nextInt();
                 Command command = commands.get(MenuEnum.fromNumber(choice));
                 if (command != null) {
                     LOGGER.debug("Executing command: {}", command.getClass().getSimpleName());
-                    if (command instanceof GetFromFileCommand) {
-                        if (idxOfLoad >= 1) {
-                            LOGGER.warn("You`ve already loaded data from the file!");
-                            continue;
-                        }
-                        command.execute();
-                        idxOfLoad++;
-                    } else {
-                        command.execute();
-                    }
+                    command.execute();
 
                     // if command is to exit the program - breaking the infinite loop
                     if (command instanceof ExitCommand) {
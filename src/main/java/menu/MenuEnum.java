@@ -15,7 +15,12 @@ public enum MenuEnum {
     COUNTTOTALPRICE(8),
     SAVETOFILE(10),
     GETFROMFILE(9),
-    EXIT(11);
+    EXIT(11),
+    FOLLOWFILE(12),
+    EXPORTJSON(13),
+    IMPORTJSON(14),
+    IMPORTCSV(15),
+    GETFROMFILEPARALLEL(16);
     /**
      * Numeric representation of the menu item (used for console input).
      */
@@ -0,0 +1,528 @@
+package services;
+
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import coffee.CoffeeRecordWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Stores the coffee cargo in an on-disk B+tree keyed by coffee ID, so that single items can be
+ * read, saved and removed without touching the rest of the file.
+ * <p>
+ * The file is a {@link PageFile} of {@value PageFile#PAGE_SIZE} byte pages: page 0 is the header
+ * (root page, tree height, item count), every other page is a {@link BTreeNode}. The values are
+ * the records of the text format ({@link Coffee#toFileString()}). A lookup, insert or removal
+ * reads and writes one page per tree level, and the recently used pages are kept decoded in an
+ * LRU {@link PageCache}, so the upper levels are usually read from memory.
+ * <p>
+ * Every operation is committed before it returns: its changed pages and the header are written
+ * together through the journal of the page file, and every page carries a checksum. After a
+ * crash the file therefore opens in the state of the last finished operation. Bulk saves are
+ * committed in batches, each of them atomic.
+ * <p>
+ * Leaves are not merged when items are removed; replacing all items rebuilds a compact tree.
+ * Items are returned in ID order. Instances are thread safe.
+ */
+public class BTreeCoffeeStorage implements CoffeeStorage, Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(BTreeCoffeeStorage.class);
+    /**
+     * Cache size used unless another one is given, 4 MB of pages.
+     */
+    public static final int DEFAULT_CACHE_PAGES = 1024;
+    static final int MAX_KEY_LENGTH = 256;
+    static final int MAX_VALUE_LENGTH = 1024;
+    private static final int HEADER_PAGE = 0;
+    private static final byte[] MAGIC = {'C', 'V', 'B', 'T'};
+    private static final int VERSION = 1;
+
+    private final String filename;
+    private final Path path;
+    private final Path rebuildPath;
+    private final int cachePages;
+    private final CoffeeRecordWriter writer = new CoffeeRecordWriter();
+    private final CoffeeRecordParser parser = new CoffeeRecordParser();
+    private PageFile file;
+    private PageCache cache;
+    private int root;
+    private int height;
+    private long count;
+
+    /**
+     * Opens or creates a B-tree file with the default cache size.
+     *
+     * @param filename the B-tree file
+     * @throws IOException if the file cannot be opened or is not a B-tree file
+     */
+    public BTreeCoffeeStorage(String filename) throws IOException {
+        this(filename, DEFAULT_CACHE_PAGES);
+    }
+
+    /**
+     * Opens or creates a B-tree file.
+     *
+     * @param filename   the B-tree file
+     * @param cachePages how many pages the cache keeps
+     * @throws IOException if the file cannot be opened or is not a B-tree file
+     * @throws IllegalArgumentException if {@code cachePages} is not positive
+     */
+    public BTreeCoffeeStorage(String filename, int cachePages) throws IOException {
+        if (cachePages < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + cachePages);
+        }
+        this.filename = filename;
+        this.path = Path.of(filename);
+        this.rebuildPath = Path.of(filename + ".rebuild");
+        this.cachePages = cachePages;
+        // left over from a crash during a rebuild; the old tree is still complete
+        Files.deleteIfExists(rebuildPath);
+        Files.deleteIfExists(Path.of(rebuildPath + ".journal"));
+        open();
+        LOGGER.info("B-tree storage initialized. File: {}, items: {}, height: {}", filename, count, height);
+    }
+
+    private void open() throws IOException {
+        file = new PageFile(path);
+        cache = new PageCache(file, cachePages);
+        try {
+            if (file.pageCount() == 0) {
+                file.allocate();
+                root = cache.allocate(true).page;
+                height = 1;
+                count = 0;
+                commit();
+            } else {
+                readHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    private void readHeader() throws IOException {
+        ByteBuffer header = file.read(HEADER_PAGE);
+        byte[] magic = new byte[MAGIC.length];
+        header.position(PageFile.CHECKSUM_LENGTH).get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a B-tree coffee file: " + filename);
+        }
+        int version = header.getInt();
+        int pageSize = header.getInt();
+        if (version != VERSION || pageSize != PageFile.PAGE_SIZE) {
+            throw new IOException("Unsupported B-tree file version " + version + " with pages of " + pageSize + " bytes: " + filename);
+        }
+        root = header.getInt();
+        height = header.getInt();
+        count = header.getLong();
+    }
+
+    private ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        header.position(PageFile.CHECKSUM_LENGTH);
+        header.put(MAGIC).putInt(VERSION).putInt(PageFile.PAGE_SIZE).putInt(root).putInt(height).putLong(count);
+        return header;
+    }
+
+    /**
+     * Writes the changed pages and the header. If that fails, the changes since the last
+     * commit are dropped, so memory and file agree again.
+     */
+    private void commit() throws IOException {
+        try {
+            cache.flush(HEADER_PAGE, header());
+        } catch (IOException | RuntimeException e) {
+            rollback();
+            throw e;
+        }
+    }
+
+    private void rollback() {
+        cache.clear();
+        try {
+            file.reset();
+            readHeader();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Critical Error: Could not restore the state of file {} after a failed write.", filename, e);
+        }
+    }
+
+    /**
+     * Reads one item.
+     *
+     * @param id the ID of the item
+     * @return the item, or {@code null} if no item has this ID
+     * @throws IOException if a page cannot be read or is corrupt
+     */
+    public synchronized Coffee get(String id) throws IOException {
+        byte[] key = key(id);
+        BTreeNode leaf = findLeaf(key);
+        int i = leaf.search(key);
+        if (i < 0) {
+            return null;
+        }
+        byte[] value = leaf.values.get(i);
+        return parser.parse(value, 0, value.length);
+    }
+
+    /**
+     * Saves one item, replacing the stored item with the same ID.
+     *
+     * @param coffee the item to save
+     * @throws IOException if writing fails; the item is then not saved
+     * @throws IllegalArgumentException if the item has no ID, or its ID or record is too long for a page
+     */
+    public synchronized void put(Coffee coffee) throws IOException {
+        insert(key(coffee.getId()), value(coffee));
+        commit();
+    }
+
+    /**
+     * Removes one item.
+     *
+     * @param id the ID of the item
+     * @return {@code true} if an item was removed
+     * @throws IOException if writing fails; the item is then not removed
+     */
+    public synchronized boolean delete(String id) throws IOException {
+        if (!removeEntry(key(id))) {
+            return false;
+        }
+        commit();
+        return true;
+    }
+
+    /**
+     * Removes several items and commits them together.
+     *
+     * @param ids the IDs of the items
+     * @return the number of items that were removed
+     * @throws IOException if writing fails; the batches committed before stay removed
+     */
+    public synchronized int deleteAll(Collection<String> ids) throws IOException {
+        List<byte[]> keys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            keys.add(key(id));
+        }
+        int removed = 0;
+        for (byte[] key : keys) {
+            if (removeEntry(key)) {
+                removed++;
+            }
+            // keep the changed pages within the cache
+            if (cache.dirtyCount() >= Math.max(1, cachePages / 2)) {
+                commit();
+            }
+        }
+        if (cache.dirtyCount() > 0) {
+            commit();
+        }
+        return removed;
+    }
+
+    private boolean removeEntry(byte[] key) throws IOException {
+        BTreeNode leaf = findLeaf(key);
+        int i = leaf.search(key);
+        if (i < 0) {
+            return false;
+        }
+        leaf.removeEntry(i);
+        cache.markDirty(leaf);
+        count--;
+        return true;
+    }
+
+    /**
+     * @return the number of stored items
+     */
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * @return the number of levels of the tree, 1 for a tree that is a single leaf
+     */
+    public synchronized int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return how many pages were read from disk, because they were not in the cache
+     */
+    public synchronized long getPageReads() {
+        return file.reads();
+    }
+
+    /**
+     * Saves coffee items. Appending inserts or replaces every item in the tree. Replacing builds
+     * a new, compact tree in a temporary file and renames it over the old one.
+     *
+     * @param coffeeList the items to save; for equal IDs the last one wins
+     * @param toNotReplaceFully {@code true} to add the items to the stored ones, {@code false} to replace them
+     * @throws IOException if writing fails; the batches committed before stay saved when appending
+     * @throws IllegalArgumentException if an item has no ID, or its ID or record is too long for a page;
+     *                                  nothing is saved then
+     */
+    @Override
+    public synchronized void saveToFile(List<Coffee> coffeeList, boolean toNotReplaceFully) throws IOException {
+        // encode everything first, so that an invalid item stops the save before anything is written
+        List<byte[][]> entries = new ArrayList<>(coffeeList.size());
+        for (Coffee coffee : coffeeList) {
+            entries.add(new byte[][]{key(coffee.getId()), value(coffee)});
+        }
+        if (toNotReplaceFully) {
+            insertAll(entries);
+            LOGGER.info("Saved {} items to B-tree file {}.", entries.size(), filename);
+            return;
+        }
+        // in key order every leaf but the last is filled completely; the sort is stable, so the last duplicate wins
+        entries.sort((a, b) -> Arrays.compareUnsigned(a[0], b[0]));
+        Files.deleteIfExists(rebuildPath);
+        try (BTreeCoffeeStorage rebuilt = new BTreeCoffeeStorage(rebuildPath.toString(), cachePages)) {
+            rebuilt.insertAll(entries);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(rebuildPath);
+            throw e;
+        }
+        file.close();
+        try {
+            Files.move(rebuildPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            open();
+        }
+        LOGGER.info("Replaced B-tree file {} with {} items.", filename, count);
+    }
+
+    private synchronized void insertAll(List<byte[][]> entries) throws IOException {
+        for (byte[][] entry : entries) {
+            insert(entry[0], entry[1]);
+            // keep the changed pages within the cache
+            if (cache.dirtyCount() >= Math.max(1, cachePages / 2)) {
+                commit();
+            }
+        }
+        commit();
+    }
+
+    /**
+     * Removes a stored item.
+     *
+     * @param id the ID of the removed item
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemoval(String id) throws IOException {
+        delete(id);
+    }
+
+    /**
+     * Removes stored items with one commit.
+     *
+     * @param ids the IDs of the removed items
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemovals(Collection<String> ids) throws IOException {
+        deleteAll(ids);
+    }
+
+    /**
+     * Reads all stored items.
+     *
+     * @return the stored items, in ID order
+     * @throws IOException if a page cannot be read or is corrupt
+     */
+    @Override
+    public synchronized List<Coffee> getFromFile() throws IOException {
+        List<Coffee> coffee = new ArrayList<>((int) Math.min(count, Integer.MAX_VALUE - 8));
+        for (int page = firstLeaf(); page >= 0; ) {
+            BTreeNode leaf = cache.get(page);
+            for (byte[] value : leaf.values) {
+                coffee.add(parser.parse(value, 0, value.length));
+            }
+            page = leaf.next;
+        }
+        return coffee;
+    }
+
+    /**
+     * Reads the stored items lazily in ID order, one leaf at a time. Changes made while the
+     * stream is consumed may or may not be seen.
+     *
+     * @return the stored items, each ID once
+     * @throws IOException if the root cannot be read
+     */
+    @Override
+    public Stream<Coffee> streamFromFile() throws IOException {
+        int first = firstLeafSynchronized();
+        CoffeeRecordParser streamParser = new CoffeeRecordParser();
+        Spliterator<Coffee> leaves = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private final List<byte[]> values = new ArrayList<>();
+            private Iterator<byte[]> current = Collections.emptyIterator();
+            private int nextLeaf = first;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Coffee> action) {
+                while (!current.hasNext()) {
+                    if (nextLeaf < 0) {
+                        return false;
+                    }
+                    try {
+                        values.clear();
+                        nextLeaf = readLeaf(nextLeaf, values);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    current = values.iterator();
+                }
+                byte[] value = current.next();
+                action.accept(streamParser.parse(value, 0, value.length));
+                return true;
+            }
+        };
+        return StreamSupport.stream(leaves, false);
+    }
+
+    private synchronized int firstLeafSynchronized() throws IOException {
+        return firstLeaf();
+    }
+
+    /**
+     * Copies the values of a leaf.
+     *
+     * @return the next leaf, or -1
+     */
+    private synchronized int readLeaf(int page, List<byte[]> values) throws IOException {
+        BTreeNode leaf = cache.get(page);
+        values.addAll(leaf.values);
+        return leaf.next;
+    }
+
+    private int firstLeaf() throws IOException {
+        BTreeNode node = cache.get(root);
+        while (!node.leaf) {
+            node = cache.get(node.children.get(0));
+        }
+        return node.page;
+    }
+
+    private BTreeNode findLeaf(byte[] key) throws IOException {
+        BTreeNode node = cache.get(root);
+        while (!node.leaf) {
+            node = cache.get(node.children.get(node.childIndex(key)));
+        }
+        return node;
+    }
+
+    private void insert(byte[] key, byte[] value) throws IOException {
+        Split split = insert(root, key, value);
+        if (split != null) {
+            BTreeNode newRoot = cache.allocate(false);
+            newRoot.children.add(root);
+            newRoot.insertChild(0, split.key, split.page);
+            root = newRoot.page;
+            height++;
+        }
+    }
+
+    /**
+     * Inserts into the subtree at {@code page}.
+     *
+     * @return the split of the subtree's root, if it had to be split
+     */
+    private Split insert(int page, byte[] key, byte[] value) throws IOException {
+        BTreeNode node = cache.get(page);
+        if (node.leaf) {
+            int i = node.search(key);
+            if (i >= 0) {
+                node.setValue(i, value);
+            } else {
+                i = -i - 1;
+                node.insertEntry(i, key, value);
+                count++;
+            }
+            cache.markDirty(node);
+            if (!node.overflows()) {
+                return null;
+            }
+            BTreeNode right = cache.allocate(true);
+            // a key appended to the last leaf is most likely followed by larger ones
+            boolean appending = i == node.keys.size() - 1 && node.next < 0;
+            return new Split(node.splitLeaf(right, appending), right.page);
+        }
+        int child = node.childIndex(key);
+        Split split = insert(node.children.get(child), key, value);
+        if (split == null) {
+            return null;
+        }
+        node.insertChild(child, split.key, split.page);
+        cache.markDirty(node);
+        if (!node.overflows()) {
+            return null;
+        }
+        BTreeNode right = cache.allocate(false);
+        return new Split(node.splitInternal(right), right.page);
+    }
+
+    private static byte[] key(String id) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Coffee ID must not be empty");
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Coffee ID is longer than " + MAX_KEY_LENGTH + " bytes: " + id);
+        }
+        return key;
+    }
+
+    private byte[] value(Coffee coffee) {
+        int length = writer.encode(coffee);
+        if (length > MAX_VALUE_LENGTH) {
+            throw new IllegalArgumentException("Record of coffee " + coffee.getId() + " is longer than "
+                    + MAX_VALUE_LENGTH + " bytes: " + length);
+        }
+        return Arrays.copyOf(writer.buffer(), length);
+    }
+
+    /**
+     * Closes the file. Everything is already committed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * A node split in two: the key that separates the halves and the page of the right half.
+     */
+    private static final class Split {
+        private final byte[] key;
+        private final int page;
+
+        Split(byte[] key, int page) {
+            this.key = key;
+            this.page = page;
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package services;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A node of the {@link BTreeCoffeeStorage} tree, decoded from its page.
+ * <p>
+ * Keys are compared as unsigned bytes. A leaf holds keys with their values and the page of the
+ * next leaf, so that all leaves form a chain in key order. An internal node holds {@code n}
+ * keys and {@code n + 1} children; child {@code i} holds the keys from {@code keys[i - 1]}
+ * (inclusive) up to {@code keys[i]} (exclusive).
+ * <p>
+ * Page layout, after the checksum of {@link PageFile}:
+ * <pre>
+ * type       1 byte   (1 = leaf, 2 = internal)
+ * count      2 bytes  number of keys
+ * link       4 bytes  leaf: next leaf or -1; internal: first child
+ * entries    leaf: key length (2), key, value length (2), value
+ *            internal: key length (2), key, child (4)
+ * </pre>
+ */
+final class BTreeNode {
+    static final int HEADER_LENGTH = PageFile.CHECKSUM_LENGTH + 1 + 2 + 4;
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+
+    final int page;
+    final boolean leaf;
+    final List<byte[]> keys;
+    // leaf only
+    final List<byte[]> values;
+    // internal only
+    final List<Integer> children;
+    int next = -1;
+    // length of the encoded node
+    private int size = HEADER_LENGTH;
+
+    private BTreeNode(int page, boolean leaf, int capacity) {
+        this.page = page;
+        this.leaf = leaf;
+        this.keys = new ArrayList<>(capacity);
+        this.values = leaf ? new ArrayList<>(capacity) : null;
+        this.children = leaf ? null : new ArrayList<>(capacity + 1);
+    }
+
+    /**
+     * Creates an empty node.
+     */
+    BTreeNode(int page, boolean leaf) {
+        this(page, leaf, 16);
+    }
+
+    /**
+     * Binary search for a key.
+     *
+     * @return the index of the key, or {@code -(insertion point) - 1}
+     */
+    int search(byte[] key) {
+        int low = 0;
+        int high = keys.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = Arrays.compareUnsigned(keys.get(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * @return the index of the child that holds the key
+     */
+    int childIndex(byte[] key) {
+        int i = search(key);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    void insertEntry(int i, byte[] key, byte[] value) {
+        keys.add(i, key);
+        values.add(i, value);
+        size += leafEntrySize(key, value);
+    }
+
+    void setValue(int i, byte[] value) {
+        size += value.length - values.get(i).length;
+        values.set(i, value);
+    }
+
+    void removeEntry(int i) {
+        size -= leafEntrySize(keys.get(i), values.get(i));
+        keys.remove(i);
+        values.remove(i);
+    }
+
+    /**
+     * Adds a key with the child to its right, as after a split of child {@code i}.
+     */
+    void insertChild(int i, byte[] key, int child) {
+        keys.add(i, key);
+        children.add(i + 1, child);
+        size += internalEntrySize(key);
+    }
+
+    /**
+     * @return {@code true} if the node no longer fits in its page
+     */
+    boolean overflows() {
+        return size > PageFile.PAGE_SIZE;
+    }
+
+    /**
+     * Moves the upper entries of this leaf to the empty leaf {@code right}, which becomes the next leaf.
+     *
+     * @param appending keep all entries but the last here, for keys inserted in ascending order
+     * @return the first key of {@code right}, which separates the two leaves in their parent
+     */
+    byte[] splitLeaf(BTreeNode right, boolean appending) {
+        int count = keys.size();
+        int split = count - 1;
+        if (!appending) {
+            // split by bytes, not by count, so that both halves fit whatever the entry sizes
+            int half = (size - HEADER_LENGTH) / 2;
+            int bytes = 0;
+            split = 0;
+            while (split < count - 1 && bytes < half) {
+                bytes += leafEntrySize(keys.get(split), values.get(split));
+                split++;
+            }
+            split = Math.max(split, 1);
+        }
+        for (int i = split; i < count; i++) {
+            right.insertEntry(i - split, keys.get(i), values.get(i));
+        }
+        truncate(split);
+        right.next = next;
+        next = right.page;
+        return right.keys.get(0);
+    }
+
+    /**
+     * Moves the upper keys and children of this internal node to the empty node {@code right}.
+     *
+     * @return the middle key, which moves up to the parent
+     */
+    byte[] splitInternal(BTreeNode right) {
+        int count = keys.size();
+        int half = (size - HEADER_LENGTH) / 2;
+        int bytes = 0;
+        int middle = 0;
+        while (middle < count - 2 && bytes < half) {
+            bytes += internalEntrySize(keys.get(middle));
+            middle++;
+        }
+        middle = Math.max(middle, 1);
+        byte[] separator = keys.get(middle);
+        right.children.add(children.get(middle + 1));
+        for (int i = middle + 1; i < count; i++) {
+            right.insertChild(i - middle - 1, keys.get(i), children.get(i + 1));
+        }
+        children.subList(middle + 1, children.size()).clear();
+        truncate(middle);
+        return separator;
+    }
+
+    private void truncate(int count) {
+        keys.subList(count, keys.size()).clear();
+        if (leaf) {
+            values.subList(count, values.size()).clear();
+        }
+        size = HEADER_LENGTH;
+        for (int i = 0; i < count; i++) {
+            size += leaf ? leafEntrySize(keys.get(i), values.get(i)) : internalEntrySize(keys.get(i));
+        }
+    }
+
+    /**
+     * Writes the node into a page buffer; the checksum is left to {@link PageFile}.
+     */
+    void encode(ByteBuffer page) {
+        page.clear();
+        page.position(PageFile.CHECKSUM_LENGTH);
+        page.put(leaf ? LEAF : INTERNAL);
+        page.putShort((short) keys.size());
+        page.putInt(leaf ? next : children.get(0));
+        for (int i = 0; i < keys.size(); i++) {
+            byte[] key = keys.get(i);
+            page.putShort((short) key.length).put(key);
+            if (leaf) {
+                byte[] value = values.get(i);
+                page.putShort((short) value.length).put(value);
+            } else {
+                page.putInt(children.get(i + 1));
+            }
+        }
+    }
+
+    /**
+     * Reads a node from its page.
+     *
+     * @throws IllegalStateException if the page is not a node
+     */
+    static BTreeNode decode(int page, ByteBuffer buffer) {
+        buffer.position(PageFile.CHECKSUM_LENGTH);
+        byte type = buffer.get();
+        if (type != LEAF && type != INTERNAL) {
+            throw new IllegalStateException("Page " + page + " is not a B-tree node");
+        }
+        int count = Short.toUnsignedInt(buffer.getShort());
+        BTreeNode node = new BTreeNode(page, type == LEAF, count + 1);
+        int link = buffer.getInt();
+        if (node.leaf) {
+            node.next = link;
+        } else {
+            node.children.add(link);
+        }
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[Short.toUnsignedInt(buffer.getShort())];
+            buffer.get(key);
+            node.keys.add(key);
+            if (node.leaf) {
+                byte[] value = new byte[Short.toUnsignedInt(buffer.getShort())];
+                buffer.get(value);
+                node.values.add(value);
+                node.size += leafEntrySize(key, value);
+            } else {
+                node.children.add(buffer.getInt());
+                node.size += internalEntrySize(key);
+            }
+        }
+        return node;
+    }
+
+    private static int leafEntrySize(byte[] key, byte[] value) {
+        return 2 + key.length + 2 + value.length;
+    }
+
+    private static int internalEntrySize(byte[] key) {
+        return 2 + key.length + 4;
+    }
+}
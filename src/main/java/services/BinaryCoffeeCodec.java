@@ -0,0 +1,451 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact binary storage format for coffee cargo, an alternative to the semicolon text format.
+ * <p>
+ * A file is a sequence of segments. Every segment starts with the header
+ * {@code 'C' 'V' 'B' version} and is followed by records:
+ * <pre>
+ * type tag      1 byte  (1 = bean, 2 = ground, 3 = instant)
+ * id            1 byte kind, then two longs for a UUID or a length-prefixed UTF-8 string;
+ *               kind 2 is a {@code null} id with nothing after it
+ * name          string reference
+ * weight, price, aroma, taste, freshness   number
+ * material      string reference
+ * volume        number
+ * extras        bean: origin (string reference) + roast ordinal; ground: grind ordinal;
+ *               instant: concentration ordinal (1 byte each, {@code 255} for {@code null})
+ * </pre>
+ * A <b>string reference</b> is a varint: {@code 0} means a new string follows and is appended
+ * to the segment's dictionary, {@code n > 0} refers to dictionary entry {@code n - 1}. So
+ * repeated names, materials and origins are stored once. A new string is a varint
+ * {@code length + 1} and the UTF-8 bytes; {@code 0} stands for {@code null}. Segments of
+ * version 1, which had no {@code null}, store the plain length and are still read.
+ * <p>
+ * A <b>number</b> is a varint: values that are an exact multiple of 0.01 (prices, scores)
+ * are stored as {@code zigzag(value * 100) << 1}; anything else is stored as {@code 1}
+ * followed by the 8 raw IEEE 754 bytes. Both forms restore the exact same bits.
+ * <p>
+ * Appending starts a new segment, so the dictionary never has to be read back first.
+ */
+public final class BinaryCoffeeCodec {
+    /**
+     * First bytes of every segment.
+     */
+    static final byte[] MAGIC = {'C', 'V', 'B'};
+    static final int VERSION = 2;
+    static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    private static final int TAG_BEAN = 1;
+    private static final int TAG_GROUND = 2;
+    private static final int TAG_INSTANT = 3;
+    private static final int ID_UUID = 0;
+    private static final int ID_TEXT = 1;
+    private static final int ID_NULL = 2;
+    private static final int NULL_ORDINAL = 0xFF;
+    private static final int SCALE = 100;
+    private static final RoastLevel[] ROAST_LEVELS = RoastLevel.values();
+    private static final GrindSize[] GRIND_SIZES = GrindSize.values();
+    private static final ConcentrationLevel[] CONCENTRATION_LEVELS = ConcentrationLevel.values();
+
+    private BinaryCoffeeCodec() {
+    }
+
+    /**
+     * Checks whether a file starts like a binary coffee file.
+     *
+     * @param head the first bytes of the file
+     * @param length how many of them are valid
+     * @return {@code true} if the bytes are a binary segment header
+     */
+    static boolean isBinary(byte[] head, int length) {
+        if (length < HEADER_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (head[i] != MAGIC[i]) return false;
+        }
+        // the version byte is a control character, which never follows 'CVB' at the start of a text line
+        int version = head[MAGIC.length];
+        return version > 0 && version < ' ';
+    }
+
+    /**
+     * Writes one segment of records.
+     */
+    public static final class Encoder implements AutoCloseable {
+        private final OutputStream out;
+        private final Map<String, Integer> dictionary = new HashMap<>();
+
+        /**
+         * Starts a new segment on the stream and writes its header.
+         *
+         * @param out the stream to write to; closed together with the encoder
+         * @throws IOException if writing fails
+         */
+        public Encoder(OutputStream out) throws IOException {
+            this.out = new BufferedOutputStream(out, 1 << 16);
+            this.out.write(MAGIC);
+            this.out.write(VERSION);
+        }
+
+        /**
+         * Encodes one coffee item.
+         *
+         * @param coffee the item to write
+         * @throws IOException if writing fails
+         * @throws IllegalArgumentException for coffee types the format does not know
+         */
+        public void write(Coffee coffee) throws IOException {
+            int tag;
+            if (coffee instanceof BeanCoffee) tag = TAG_BEAN;
+            else if (coffee instanceof GroundCoffee) tag = TAG_GROUND;
+            else if (coffee instanceof InstantCoffee) tag = TAG_INSTANT;
+            else throw new IllegalArgumentException("Unsupported coffee type: " + coffee.getClass().getName());
+
+            out.write(tag);
+            writeId(coffee.getId());
+            writeString(coffee.getName());
+            writeNumber(coffee.getWeight());
+            writeNumber(coffee.getPrice());
+            writeNumber(coffee.getQuality().getAromaScore());
+            writeNumber(coffee.getQuality().getTasteScore());
+            writeNumber(coffee.getQuality().getFreshnessScore());
+            writeString(coffee.getPackaging().getMaterial());
+            writeNumber(coffee.getPackaging().getVolume());
+            switch (tag) {
+                case TAG_BEAN -> {
+                    BeanCoffee bean = (BeanCoffee) coffee;
+                    writeString(bean.getOrigin());
+                    writeOrdinal(bean.getRoastLevel());
+                }
+                case TAG_GROUND -> writeOrdinal(((GroundCoffee) coffee).getGrindSize());
+                default -> writeOrdinal(((InstantCoffee) coffee).getConcentrationLevel());
+            }
+        }
+
+        private void writeOrdinal(Enum<?> value) throws IOException {
+            out.write(value == null ? NULL_ORDINAL : value.ordinal());
+        }
+
+        private void writeId(String id) throws IOException {
+            UUID uuid = parseCanonicalUuid(id);
+            if (id == null) {
+                out.write(ID_NULL);
+            } else if (uuid != null) {
+                out.write(ID_UUID);
+                writeLong(uuid.getMostSignificantBits());
+                writeLong(uuid.getLeastSignificantBits());
+            } else {
+                out.write(ID_TEXT);
+                writeUtf8(id);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarint(0);
+                writeVarint(0);
+                return;
+            }
+            Integer index = dictionary.get(value);
+            if (index != null) {
+                writeVarint(index + 1L);
+                return;
+            }
+            writeVarint(0);
+            writeUtf8(value);
+            dictionary.put(value, dictionary.size());
+        }
+
+        private void writeUtf8(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length + 1L);
+            out.write(bytes);
+        }
+
+        private void writeNumber(double value) throws IOException {
+            double scaled = value * SCALE;
+            if (Math.abs(scaled) < (1L << 52)) {
+                long fixed = Math.round(scaled);
+                if (Double.doubleToRawLongBits(fixed / (double) SCALE) == Double.doubleToRawLongBits(value)) {
+                    writeVarint(((fixed << 1) ^ (fixed >> 63)) << 1);
+                    return;
+                }
+            }
+            writeVarint(1);
+            writeLong(Double.doubleToRawLongBits(value));
+        }
+
+        private void writeLong(long value) throws IOException {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (value >>> shift));
+            }
+        }
+
+        private void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        /**
+         * Flushes buffered bytes without closing the stream.
+         *
+         * @throws IOException if writing fails
+         */
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads all segments of a binary stream.
+     */
+    public static final class Decoder implements AutoCloseable {
+        private final InputStream in;
+        private final List<String> dictionary = new ArrayList<>();
+        private int segmentVersion = VERSION;
+        // bytes consumed so far, and where the last complete record ended
+        private long position;
+        private long recordEnd;
+
+        /**
+         * @param in the stream to read; closed together with the decoder
+         */
+        public Decoder(InputStream in) {
+            this.in = new BufferedInputStream(in, 1 << 16);
+        }
+
+        /**
+         * Reads the next record.
+         *
+         * @return the next coffee item, or {@code null} at the end of the stream
+         * @throws IOException if the data is corrupt or ends inside a record
+         */
+        public Coffee read() throws IOException {
+            int tag = readTag();
+            while (tag == MAGIC[0]) {
+                readHeaderRest();
+                tag = readTag();
+            }
+            if (tag < 0) {
+                return null;
+            }
+            String id = readId();
+            String name = readString();
+            double weight = readNumber();
+            double price = readNumber();
+            double aroma = readNumber();
+            double taste = readNumber();
+            double freshness = readNumber();
+            String material = readString();
+            double volume = readNumber();
+            String origin = null;
+            Enum<?> extra = switch (tag) {
+                case TAG_BEAN -> {
+                    origin = readString();
+                    yield readOrdinal(ROAST_LEVELS);
+                }
+                case TAG_GROUND -> readOrdinal(GRIND_SIZES);
+                case TAG_INSTANT -> readOrdinal(CONCENTRATION_LEVELS);
+                default -> throw new IOException("Corrupt binary coffee data: unknown type tag " + tag);
+            };
+            Coffee coffee;
+            try {
+                QualityParams quality = new QualityParams(aroma, taste, freshness);
+                Packaging packaging = new Packaging(material, volume);
+                coffee = switch (tag) {
+                    case TAG_BEAN -> new BeanCoffee(name, weight, price, quality, packaging, (RoastLevel) extra, origin, id);
+                    case TAG_GROUND -> new GroundCoffee(name, weight, price, quality, packaging, (GrindSize) extra, id);
+                    default -> new InstantCoffee(name, weight, price, quality, packaging, (ConcentrationLevel) extra, id);
+                };
+            } catch (RuntimeException e) {
+                // the writer only ever stores valid items, so a rejected value means damaged bytes
+                throw new IOException("Corrupt binary coffee data: " + e.getMessage(), e);
+            }
+            recordEnd = position;
+            return coffee;
+        }
+
+        private <E extends Enum<E>> E readOrdinal(E[] values) throws IOException {
+            int ordinal = readByte();
+            if (ordinal == NULL_ORDINAL && segmentVersion >= 2) {
+                return null;
+            }
+            if (ordinal >= values.length) {
+                throw new IOException("Corrupt binary coffee data: ordinal " + ordinal + " out of range for "
+                        + values.getClass().getComponentType().getSimpleName());
+            }
+            return values[ordinal];
+        }
+
+        /**
+         * @return the number of bytes up to the end of the last record {@link #read} returned
+         */
+        long recordEnd() {
+            return recordEnd;
+        }
+
+        private int readTag() throws IOException {
+            int tag = in.read();
+            if (tag >= 0) {
+                position++;
+            }
+            return tag;
+        }
+
+        private void readHeaderRest() throws IOException {
+            for (int i = 1; i < MAGIC.length; i++) {
+                if (readByte() != MAGIC[i]) {
+                    throw new IOException("Corrupt binary coffee data: bad segment header");
+                }
+            }
+            int version = readByte();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported binary coffee format version " + version);
+            }
+            segmentVersion = version;
+            // every segment has its own dictionary
+            dictionary.clear();
+        }
+
+        private String readId() throws IOException {
+            int kind = readByte();
+            if (kind == ID_UUID) {
+                return new UUID(readLong(), readLong()).toString();
+            }
+            if (kind == ID_TEXT) {
+                return readUtf8();
+            }
+            if (kind == ID_NULL && segmentVersion >= 2) {
+                return null;
+            }
+            throw new IOException("Corrupt binary coffee data: unknown id kind " + kind);
+        }
+
+        private String readString() throws IOException {
+            long reference = readVarint();
+            if (reference == 0) {
+                String value = readUtf8();
+                if (value != null) {
+                    dictionary.add(value);
+                }
+                return value;
+            }
+            if (reference > dictionary.size()) {
+                throw new IOException("Corrupt binary coffee data: string reference " + reference);
+            }
+            return dictionary.get((int) reference - 1);
+        }
+
+        private String readUtf8() throws IOException {
+            long length = readVarint();
+            if (segmentVersion >= 2) {
+                if (length == 0) {
+                    return null;
+                }
+                length--;
+            }
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt binary coffee data: string length " + length);
+            }
+            byte[] bytes = in.readNBytes((int) length);
+            position += bytes.length;
+            if (bytes.length != length) {
+                throw new EOFException("Binary coffee data ends inside a string");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private double readNumber() throws IOException {
+            long value = readVarint();
+            if (value == 1) {
+                return Double.longBitsToDouble(readLong());
+            }
+            long zigzag = value >>> 1;
+            long fixed = (zigzag >>> 1) ^ -(zigzag & 1);
+            return fixed / (double) SCALE;
+        }
+
+        private long readLong() throws IOException {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        private long readVarint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt binary coffee data: varint too long");
+        }
+
+        private int readByte() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Binary coffee data ends inside a record");
+            }
+            position++;
+            return b;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * @return the UUID if {@code id} is a UUID in canonical lower-case form, otherwise {@code null}
+     */
+    private static UUID parseCanonicalUuid(String id) {
+        if (id == null || id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            // only ids that come back unchanged may be stored as two longs
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package services;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bloom filter over byte string keys, for the segments of {@link LsmCoffeeStorage}.
+ * <p>
+ * With {@value #BITS_PER_KEY} bits per key and {@value #HASHES} hash functions, about 1 % of the
+ * keys that were never added are reported as possibly present; keys that were added always are.
+ * The hash functions are derived from one 64-bit hash by double hashing.
+ */
+final class BloomFilter {
+    static final int BITS_PER_KEY = 10;
+    static final int HASHES = 7;
+
+    private final long[] words;
+    private final int hashes;
+    private final long bits;
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param expectedKeys the number of keys that will be added
+     */
+    BloomFilter(long expectedKeys) {
+        this(new long[(int) Math.max(1, Math.min(Integer.MAX_VALUE - 8, (expectedKeys * BITS_PER_KEY + 63) / 64))], HASHES);
+    }
+
+    private BloomFilter(long[] words, int hashes) {
+        this.words = words;
+        this.hashes = hashes;
+        this.bits = (long) words.length * 64;
+    }
+
+    void add(byte[] key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    /**
+     * @return {@code false} if the key was certainly not added
+     */
+    boolean mightContain(byte[] key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Integer.toUnsignedLong(h1 + i * h2) % bits;
+            if ((words[(int) (bit >>> 6)] & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of bytes {@link #writeTo(ByteBuffer)} writes
+     */
+    int serializedSize() {
+        return Integer.BYTES * 2 + words.length * Long.BYTES;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.putInt(hashes).putInt(words.length);
+        for (long word : words) {
+            buffer.putLong(word);
+        }
+    }
+
+    /**
+     * Reads a filter written by {@link #writeTo(ByteBuffer)}.
+     *
+     * @throws IllegalArgumentException if the bytes do not describe a filter
+     */
+    static BloomFilter readFrom(ByteBuffer buffer) {
+        int hashes = buffer.getInt();
+        int length = buffer.getInt();
+        if (hashes < 1 || length < 1 || length > buffer.remaining() / Long.BYTES) {
+            throw new IllegalArgumentException("Invalid Bloom filter: " + hashes + " hashes, " + length + " words");
+        }
+        long[] words = new long[length];
+        for (int i = 0; i < length; i++) {
+            words[i] = buffer.getLong();
+        }
+        return new BloomFilter(words, hashes);
+    }
+
+    /**
+     * FNV-1a over the bytes, finished with the murmur3 mixer so that both halves are well distributed.
+     */
+    private static long hash(byte[] key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,85 @@
+package services;
+
+import coffee.Coffee;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Pulls coffee items from a data file one at a time, with the {@link LogOverlay} of its
+ * mutation log applied. Only the current record is held in memory; the file is closed
+ * as soon as its last record has been read, or when the iterator is closed earlier.
+ */
+final class CoffeeRecordIterator implements Iterator<Coffee>, Closeable {
+
+    /**
+     * One record format of the base file.
+     */
+    interface Source extends Closeable {
+        /**
+         * @return the next item, or {@code null} at the end of the file
+         * @throws IOException if reading fails
+         */
+        Coffee read() throws IOException;
+    }
+
+    private final Source source;
+    private final LogOverlay overlay;
+    private Iterator<Coffee> tail;
+    private Coffee next;
+    private boolean sourceClosed;
+
+    CoffeeRecordIterator(Source source, LogOverlay overlay) {
+        this.source = source;
+        this.overlay = overlay;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = advance();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Coffee next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Coffee coffee = next;
+        next = null;
+        return coffee;
+    }
+
+    private Coffee advance() {
+        try {
+            while (tail == null) {
+                Coffee coffee = source.read();
+                if (coffee == null) {
+                    close();
+                    tail = overlay.tail().iterator();
+                } else {
+                    Coffee current = overlay.apply(coffee);
+                    if (current != null) {
+                        return current;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return tail.hasNext() ? tail.next() : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!sourceClosed) {
+            sourceClosed = true;
+            source.close();
+        }
+    }
+}
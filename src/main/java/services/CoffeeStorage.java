@@ -0,0 +1,63 @@
+package services;
+
+import coffee.Coffee;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Persistent storage of the coffee cargo, as used by the file commands.
+ * <p>
+ * {@link CoffeeStorageService} keeps everything in one file,
+ * {@link PartitionedCoffeeStorageService} spreads it over several,
+ * {@link BTreeCoffeeStorage} keeps a B+tree that reads and writes single items, and
+ * {@link LsmCoffeeStorage} logs changes and merges them into sorted segments.
+ */
+public interface CoffeeStorage {
+
+    /**
+     * Saves coffee items.
+     *
+     * @param coffeeList the items to save
+     * @param toNotReplaceFully {@code true} to add the items to the stored ones, {@code false} to replace them
+     * @throws IOException if writing fails
+     */
+    void saveToFile(List<Coffee> coffeeList, boolean toNotReplaceFully) throws IOException;
+
+    /**
+     * Records the removal of a stored item.
+     *
+     * @param id the ID of the removed item
+     * @throws IOException if writing fails
+     */
+    void appendRemoval(String id) throws IOException;
+
+    /**
+     * Records the removal of several stored items at once, with a single durable write where the storage allows it.
+     *
+     * @param ids the IDs of the removed items
+     * @throws IOException if writing fails
+     */
+    void appendRemovals(Collection<String> ids) throws IOException;
+
+    /**
+     * Reads all stored items, one per ID.
+     *
+     * @return the stored items
+     * @throws IOException if reading fails
+     */
+    List<Coffee> getFromFile() throws IOException;
+
+    /**
+     * Reads the stored records lazily. The same ID may occur more than once, the last one being current;
+     * read errors during consumption are thrown as {@link UncheckedIOException}.
+     * The stream must be closed if it is not consumed to the end.
+     *
+     * @return the stored records
+     * @throws IOException if the storage cannot be opened
+     */
+    Stream<Coffee> streamFromFile() throws IOException;
+}
@@ -1,14 +1,58 @@
 package services;
 import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import coffee.CoffeeRecordWriter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class CoffeeStorageService {
+/**
+ * Stores the coffee cargo in a base file plus a {@link MutationLog} next to it
+ * ({@code <filename>.log}). Small changes such as removals are appended to the log;
+ * full saves and {@link #compact()} fold the log into a new base file.
+ */
+public class CoffeeStorageService implements CoffeeStorage {
+    // compact once the log is this large and larger than the base file, so each rewrite is paid for by the appends before it
+    private static final long COMPACTION_MIN_LOG_SIZE = 1L << 20;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    // what PrintWriter.println used to end every record with
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
     private  String filename;
+    private final StorageFormat format;
+    private final MutationLog log;
+    private final Path path;
+    // a new base file is written here first and then renamed over the real one
+    private final Path tempPath;
+    private final GroupCommitter<Mutation> committer = new GroupCommitter<>(this::commit);
+    // held exclusively while files are renamed, so that readers never see a half-switched set of files
+    private final ReentrantReadWriteLock fileLock = new ReentrantReadWriteLock();
+    private final UnaryOperator<WritableByteChannel> writeHook;
+    // length of the base file up to its last complete binary record, or -1 until it is known; commit thread only
+    private long binaryEnd = -1;
     private static final Logger LOGGER = LogManager.getLogger(CoffeeStorageService.class);
 
 
@@ -17,39 +61,562 @@ public class CoffeeStorageService {
      * @param filename filepath for the file
      */
     public CoffeeStorageService(String filename) {
+        this(filename, StorageFormat.TEXT);
+    }
+
+    /**
+     * Constructor that also chooses the format new data is saved in.
+     * @param filename filepath for the file
+     * @param format the format {@link #saveToFile(List, boolean)} writes
+     */
+    public CoffeeStorageService(String filename, StorageFormat format) {
+        this(filename, format, UnaryOperator.identity());
+    }
+
+    /**
+     * @param writeHook wraps every channel that data files are written through (for fault injection in tests)
+     */
+    CoffeeStorageService(String filename, StorageFormat format, UnaryOperator<WritableByteChannel> writeHook) {
         this.filename = filename;
-        LOGGER.info("StorageService initialized. File: {}", filename);
+        this.format = format;
+        this.path = Path.of(filename);
+        this.tempPath = Path.of(filename + ".tmp");
+        this.log = new MutationLog(Path.of(filename + ".log"), writeHook);
+        this.writeHook = writeHook;
+        recover();
+        LOGGER.info("StorageService initialized. File: {}, format: {}", filename, format);
     }
+
+    /**
+     * Saves coffee items in the format chosen in the constructor.
+     * <p>
+     * Replacing the file writes a temporary file, forces it to disk and renames it over the
+     * old file, so a crash leaves either the old or the new data, never a truncated file;
+     * it also starts a new base file and drops the mutation log. Appending forces the appended
+     * records to disk; while the log has changes they go to the log, so that the items come
+     * after its tombstones. Saves requested while another one is being written are committed
+     * together, with one fsync.
+     *
+     * @param coffeeList the items to save
+     * @param toNotReplaceFully {@code true} to append to the file, {@code false} to replace it
+     * @throws IOException if writing fails, or if appending to a file that has the other format
+     */
+    @Override
     public void saveToFile(List<Coffee> coffeeList, boolean toNotReplaceFully) throws IOException {
+        if (toNotReplaceFully && log.size() == 0) {
+            StorageFormat existing = detectFormat();
+            if (existing != null && existing != format) {
+                throw new IOException("Cannot append " + format + " records to the " + existing + " file " + filename);
+            }
+        }
         LOGGER.info("Saving {} coffee items to file {}...", coffeeList.size(), filename);
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filename,toNotReplaceFully))) {
-            for (Coffee coffee : coffeeList) {
-                writer.println(coffee.toFileString());
+        committer.submit(toNotReplaceFully ? Mutation.append(coffeeList) : Mutation.replace(coffeeList));
+        LOGGER.info("Successfully saved to file {}.", filename);
+    }
+
+    /**
+     * Records the removal of an item by appending a tombstone to the mutation log,
+     * instead of rewriting the whole file. Compacts the log once it has grown larger
+     * than the base file.
+     *
+     * @param id the ID of the removed item
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemoval(String id) throws IOException {
+        committer.submit(Mutation.remove(List.of(id)));
+        LOGGER.info("Logged removal of item {} for file {}.", id, filename);
+        compactIfLogLarge();
+    }
+
+    /**
+     * Records the removal of several items with one tombstone batch, so that they cost a single fsync.
+     *
+     * @param ids the IDs of the removed items
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemovals(Collection<String> ids) throws IOException {
+        if (ids.isEmpty()) {
+            return;
+        }
+        committer.submit(Mutation.remove(List.copyOf(ids)));
+        LOGGER.info("Logged removal of {} items for file {}.", ids.size(), filename);
+        compactIfLogLarge();
+    }
+
+    private void compactIfLogLarge() throws IOException {
+        long logSize = log.size();
+        if (logSize >= COMPACTION_MIN_LOG_SIZE && logSize > new File(filename).length()) {
+            compact();
+        }
+    }
+
+    /**
+     * Folds the mutation log into a new base file and deletes the log.
+     *
+     * @throws IOException if reading or writing fails
+     */
+    public void compact() throws IOException {
+        committer.submit(Mutation.COMPACT);
+    }
+
+    /**
+     * Writes one group commit. Requests are applied in order: a replacement makes the
+     * earlier requests of the batch obsolete, and appends and tombstones are gathered
+     * so that the base file and the log are each written and forced once.
+     */
+    private void commit(List<Mutation> batch) throws IOException {
+        List<List<Coffee>> replacement = null;
+        List<List<Coffee>> baseAppends = new ArrayList<>();
+        StringBuilder logRecords = new StringBuilder();
+        boolean logHasRecords = log.size() > 0;
+        for (Mutation mutation : batch) {
+            switch (mutation.kind) {
+                case REPLACE -> {
+                    replacement = new ArrayList<>();
+                    replacement.add(mutation.coffee);
+                    baseAppends.clear();
+                    logRecords.setLength(0);
+                    logHasRecords = false;
+                }
+                case APPEND -> {
+                    if (logHasRecords) {
+                        MutationLog.addAdditions(logRecords, mutation.coffee);
+                    } else if (replacement != null) {
+                        replacement.add(mutation.coffee);
+                    } else {
+                        baseAppends.add(mutation.coffee);
+                    }
+                }
+                case REMOVE -> {
+                    for (String id : mutation.ids) {
+                        MutationLog.addRemoval(logRecords, id);
+                    }
+                    logHasRecords = true;
+                }
+                case COMPACT -> {
+                    flush(replacement, baseAppends, logRecords);
+                    replacement = null;
+                    baseAppends.clear();
+                    logRecords.setLength(0);
+                    compactLog();
+                    logHasRecords = false;
+                }
             }
-            LOGGER.info("Successfully saved to file {}.", filename);
         }
+        flush(replacement, baseAppends, logRecords);
     }
 
-    public List<Coffee> getFromFile()throws IOException {
-        LOGGER.info("Reading coffee from file {}...", filename);
-        // temporary arrayList as returning value
-        List<Coffee> loadedCoffee = new ArrayList<>();
-        try (
-                BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                Coffee coffee = Coffee.fromFileString(line);
-                if (coffee != null) {
-                    loadedCoffee.add(coffee);
+    private void flush(List<List<Coffee>> replacement, List<List<Coffee>> baseAppends, StringBuilder logRecords) throws IOException {
+        if (replacement != null) {
+            replaceBase(replacement);
+        } else if (!baseAppends.isEmpty()) {
+            appendBase(baseAppends);
+        }
+        if (logRecords.length() > 0) {
+            fileLock.writeLock().lock();
+            try {
+                log.append(logRecords);
+            } finally {
+                fileLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void compactLog() throws IOException {
+        if (log.size() == 0) {
+            return;
+        }
+        LOGGER.info("Compacting mutation log of file {}...", filename);
+        replaceBase(List.of(getFromFile()));
+    }
+
+    /**
+     * Replaces the base file atomically: temporary file, force, stash the log, rename, drop the log.
+     * {@link #recover()} finishes or undoes these steps after a crash.
+     */
+    private void replaceBase(List<List<Coffee>> parts) throws IOException {
+        Files.deleteIfExists(tempPath);
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            writeRecords(writeHook.apply(channel), parts);
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            // the live file has not been touched
+            Files.deleteIfExists(tempPath);
+            throw e;
+        }
+        fileLock.writeLock().lock();
+        try {
+            log.stash();
+            try {
+                Files.move(tempPath, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                log.restoreStash();
+                Files.deleteIfExists(tempPath);
+                throw e;
+            }
+            binaryEnd = Files.size(path);
+            syncDirectory();
+            log.dropStash();
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    private void appendBase(List<List<Coffee>> parts) throws IOException {
+        // not opened with APPEND, which cannot be combined with READ; this is the only writer
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (format == StorageFormat.BINARY && channel.size() != binaryEnd) {
+                dropTornBinaryTail(channel);
+            }
+            channel.position(channel.size());
+            if (format == StorageFormat.TEXT && MutationLog.endsInsideLine(channel)) {
+                // a crash cut the last record short; keep the new records off its line
+                writeFully(channel, ByteBuffer.wrap(LINE_SEPARATOR));
+            }
+            writeRecords(writeHook.apply(channel), parts);
+            channel.force(false);
+            binaryEnd = channel.size();
+        }
+    }
+
+    /**
+     * A crash can cut the last binary segment short. Records appended behind the cut would be read
+     * as the rest of the torn record, so the file is truncated back to its last complete record.
+     * A file that is damaged anywhere else is not appended to.
+     */
+    private void dropTornBinaryTail(FileChannel channel) throws IOException {
+        long size = channel.size();
+        byte[] head = new byte[BinaryCoffeeCodec.HEADER_LENGTH];
+        int length = Math.max(channel.read(ByteBuffer.wrap(head), 0), 0);
+        if (!BinaryCoffeeCodec.isBinary(head, length)
+                && !(length < BinaryCoffeeCodec.HEADER_LENGTH && Arrays.equals(head, 0, length, BinaryCoffeeCodec.MAGIC, 0, length))) {
+            // not a binary file (or an empty one), so there are no binary records to cut
+            return;
+        }
+        long end;
+        try (BinaryCoffeeCodec.Decoder decoder = new BinaryCoffeeCodec.Decoder(Files.newInputStream(path))) {
+            try {
+                while (decoder.read() != null) {
+                    // only the position of the last record matters
+                }
+                return;
+            } catch (EOFException e) {
+                end = decoder.recordEnd();
+            }
+        }
+        LOGGER.warn("Dropping {} bytes of an interrupted save at the end of file {}.", size - end, filename);
+        fileLock.writeLock().lock();
+        try {
+            channel.truncate(end);
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finishes a replacement that a crash interrupted. If the log is still stashed and the
+     * temporary file exists, the rename did not happen and the old base file with its log
+     * is still current; otherwise the new base file is in place and the stashed log is obsolete.
+     */
+    private void recover() {
+        try {
+            if (log.hasStash()) {
+                if (Files.exists(tempPath)) {
+                    log.restoreStash();
+                    LOGGER.warn("Interrupted save of file {} rolled back.", filename);
+                } else {
+                    log.dropStash();
+                    LOGGER.warn("Interrupted save of file {} completed.", filename);
+                }
+            }
+            Files.deleteIfExists(tempPath);
+        } catch (IOException e) {
+            LOGGER.error("Critical Error: Could not recover interrupted save of file {}.", filename, e);
+        }
+    }
+
+    private void syncDirectory() {
+        Path directory = path.toAbsolutePath().getParent();
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // not every platform can open or force a directory; the rename is still atomic
+            LOGGER.debug("Could not force directory {}.", directory, e);
+        }
+    }
+
+    private void writeRecords(WritableByteChannel channel, List<List<Coffee>> parts) throws IOException {
+        if (format == StorageFormat.BINARY) {
+            // not closed here: that would close the channel before it is forced
+            BinaryCoffeeCodec.Encoder encoder = new BinaryCoffeeCodec.Encoder(Channels.newOutputStream(channel));
+            for (List<Coffee> part : parts) {
+                for (Coffee coffee : part) {
+                    encoder.write(coffee);
                 }
             }
+            encoder.flush();
+            return;
+        }
+        writeText(channel, parts);
+    }
+
+    /**
+     * Writes text records through one large direct buffer: every record is encoded by a
+     * {@link CoffeeRecordWriter} and copied into the buffer, which goes to the channel
+     * whenever it is full. The bytes are the same as {@code println(toFileString())} gave.
+     */
+    private static void writeText(WritableByteChannel channel, List<List<Coffee>> parts) throws IOException {
+        ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        CoffeeRecordWriter writer = new CoffeeRecordWriter();
+        for (List<Coffee> part : parts) {
+            for (Coffee coffee : part) {
+                int length = writer.encode(coffee);
+                if (out.remaining() < length + LINE_SEPARATOR.length) {
+                    drain(channel, out);
+                    if (out.capacity() < length + LINE_SEPARATOR.length) {
+                        // a record larger than the buffer goes out on its own
+                        writeFully(channel, ByteBuffer.wrap(writer.buffer(), 0, length));
+                        writeFully(channel, ByteBuffer.wrap(LINE_SEPARATOR));
+                        continue;
+                    }
+                }
+                out.put(writer.buffer(), 0, length);
+                out.put(LINE_SEPARATOR);
+            }
+        }
+        drain(channel, out);
+    }
+
+    private static void drain(WritableByteChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        writeFully(channel, out);
+        out.clear();
+    }
+
+    private static void writeFully(WritableByteChannel channel, ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * One request to the group committer.
+     */
+    private static final class Mutation {
+        private enum Kind { REPLACE, APPEND, REMOVE, COMPACT }
+
+        private static final Mutation COMPACT = new Mutation(Kind.COMPACT, null, null);
+
+        private final Kind kind;
+        private final List<Coffee> coffee;
+        private final List<String> ids;
+
+        private Mutation(Kind kind, List<Coffee> coffee, List<String> ids) {
+            this.kind = kind;
+            this.coffee = coffee;
+            this.ids = ids;
+        }
+
+        static Mutation replace(List<Coffee> coffee) {
+            return new Mutation(Kind.REPLACE, coffee, null);
+        }
+
+        static Mutation append(List<Coffee> coffee) {
+            return new Mutation(Kind.APPEND, coffee, null);
+        }
+
+        static Mutation remove(List<String> ids) {
+            return new Mutation(Kind.REMOVE, null, ids);
+        }
+    }
+
+    /**
+     * Reads all coffee records from the file, in whichever format it has, and replays the mutation log over them.
+     * Text lines that cannot be parsed are logged and skipped. A binary file that is corrupt
+     * or cut off is read up to the damaged record, which is logged.
+     * <p>
+     * Records with the same ID are merged: the last one wins and takes the place of the first,
+     * so a file that was appended to many times gives one item per ID.
+     *
+     * @return the coffee items in file order
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public List<Coffee> getFromFile()throws IOException {
+        return getFromFile(0);
+    }
 
+    /**
+     * Like {@link #getFromFile()}, with the collections presized for the expected number of items.
+     *
+     * @param expectedSize how many items the file probably holds, {@code 0} if unknown
+     */
+    List<Coffee> getFromFile(int expectedSize) throws IOException {
+        List<Coffee> loadedCoffee;
+        try (Stream<Coffee> coffee = streamFromFile()) {
+            loadedCoffee = mergeById(coffee.iterator(), expectedSize);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
         LOGGER.info("Successfully loaded {} items from file {}.", loadedCoffee.size(), filename);
         return loadedCoffee;
     }
 
+    /**
+     * Keeps the last version of every ID at the position of the first one, like loading into the van does.
+     */
+    private static List<Coffee> mergeById(Iterator<Coffee> coffee, int expectedSize) {
+        Map<String, Coffee> byId = LinkedHashMap.newLinkedHashMap(expectedSize);
+        while (coffee.hasNext()) {
+            Coffee next = coffee.next();
+            byId.put(next.getId(), next);
+        }
+        return new ArrayList<>(byId.values());
+    }
 
+    /**
+     * Reads the coffee records of the file lazily, in the same order as {@link #getFromFile()}.
+     * <p>
+     * Unlike {@link #getFromFile()}, the stream does not merge records with the same ID, since that
+     * would mean holding every item until the end; consumers such as {@link coffeevan.CoffeeVan}
+     * merge them by ID themselves.
+     * <p>
+     * Records are parsed one at a time as the stream is consumed, so the whole file is never
+     * held in memory: items can go straight into the van or through a filter. The file is
+     * closed when the last record has been read; a consumer that stops early must close the
+     * stream, e.g. with try-with-resources. Read errors during consumption are thrown as
+     * {@link UncheckedIOException}.
+     *
+     * @return the coffee items in file order
+     * @throws IOException if the file or its mutation log cannot be opened
+     */
+    @Override
+    public Stream<Coffee> streamFromFile() throws IOException {
+        LOGGER.info("Reading coffee from file {}...", filename);
+        LogOverlay overlay;
+        CoffeeRecordIterator.Source source;
+        // once both are open, a save can rename files without affecting this read
+        fileLock.readLock().lock();
+        try {
+            overlay = log.read();
+            source = detectFormat() == StorageFormat.BINARY ? binarySource() : textSource();
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        CoffeeRecordIterator iterator = new CoffeeRecordIterator(source, overlay);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        iterator.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
 
+    private CoffeeRecordIterator.Source textSource() throws IOException {
+        RecordLineReader reader = new RecordLineReader(new FileInputStream(filename));
+        CoffeeRecordParser parser = new CoffeeRecordParser();
+        return new CoffeeRecordIterator.Source() {
+            @Override
+            public Coffee read() throws IOException {
+                while (reader.next()) {
+                    try {
+                        return parser.parse(reader.buffer(), reader.start(), reader.end());
+                    } catch (RuntimeException e) {
+                        LOGGER.error("Critical Error: Failed to parse line from file. Line: '{}'", reader.lineAsString(), e);
+                    }
+                }
+                return null;
+            }
 
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private CoffeeRecordIterator.Source binarySource() throws IOException {
+        BinaryCoffeeCodec.Decoder decoder = new BinaryCoffeeCodec.Decoder(new FileInputStream(filename));
+        return new CoffeeRecordIterator.Source() {
+            private int count;
+
+            @Override
+            public Coffee read() {
+                try {
+                    Coffee coffee = decoder.read();
+                    if (coffee != null) count++;
+                    return coffee;
+                } catch (IOException e) {
+                    // file-level errors already surfaced when opening; this is damaged content
+                    LOGGER.error("Critical Error: Binary file {} is damaged after {} items.", filename, count, e);
+                    return null;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                decoder.close();
+            }
+        };
+    }
+
+    /**
+     * Reads all coffee records from the file in parallel.
+     * <p>
+     * The file is memory-mapped and split into chunks on line boundaries; the chunks are
+     * parsed concurrently on the given pool and merged back in file order, so the result
+     * lists the same items in the same order as {@link #getFromFile()}. Lines that cannot be
+     * parsed are skipped and reported per chunk instead of one log entry per line.
+     * <p>
+     * Binary files cannot be split, since records refer back to earlier strings;
+     * they are read sequentially.
+     *
+     * @param pool the pool that parses the chunks, e.g. {@link ForkJoinPool#commonPool()}
+     * @return the loaded items and the parse failures per chunk
+     * @throws IOException if the file cannot be read
+     */
+    public ParallelLoadResult getFromFileParallel(ForkJoinPool pool) throws IOException {
+        if (detectFormat() == StorageFormat.BINARY) {
+            return new ParallelLoadResult(getFromFile(), List.of());
+        }
+        LOGGER.info("Reading coffee from file {} with {} threads...", filename, pool.getParallelism());
+        ParallelLoadResult result;
+        LogOverlay overlay;
+        fileLock.readLock().lock();
+        try {
+            result = new ParallelCoffeeLoader(path).load(pool);
+            overlay = log.read();
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        for (ParallelLoadResult.ChunkFailure failure : result.getFailures()) {
+            LOGGER.warn("Skipped unparsable lines in file {}: {}", filename, failure);
+        }
+        List<Coffee> coffee = result.getCoffee();
+        if (!overlay.isEmpty()) {
+            coffee = overlay.applyAll(coffee);
+        }
+        coffee = mergeById(coffee.iterator(), coffee.size());
+        LOGGER.info("Successfully loaded {} items from file {}.", coffee.size(), filename);
+        return new ParallelLoadResult(coffee, result.getFailures());
+    }
+
+    /**
+     * @return the format of the file, or {@code null} if it does not exist or is empty
+     */
+    private StorageFormat detectFormat() throws IOException {
+        File file = new File(filename);
+        if (!file.isFile() || file.length() == 0) {
+            return null;
+        }
+        byte[] head = new byte[BinaryCoffeeCodec.HEADER_LENGTH];
+        try (InputStream in = new FileInputStream(file)) {
+            int length = in.readNBytes(head, 0, head.length);
+            return BinaryCoffeeCodec.isBinary(head, length) ? StorageFormat.BINARY : StorageFormat.TEXT;
+        }
+    }
 }
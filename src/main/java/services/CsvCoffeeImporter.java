@@ -0,0 +1,610 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.codec.RecordReader;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Bulk import of coffee items from a CSV file (RFC 4180), parsed in parallel chunks.
+ * <p>
+ * The first record is the header. Columns are found by name, ignoring case, spaces and
+ * underscores ({@code roastLevel}, {@code Roast Level} and {@code roast_level} are the same
+ * column), so they may come in any order, and unknown columns are ignored. Required columns:
+ * {@code type, name, weight, price, aroma, taste, freshness, material, volume}; optional:
+ * {@code id, origin, roastLevel, grindSize, concentrationLevel}. The delimiter is {@code ,}
+ * unless the header has more {@code ;} than {@code ,}. Fields may be quoted with {@code "},
+ * which allows delimiters, quotes (doubled) and line breaks in them.
+ * <p>
+ * The file is cut into chunks that end after a line break outside quotes, found with one
+ * quote-aware scan, so every record belongs to exactly one chunk. Each chunk is read into
+ * memory and parsed in place by its own fork-join task. The results are concatenated in
+ * chunk order, which keeps the file order of the items.
+ * <p>
+ * A row that cannot be imported (wrong field count, invalid number, unknown type or enum
+ * constant, a rule of {@link commands.LoadVanCommand} broken) does not stop the import:
+ * it is reported with its line number in the {@link CsvImportResult}.
+ */
+public final class CsvCoffeeImporter {
+    /**
+     * How many failed rows a result reports in detail; the rest are only counted.
+     */
+    public static final int MAX_REPORTED_ERRORS = 10_000;
+
+    private static final long MAX_CHUNK_SIZE = 64L << 20;
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    private static final String[] TYPES = {"BEAN", "GROUND", "INSTANT"};
+    private static final RoastLevel[] ROAST_LEVELS = RoastLevel.values();
+    private static final GrindSize[] GRIND_SIZES = GrindSize.values();
+    private static final ConcentrationLevel[] CONCENTRATION_LEVELS = ConcentrationLevel.values();
+
+    /**
+     * The columns the importer knows.
+     */
+    enum Column {
+        TYPE("type", true),
+        ID("id", false),
+        NAME("name", true),
+        WEIGHT("weight", true),
+        PRICE("price", true),
+        AROMA("aroma", true),
+        TASTE("taste", true),
+        FRESHNESS("freshness", true),
+        MATERIAL("material", true),
+        VOLUME("volume", true),
+        ORIGIN("origin", false),
+        ROAST_LEVEL("roastLevel", false),
+        GRIND_SIZE("grindSize", false),
+        CONCENTRATION_LEVEL("concentrationLevel", false);
+
+        private final String header;
+        private final boolean required;
+
+        Column(String header, boolean required) {
+            this.header = header;
+            this.required = required;
+        }
+    }
+
+    private final Path file;
+    private final long minChunkSize;
+
+    /**
+     * @param file the CSV file to import
+     */
+    public CsvCoffeeImporter(Path file) {
+        this(file, MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * @param file         the CSV file to import
+     * @param minChunkSize the smallest chunk worth its own task (smaller in tests)
+     */
+    CsvCoffeeImporter(Path file, long minChunkSize) {
+        this.file = file;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Parses the whole file. An empty file gives an empty result.
+     *
+     * @param pool the pool that parses the chunks
+     * @return the valid items in file order and the rows that failed
+     * @throws IOException if the file cannot be read or its header lacks a required column
+     */
+    public CsvImportResult load(ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long headerEnd = recordEnd(channel, 0, size);
+            if (headerEnd == 0) {
+                return new CsvImportResult(List.of(), List.of(), 0, 0);
+            }
+            byte[] header = read(channel, 0, headerEnd);
+            int from = hasByteOrderMark(header) ? 3 : 0;
+            byte delimiter = detectDelimiter(header, from);
+            Records headerRecord = new Records(header, from, header.length, delimiter);
+            headerRecord.next();
+            int[] columns = mapColumns(headerRecord);
+
+            long[] bounds = chunkBounds(channel, headerEnd, size, pool.getParallelism());
+            List<ChunkTask> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(new ChunkTask(channel, bounds[i], bounds[i + 1], delimiter, columns, headerRecord.fieldCount));
+            }
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                    return null;
+                }
+            });
+
+            int total = 0;
+            for (ChunkTask task : tasks) {
+                if (task.error != null) {
+                    throw task.error;
+                }
+                total += task.coffee.size();
+            }
+            List<Coffee> coffee = new ArrayList<>(total);
+            List<CsvImportResult.RowError> errors = new ArrayList<>();
+            long errorCount = 0;
+            long rowCount = 0;
+            // lines are counted from 1, and the header takes the first ones
+            long firstLine = 1 + headerRecord.lines;
+            for (ChunkTask task : tasks) {
+                coffee.addAll(task.coffee);
+                for (int i = 0; i < task.errorLines.size() && errors.size() < MAX_REPORTED_ERRORS; i++) {
+                    errors.add(new CsvImportResult.RowError(firstLine + task.errorLines.get(i), task.errorMessages.get(i)));
+                }
+                errorCount += task.errorCount;
+                rowCount += task.rows;
+                firstLine += task.lines;
+            }
+            return new CsvImportResult(coffee, errors, errorCount, rowCount);
+        }
+    }
+
+    /**
+     * @return for every {@link Column}, the index of its field in a record, or -1
+     */
+    private static int[] mapColumns(Records header) throws IOException {
+        int[] columns = new int[Column.values().length];
+        Arrays.fill(columns, -1);
+        for (int field = 0; field < header.fieldCount; field++) {
+            String name = normalize(header.text(field));
+            for (Column column : Column.values()) {
+                if (normalize(column.header).equals(name) && columns[column.ordinal()] < 0) {
+                    columns[column.ordinal()] = field;
+                }
+            }
+        }
+        for (Column column : Column.values()) {
+            if (column.required && columns[column.ordinal()] < 0) {
+                throw new IOException("CSV header has no column '" + column.header + "'");
+            }
+        }
+        return columns;
+    }
+
+    private static String normalize(String name) {
+        StringBuilder normalized = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c != ' ' && c != '_' && c != '-' && c != '\t') {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean hasByteOrderMark(byte[] bytes) {
+        return bytes.length >= 3 && (bytes[0] & 0xFF) == 0xEF && (bytes[1] & 0xFF) == 0xBB && (bytes[2] & 0xFF) == 0xBF;
+    }
+
+    /**
+     * @return {@code ;} if the header has more semicolons than commas outside quotes, otherwise {@code ,}
+     */
+    private static byte detectDelimiter(byte[] header, int from) {
+        int commas = 0;
+        int semicolons = 0;
+        boolean quoted = false;
+        for (int i = from; i < header.length; i++) {
+            byte b = header[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if (!quoted && b == ',') {
+                commas++;
+            } else if (!quoted && b == ';') {
+                semicolons++;
+            }
+        }
+        return semicolons > commas ? (byte) ';' : (byte) ',';
+    }
+
+    /**
+     * @return the offset right after the first line feed outside quotes at or after {@code from}, or {@code size}
+     */
+    private static long recordEnd(FileChannel channel, long from, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] bytes = window.array();
+        boolean quoted = false;
+        long position = from;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (bytes[i] == '"') {
+                    quoted = !quoted;
+                } else if (bytes[i] == '\n' && !quoted) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Splits {@code [from, size)} into chunks that end right after a line feed outside quotes.
+     * Doubled quotes inside a quoted field toggle the state twice, so they do not disturb it.
+     *
+     * @return the chunk boundaries: chunk {@code i} is {@code [bounds[i], bounds[i + 1])}
+     */
+    private long[] chunkBounds(FileChannel channel, long from, long size, int parallelism) throws IOException {
+        // a few chunks per thread, so that uneven chunks still keep every thread busy
+        long target = Math.max(minChunkSize, Math.min(MAX_CHUNK_SIZE, (size - from) / (parallelism * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(from);
+        ByteBuffer window = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        byte[] bytes = window.array();
+        boolean quoted = false;
+        long nextCut = from + target;
+        long position = from;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && position + i + 1 >= nextCut && position + i + 1 < size) {
+                    bounds.add(position + i + 1);
+                    nextCut = position + i + 1 + target;
+                }
+            }
+            position += read;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    private static byte[] read(FileChannel channel, long start, long end) throws IOException {
+        byte[] bytes = new byte[Math.toIntExact(end - start)];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("CSV file shrank while it was imported");
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Cursor over the records of a byte range. Quoted fields are unescaped in place,
+     * so a field is always the plain bytes {@code data[start(i), end(i))}.
+     */
+    private static final class Records {
+        private final byte[] data;
+        private final int limit;
+        private final byte delimiter;
+        private int pos;
+        private int[] starts = new int[16];
+        private int[] ends = new int[16];
+        private int fieldCount;
+        // line breaks passed so far, and before the current record
+        private long lines;
+        private long recordLine;
+        private String problem;
+
+        Records(byte[] data, int from, int to, byte delimiter) {
+            this.data = data;
+            this.pos = from;
+            this.limit = to;
+            this.delimiter = delimiter;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return {@code false} at the end of the range
+         */
+        boolean next() {
+            if (pos >= limit) {
+                return false;
+            }
+            recordLine = lines;
+            fieldCount = 0;
+            problem = null;
+            while (true) {
+                int start = pos;
+                int stop;
+                if (data[pos] == '"') {
+                    stop = readQuoted();
+                } else {
+                    skipToFieldEnd();
+                    stop = pos;
+                }
+                addField(start, stop);
+                if (pos < limit && data[pos] == delimiter) {
+                    pos++;
+                    if (pos == limit) {
+                        addField(pos, pos);
+                        return true;
+                    }
+                    continue;
+                }
+                if (pos < limit) {
+                    if (data[pos] == '\r' && pos + 1 < limit && data[pos + 1] == '\n') {
+                        pos++;
+                    }
+                    pos++;
+                    lines++;
+                }
+                return true;
+            }
+        }
+
+        /**
+         * Unescapes the quoted field at {@code pos} in place.
+         *
+         * @return the end of the unescaped field
+         */
+        private int readQuoted() {
+            int write = pos;
+            int read = pos + 1;
+            boolean closed = false;
+            while (read < limit) {
+                byte b = data[read];
+                if (b == '"') {
+                    if (read + 1 < limit && data[read + 1] == '"') {
+                        data[write++] = '"';
+                        read += 2;
+                        continue;
+                    }
+                    read++;
+                    closed = true;
+                    break;
+                }
+                if (b == '\n') {
+                    lines++;
+                }
+                data[write++] = b;
+                read++;
+            }
+            pos = read;
+            if (!closed) {
+                problem = "unterminated quoted field";
+            } else if (pos < limit && data[pos] != delimiter && data[pos] != '\n' && data[pos] != '\r') {
+                problem = "unexpected character after a quoted field";
+                skipToFieldEnd();
+            }
+            return write;
+        }
+
+        private void skipToFieldEnd() {
+            while (pos < limit) {
+                byte b = data[pos];
+                if (b == delimiter || b == '\n' || b == '\r') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        private void addField(int start, int stop) {
+            if (fieldCount == starts.length) {
+                starts = Arrays.copyOf(starts, fieldCount * 2);
+                ends = Arrays.copyOf(ends, fieldCount * 2);
+            }
+            starts[fieldCount] = start;
+            ends[fieldCount] = stop;
+            fieldCount++;
+        }
+
+        boolean isBlank() {
+            return fieldCount == 1 && starts[0] == ends[0] && problem == null;
+        }
+
+        String text(int field) {
+            return new String(data, starts[field], ends[field] - starts[field], StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Parses one chunk of the file.
+     */
+    private static final class ChunkTask extends RecursiveTask<Void> {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final byte delimiter;
+        private final int[] columns;
+        private final int fieldCount;
+        private final RecordReader numbers = new RecordReader();
+        private final List<Coffee> coffee = new ArrayList<>();
+        // line of each reported error, counted from the start of the chunk
+        private final List<Long> errorLines = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+        private Records records;
+        private long errorCount;
+        private long rows;
+        private long lines;
+        private IOException error;
+
+        ChunkTask(FileChannel channel, long start, long end, byte delimiter, int[] columns, int fieldCount) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.delimiter = delimiter;
+            this.columns = columns;
+            this.fieldCount = fieldCount;
+        }
+
+        @Override
+        protected Void compute() {
+            try {
+                byte[] data = read(channel, start, end);
+                records = new Records(data, 0, data.length, delimiter);
+                while (records.next()) {
+                    if (records.isBlank()) {
+                        continue;
+                    }
+                    rows++;
+                    try {
+                        coffee.add(toCoffee());
+                    } catch (IllegalArgumentException e) {
+                        errorCount++;
+                        if (errorLines.size() < MAX_REPORTED_ERRORS) {
+                            errorLines.add(records.recordLine);
+                            errorMessages.add(e.getMessage());
+                        }
+                    }
+                }
+                lines = records.lines;
+            } catch (IOException e) {
+                error = e;
+            }
+            return null;
+        }
+
+        private Coffee toCoffee() {
+            if (records.problem != null) {
+                throw new IllegalArgumentException(records.problem);
+            }
+            if (records.fieldCount != fieldCount) {
+                throw new IllegalArgumentException("expected " + fieldCount + " fields, found " + records.fieldCount);
+            }
+            int type = constant(Column.TYPE, TYPES);
+            String id = columns[Column.ID.ordinal()] < 0 ? null : text(Column.ID);
+            String name = text(Column.NAME);
+            if (name.isBlank()) {
+                throw new IllegalArgumentException("column 'name' is empty");
+            }
+            double weight = positive(Column.WEIGHT);
+            double price = positive(Column.PRICE);
+            QualityParams quality = new QualityParams(number(Column.AROMA), number(Column.TASTE), number(Column.FRESHNESS));
+            Packaging packaging = new Packaging(text(Column.MATERIAL), positive(Column.VOLUME));
+            if (id != null && id.isEmpty()) {
+                id = null;
+            }
+            switch (type) {
+                case 0 -> {
+                    String origin = columns[Column.ORIGIN.ordinal()] < 0 ? "" : text(Column.ORIGIN);
+                    if (origin.isBlank()) {
+                        throw new IllegalArgumentException("column 'origin' is empty for a BEAN");
+                    }
+                    RoastLevel roast = ROAST_LEVELS[constant(Column.ROAST_LEVEL, ROAST_LEVELS)];
+                    return id == null ? new BeanCoffee(name, weight, price, quality, packaging, roast, origin)
+                            : new BeanCoffee(name, weight, price, quality, packaging, roast, origin, id);
+                }
+                case 1 -> {
+                    GrindSize grind = GRIND_SIZES[constant(Column.GRIND_SIZE, GRIND_SIZES)];
+                    return id == null ? new GroundCoffee(name, weight, price, quality, packaging, grind)
+                            : new GroundCoffee(name, weight, price, quality, packaging, grind, id);
+                }
+                default -> {
+                    ConcentrationLevel level = CONCENTRATION_LEVELS[constant(Column.CONCENTRATION_LEVEL, CONCENTRATION_LEVELS)];
+                    return id == null ? new InstantCoffee(name, weight, price, quality, packaging, level)
+                            : new InstantCoffee(name, weight, price, quality, packaging, level, id);
+                }
+            }
+        }
+
+        private String text(Column column) {
+            return records.text(columns[column.ordinal()]);
+        }
+
+        private double positive(Column column) {
+            double value = number(column);
+            if (!(value > 0)) {
+                throw new IllegalArgumentException("column '" + column.header + "' must be positive: " + value);
+            }
+            return value;
+        }
+
+        /**
+         * Parses a number without creating a string; surrounding spaces are ignored.
+         */
+        private double number(Column column) {
+            int field = columns[column.ordinal()];
+            int from = records.starts[field];
+            int to = records.ends[field];
+            byte[] data = records.data;
+            while (from < to && data[from] == ' ') from++;
+            while (to > from && data[to - 1] == ' ') to--;
+            if (from == to) {
+                throw new IllegalArgumentException("column '" + column.header + "' is empty");
+            }
+            double value;
+            try {
+                numbers.reset(data, from, to);
+                value = numbers.nextDouble();
+            } catch (NumberFormatException e) {
+                value = Double.NaN;
+                to = -1;
+            }
+            if (numbers.fieldEnd() != to || !Double.isFinite(value)) {
+                throw new IllegalArgumentException("invalid number in column '" + column.header + "': '"
+                        + records.text(field) + "'");
+            }
+            return value;
+        }
+
+        /**
+         * Looks the field up among the names, ignoring case and surrounding spaces, without creating a string.
+         *
+         * @return the index of the name
+         */
+        private int constant(Column column, Object[] names) {
+            int field = columns[column.ordinal()];
+            if (field < 0) {
+                throw new IllegalArgumentException("no column '" + column.header + "'");
+            }
+            int from = records.starts[field];
+            int to = records.ends[field];
+            byte[] data = records.data;
+            while (from < to && data[from] == ' ') from++;
+            while (to > from && data[to - 1] == ' ') to--;
+            for (int i = 0; i < names.length; i++) {
+                String name = names[i].toString();
+                if (to - from != name.length()) {
+                    continue;
+                }
+                int j = 0;
+                while (j < name.length() && (data[from + j] >= 'a' && data[from + j] <= 'z' ? data[from + j] - 32 : data[from + j]) == name.charAt(j)) {
+                    j++;
+                }
+                if (j == name.length()) {
+                    return i;
+                }
+            }
+            if (from == to) {
+                throw new IllegalArgumentException("column '" + column.header + "' is empty");
+            }
+            throw new IllegalArgumentException("unknown " + column.header + " '" + records.text(field).trim() + "'");
+        }
+    }
+}
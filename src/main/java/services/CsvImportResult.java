@@ -0,0 +1,93 @@
+package services;
+
+import coffee.Coffee;
+
+import java.util.List;
+
+/**
+ * Outcome of a {@link CsvCoffeeImporter} run: the valid items in file order plus the rows
+ * that failed validation.
+ */
+public class CsvImportResult {
+    private final List<Coffee> coffee;
+    private final List<RowError> errors;
+    private final long errorCount;
+    private final long rowCount;
+
+    /**
+     * @param coffee     the valid items, in file order
+     * @param errors     the failed rows, in file order, at most {@link CsvCoffeeImporter#MAX_REPORTED_ERRORS}
+     * @param errorCount the number of failed rows, including those beyond the reported ones
+     * @param rowCount   the number of data rows, valid or not, without the header and blank lines
+     */
+    public CsvImportResult(List<Coffee> coffee, List<RowError> errors, long errorCount, long rowCount) {
+        this.coffee = coffee;
+        this.errors = errors;
+        this.errorCount = errorCount;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * @return the valid items, in file order
+     */
+    public List<Coffee> getCoffee() {
+        return coffee;
+    }
+
+    /**
+     * @return the failed rows, in file order; only the first ones if there are very many
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of failed rows
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * @return the number of data rows, valid or not
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * A row that could not be imported.
+     */
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        /**
+         * @param line    the line of the file where the row starts, counted from 1
+         * @param message what is wrong with the row
+         */
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        /**
+         * @return the line of the file where the row starts, counted from 1
+         */
+        public long getLine() {
+            return line;
+        }
+
+        /**
+         * @return what is wrong with the row
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "Line " + line + ": " + message;
+        }
+    }
+}
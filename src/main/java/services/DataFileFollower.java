@@ -0,0 +1,326 @@
+package services;
+
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a text coffee data file and its mutation log while other processes append to them.
+ * <p>
+ * The follower remembers how far it has read each file. When a {@link WatchService} reports
+ * a change (or at the latest every {@value #POLL_INTERVAL_MILLIS} ms, for file systems without
+ * change notifications), only the bytes appended since then are parsed, and only up to the last
+ * complete line ({@code \n} or {@code \r\n}): a record that is still being written is read
+ * once its line is finished.
+ * <p>
+ * A file that got shorter or was replaced by another file (a full save, a compaction, a log
+ * rotation) is read again from the start. After such a reload, the items that are no longer
+ * stored are reported as removed.
+ * <p>
+ * Changes are reported to a {@link Listener} on the follower's thread.
+ */
+public final class DataFileFollower implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(DataFileFollower.class);
+    static final long POLL_INTERVAL_MILLIS = 200;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final byte ADD = 'A';
+    private static final byte DELETE = 'D';
+
+    /**
+     * Receives the changes found in the followed files.
+     */
+    public interface Listener {
+        /**
+         * @param coffee an item that was added to or changed in the file
+         */
+        void added(Coffee coffee);
+
+        /**
+         * @param id the ID of an item that was removed from the file
+         */
+        void removed(String id);
+    }
+
+    private final String filename;
+    private final Path baseFile;
+    private final Path logFile;
+    private final Listener listener;
+    private final CoffeeRecordParser parser = new CoffeeRecordParser();
+    private final FollowedFile base = new FollowedFile();
+    private final FollowedFile log = new FollowedFile();
+    // IDs of the items currently stored, to report what a reload dropped
+    private Set<String> storedIds = new HashSet<>();
+    private byte[] buffer = new byte[READ_BUFFER_SIZE];
+    private boolean loaded;
+    private WatchService watcher;
+    private Thread thread;
+
+    /**
+     * @param filename the text data file to follow; its mutation log is followed as well
+     * @param listener receives every change
+     */
+    public DataFileFollower(String filename, Listener listener) {
+        this.filename = filename;
+        this.baseFile = Path.of(filename).toAbsolutePath();
+        this.logFile = Path.of(filename + ".log").toAbsolutePath();
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the current content of the file and starts following it on a background thread.
+     *
+     * @throws IOException if the file cannot be read or is not a text file
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        poll();
+        watcher = FileSystems.getDefault().newWatchService();
+        baseFile.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        thread = new Thread(this::follow, "coffee-file-follower");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Following file {}.", filename);
+    }
+
+    /**
+     * @return {@code true} while the background thread follows the file
+     */
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * Stops following the file.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread stopped;
+        synchronized (this) {
+            if (thread == null) {
+                return;
+            }
+            stopped = thread;
+            thread = null;
+            watcher.close();
+        }
+        try {
+            stopped.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.info("Stopped following file {}.", filename);
+    }
+
+    private void follow() {
+        while (true) {
+            try {
+                WatchKey key = watcher.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    // which file changed does not matter, both are checked
+                    key.pollEvents();
+                    key.reset();
+                }
+                poll();
+            } catch (ClosedWatchServiceException e) {
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Failed to read changes of file {}, retrying.", filename, e);
+            }
+        }
+    }
+
+    /**
+     * Reads whatever changed since the last call: new lines, or everything after a truncation or replacement.
+     *
+     * @throws IOException if a file cannot be read, or the data file is not a text file
+     */
+    synchronized void poll() throws IOException {
+        FileState baseState = FileState.of(baseFile);
+        FileState logState = FileState.of(logFile);
+        if (!loaded || !base.canContinue(baseState) || !log.canContinue(logState)) {
+            reload(baseState, logState);
+            return;
+        }
+        base.offset = readLines(baseFile, base.offset, baseState.size, false);
+        log.offset = readLines(logFile, log.offset, logState.size, true);
+    }
+
+    private void reload(FileState baseState, FileState logState) throws IOException {
+        if (loaded) {
+            LOGGER.info("File {} was truncated or replaced, reloading it.", filename);
+        }
+        checkText(baseState);
+        loaded = true;
+        Set<String> previousIds = storedIds;
+        storedIds = new HashSet<>(Math.max(16, previousIds.size()));
+        base.reset(baseState);
+        log.reset(logState);
+        base.offset = readLines(baseFile, 0, baseState.size, false);
+        log.offset = readLines(logFile, 0, logState.size, true);
+        for (String id : previousIds) {
+            if (!storedIds.contains(id)) {
+                listener.removed(id);
+            }
+        }
+    }
+
+    private void checkText(FileState state) throws IOException {
+        if (state.size < BinaryCoffeeCodec.HEADER_LENGTH) {
+            return;
+        }
+        byte[] head = new byte[BinaryCoffeeCodec.HEADER_LENGTH];
+        try (FileChannel channel = FileChannel.open(baseFile, StandardOpenOption.READ)) {
+            int length = channel.read(ByteBuffer.wrap(head), 0);
+            if (BinaryCoffeeCodec.isBinary(head, length)) {
+                throw new IOException("Only text files can be followed: " + filename);
+            }
+        }
+    }
+
+    /**
+     * Parses the complete lines in {@code [offset, size)}.
+     *
+     * @return the offset after the last complete line
+     */
+    private long readLines(Path file, long offset, long size, boolean mutationLog) throws IOException {
+        if (size <= offset) {
+            return offset;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long position = offset;
+            int pending = 0;
+            while (position + pending < size) {
+                if (pending == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                }
+                int read = channel.read(ByteBuffer.wrap(buffer, pending, (int) Math.min(buffer.length - pending, size - position - pending)),
+                        position + pending);
+                if (read <= 0) {
+                    break;
+                }
+                int limit = pending + read;
+                int start = 0;
+                for (int i = 0; i < limit; i++) {
+                    if (buffer[i] == '\n') {
+                        int end = i > start && buffer[i - 1] == '\r' ? i - 1 : i;
+                        apply(buffer, start, end, mutationLog);
+                        start = i + 1;
+                    }
+                }
+                // keep the unfinished line for the next read
+                pending = limit - start;
+                System.arraycopy(buffer, start, buffer, 0, pending);
+                position += start;
+            }
+            return position;
+        } catch (NoSuchFileException e) {
+            return offset;
+        }
+    }
+
+    private void apply(byte[] bytes, int start, int end, boolean mutationLog) {
+        if (end <= start) {
+            return;
+        }
+        if (mutationLog) {
+            if (end - start < 2 || bytes[start + 1] != ';' || (bytes[start] != ADD && bytes[start] != DELETE)) {
+                LOGGER.warn("Skipped malformed record in {}.log: '{}'", filename, new String(bytes, start, end - start, StandardCharsets.UTF_8));
+                return;
+            }
+            if (bytes[start] == DELETE) {
+                String id = new String(bytes, start + 2, end - start - 2, StandardCharsets.UTF_8);
+                storedIds.remove(id);
+                listener.removed(id);
+                return;
+            }
+            start += 2;
+        }
+        Coffee coffee;
+        try {
+            coffee = parser.parse(bytes, start, end);
+        } catch (RuntimeException e) {
+            LOGGER.warn("Skipped unparsable line in {}: '{}'", filename, new String(bytes, start, end - start, StandardCharsets.UTF_8), e);
+            return;
+        }
+        storedIds.add(coffee.getId());
+        listener.added(coffee);
+    }
+
+    /**
+     * How far one file has been read.
+     */
+    private static final class FollowedFile {
+        private Object key;
+        private long offset;
+
+        /**
+         * @return {@code false} if the file got shorter or is a different file than before
+         */
+        boolean canContinue(FileState state) {
+            if (state.size < offset) {
+                return false;
+            }
+            if (key != null && state.key != null && !key.equals(state.key)) {
+                return false;
+            }
+            // a file that did not exist yet has appeared
+            key = state.key;
+            return true;
+        }
+
+        void reset(FileState state) {
+            key = state.key;
+            offset = 0;
+        }
+    }
+
+    /**
+     * Size and identity of a file, or {@code 0} and {@code null} if it does not exist.
+     * Where the file system has no file keys, only truncation can be detected.
+     */
+    private static final class FileState {
+        private final long size;
+        private final Object key;
+
+        private FileState(long size, Object key) {
+            this.size = size;
+            this.key = key;
+        }
+
+        static FileState of(Path file) throws IOException {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                return new FileState(attributes.size(), attributes.fileKey());
+            } catch (NoSuchFileException e) {
+                return new FileState(0, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package services;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Coalesces write requests that arrive while a commit is running into one group commit.
+ * <p>
+ * The first caller becomes the leader and commits its own request. Requests that arrive
+ * meanwhile queue up; when the commit is done, the leader takes the whole queue as the
+ * next batch and commits it with a single {@link BatchWriter#write(List)} call, so a
+ * burst of requests costs one fsync instead of one each. Every caller returns once the
+ * batch holding its request is durable, or gets the batch's exception.
+ *
+ * @param <T> the request type
+ */
+final class GroupCommitter<T> {
+
+    /**
+     * Writes a batch of requests durably.
+     */
+    interface BatchWriter<T> {
+        /**
+         * @param batch the requests in submission order
+         * @throws IOException if the batch could not be committed
+         */
+        void write(List<T> batch) throws IOException;
+    }
+
+    private final BatchWriter<T> writer;
+    private final Object lock = new Object();
+    private List<Pending<T>> queue = new ArrayList<>();
+    private boolean committing;
+    private long commits;
+
+    GroupCommitter(BatchWriter<T> writer) {
+        this.writer = writer;
+    }
+
+    /**
+     * Submits a request and waits until it is committed.
+     *
+     * @param request the request
+     * @throws IOException if the batch holding the request failed
+     */
+    void submit(T request) throws IOException {
+        Pending<T> pending = new Pending<>(request);
+        boolean leader;
+        synchronized (lock) {
+            queue.add(pending);
+            leader = !committing;
+            committing = true;
+        }
+        if (leader) {
+            lead();
+        }
+        try {
+            pending.done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a group commit");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw new IOException(io.getMessage(), io);
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * @return the number of batches written so far
+     */
+    long commitCount() {
+        synchronized (lock) {
+            return commits;
+        }
+    }
+
+    /**
+     * @return the number of requests waiting for the next batch
+     */
+    int queuedCount() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    private void lead() {
+        while (true) {
+            List<Pending<T>> batch;
+            synchronized (lock) {
+                if (queue.isEmpty()) {
+                    committing = false;
+                    return;
+                }
+                batch = queue;
+                queue = new ArrayList<>();
+                commits++;
+            }
+            List<T> requests = new ArrayList<>(batch.size());
+            for (Pending<T> pending : batch) {
+                requests.add(pending.request);
+            }
+            Throwable failure = null;
+            try {
+                writer.write(requests);
+            } catch (IOException | RuntimeException | Error e) {
+                failure = e;
+            }
+            for (Pending<T> pending : batch) {
+                if (failure == null) {
+                    pending.done.complete(null);
+                } else {
+                    pending.done.completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    private static final class Pending<T> {
+        private final T request;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(T request) {
+            this.request = request;
+        }
+    }
+}
@@ -0,0 +1,583 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.codec.RecordReader;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Pull parser for the JSON arrays written by {@link JsonCoffeeWriter}.
+ * <p>
+ * Each {@link #read()} parses exactly one array element from a fixed size input buffer and
+ * returns it as a coffee item, so memory stays constant however long the array is. Keys may
+ * come in any order and unknown keys are skipped, whatever their value. Keys, the type and
+ * enum constants are matched byte by byte, so only the strings of the item are created. Missing text and enum
+ * fields are {@code null}, an {@code id} is generated if it is missing; the numbers are required.
+ * <p>
+ * Broken JSON is an {@link IOException}. An element that is valid JSON but not a valid coffee
+ * item (unknown type, enum constant or key of a number, score out of range) is an
+ * {@link IllegalArgumentException}; it has been consumed by then, so reading can go on.
+ * <p>
+ * An instance keeps a cursor into its buffer, so it must not be shared between threads.
+ */
+public final class JsonCoffeeReader implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_DEPTH = 64;
+    private static final RoastLevel[] ROAST_LEVELS = RoastLevel.values();
+    private static final GrindSize[] GRIND_SIZES = GrindSize.values();
+    private static final ConcentrationLevel[] CONCENTRATION_LEVELS = ConcentrationLevel.values();
+    private static final String[] TYPES = {"BEAN", "GROUND", "INSTANT"};
+    private static final int TYPE_BEAN = 0;
+    private static final int TYPE_GROUND = 1;
+    private static final int TYPE_INSTANT = 2;
+    private static final byte[][] ITEM_KEYS = keys("type", "id", "name", "weight", "price", "quality", "packaging",
+            "origin", "roastLevel", "grindSize", "concentrationLevel");
+    private static final int KEY_TYPE = 0;
+    private static final int KEY_ID = 1;
+    private static final int KEY_NAME = 2;
+    private static final int KEY_WEIGHT = 3;
+    private static final int KEY_PRICE = 4;
+    private static final int KEY_QUALITY = 5;
+    private static final int KEY_PACKAGING = 6;
+    private static final int KEY_ORIGIN = 7;
+    private static final int KEY_ROAST_LEVEL = 8;
+    private static final int KEY_GRIND_SIZE = 9;
+    private static final int KEY_CONCENTRATION_LEVEL = 10;
+    private static final byte[][] QUALITY_KEYS = keys("aroma", "taste", "freshness");
+    private static final byte[][] PACKAGING_KEYS = keys("material", "volume");
+    private static final byte[][] NO_KEYS = {};
+
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private final RecordReader numbers = new RecordReader();
+    private int pos;
+    private int limit;
+    // stream offset of buf[0], for error messages
+    private long bufferOffset;
+    // holds the bytes of the current string or number
+    private byte[] scratch = new byte[256];
+    private int scratchLength;
+    private long count;
+    private String invalid;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * @param in the stream to read; closed together with the reader
+     */
+    public JsonCoffeeReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads the next element of the array.
+     *
+     * @return the next coffee item, or {@code null} after the end of the array
+     * @throws IOException              if the stream is not a JSON array of objects or cannot be read
+     * @throws IllegalArgumentException if the element is not a valid coffee item
+     */
+    public Coffee read() throws IOException {
+        if (finished) {
+            return null;
+        }
+        if (!started) {
+            expect('[');
+            started = true;
+            if (peekToken() == ']') {
+                pos++;
+                return finish();
+            }
+        } else {
+            int next = nextToken();
+            if (next == ']') {
+                return finish();
+            }
+            if (next != ',') {
+                throw malformed("expected ',' or ']'");
+            }
+        }
+        count++;
+        return readCoffee();
+    }
+
+    /**
+     * @return the number of array elements read so far, valid or not
+     */
+    public long count() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private static byte[][] keys(String... names) {
+        byte[][] keys = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            keys[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return keys;
+    }
+
+    /**
+     * Checks that nothing but whitespace follows the closing bracket.
+     */
+    private Coffee finish() throws IOException {
+        finished = true;
+        if (peekToken() >= 0) {
+            throw malformed("unexpected content after the array");
+        }
+        return null;
+    }
+
+    private Coffee readCoffee() throws IOException {
+        int type = -1;
+        String id = null;
+        String name = null;
+        String material = null;
+        String origin = null;
+        RoastLevel roast = null;
+        GrindSize grind = null;
+        ConcentrationLevel concentration = null;
+        double weight = Double.NaN;
+        double price = Double.NaN;
+        double aroma = Double.NaN;
+        double taste = Double.NaN;
+        double freshness = Double.NaN;
+        double volume = Double.NaN;
+        // the first problem of a well-formed element, reported once it is consumed
+        invalid = null;
+
+        expect('{');
+        if (peekToken() == '}') {
+            pos++;
+        } else {
+            do {
+                switch (readKey(ITEM_KEYS)) {
+                    case KEY_TYPE -> type = readConstantIndex(TYPES, "type");
+                    case KEY_ID -> id = readNullableString();
+                    case KEY_NAME -> name = readNullableString();
+                    case KEY_WEIGHT -> weight = readNumber();
+                    case KEY_PRICE -> price = readNumber();
+                    case KEY_QUALITY -> {
+                        expect('{');
+                        if (peekToken() == '}') {
+                            pos++;
+                            break;
+                        }
+                        do {
+                            switch (readKey(QUALITY_KEYS)) {
+                                case 0 -> aroma = readNumber();
+                                case 1 -> taste = readNumber();
+                                case 2 -> freshness = readNumber();
+                                default -> skipValue(1);
+                            }
+                        } while (nextMember());
+                    }
+                    case KEY_PACKAGING -> {
+                        expect('{');
+                        if (peekToken() == '}') {
+                            pos++;
+                            break;
+                        }
+                        do {
+                            switch (readKey(PACKAGING_KEYS)) {
+                                case 0 -> material = readNullableString();
+                                case 1 -> volume = readNumber();
+                                default -> skipValue(1);
+                            }
+                        } while (nextMember());
+                    }
+                    case KEY_ORIGIN -> origin = readNullableString();
+                    case KEY_ROAST_LEVEL -> roast = readConstant(ROAST_LEVELS);
+                    case KEY_GRIND_SIZE -> grind = readConstant(GRIND_SIZES);
+                    case KEY_CONCENTRATION_LEVEL -> concentration = readConstant(CONCENTRATION_LEVELS);
+                    default -> skipValue(0);
+                }
+            } while (nextMember());
+        }
+
+        if (invalid != null) {
+            throw new IllegalArgumentException(invalid);
+        }
+        requireNumber(weight, "weight");
+        requireNumber(price, "price");
+        requireNumber(aroma, "quality.aroma");
+        requireNumber(taste, "quality.taste");
+        requireNumber(freshness, "quality.freshness");
+        requireNumber(volume, "packaging.volume");
+        QualityParams quality = new QualityParams(aroma, taste, freshness);
+        Packaging packaging = new Packaging(material, volume);
+        return switch (type) {
+            case TYPE_BEAN -> id == null ? new BeanCoffee(name, weight, price, quality, packaging, roast, origin)
+                    : new BeanCoffee(name, weight, price, quality, packaging, roast, origin, id);
+            case TYPE_GROUND -> id == null ? new GroundCoffee(name, weight, price, quality, packaging, grind)
+                    : new GroundCoffee(name, weight, price, quality, packaging, grind, id);
+            case TYPE_INSTANT -> id == null ? new InstantCoffee(name, weight, price, quality, packaging, concentration)
+                    : new InstantCoffee(name, weight, price, quality, packaging, concentration, id);
+            default -> throw new IllegalArgumentException("Coffee item " + count + " has no type");
+        };
+    }
+
+    private void requireNumber(double value, String key) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Coffee item " + count + " has no number '" + key + "'");
+        }
+    }
+
+    /**
+     * Reads an enum constant by name, ignoring case, without creating a string.
+     *
+     * @return the constant, or {@code null} for JSON {@code null} or an unknown name
+     */
+    private <E extends Enum<E>> E readConstant(E[] constants) throws IOException {
+        int index = readConstantIndex(constants, constants[0].getDeclaringClass().getSimpleName());
+        return index < 0 ? null : constants[index];
+    }
+
+    /**
+     * Reads a string or {@code null} and looks it up, ignoring case, among the names.
+     * An unknown name makes the element invalid.
+     *
+     * @return the index of the name, or -1
+     */
+    private int readConstantIndex(Object[] names, String what) throws IOException {
+        int next = nextToken();
+        if (next == 'n') {
+            expectLiteral("ull");
+            return -1;
+        }
+        if (next != '"') {
+            throw malformed("expected a string or null");
+        }
+        readStringBytes();
+        for (int i = 0; i < names.length; i++) {
+            if (scratchEqualsIgnoreCase(names[i].toString())) {
+                return i;
+            }
+        }
+        if (invalid == null) {
+            String value = new String(scratch, 0, scratchLength, StandardCharsets.UTF_8);
+            invalid = what.equals("type") ? "Unknown coffee type: " + value : "No enum constant " + what + "." + value;
+        }
+        return -1;
+    }
+
+    private boolean scratchEqualsIgnoreCase(String name) {
+        if (scratchLength != name.length()) {
+            return false;
+        }
+        for (int i = 0; i < scratchLength; i++) {
+            int b = scratch[i];
+            if ((b >= 'a' && b <= 'z' ? b - 32 : b) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a member name and the colon after it.
+     *
+     * @param names the member names to look for
+     * @return the index of the name, or -1 for any other name
+     */
+    private int readKey(byte[][] names) throws IOException {
+        if (nextToken() != '"') {
+            throw malformed("expected a member name");
+        }
+        readStringBytes();
+        expect(':');
+        for (int i = 0; i < names.length; i++) {
+            if (Arrays.equals(scratch, 0, scratchLength, names[i], 0, names[i].length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return {@code true} after a comma, {@code false} after the closing brace of the object
+     */
+    private boolean nextMember() throws IOException {
+        int next = nextToken();
+        if (next == ',') {
+            return true;
+        }
+        if (next == '}') {
+            return false;
+        }
+        throw malformed("expected ',' or '}'");
+    }
+
+    private String readNullableString() throws IOException {
+        int next = nextToken();
+        if (next == '"') {
+            return readStringBody();
+        }
+        if (next == 'n') {
+            expectLiteral("ull");
+            return null;
+        }
+        throw malformed("expected a string or null");
+    }
+
+    /**
+     * Reads the rest of a string literal after its opening quote.
+     */
+    private String readStringBody() throws IOException {
+        readStringBytes();
+        return new String(scratch, 0, scratchLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the rest of a string literal after its opening quote into the scratch buffer, as UTF-8.
+     */
+    private void readStringBytes() throws IOException {
+        scratchLength = 0;
+        while (true) {
+            int b = readByte();
+            if (b == '"') {
+                return;
+            }
+            if (b == '\\') {
+                readEscape();
+            } else if (b < 0x20) {
+                throw malformed("control character in a string");
+            } else {
+                appendScratch(b);
+            }
+        }
+    }
+
+    private void readEscape() throws IOException {
+        int b = readByte();
+        switch (b) {
+            case '"', '\\', '/' -> appendScratch(b);
+            case 'n' -> appendScratch('\n');
+            case 'r' -> appendScratch('\r');
+            case 't' -> appendScratch('\t');
+            case 'b' -> appendScratch('\b');
+            case 'f' -> appendScratch('\f');
+            case 'u' -> {
+                int c = readHex4();
+                if (Character.isHighSurrogate((char) c) && peekByte() == '\\') {
+                    pos++;
+                    if (readByte() != 'u') {
+                        throw malformed("expected a low surrogate escape");
+                    }
+                    int low = readHex4();
+                    if (Character.isLowSurrogate((char) low)) {
+                        appendUtf8(Character.toCodePoint((char) c, (char) low));
+                        return;
+                    }
+                    appendUtf8('?');
+                    c = low;
+                }
+                appendUtf8(Character.isSurrogate((char) c) ? '?' : c);
+            }
+            default -> throw malformed("invalid escape");
+        }
+    }
+
+    private int readHex4() throws IOException {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(readByte(), 16);
+            if (digit < 0) {
+                throw malformed("invalid unicode escape");
+            }
+            value = value << 4 | digit;
+        }
+        return value;
+    }
+
+    private void appendUtf8(int codePoint) {
+        if (codePoint < 0x80) {
+            appendScratch(codePoint);
+        } else if (codePoint < 0x800) {
+            appendScratch(0xC0 | codePoint >> 6);
+            appendScratch(0x80 | codePoint & 0x3F);
+        } else if (codePoint < 0x10000) {
+            appendScratch(0xE0 | codePoint >> 12);
+            appendScratch(0x80 | codePoint >> 6 & 0x3F);
+            appendScratch(0x80 | codePoint & 0x3F);
+        } else {
+            appendScratch(0xF0 | codePoint >> 18);
+            appendScratch(0x80 | codePoint >> 12 & 0x3F);
+            appendScratch(0x80 | codePoint >> 6 & 0x3F);
+            appendScratch(0x80 | codePoint & 0x3F);
+        }
+    }
+
+    private void appendScratch(int b) {
+        if (scratchLength == scratch.length) {
+            scratch = Arrays.copyOf(scratch, scratch.length * 2);
+        }
+        scratch[scratchLength++] = (byte) b;
+    }
+
+    /**
+     * Reads a JSON number with the same correctly rounded result as {@link Double#parseDouble}.
+     */
+    private double readNumber() throws IOException {
+        int first = nextToken();
+        if (first != '-' && (first < '0' || first > '9')) {
+            throw malformed("expected a number");
+        }
+        scratchLength = 0;
+        appendScratch(first);
+        int b = peekByte();
+        while (b >= '0' && b <= '9' || b == '.' || b == 'e' || b == 'E' || b == '+' || b == '-') {
+            appendScratch(b);
+            pos++;
+            b = peekByte();
+        }
+        numbers.reset(scratch, 0, scratchLength);
+        try {
+            return numbers.nextDouble();
+        } catch (NumberFormatException e) {
+            throw malformed("invalid number");
+        }
+    }
+
+    /**
+     * Skips one value of any kind.
+     *
+     * @param depth how deep the value is nested in the element, to bound the nesting
+     */
+    private void skipValue(int depth) throws IOException {
+        if (depth > MAX_DEPTH) {
+            throw malformed("nested too deeply");
+        }
+        int next = peekToken();
+        switch (next) {
+            case '"' -> {
+                pos++;
+                readStringBytes();
+            }
+            case '{' -> {
+                pos++;
+                if (peekToken() == '}') {
+                    pos++;
+                    return;
+                }
+                do {
+                    readKey(NO_KEYS);
+                    skipValue(depth + 1);
+                } while (nextMember());
+            }
+            case '[' -> {
+                pos++;
+                if (peekToken() == ']') {
+                    pos++;
+                    return;
+                }
+                int separator;
+                do {
+                    skipValue(depth + 1);
+                    separator = nextToken();
+                } while (separator == ',');
+                if (separator != ']') {
+                    throw malformed("expected ',' or ']'");
+                }
+            }
+            case 't' -> {
+                pos++;
+                expectLiteral("rue");
+            }
+            case 'f' -> {
+                pos++;
+                expectLiteral("alse");
+            }
+            case 'n' -> {
+                pos++;
+                expectLiteral("ull");
+            }
+            default -> readNumber();
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (readByte() != rest.charAt(i)) {
+                throw malformed("invalid literal");
+            }
+        }
+    }
+
+    private void expect(char c) throws IOException {
+        if (nextToken() != c) {
+            throw malformed("expected '" + c + "'");
+        }
+    }
+
+    /**
+     * @return the next byte that is not whitespace, consumed, or -1 at the end of the stream
+     */
+    private int nextToken() throws IOException {
+        int b = peekToken();
+        if (b >= 0) {
+            pos++;
+        }
+        return b;
+    }
+
+    /**
+     * Skips whitespace.
+     *
+     * @return the next byte that is not whitespace, not consumed, or -1 at the end of the stream
+     */
+    private int peekToken() throws IOException {
+        while (true) {
+            int b = peekByte();
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return b;
+            }
+            pos++;
+        }
+    }
+
+    private int peekByte() throws IOException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos] & 0xFF;
+    }
+
+    private int readByte() throws IOException {
+        if (pos == limit && !fill()) {
+            throw new EOFException("JSON ends inside a value at offset " + (bufferOffset + pos));
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        pos = 0;
+        limit = 0;
+        int read = in.read(buf);
+        if (read <= 0) {
+            return false;
+        }
+        limit = read;
+        return true;
+    }
+
+    private IOException malformed(String problem) {
+        return new IOException("Malformed JSON at offset " + (bufferOffset + Math.max(0, pos - 1)) + ": " + problem);
+    }
+}
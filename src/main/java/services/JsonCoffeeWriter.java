@@ -0,0 +1,248 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.codec.RecordWriter;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Streams coffee items as a UTF-8 JSON array, one object per line:
+ * <pre>
+ * [
+ * {"type":"BEAN","id":"1234","name":"Arabica","weight":250.0,"price":15.99,
+ *  "quality":{"aroma":8.0,"taste":9.0,"freshness":7.5},"packaging":{"material":"Paper","volume":250.0},
+ *  "origin":"Brazil","roastLevel":"MEDIUM"},
+ * {"type":"GROUND",...,"grindSize":"COARSE"},
+ * {"type":"INSTANT",...,"concentrationLevel":"HIGH"}
+ * ]
+ * </pre>
+ * Every item is encoded straight into a fixed size byte buffer that is flushed to the stream
+ * when it is full, so memory stays constant however many items are written: no object tree
+ * and no string of the whole document is built. Numbers have the digits of
+ * {@link Double#toString(double)}; {@code null} text and enums are written as {@code null}.
+ * <p>
+ * An instance owns its buffer, so it must not be shared between threads.
+ */
+public final class JsonCoffeeWriter implements AutoCloseable {
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private final RecordWriter numbers = new RecordWriter();
+    private int length;
+    private long count;
+    private boolean closed;
+
+    /**
+     * Starts the array on the stream.
+     *
+     * @param out the stream to write to; closed together with the writer
+     */
+    public JsonCoffeeWriter(OutputStream out) {
+        this.out = out;
+        buf[length++] = '[';
+    }
+
+    /**
+     * Encodes one coffee item as the next element of the array.
+     *
+     * @param coffee the item to write
+     * @throws IOException if writing fails
+     * @throws IllegalArgumentException for coffee types the format does not know, or numbers
+     *                                  JSON cannot hold (NaN, infinities)
+     */
+    public void write(Coffee coffee) throws IOException {
+        String type;
+        if (coffee instanceof BeanCoffee) type = "BEAN";
+        else if (coffee instanceof GroundCoffee) type = "GROUND";
+        else if (coffee instanceof InstantCoffee) type = "INSTANT";
+        else throw new IllegalArgumentException("Unsupported coffee type: " + coffee.getClass().getName());
+
+        appendAscii(count == 0 ? "\n{\"type\":\"" : ",\n{\"type\":\"");
+        appendAscii(type);
+        appendAscii("\",\"id\":");
+        appendString(coffee.getId());
+        appendAscii(",\"name\":");
+        appendString(coffee.getName());
+        appendAscii(",\"weight\":");
+        appendNumber(coffee.getWeight());
+        appendAscii(",\"price\":");
+        appendNumber(coffee.getPrice());
+        QualityParams quality = coffee.getQuality();
+        appendAscii(",\"quality\":{\"aroma\":");
+        appendNumber(quality.getAromaScore());
+        appendAscii(",\"taste\":");
+        appendNumber(quality.getTasteScore());
+        appendAscii(",\"freshness\":");
+        appendNumber(quality.getFreshnessScore());
+        Packaging packaging = coffee.getPackaging();
+        appendAscii("},\"packaging\":{\"material\":");
+        appendString(packaging.getMaterial());
+        appendAscii(",\"volume\":");
+        appendNumber(packaging.getVolume());
+        appendByte('}');
+        if (coffee instanceof BeanCoffee bean) {
+            appendAscii(",\"origin\":");
+            appendString(bean.getOrigin());
+            appendAscii(",\"roastLevel\":");
+            appendEnum(bean.getRoastLevel());
+        } else if (coffee instanceof GroundCoffee ground) {
+            appendAscii(",\"grindSize\":");
+            appendEnum(ground.getGrindSize());
+        } else {
+            appendAscii(",\"concentrationLevel\":");
+            appendEnum(((InstantCoffee) coffee).getConcentrationLevel());
+        }
+        appendByte('}');
+        count++;
+    }
+
+    /**
+     * @return the number of items written so far
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Writes buffered bytes to the stream without closing it.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Ends the array and closes the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (out) {
+            appendAscii("\n]\n");
+            drain();
+        }
+    }
+
+    private void appendEnum(Enum<?> value) throws IOException {
+        if (value == null) {
+            appendAscii("null");
+            return;
+        }
+        appendByte('"');
+        appendAscii(value.name());
+        appendByte('"');
+    }
+
+    private void appendNumber(double value) throws IOException {
+        if (!Double.isFinite(value)) {
+            throw new IllegalArgumentException("JSON has no representation for the number " + value);
+        }
+        numbers.reset();
+        numbers.writeDouble(value);
+        byte[] digits = numbers.buffer();
+        int size = numbers.length();
+        ensureCapacity(size);
+        System.arraycopy(digits, 0, buf, length, size);
+        length += size;
+    }
+
+    /**
+     * Appends a JSON string literal, escaping quotes, backslashes and control characters
+     * and encoding everything else as UTF-8. Unpaired surrogates become {@code ?}, as with
+     * {@code String.getBytes(UTF_8)}.
+     */
+    private void appendString(String value) throws IOException {
+        if (value == null) {
+            appendAscii("null");
+            return;
+        }
+        appendByte('"');
+        int size = value.length();
+        for (int i = 0; i < size; i++) {
+            char c = value.charAt(i);
+            // the longest output of one char: a 4 byte sequence or a 6 byte escape
+            ensureCapacity(6);
+            if (c >= 0x20 && c < 0x80) {
+                if (c == '"' || c == '\\') {
+                    buf[length++] = '\\';
+                }
+                buf[length++] = (byte) c;
+            } else if (c < 0x20) {
+                appendControl(c);
+            } else if (c < 0x800) {
+                buf[length++] = (byte) (0xC0 | c >> 6);
+                buf[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (!Character.isSurrogate(c)) {
+                buf[length++] = (byte) (0xE0 | c >> 12);
+                buf[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buf[length++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < size && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buf[length++] = (byte) (0xF0 | codePoint >> 18);
+                buf[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                buf[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                buf[length++] = (byte) (0x80 | codePoint & 0x3F);
+            } else {
+                buf[length++] = '?';
+            }
+        }
+        appendByte('"');
+    }
+
+    private void appendControl(char c) {
+        buf[length++] = '\\';
+        switch (c) {
+            case '\n' -> buf[length++] = 'n';
+            case '\r' -> buf[length++] = 'r';
+            case '\t' -> buf[length++] = 't';
+            case '\b' -> buf[length++] = 'b';
+            case '\f' -> buf[length++] = 'f';
+            default -> {
+                buf[length++] = 'u';
+                buf[length++] = '0';
+                buf[length++] = '0';
+                buf[length++] = HEX[c >> 4];
+                buf[length++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private void appendAscii(String text) throws IOException {
+        int size = text.length();
+        ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            buf[length++] = (byte) text.charAt(i);
+        }
+    }
+
+    private void appendByte(int b) throws IOException {
+        ensureCapacity(1);
+        buf[length++] = (byte) b;
+    }
+
+    private void ensureCapacity(int extra) throws IOException {
+        if (length + extra > buf.length) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        out.write(buf, 0, length);
+        length = 0;
+    }
+}
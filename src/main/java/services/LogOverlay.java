@@ -0,0 +1,123 @@
+package services;
+
+import coffee.Coffee;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * The net effect of a {@link MutationLog}, applied to the base items one at a time.
+ * <p>
+ * Gives the same result as putting the base items into a map by ID and replaying the
+ * log over it, without holding the base items: a base item is replaced by its last
+ * logged version, or dropped if the log removed it; items the log added (or removed
+ * and added again) follow after the base, in the order in which they were added.
+ */
+final class LogOverlay {
+    private final Map<String, Entry> entries = new HashMap<>();
+    private long sequence;
+
+    /**
+     * @return {@code true} if the log had no records
+     */
+    boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    void add(Coffee coffee) {
+        Entry entry = entries.get(coffee.getId());
+        if (entry == null) {
+            entry = new Entry(sequence++);
+            entries.put(coffee.getId(), entry);
+        } else if (entry.deleted) {
+            // added again after a removal: it goes to the end
+            entry.deleted = false;
+            entry.sequence = sequence++;
+        }
+        entry.value = coffee;
+    }
+
+    void delete(String id) {
+        Entry entry = entries.computeIfAbsent(id, key -> new Entry(sequence++));
+        entry.deleted = true;
+        entry.removedFromBase = true;
+        entry.value = null;
+    }
+
+    /**
+     * @param base an item of the base file
+     * @return the item to keep in its place, or {@code null} if it is removed or moved to the {@link #tail()}
+     */
+    Coffee apply(Coffee base) {
+        Entry entry = entries.get(base.getId());
+        if (entry == null) {
+            return base;
+        }
+        if (entry.removedFromBase) {
+            return null;
+        }
+        entry.inBase = true;
+        return entry.value;
+    }
+
+    /**
+     * To be called after every base item went through {@link #apply(Coffee)}.
+     *
+     * @return the items that come after the base items
+     */
+    List<Coffee> tail() {
+        List<Entry> tail = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (!entry.deleted && (entry.removedFromBase || !entry.inBase)) {
+                tail.add(entry);
+            }
+        }
+        tail.sort(Comparator.comparingLong(entry -> entry.sequence));
+        List<Coffee> coffee = new ArrayList<>(tail.size());
+        for (Entry entry : tail) {
+            coffee.add(entry.value);
+        }
+        return coffee;
+    }
+
+    /**
+     * @param base all base items, in file order
+     * @return the current items
+     */
+    List<Coffee> applyAll(List<Coffee> base) {
+        List<Coffee> result = new ArrayList<>(base.size());
+        for (Coffee coffee : base) {
+            Coffee current = apply(coffee);
+            if (current != null) {
+                result.add(current);
+            }
+        }
+        result.addAll(tail());
+        return result;
+    }
+
+    /**
+     * Hands every logged ID to the consumer with its last version, or {@code null} if the log removed it last.
+     */
+    void forEachChange(BiConsumer<String, Coffee> consumer) {
+        entries.forEach((id, entry) -> consumer.accept(id, entry.deleted ? null : entry.value));
+    }
+
+    private static final class Entry {
+        private Coffee value;
+        private long sequence;
+        // the last record is a removal
+        private boolean deleted;
+        // the base version was removed at some point, so the item no longer sits at its base position
+        private boolean removedFromBase;
+        private boolean inBase;
+
+        Entry(long sequence) {
+            this.sequence = sequence;
+        }
+    }
+}
@@ -0,0 +1,751 @@
+package services;
+
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import coffee.CoffeeRecordWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Log-structured merge storage for cargo with many small changes.
+ * <p>
+ * Saves and removals go to a write-ahead {@link MutationLog} and to the memtable, a sorted map
+ * of the latest records by ID in which a removal is a tombstone. When the memtable holds about
+ * {@code memtableBytes}, it is written to a new immutable {@link LsmSegment} and a new log is
+ * started. A lookup checks the memtable and then the segments from newest to oldest; the Bloom
+ * filter of a segment lets it skip most segments without reading them.
+ * <p>
+ * A background thread compacts the segments size-tiered: a run of at least {@value #MIN_MERGE}
+ * segments of similar size that are adjacent in age is merged into one segment, which keeps only
+ * the newest version of every ID. Tombstones are dropped when the run includes the oldest segment,
+ * since nothing older is left for them to hide.
+ * <p>
+ * The manifest ({@code <filename>}) lists the segments from newest to oldest and the generation
+ * of the current log ({@code <filename>.<generation>.log}); segments are
+ * {@code <filename>.<n>.seg}. It is replaced atomically, so a crash leaves either the old or the
+ * new set of files in effect, and unlisted files are deleted when the storage is opened again.
+ * <p>
+ * Items are returned in ID order. Instances are thread safe.
+ */
+public class LsmCoffeeStorage implements CoffeeStorage, Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(LsmCoffeeStorage.class);
+    /**
+     * Memtable size used unless another one is given.
+     */
+    public static final long DEFAULT_MEMTABLE_BYTES = 4L << 20;
+    static final int MIN_MERGE = 4;
+    static final int MAX_MERGE = 32;
+    static final int MAX_KEY_LENGTH = 1024;
+    // segments of one tier differ in size by at most this factor
+    private static final long TIER_RATIO = 2;
+    // rough memory of a memtable entry besides its key and value
+    private static final int ENTRY_OVERHEAD = 64;
+    private static final String MANIFEST_HEADER = "LSM";
+    // names of segments, logs and temporary files after the base name
+    private static final Pattern OWN_FILE = Pattern.compile("\\.(\\d+\\.(seg|seg\\.tmp|log)|tmp)");
+
+    private final String filename;
+    private final Path manifestPath;
+    private final Path directory;
+    private final String baseName;
+    private final long memtableBytes;
+    private final CoffeeRecordWriter writer = new CoffeeRecordWriter();
+    private final CoffeeRecordParser parser = new CoffeeRecordParser();
+    private final ExecutorService compactor;
+    // held by compactions and full replacements, which both swap segments they have read
+    private final ReentrantLock compactionLock = new ReentrantLock();
+    private TreeMap<byte[], byte[]> memtable = new TreeMap<>(Arrays::compareUnsigned);
+    private long memtableSize;
+    // newest first; replaced as a whole, never changed in place
+    private List<LsmSegment> segments = new ArrayList<>();
+    private long generation;
+    private long nextSegment;
+    private MutationLog log;
+    private long userBytes;
+    private long writtenBytes;
+    private long compactions;
+    private boolean closed;
+
+    /**
+     * Opens or creates an LSM storage with the default memtable size.
+     *
+     * @param filename the manifest file; the other files are named after it
+     * @throws IOException if the storage cannot be opened
+     */
+    public LsmCoffeeStorage(String filename) throws IOException {
+        this(filename, DEFAULT_MEMTABLE_BYTES);
+    }
+
+    /**
+     * Opens or creates an LSM storage. The log of the memtable is replayed.
+     *
+     * @param filename      the manifest file; the other files are named after it
+     * @param memtableBytes the memtable size at which it is written to a segment
+     * @throws IOException if the storage cannot be opened
+     * @throws IllegalArgumentException if {@code memtableBytes} is not positive
+     */
+    public LsmCoffeeStorage(String filename, long memtableBytes) throws IOException {
+        if (memtableBytes < 1) {
+            throw new IllegalArgumentException("Memtable size must be positive: " + memtableBytes);
+        }
+        this.filename = filename;
+        this.manifestPath = Path.of(filename).toAbsolutePath();
+        this.directory = manifestPath.getParent();
+        this.baseName = manifestPath.getFileName().toString();
+        this.memtableBytes = memtableBytes;
+        readManifest();
+        deleteUnlistedFiles();
+        log = new MutationLog(logPath(generation));
+        log.read().forEachChange((id, coffee) -> apply(key(id), coffee == null ? LsmSegment.TOMBSTONE : value(coffee)));
+        compactor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "coffee-lsm-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LOGGER.info("LSM storage initialized. File: {}, segments: {}, memtable entries: {}", filename, segments.size(), memtable.size());
+        scheduleCompaction();
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve(baseName + "." + generation + ".log");
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(baseName + "." + number + ".seg");
+    }
+
+    private void readManifest() throws IOException {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        String[] header = lines.isEmpty() ? new String[0] : lines.get(0).split(";");
+        if (header.length != 2 || !header[0].equals(MANIFEST_HEADER)) {
+            throw new IOException("Not an LSM manifest: " + filename);
+        }
+        try {
+            generation = Long.parseLong(header[1]);
+            for (String name : lines.subList(1, lines.size())) {
+                segments.add(LsmSegment.open(directory.resolve(name)));
+                String number = name.substring(baseName.length() + 1, name.length() - ".seg".length());
+                nextSegment = Math.max(nextSegment, Long.parseLong(number) + 1);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (LsmSegment segment : segments) {
+                segment.close();
+            }
+            throw e instanceof IOException io ? io : new IOException("Invalid LSM manifest: " + filename, e);
+        }
+    }
+
+    /**
+     * Deletes segments and logs a crash left behind before or after they were listed in the manifest.
+     */
+    private void deleteUnlistedFiles() throws IOException {
+        Set<Path> listed = new HashSet<>();
+        for (LsmSegment segment : segments) {
+            listed.add(segment.path());
+        }
+        listed.add(logPath(generation));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, baseName + ".*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString().substring(baseName.length());
+                if (OWN_FILE.matcher(name).matches() && !listed.contains(file)) {
+                    LOGGER.warn("Deleted file {} left by an interrupted write.", file);
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void writeManifest(long generation, List<LsmSegment> segments) throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(MANIFEST_HEADER).append(';').append(generation).append('\n');
+        for (LsmSegment segment : segments) {
+            manifest.append(segment.path().getFileName()).append('\n');
+        }
+        Path temp = directory.resolve(baseName + ".tmp");
+        Files.writeString(temp, manifest, StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads one item.
+     *
+     * @param id the ID of the item
+     * @return the item, or {@code null} if no item has this ID
+     * @throws IOException if a segment cannot be read
+     */
+    public synchronized Coffee get(String id) throws IOException {
+        byte[] key = key(id);
+        byte[] value = memtable.get(key);
+        for (int i = 0; value == null && i < segments.size(); i++) {
+            value = segments.get(i).get(key);
+        }
+        if (value == null || value == LsmSegment.TOMBSTONE) {
+            return null;
+        }
+        return parser.parse(value, 0, value.length);
+    }
+
+    /**
+     * Saves one item, replacing the stored item with the same ID.
+     *
+     * @param coffee the item to save
+     * @throws IOException if writing the log fails; the item is then not saved
+     * @throws IllegalArgumentException if the item has no ID or its ID is too long
+     */
+    public synchronized void put(Coffee coffee) throws IOException {
+        byte[] key = key(coffee.getId());
+        byte[] value = value(coffee);
+        log.appendAdditions(List.of(coffee));
+        account(key, value);
+        apply(key, value);
+        flushIfFull();
+    }
+
+    /**
+     * Removes one item by writing a tombstone, without looking for the item.
+     *
+     * @param id the ID of the item
+     * @throws IOException if writing the log fails; the item is then not removed
+     */
+    public synchronized void delete(String id) throws IOException {
+        byte[] key = key(id);
+        log.appendRemoval(id);
+        account(key, LsmSegment.TOMBSTONE);
+        apply(key, LsmSegment.TOMBSTONE);
+        flushIfFull();
+    }
+
+    /**
+     * Removes several items by logging all their tombstones with one write.
+     *
+     * @param ids the IDs of the items
+     * @throws IOException if writing the log fails; no item is removed then
+     */
+    public synchronized void deleteAll(Collection<String> ids) throws IOException {
+        List<byte[]> keys = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            keys.add(key(id));
+        }
+        log.appendRemovals(ids);
+        for (byte[] key : keys) {
+            account(key, LsmSegment.TOMBSTONE);
+            apply(key, LsmSegment.TOMBSTONE);
+        }
+        flushIfFull();
+    }
+
+    /**
+     * Saves coffee items. Appending logs all items with one write and adds them to the memtable.
+     * Replacing writes all items into one new segment that replaces every other segment and the log.
+     *
+     * @param coffeeList the items to save; for equal IDs the last one wins
+     * @param toNotReplaceFully {@code true} to add the items to the stored ones, {@code false} to replace them
+     * @throws IOException if writing fails; nothing is saved then
+     * @throws IllegalArgumentException if an item has no ID or its ID is too long; nothing is saved then
+     */
+    @Override
+    public void saveToFile(List<Coffee> coffeeList, boolean toNotReplaceFully) throws IOException {
+        byte[][] keys = new byte[coffeeList.size()][];
+        byte[][] values = new byte[coffeeList.size()][];
+        synchronized (this) {
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = key(coffeeList.get(i).getId());
+                values[i] = value(coffeeList.get(i));
+            }
+        }
+        if (toNotReplaceFully) {
+            synchronized (this) {
+                log.appendAdditions(coffeeList);
+                for (int i = 0; i < keys.length; i++) {
+                    account(keys[i], values[i]);
+                    apply(keys[i], values[i]);
+                }
+                flushIfFull();
+            }
+            return;
+        }
+        TreeMap<byte[], byte[]> items = new TreeMap<>(Arrays::compareUnsigned);
+        for (int i = 0; i < keys.length; i++) {
+            items.put(keys[i], values[i]);
+        }
+        compactionLock.lock();
+        try {
+            synchronized (this) {
+                for (int i = 0; i < keys.length; i++) {
+                    userBytes += keys[i].length + values[i].length;
+                }
+                LsmSegment segment = LsmSegment.write(segmentPath(nextSegment++), cursor(items), items.size());
+                List<LsmSegment> replaced = segment == null ? List.of() : List.of(segment);
+                commitSegments(replaced, segments, segment == null ? 0 : segment.size());
+                LOGGER.info("Replaced LSM storage {} with {} items.", filename, items.size());
+            }
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes a stored item.
+     *
+     * @param id the ID of the removed item
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemoval(String id) throws IOException {
+        delete(id);
+    }
+
+    /**
+     * Removes stored items, logging their tombstones with one write.
+     *
+     * @param ids the IDs of the removed items
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemovals(Collection<String> ids) throws IOException {
+        deleteAll(ids);
+    }
+
+    /**
+     * Reads all stored items, merging the memtable and all segments.
+     *
+     * @return the stored items, in ID order
+     * @throws IOException if a segment cannot be read
+     */
+    @Override
+    public synchronized List<Coffee> getFromFile() throws IOException {
+        List<Coffee> coffee = new ArrayList<>();
+        try (LsmSegment.Cursor merged = merge(cursors(), true)) {
+            while (merged.next()) {
+                byte[] value = merged.value();
+                coffee.add(parser.parse(value, 0, value.length));
+            }
+        }
+        return coffee;
+    }
+
+    /**
+     * Reads all stored items. The items are read completely before the stream is returned,
+     * since a compaction may delete the segments afterwards.
+     *
+     * @return the stored items, in ID order, each ID once
+     * @throws IOException if a segment cannot be read
+     */
+    @Override
+    public Stream<Coffee> streamFromFile() throws IOException {
+        return getFromFile().stream();
+    }
+
+    /**
+     * @return the number of segment files
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * @return the number of compactions finished since the storage was opened
+     */
+    public synchronized long getCompactionCount() {
+        return compactions;
+    }
+
+    /**
+     * @return the bytes of the saved records and removed IDs since the storage was opened
+     */
+    public synchronized long getUserBytes() {
+        return userBytes;
+    }
+
+    /**
+     * @return the bytes written to the log and to segments since the storage was opened
+     */
+    public synchronized long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    /**
+     * @return the bytes written to disk per byte of saved data, or 0 before the first save
+     */
+    public synchronized double getWriteAmplification() {
+        return userBytes == 0 ? 0 : (double) writtenBytes / userBytes;
+    }
+
+    /**
+     * Waits until the compactions scheduled so far are done.
+     */
+    public void awaitCompaction() {
+        try {
+            compactor.submit(() -> { }).get();
+        } catch (RejectedExecutionException e) {
+            // closed: nothing runs any more
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops compacting and closes the segments. The memtable is kept in its log.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (LsmSegment segment : segments) {
+                segment.close();
+            }
+        }
+    }
+
+    private void account(byte[] key, byte[] value) {
+        userBytes += key.length + value.length;
+        // the log record: "A;" record "\n", or "D;" id "\n"
+        writtenBytes += 3 + (value == LsmSegment.TOMBSTONE ? key.length : value.length);
+    }
+
+    private void apply(byte[] key, byte[] value) {
+        byte[] previous = memtable.put(key, value);
+        memtableSize += value.length + (previous == null ? key.length + ENTRY_OVERHEAD : -previous.length);
+    }
+
+    private void flushIfFull() throws IOException {
+        if (memtableSize < memtableBytes) {
+            return;
+        }
+        LsmSegment segment = LsmSegment.write(segmentPath(nextSegment++), cursor(memtable), memtable.size());
+        List<LsmSegment> updated = new ArrayList<>(segments.size() + 1);
+        if (segment != null) {
+            updated.add(segment);
+        }
+        updated.addAll(segments);
+        commitSegments(updated, List.of(), segment == null ? 0 : segment.size());
+        LOGGER.debug("Flushed memtable of {} to a segment of {} bytes.", filename, segment == null ? 0 : segment.size());
+        scheduleCompaction();
+    }
+
+    /**
+     * Makes a new set of segments current together with a new, empty log, and empties the memtable.
+     * The manifest is the commit point: if it cannot be written, nothing changes.
+     *
+     * @param updated  the new segments, newest first
+     * @param obsolete segments that are no longer needed
+     * @param written  the bytes of the new segment
+     */
+    private void commitSegments(List<LsmSegment> updated, List<LsmSegment> obsolete, long written) throws IOException {
+        try {
+            writeManifest(generation + 1, updated);
+        } catch (IOException e) {
+            if (!updated.isEmpty() && !segments.contains(updated.get(0))) {
+                updated.get(0).close();
+                Files.deleteIfExists(updated.get(0).path());
+            }
+            throw e;
+        }
+        Path oldLog = logPath(generation);
+        generation++;
+        log = new MutationLog(logPath(generation));
+        segments = updated;
+        memtable = new TreeMap<>(Arrays::compareUnsigned);
+        memtableSize = 0;
+        writtenBytes += written;
+        Files.deleteIfExists(oldLog);
+        for (LsmSegment segment : obsolete) {
+            segment.close();
+            Files.deleteIfExists(segment.path());
+        }
+    }
+
+    private void scheduleCompaction() {
+        try {
+            compactor.execute(this::compact);
+        } catch (RejectedExecutionException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Merges runs of similar segments until no run is long enough. The merge itself runs without
+     * the lock, since segments are immutable; only picking the run and swapping it hold it.
+     */
+    private void compact() {
+        compactionLock.lock();
+        try {
+            while (true) {
+                List<LsmSegment> run;
+                boolean includesOldest;
+                Path output;
+                synchronized (this) {
+                    int[] range = closed ? null : pickRun();
+                    if (range == null) {
+                        return;
+                    }
+                    run = new ArrayList<>(segments.subList(range[0], range[1]));
+                    includesOldest = range[1] == segments.size();
+                    output = segmentPath(nextSegment++);
+                }
+                List<LsmSegment.Cursor> inputs = new ArrayList<>(run.size());
+                long expected = 0;
+                for (LsmSegment segment : run) {
+                    inputs.add(segment.cursor());
+                    expected += segment.count();
+                }
+                LsmSegment merged = LsmSegment.write(output, merge(inputs, includesOldest), expected);
+                synchronized (this) {
+                    // flushes may have added newer segments in front of the run meanwhile
+                    int start = segments.indexOf(run.get(0));
+                    List<LsmSegment> updated = new ArrayList<>(segments.subList(0, start));
+                    if (merged != null) {
+                        updated.add(merged);
+                    }
+                    updated.addAll(segments.subList(start + run.size(), segments.size()));
+                    try {
+                        writeManifest(generation, updated);
+                    } catch (IOException e) {
+                        if (merged != null) {
+                            merged.close();
+                            Files.deleteIfExists(merged.path());
+                        }
+                        throw e;
+                    }
+                    segments = updated;
+                    writtenBytes += merged == null ? 0 : merged.size();
+                    compactions++;
+                }
+                for (LsmSegment segment : run) {
+                    segment.close();
+                    Files.deleteIfExists(segment.path());
+                }
+                LOGGER.debug("Compacted {} segments of {} into {} bytes.", run.size(), filename, merged == null ? 0 : merged.size());
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Compaction of {} failed; it is retried after the next flush.", filename, e);
+        } finally {
+            compactionLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the longest run of adjacent segments whose sizes differ by at most {@link #TIER_RATIO}.
+     *
+     * @return {@code [start, end)} in {@link #segments}, or {@code null} if no run has {@value #MIN_MERGE} segments
+     */
+    private int[] pickRun() {
+        int[] best = null;
+        for (int start = 0; start + MIN_MERGE <= segments.size(); start++) {
+            long min = segments.get(start).size();
+            long max = min;
+            int end = start + 1;
+            while (end < segments.size() && end - start < MAX_MERGE) {
+                long size = segments.get(end).size();
+                if (Math.max(max, size) > TIER_RATIO * Math.min(min, size)) {
+                    break;
+                }
+                min = Math.min(min, size);
+                max = Math.max(max, size);
+                end++;
+            }
+            if (end - start >= MIN_MERGE && (best == null || end - start > best[1] - best[0])) {
+                best = new int[]{start, end};
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return cursors over the memtable and all segments, newest first
+     */
+    private List<LsmSegment.Cursor> cursors() throws IOException {
+        List<LsmSegment.Cursor> cursors = new ArrayList<>(segments.size() + 1);
+        cursors.add(cursor(memtable));
+        try {
+            for (LsmSegment segment : segments) {
+                cursors.add(segment.cursor());
+            }
+        } catch (IOException e) {
+            for (LsmSegment.Cursor cursor : cursors) {
+                cursor.close();
+            }
+            throw e;
+        }
+        return cursors;
+    }
+
+    private static LsmSegment.Cursor cursor(TreeMap<byte[], byte[]> entries) {
+        Iterator<Map.Entry<byte[], byte[]>> iterator = entries.entrySet().iterator();
+        return new LsmSegment.Cursor() {
+            private Map.Entry<byte[], byte[]> current;
+
+            @Override
+            public boolean next() {
+                current = iterator.hasNext() ? iterator.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public byte[] key() {
+                return current.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return current.getValue();
+            }
+        };
+    }
+
+    /**
+     * Merges sorted cursors into one; for equal keys the value of the newest cursor wins.
+     *
+     * @param newestFirst    the cursors, newest first
+     * @param dropTombstones leave out removed keys instead of returning their tombstones
+     */
+    private static LsmSegment.Cursor merge(List<LsmSegment.Cursor> newestFirst, boolean dropTombstones) {
+        return new LsmSegment.Cursor() {
+            // ordered by key, then by age, so that the newest version of a key comes first
+            private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> {
+                int cmp = Arrays.compareUnsigned(a.key, b.key);
+                return cmp != 0 ? cmp : Integer.compare(a.age, b.age);
+            });
+            private boolean started;
+            private byte[] key;
+            private byte[] value;
+
+            @Override
+            public boolean next() throws IOException {
+                if (!started) {
+                    started = true;
+                    for (int i = 0; i < newestFirst.size(); i++) {
+                        advance(new Head(newestFirst.get(i), i));
+                    }
+                }
+                while (!heads.isEmpty()) {
+                    Head head = heads.poll();
+                    key = head.key;
+                    value = head.value;
+                    advance(head);
+                    while (!heads.isEmpty() && Arrays.equals(heads.peek().key, key)) {
+                        advance(heads.poll());
+                    }
+                    if (!dropTombstones || value != LsmSegment.TOMBSTONE) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            private void advance(Head head) throws IOException {
+                if (head.cursor.next()) {
+                    head.key = head.cursor.key();
+                    head.value = head.cursor.value();
+                    heads.add(head);
+                }
+            }
+
+            @Override
+            public byte[] key() {
+                return key;
+            }
+
+            @Override
+            public byte[] value() {
+                return value;
+            }
+
+            @Override
+            public void close() throws IOException {
+                IOException failure = null;
+                for (LsmSegment.Cursor cursor : newestFirst) {
+                    try {
+                        cursor.close();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+        };
+    }
+
+    private static byte[] key(String id) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("Coffee ID must not be empty");
+        }
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        if (key.length > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Coffee ID is longer than " + MAX_KEY_LENGTH + " bytes: " + id);
+        }
+        return key;
+    }
+
+    private byte[] value(Coffee coffee) {
+        int length = writer.encode(coffee);
+        return Arrays.copyOf(writer.buffer(), length);
+    }
+
+    /**
+     * The current entry of one of the merged cursors.
+     */
+    private static final class Head {
+        private final LsmSegment.Cursor cursor;
+        private final int age;
+        private byte[] key;
+        private byte[] value;
+
+        Head(LsmSegment.Cursor cursor, int age) {
+            this.cursor = cursor;
+            this.age = age;
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package services;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * An immutable sorted segment file of {@link LsmCoffeeStorage}.
+ * <p>
+ * Layout:
+ * <pre>
+ * magic      'C' 'V' 'S' version
+ * entries    in ascending key order (unsigned bytes), each:
+ *            flag (1 byte: 0 = value, 1 = tombstone), key length (2), key,
+ *            and for values: value length (4), value
+ * index      entry count (4), then for every {@value #INDEX_INTERVAL}th entry:
+ *            key length (2), key, file offset of the entry (8)
+ * filter     the {@link BloomFilter} of all keys
+ * footer     offset of the index (8), number of entries (8), CRC32 of index and filter (4), 'C' 'V' 'S' 'F'
+ * </pre>
+ * The index and the filter are loaded when the segment is opened. A lookup that passes the
+ * filter reads one block of at most {@value #INDEX_INTERVAL} entries.
+ */
+final class LsmSegment implements Closeable {
+    /**
+     * The value of a removed key, compared by identity.
+     */
+    static final byte[] TOMBSTONE = new byte[0];
+    static final int INDEX_INTERVAL = 16;
+    private static final byte[] MAGIC = {'C', 'V', 'S', 1};
+    private static final byte[] FOOTER_MAGIC = {'C', 'V', 'S', 'F'};
+    private static final int FOOTER_LENGTH = Long.BYTES * 2 + Integer.BYTES + FOOTER_MAGIC.length;
+    private static final byte VALUE = 0;
+    private static final byte DELETED = 1;
+
+    /**
+     * Sorted entries, as read from a segment or the memtable.
+     */
+    interface Cursor extends Closeable {
+        /**
+         * Moves to the next entry.
+         *
+         * @return {@code false} after the last entry
+         */
+        boolean next() throws IOException;
+
+        byte[] key();
+
+        /**
+         * @return the value, or {@link #TOMBSTONE}
+         */
+        byte[] value();
+
+        @Override
+        default void close() throws IOException {
+        }
+    }
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final long indexOffset;
+    private final long count;
+    private final byte[][] indexKeys;
+    private final long[] indexOffsets;
+    private final BloomFilter filter;
+
+    private LsmSegment(Path path, FileChannel channel, long size, long indexOffset, long count,
+                       byte[][] indexKeys, long[] indexOffsets, BloomFilter filter) {
+        this.path = path;
+        this.channel = channel;
+        this.size = size;
+        this.indexOffset = indexOffset;
+        this.count = count;
+        this.indexKeys = indexKeys;
+        this.indexOffsets = indexOffsets;
+        this.filter = filter;
+    }
+
+    /**
+     * Writes a segment to a temporary file, forces it and renames it into place.
+     *
+     * @param path         the segment file
+     * @param entries      the entries, in ascending key order without duplicates
+     * @param expectedKeys an upper bound of the number of entries, to size the filter
+     * @return the opened segment, or {@code null} if there were no entries
+     * @throws IOException if writing fails; nothing is left behind then
+     */
+    static LsmSegment write(Path path, Cursor entries, long expectedKeys) throws IOException {
+        Path temp = Path.of(path + ".tmp");
+        BloomFilter filter = new BloomFilter(expectedKeys);
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        int indexEntries = 0;
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            out.write(MAGIC);
+            long position = MAGIC.length;
+            while (entries.next()) {
+                byte[] key = entries.key();
+                byte[] value = entries.value();
+                if (count % INDEX_INTERVAL == 0) {
+                    indexOut.writeShort(key.length);
+                    indexOut.write(key);
+                    indexOut.writeLong(position);
+                    indexEntries++;
+                }
+                filter.add(key);
+                out.writeByte(value == TOMBSTONE ? DELETED : VALUE);
+                out.writeShort(key.length);
+                out.write(key);
+                position += 1 + 2 + key.length;
+                if (value != TOMBSTONE) {
+                    out.writeInt(value.length);
+                    out.write(value);
+                    position += 4 + value.length;
+                }
+                count++;
+            }
+            ByteBuffer meta = ByteBuffer.allocate(Integer.BYTES + index.size() + filter.serializedSize());
+            meta.putInt(indexEntries).put(index.toByteArray());
+            filter.writeTo(meta);
+            CRC32 crc = new CRC32();
+            crc.update(meta.array());
+            out.write(meta.array());
+            out.writeLong(position);
+            out.writeLong(count);
+            out.writeInt((int) crc.getValue());
+            out.write(FOOTER_MAGIC);
+            out.flush();
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        } finally {
+            entries.close();
+        }
+        if (count == 0) {
+            Files.delete(temp);
+            return null;
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return open(path);
+    }
+
+    /**
+     * Opens a segment and loads its index and filter.
+     *
+     * @throws IOException if the file cannot be read or is not a complete segment
+     */
+    static LsmSegment open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < MAGIC.length + FOOTER_LENGTH) {
+                throw new IOException("Segment " + path + " is truncated");
+            }
+            ByteBuffer footer = read(channel, size - FOOTER_LENGTH, FOOTER_LENGTH);
+            long indexOffset = footer.getLong();
+            long count = footer.getLong();
+            int checksum = footer.getInt();
+            byte[] magic = new byte[FOOTER_MAGIC.length];
+            footer.get(magic);
+            if (!Arrays.equals(magic, FOOTER_MAGIC) || indexOffset < MAGIC.length || indexOffset > size - FOOTER_LENGTH) {
+                throw new IOException("Segment " + path + " has no valid footer");
+            }
+            ByteBuffer meta = read(channel, indexOffset, Math.toIntExact(size - FOOTER_LENGTH - indexOffset));
+            CRC32 crc = new CRC32();
+            crc.update(meta.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch in the index of segment " + path);
+            }
+            int indexEntries = meta.getInt();
+            byte[][] indexKeys = new byte[indexEntries][];
+            long[] indexOffsets = new long[indexEntries];
+            for (int i = 0; i < indexEntries; i++) {
+                indexKeys[i] = new byte[Short.toUnsignedInt(meta.getShort())];
+                meta.get(indexKeys[i]);
+                indexOffsets[i] = meta.getLong();
+            }
+            BloomFilter filter = BloomFilter.readFrom(meta);
+            return new LsmSegment(path, channel, size, indexOffset, count, indexKeys, indexOffsets, filter);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            if (e instanceof IOException) {
+                throw e;
+            }
+            throw new IOException("Segment " + path + " is corrupt", e);
+        }
+    }
+
+    Path path() {
+        return path;
+    }
+
+    /**
+     * @return the size of the file in bytes
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @return the number of entries, tombstones included
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * Looks a key up.
+     *
+     * @return the value, {@link #TOMBSTONE} if the segment removes the key, or {@code null} if it does not hold it
+     * @throws IOException if the block cannot be read
+     */
+    byte[] get(byte[] key) throws IOException {
+        if (!filter.mightContain(key)) {
+            return null;
+        }
+        // the last block that starts at or before the key
+        int low = 0;
+        int high = indexKeys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(indexKeys[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (high < 0) {
+            return null;
+        }
+        long start = indexOffsets[high];
+        long end = high + 1 < indexOffsets.length ? indexOffsets[high + 1] : indexOffset;
+        ByteBuffer block = read(channel, start, Math.toIntExact(end - start));
+        byte[] bytes = block.array();
+        while (block.hasRemaining()) {
+            byte flag = block.get();
+            int keyLength = Short.toUnsignedInt(block.getShort());
+            int keyStart = block.position();
+            int cmp = Arrays.compareUnsigned(bytes, keyStart, keyStart + keyLength, key, 0, key.length);
+            block.position(keyStart + keyLength);
+            int valueLength = flag == DELETED ? 0 : block.getInt();
+            if (cmp == 0) {
+                return flag == DELETED ? TOMBSTONE : Arrays.copyOfRange(bytes, block.position(), block.position() + valueLength);
+            }
+            if (cmp > 0) {
+                return null;
+            }
+            block.position(block.position() + valueLength);
+        }
+        return null;
+    }
+
+    /**
+     * Reads all entries in key order, through a stream of its own, so that several cursors and
+     * lookups may run at the same time.
+     */
+    Cursor cursor() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        in.skipNBytes(MAGIC.length);
+        return new Cursor() {
+            private long position = MAGIC.length;
+            private byte[] key;
+            private byte[] value;
+
+            @Override
+            public boolean next() throws IOException {
+                if (position >= indexOffset) {
+                    return false;
+                }
+                byte flag = in.readByte();
+                key = new byte[in.readUnsignedShort()];
+                in.readFully(key);
+                position += 1 + 2 + key.length;
+                if (flag == DELETED) {
+                    value = TOMBSTONE;
+                } else {
+                    value = new byte[in.readInt()];
+                    in.readFully(value);
+                    position += 4 + value.length;
+                }
+                return true;
+            }
+
+            @Override
+            public byte[] key() {
+                return key;
+            }
+
+            @Override
+            public byte[] value() {
+                return value;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+        };
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of segment file");
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
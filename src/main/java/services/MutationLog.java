@@ -0,0 +1,282 @@
+package services;
+
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * Append-only log of changes made to a coffee data file since its last full rewrite.
+ * <p>
+ * Every change is one text line: {@code A;<record>} adds or replaces the item with the
+ * record's ID ({@code <record>} is {@link Coffee#toFileString()}), and {@code D;<id>} is a
+ * tombstone that removes it. Applying the log's {@link LogOverlay} to the items of the base
+ * file gives the current state. Applying it again to a base file that already contains its
+ * changes gives the same items, so a crash between writing a new base file and truncating
+ * the log loses nothing.
+ */
+final class MutationLog {
+    private static final Logger LOGGER = LogManager.getLogger(MutationLog.class);
+    private static final byte ADD = 'A';
+    private static final byte DELETE = 'D';
+
+    private final Path file;
+    // where the log waits while a new base file replaces the old one
+    private final Path stash;
+    private final UnaryOperator<WritableByteChannel> writeHook;
+
+    /**
+     * @param file the log file; it is created on the first append
+     */
+    MutationLog(Path file) {
+        this(file, UnaryOperator.identity());
+    }
+
+    /**
+     * @param writeHook wraps the channel that records are appended through (for fault injection in tests)
+     */
+    MutationLog(Path file, UnaryOperator<WritableByteChannel> writeHook) {
+        this.file = file;
+        this.stash = file.resolveSibling(file.getFileName() + ".old");
+        this.writeHook = writeHook;
+    }
+
+    /**
+     * @return the size of the log in bytes, {@code 0} if there is no log
+     */
+    long size() throws IOException {
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    /**
+     * Appends add records for the given items.
+     *
+     * @param coffeeList the items that were added or changed
+     * @throws IOException if writing fails
+     */
+    void appendAdditions(List<Coffee> coffeeList) throws IOException {
+        StringBuilder records = new StringBuilder();
+        addAdditions(records, coffeeList);
+        append(records);
+    }
+
+    /**
+     * Appends a tombstone for an item.
+     *
+     * @param id the ID of the removed item
+     * @throws IOException if writing fails
+     */
+    void appendRemoval(String id) throws IOException {
+        appendRemovals(List.of(id));
+    }
+
+    /**
+     * Appends tombstones for several items with one write.
+     *
+     * @param ids the IDs of the removed items
+     * @throws IOException if writing fails
+     */
+    void appendRemovals(Collection<String> ids) throws IOException {
+        StringBuilder records = new StringBuilder();
+        for (String id : ids) {
+            addRemoval(records, id);
+        }
+        append(records);
+    }
+
+    /**
+     * Adds the add records for the given items to a batch of records.
+     */
+    static void addAdditions(StringBuilder records, List<Coffee> coffeeList) {
+        for (Coffee coffee : coffeeList) {
+            records.append((char) ADD).append(';').append(coffee.toFileString()).append('\n');
+        }
+    }
+
+    /**
+     * Adds a tombstone to a batch of records.
+     */
+    static void addRemoval(StringBuilder records, String id) {
+        records.append((char) DELETE).append(';').append(id).append('\n');
+    }
+
+    /**
+     * Appends a batch of records and forces it to disk. If a crash or a failed write left
+     * the last record without its line end, that record is cut off first: the batch must not
+     * continue its line, and a torn tombstone must not end up as the tombstone of a shorter ID.
+     * A batch whose write fails is cut off again, so it is either logged completely or not at all.
+     *
+     * @param records whole records built by {@link #addAdditions} and {@link #addRemoval}
+     * @throws IOException if writing fails
+     */
+    void append(CharSequence records) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+        // not opened with APPEND, which cannot be combined with READ; appends are serialized by the owner
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (endsInsideLine(channel)) {
+                long end = completeLength(channel);
+                LOGGER.warn("Dropping {} bytes of a torn record at the end of {}.", channel.size() - end, file);
+                channel.truncate(end);
+            }
+            long start = channel.size();
+            channel.position(start);
+            try {
+                WritableByteChannel target = writeHook.apply(channel);
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+                channel.force(false);
+            } catch (IOException | RuntimeException e) {
+                // a failed batch must not be partly applied, even though the caller saw it fail
+                try {
+                    channel.truncate(start);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * @return the length of the file up to and including its last line end
+     */
+    private static long completeLength(FileChannel channel) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - chunk.capacity());
+            chunk.clear().limit((int) (end - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) >= 0) {
+                // read the whole chunk
+            }
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                byte b = chunk.get(i);
+                if (b == '\n' || b == '\r') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
+    }
+
+    /**
+     * @return {@code true} if the channel's file is not empty and its last byte is no line end
+     */
+    static boolean endsInsideLine(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return false;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        byte b = last.get(0);
+        return b != '\n' && b != '\r';
+    }
+
+    /**
+     * Reads the log into an overlay for the items of the base file.
+     * Records that cannot be parsed, and a last line without its line end, which a crash
+     * may have cut short, are logged and skipped.
+     *
+     * @return the net changes of the log
+     * @throws IOException if the log cannot be read
+     */
+    LogOverlay read() throws IOException {
+        LogOverlay overlay = new LogOverlay();
+        if (!Files.exists(file)) {
+            return overlay;
+        }
+        CoffeeRecordParser parser = new CoffeeRecordParser();
+        try (RecordLineReader reader = new RecordLineReader(Files.newInputStream(file))) {
+            while (reader.next()) {
+                if (!reader.terminated()) {
+                    // torn by a crash, or still being written; never a whole record
+                    LOGGER.warn("Skipped unfinished last record in {}: '{}'", file, reader.lineAsString());
+                    continue;
+                }
+                byte[] buffer = reader.buffer();
+                int start = reader.start();
+                int end = reader.end();
+                if (end - start < 2 || buffer[start + 1] != ';') {
+                    if (end > start) {
+                        LOGGER.warn("Skipped malformed record in {}: '{}'", file, reader.lineAsString());
+                    }
+                    continue;
+                }
+                if (buffer[start] == DELETE) {
+                    overlay.delete(new String(buffer, start + 2, end - start - 2, StandardCharsets.UTF_8));
+                } else if (buffer[start] == ADD) {
+                    try {
+                        overlay.add(parser.parse(buffer, start + 2, end));
+                    } catch (RuntimeException e) {
+                        LOGGER.warn("Skipped malformed record in {}: '{}'", file, reader.lineAsString(), e);
+                    }
+                } else {
+                    LOGGER.warn("Skipped malformed record in {}: '{}'", file, reader.lineAsString());
+                }
+            }
+        }
+        return overlay;
+    }
+
+    /**
+     * Deletes the log, after its changes have been written to a new base file.
+     *
+     * @throws IOException if the log cannot be deleted
+     */
+    void truncate() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Moves the log aside, right before a new base file is renamed into place.
+     * The log then neither applies to the new base file nor gets lost if the rename never happens.
+     *
+     * @throws IOException if the log cannot be moved
+     */
+    void stash() throws IOException {
+        if (Files.exists(file)) {
+            Files.move(file, stash, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * @return {@code true} if a log was moved aside and not dropped or restored yet
+     */
+    boolean hasStash() {
+        return Files.exists(stash);
+    }
+
+    /**
+     * Puts the stashed log back, because the base file it belongs to was not replaced.
+     *
+     * @throws IOException if the log cannot be moved
+     */
+    void restoreStash() throws IOException {
+        Files.move(stash, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes the stashed log, once the new base file is in place.
+     *
+     * @throws IOException if the log cannot be deleted
+     */
+    void dropStash() throws IOException {
+        Files.deleteIfExists(stash);
+    }
+}
@@ -0,0 +1,139 @@
+package services;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * LRU buffer pool of the decoded nodes of a {@link PageFile}.
+ * <p>
+ * Changed nodes stay in the pool until {@link #flush(int, ByteBuffer)} writes them, so the pool
+ * may hold more than its capacity between flushes; only unchanged nodes are evicted, least
+ * recently used first.
+ */
+final class PageCache {
+    private final PageFile file;
+    private final int capacity;
+    // access order: iteration starts at the least recently used node
+    private final LinkedHashMap<Integer, BTreeNode> nodes = new LinkedHashMap<>(16, 0.75f, true);
+    // sorted, so that a flush writes the pages in file order
+    private final Map<Integer, BTreeNode> dirty = new TreeMap<>();
+    private long hits;
+    private long misses;
+
+    /**
+     * @param file     the file the nodes are read from and written to
+     * @param capacity the number of nodes kept when none are changed
+     * @throws IllegalArgumentException if {@code capacity} is not positive
+     */
+    PageCache(PageFile file, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a node, reading it from the file if it is not in the pool.
+     *
+     * @throws IOException if the page cannot be read, fails its checksum or is not a node
+     */
+    BTreeNode get(int page) throws IOException {
+        BTreeNode node = nodes.get(page);
+        if (node != null) {
+            hits++;
+            return node;
+        }
+        misses++;
+        try {
+            node = BTreeNode.decode(page, file.read(page));
+        } catch (IllegalStateException | BufferUnderflowException e) {
+            throw new IOException("Page " + page + " is corrupt", e);
+        }
+        nodes.put(page, node);
+        evict();
+        return node;
+    }
+
+    /**
+     * Creates a node on a new page; it is written with the next flush.
+     */
+    BTreeNode allocate(boolean leaf) {
+        BTreeNode node = new BTreeNode(file.allocate(), leaf);
+        nodes.put(node.page, node);
+        dirty.put(node.page, node);
+        return node;
+    }
+
+    /**
+     * Keeps a changed node until the next flush. A node that was evicted while it was used
+     * comes back into the pool, so that the pool never returns an older copy of it.
+     */
+    void markDirty(BTreeNode node) {
+        nodes.put(node.page, node);
+        dirty.put(node.page, node);
+    }
+
+    /**
+     * @return the number of changed nodes not flushed yet
+     */
+    int dirtyCount() {
+        return dirty.size();
+    }
+
+    /**
+     * @return how many lookups found their node in the pool
+     */
+    long hits() {
+        return hits;
+    }
+
+    /**
+     * @return how many lookups had to read their node from the file
+     */
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * Writes all changed nodes together with a header page, atomically.
+     *
+     * @param headerPage the number of the header page
+     * @param header     the header page image
+     * @throws IOException if writing fails; the pool must then be {@link #clear() cleared}
+     */
+    void flush(int headerPage, ByteBuffer header) throws IOException {
+        Map<Integer, ByteBuffer> pages = new TreeMap<>();
+        pages.put(headerPage, header);
+        for (BTreeNode node : dirty.values()) {
+            ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+            node.encode(page);
+            pages.put(node.page, page);
+        }
+        file.write(pages);
+        dirty.clear();
+        evict();
+    }
+
+    /**
+     * Drops all nodes, changed or not.
+     */
+    void clear() {
+        nodes.clear();
+        dirty.clear();
+    }
+
+    private void evict() {
+        Iterator<BTreeNode> eldest = nodes.values().iterator();
+        while (nodes.size() > capacity && eldest.hasNext()) {
+            if (!dirty.containsKey(eldest.next().page)) {
+                eldest.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package services;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A file of fixed size pages, read and written with positional I/O.
+ * <p>
+ * The first {@value #CHECKSUM_LENGTH} bytes of every page hold the CRC32 of the rest of the
+ * page, so a page that was only partly written or got damaged is detected when it is read.
+ * <p>
+ * Pages are only written in groups by {@link #write(Map)}, through a journal
+ * ({@code <file>.journal}): the page images are first written to the journal and forced,
+ * then written in place and forced, and then the journal is deleted. A crash in the first step
+ * leaves an incomplete journal, which is discarded; a crash in the second step leaves a complete
+ * one, which is replayed when the file is opened again. Either way every group of pages is
+ * written completely or not at all.
+ */
+final class PageFile implements Closeable {
+    private static final Logger LOGGER = LogManager.getLogger(PageFile.class);
+    static final int PAGE_SIZE = 4096;
+    static final int CHECKSUM_LENGTH = 4;
+    private static final byte[] JOURNAL_MAGIC = {'C', 'V', 'J', 1};
+    private static final int JOURNAL_END = -1;
+
+    private final Path path;
+    private final Path journalPath;
+    private final FileChannel channel;
+    private int pageCount;
+    private long reads;
+    private long writes;
+
+    /**
+     * Opens or creates the file and replays a journal left by a crash.
+     *
+     * @param path the page file
+     * @throws IOException if the file cannot be opened, or is not a whole number of pages
+     */
+    PageFile(Path path) throws IOException {
+        this.path = path;
+        this.journalPath = Path.of(path + ".journal");
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            recover();
+            long size = channel.size();
+            if (size % PAGE_SIZE != 0) {
+                throw new IOException("Size of page file " + path + " is not a multiple of " + PAGE_SIZE + ": " + size);
+            }
+            pageCount = Math.toIntExact(size / PAGE_SIZE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of pages, including those allocated but not written yet
+     */
+    int pageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Reserves a new page at the end of the file; it exists on disk once it is written.
+     *
+     * @return the number of the new page
+     */
+    int allocate() {
+        return pageCount++;
+    }
+
+    /**
+     * @return how many pages were read from disk since the file was opened
+     */
+    long reads() {
+        return reads;
+    }
+
+    /**
+     * @return how many pages were written in place since the file was opened, not counting the journal
+     */
+    long writes() {
+        return writes;
+    }
+
+    /**
+     * Reads a page and verifies its checksum.
+     *
+     * @param page the page number
+     * @return the page, positioned at its start
+     * @throws IOException if the page cannot be read or its checksum does not match
+     */
+    ByteBuffer read(int page) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(PAGE_SIZE);
+        long position = (long) page * PAGE_SIZE;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Page " + page + " is beyond the end of " + path);
+            }
+        }
+        reads++;
+        if (buffer.getInt(0) != checksum(buffer)) {
+            throw new IOException("Checksum mismatch in page " + page + " of " + path);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Writes a group of pages atomically, through the journal. The checksums are filled in here.
+     *
+     * @param pages the page images by page number, each {@value #PAGE_SIZE} bytes
+     * @throws IOException if writing fails; the pages are then either all written or none
+     */
+    void write(Map<Integer, ByteBuffer> pages) throws IOException {
+        if (pages.isEmpty()) {
+            return;
+        }
+        CRC32 journalChecksum = new CRC32();
+        try (FileChannel journal = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeFully(journal, ByteBuffer.wrap(JOURNAL_MAGIC), journalChecksum);
+            ByteBuffer number = ByteBuffer.allocate(Integer.BYTES);
+            for (Map.Entry<Integer, ByteBuffer> entry : pages.entrySet()) {
+                ByteBuffer page = entry.getValue();
+                page.putInt(0, checksum(page));
+                number.clear();
+                number.putInt(0, entry.getKey());
+                writeFully(journal, number, journalChecksum);
+                writeFully(journal, page.clear(), journalChecksum);
+            }
+            ByteBuffer end = ByteBuffer.allocate(Integer.BYTES + Long.BYTES);
+            end.putInt(JOURNAL_END).putLong(journalChecksum.getValue()).flip();
+            writeFully(journal, end, null);
+            journal.force(false);
+        }
+        for (Map.Entry<Integer, ByteBuffer> entry : pages.entrySet()) {
+            writeFully(channel, entry.getValue().clear(), (long) entry.getKey() * PAGE_SIZE);
+            writes++;
+        }
+        channel.force(false);
+        Files.delete(journalPath);
+    }
+
+    /**
+     * Brings the file back to a consistent state after {@link #write(Map)} failed, as reopening
+     * it would: the journal is replayed or discarded, and pages allocated since are given up.
+     *
+     * @throws IOException if the journal cannot be replayed
+     */
+    void reset() throws IOException {
+        recover();
+        pageCount = Math.toIntExact(channel.size() / PAGE_SIZE);
+    }
+
+    /**
+     * Replays a complete journal, or discards an incomplete one.
+     */
+    private void recover() throws IOException {
+        byte[] journal;
+        try {
+            journal = Files.readAllBytes(journalPath);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(journal);
+        int entrySize = Integer.BYTES + PAGE_SIZE;
+        boolean complete = false;
+        if (buffer.remaining() >= JOURNAL_MAGIC.length
+                && ByteBuffer.wrap(JOURNAL_MAGIC).equals(buffer.slice(0, JOURNAL_MAGIC.length))) {
+            buffer.position(JOURNAL_MAGIC.length);
+            while (buffer.remaining() >= Integer.BYTES) {
+                int page = buffer.getInt(buffer.position());
+                if (page == JOURNAL_END) {
+                    if (buffer.remaining() >= Integer.BYTES + Long.BYTES) {
+                        CRC32 checksum = new CRC32();
+                        checksum.update(journal, 0, buffer.position());
+                        complete = buffer.getLong(buffer.position() + Integer.BYTES) == checksum.getValue();
+                    }
+                    break;
+                }
+                if (page < 0 || buffer.remaining() < entrySize) {
+                    break;
+                }
+                buffer.position(buffer.position() + entrySize);
+            }
+        }
+        if (complete) {
+            int end = buffer.position();
+            int pages = 0;
+            for (int offset = JOURNAL_MAGIC.length; offset < end; offset += entrySize) {
+                int page = buffer.getInt(offset);
+                writeFully(channel, ByteBuffer.wrap(journal, offset + Integer.BYTES, PAGE_SIZE), (long) page * PAGE_SIZE);
+                pages++;
+            }
+            channel.force(false);
+            LOGGER.warn("Replayed {} pages from the journal of {} after an interrupted write.", pages, path);
+        } else {
+            LOGGER.warn("Discarded the incomplete journal of {}; the interrupted write had not started.", path);
+        }
+        Files.delete(journalPath);
+    }
+
+    private static int checksum(ByteBuffer page) {
+        CRC32 crc = new CRC32();
+        crc.update(page.slice(CHECKSUM_LENGTH, PAGE_SIZE - CHECKSUM_LENGTH));
+        return (int) crc.getValue();
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        if (checksum != null) {
+            checksum.update(buffer.duplicate());
+        }
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    private static void writeFully(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += target.write(buffer, position);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,216 @@
+package services;
+
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Loads a coffee text file by memory-mapping it and parsing chunks of it in parallel.
+ * <p>
+ * The file is cut into chunks whose boundaries are moved forward to the next line
+ * terminator, so every line belongs to exactly one chunk. Each chunk is mapped and
+ * parsed by its own fork-join task, and the results are concatenated in chunk order,
+ * which keeps the file order of the items.
+ */
+final class ParallelCoffeeLoader {
+    // every chunk is mapped on its own, and a single mapping is limited to 2 GB
+    private static final long MAX_CHUNK_SIZE = 256L << 20;
+    private static final long MIN_CHUNK_SIZE = 1L << 20;
+    private static final int MAX_SAMPLES = 5;
+
+    private final Path file;
+    private final long minChunkSize;
+
+    ParallelCoffeeLoader(Path file) {
+        this(file, MIN_CHUNK_SIZE);
+    }
+
+    /**
+     * @param file         the file to load
+     * @param minChunkSize the smallest chunk worth its own task (smaller in tests)
+     */
+    ParallelCoffeeLoader(Path file, long minChunkSize) {
+        this.file = file;
+        this.minChunkSize = minChunkSize;
+    }
+
+    /**
+     * Loads the whole file.
+     *
+     * @param pool the pool that parses the chunks
+     * @return the items in file order and the failures per chunk
+     * @throws IOException if the file cannot be read
+     */
+    ParallelLoadResult load(ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel, pool.getParallelism());
+            List<ChunkTask> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(new ChunkTask(channel, i, bounds[i], bounds[i + 1]));
+            }
+            pool.invoke(new RecursiveTask<Void>() {
+                @Override
+                protected Void compute() {
+                    ForkJoinTask.invokeAll(tasks);
+                    return null;
+                }
+            });
+
+            int total = 0;
+            for (ChunkTask task : tasks) {
+                if (task.error != null) {
+                    throw task.error;
+                }
+                total += task.coffee.size();
+            }
+            List<Coffee> coffee = new ArrayList<>(total);
+            List<ParallelLoadResult.ChunkFailure> failures = new ArrayList<>();
+            for (ChunkTask task : tasks) {
+                coffee.addAll(task.coffee);
+                if (task.failedLines > 0) {
+                    failures.add(new ParallelLoadResult.ChunkFailure(task.chunk, task.start, task.end, task.failedLines, task.samples));
+                }
+            }
+            return new ParallelLoadResult(coffee, failures);
+        }
+    }
+
+    /**
+     * Splits the file into chunks that end right after a line terminator.
+     *
+     * @return the chunk boundaries: chunk {@code i} is {@code [bounds[i], bounds[i + 1])}
+     */
+    private long[] chunkBounds(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        // a few chunks per thread, so that uneven chunks still keep every thread busy
+        long target = Math.max(minChunkSize, Math.min(MAX_CHUNK_SIZE, size / (parallelism * 4L) + 1));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long start = 0;
+        while (start < size) {
+            long end = start + target >= size ? size : lineEndAfter(channel, start + target, size);
+            bounds.add(end);
+            start = end;
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the offset right after the first line terminator at or after {@code offset}, or {@code size}
+     */
+    private static long lineEndAfter(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(8192);
+        long position = offset;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = window.get(i);
+                if (b == '\n') {
+                    return position + i + 1;
+                }
+                if (b == '\r') {
+                    // a "\r\n" pair must not be split between two chunks
+                    long next = position + i + 1;
+                    if (next < size) {
+                        ByteBuffer one = ByteBuffer.allocate(1);
+                        channel.read(one, next);
+                        if (one.get(0) == '\n') next++;
+                    }
+                    return next;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses one chunk of the file.
+     */
+    private static final class ChunkTask extends RecursiveTask<Void> {
+        private final FileChannel channel;
+        private final int chunk;
+        private final long start;
+        private final long end;
+        private final List<Coffee> coffee = new ArrayList<>();
+        private final List<String> samples = new ArrayList<>();
+        private int failedLines;
+        private IOException error;
+
+        ChunkTask(FileChannel channel, int chunk, long start, long end) {
+            this.channel = channel;
+            this.chunk = chunk;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Void compute() {
+            try {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                CoffeeRecordParser parser = new CoffeeRecordParser();
+                try (RecordLineReader reader = new RecordLineReader(new ByteBufferInputStream(mapped))) {
+                    while (reader.next()) {
+                        try {
+                            coffee.add(parser.parse(reader.buffer(), reader.start(), reader.end()));
+                        } catch (RuntimeException e) {
+                            failedLines++;
+                            if (samples.size() < MAX_SAMPLES) {
+                                samples.add("'" + reader.lineAsString() + "': " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Reads a byte buffer through the {@link InputStream} interface, with bulk copies.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package services;
+
+import coffee.Coffee;
+
+import java.util.List;
+
+/**
+ * Outcome of {@link CoffeeStorageService#getFromFileParallel(java.util.concurrent.ForkJoinPool)}:
+ * the parsed items in file order plus the parse failures of every chunk that had any.
+ */
+public class ParallelLoadResult {
+    private final List<Coffee> coffee;
+    private final List<ChunkFailure> failures;
+
+    /**
+     * @param coffee   the parsed coffee items, in file order
+     * @param failures one entry per chunk that had lines which could not be parsed
+     */
+    public ParallelLoadResult(List<Coffee> coffee, List<ChunkFailure> failures) {
+        this.coffee = coffee;
+        this.failures = failures;
+    }
+
+    /**
+     * @return the parsed coffee items, in file order
+     */
+    public List<Coffee> getCoffee() {
+        return coffee;
+    }
+
+    /**
+     * @return one entry per chunk that had lines which could not be parsed
+     */
+    public List<ChunkFailure> getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return the total number of lines that could not be parsed
+     */
+    public int getFailedLineCount() {
+        int count = 0;
+        for (ChunkFailure failure : failures) {
+            count += failure.getFailedLines();
+        }
+        return count;
+    }
+
+    /**
+     * Parse failures of one chunk of the file.
+     */
+    public static class ChunkFailure {
+        private final int chunk;
+        private final long startOffset;
+        private final long endOffset;
+        private final int failedLines;
+        private final List<String> samples;
+
+        /**
+         * @param chunk       the chunk number, counted from the start of the file
+         * @param startOffset byte offset of the chunk in the file
+         * @param endOffset   byte offset after the end of the chunk
+         * @param failedLines how many lines of the chunk were skipped
+         * @param samples     the first few rejected lines with their error messages
+         */
+        public ChunkFailure(int chunk, long startOffset, long endOffset, int failedLines, List<String> samples) {
+            this.chunk = chunk;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+            this.failedLines = failedLines;
+            this.samples = samples;
+        }
+
+        public int getChunk() {
+            return chunk;
+        }
+
+        public long getStartOffset() {
+            return startOffset;
+        }
+
+        public long getEndOffset() {
+            return endOffset;
+        }
+
+        public int getFailedLines() {
+            return failedLines;
+        }
+
+        public List<String> getSamples() {
+            return samples;
+        }
+
+        @Override
+        public String toString() {
+            return "Chunk " + chunk + " [" + startOffset + ", " + endOffset + "): "
+                    + failedLines + " bad line(s), e.g. " + samples;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package services;
+
+/**
+ * How a {@link PartitionedCoffeeStorageService} assigns items to its partition files.
+ */
+public enum PartitionScheme {
+    /**
+     * One partition per coffee type: bean, ground and instant.
+     */
+    BY_TYPE,
+    /**
+     * A fixed number of partitions, chosen by the hash of the item ID.
+     */
+    BY_ID_HASH
+}
@@ -0,0 +1,480 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Spreads the coffee cargo over several partition files, each one a {@link CoffeeStorageService}
+ * with its own mutation log.
+ * <p>
+ * Items go to a partition by their type or by the hash of their ID. Loads and saves work on
+ * all affected partitions at once, one virtual thread per partition; appends and removals only
+ * touch the partitions that hold the items. A manifest ({@code <filename>.manifest}) lists the
+ * partition files and how many records each holds, so that loads can presize their collections.
+ * <p>
+ * Items are returned partition by partition, not in the order they were saved.
+ */
+public class PartitionedCoffeeStorageService implements CoffeeStorage {
+    private static final Logger LOGGER = LogManager.getLogger(PartitionedCoffeeStorageService.class);
+    private static final String[] TYPE_PARTITIONS = {"bean", "ground", "instant"};
+    private static final String MANIFEST_HEADER = "PARTITIONS";
+
+    private final String filename;
+    private final PartitionScheme scheme;
+    private final List<CoffeeStorageService> partitions = new ArrayList<>();
+    private final List<String> partitionFiles = new ArrayList<>();
+    private final Path manifestPath;
+    // record count per partition, guarded by itself; an upper bound between loads, since appends may replace items
+    private final long[] counts;
+    // BY_TYPE only: the partition of every stored item, so that a removal touches just that one
+    private final Map<String, Integer> locations = new ConcurrentHashMap<>();
+    // BY_TYPE only: set once all partitions were read or replaced, so that an unknown ID is a new item
+    private volatile boolean locationsComplete;
+
+    /**
+     * Creates a storage with one partition per coffee type.
+     *
+     * @param filename the base name; partitions are {@code <filename>.bean}, {@code .ground} and {@code .instant}
+     * @param format   the format new data is saved in
+     * @throws IllegalArgumentException if the manifest describes a different partitioning
+     */
+    public PartitionedCoffeeStorageService(String filename, StorageFormat format) {
+        this(filename, PartitionScheme.BY_TYPE, TYPE_PARTITIONS.length, format);
+    }
+
+    /**
+     * Creates a storage that partitions items by the hash of their ID.
+     *
+     * @param filename   the base name; partitions are {@code <filename>.p0}, {@code .p1}, ...
+     * @param partitions the number of partitions
+     * @param format     the format new data is saved in
+     * @throws IllegalArgumentException if {@code partitions} is not positive, or if the manifest
+     *                                  describes a different partitioning
+     */
+    public PartitionedCoffeeStorageService(String filename, int partitions, StorageFormat format) {
+        this(filename, PartitionScheme.BY_ID_HASH, partitions, format);
+    }
+
+    private PartitionedCoffeeStorageService(String filename, PartitionScheme scheme, int partitionCount, StorageFormat format) {
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("Number of partitions must be positive: " + partitionCount);
+        }
+        this.filename = filename;
+        this.scheme = scheme;
+        this.manifestPath = Path.of(filename + ".manifest");
+        this.counts = new long[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            String file = filename + "." + (scheme == PartitionScheme.BY_TYPE ? TYPE_PARTITIONS[i] : "p" + i);
+            partitionFiles.add(file);
+            partitions.add(new CoffeeStorageService(file, format));
+        }
+        readManifest();
+        LOGGER.info("Partitioned storage initialized. File: {}, scheme: {}, partitions: {}", filename, scheme, partitionCount);
+    }
+
+    /**
+     * @return how items are assigned to partitions
+     */
+    public PartitionScheme getScheme() {
+        return scheme;
+    }
+
+    /**
+     * @return the number of partition files
+     */
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    /**
+     * @return the record count of every partition, as listed in the manifest
+     */
+    public long[] getRecordCounts() {
+        synchronized (counts) {
+            return counts.clone();
+        }
+    }
+
+    /**
+     * Saves coffee items, writing all affected partitions in parallel.
+     * Appending only touches the partitions the items belong to; replacing rewrites every partition.
+     *
+     * @param coffeeList the items to save
+     * @param toNotReplaceFully {@code true} to append, {@code false} to replace all stored items
+     * @throws IOException if writing any partition fails
+     * @throws IllegalArgumentException for coffee types that have no partition
+     */
+    @Override
+    public void saveToFile(List<Coffee> coffeeList, boolean toNotReplaceFully) throws IOException {
+        List<List<Coffee>> byPartition = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            byPartition.add(new ArrayList<>());
+        }
+        for (Coffee coffee : coffeeList) {
+            byPartition.get(partitionOf(coffee)).add(coffee);
+        }
+        if (!toNotReplaceFully) {
+            locations.clear();
+        } else {
+            learnLocations();
+        }
+        // an item whose type changed must leave its old partition
+        List<List<String>> moved = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            moved.add(new ArrayList<>());
+        }
+        if (scheme == PartitionScheme.BY_TYPE) {
+            for (int i = 0; i < partitions.size(); i++) {
+                for (Coffee coffee : byPartition.get(i)) {
+                    Integer previous = locations.put(coffee.getId(), i);
+                    if (previous != null && previous != i) {
+                        moved.get(previous).add(coffee.getId());
+                    }
+                }
+            }
+        }
+
+        LOGGER.info("Saving {} coffee items to {} partitions of {}...", coffeeList.size(), partitions.size(), filename);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            CoffeeStorageService partition = partitions.get(i);
+            List<Coffee> items = byPartition.get(i);
+            List<String> removals = moved.get(i);
+            if (!toNotReplaceFully || !items.isEmpty() || !removals.isEmpty()) {
+                tasks.add(() -> {
+                    partition.appendRemovals(removals);
+                    if (!toNotReplaceFully || !items.isEmpty()) {
+                        partition.saveToFile(items, toNotReplaceFully);
+                    }
+                    return null;
+                });
+            }
+        }
+        runAll(tasks);
+        if (!toNotReplaceFully) {
+            locationsComplete = true;
+        }
+
+        synchronized (counts) {
+            for (int i = 0; i < counts.length; i++) {
+                long base = toNotReplaceFully ? Math.max(0, counts[i] - moved.get(i).size()) : 0;
+                counts[i] = base + byPartition.get(i).size();
+            }
+            writeManifest();
+        }
+        LOGGER.info("Successfully saved to {} partitions of {}.", tasks.size(), filename);
+    }
+
+    /**
+     * Records the removal of an item in the partition that holds it. With partitions by type,
+     * the first removal or append of an instance that has not loaded the storage reads the IDs
+     * of all partitions to find out where the items are.
+     *
+     * @param id the ID of the removed item
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void appendRemoval(String id) throws IOException {
+        appendRemovals(List.of(id));
+    }
+
+    /**
+     * Records the removals of several items, writing each affected partition once and all of them
+     * in parallel. Items that no partition holds are skipped.
+     *
+     * @param ids the IDs of the removed items
+     * @throws IOException if writing any partition fails
+     */
+    @Override
+    public void appendRemovals(Collection<String> ids) throws IOException {
+        learnLocations();
+        List<List<String>> byPartition = new ArrayList<>(partitions.size());
+        for (int i = 0; i < partitions.size(); i++) {
+            byPartition.add(new ArrayList<>());
+        }
+        int[] known = new int[partitions.size()];
+        boolean anyKnown = false;
+        for (String id : ids) {
+            int partition = partitionOfId(id);
+            if (partition >= 0) {
+                byPartition.get(partition).add(id);
+                known[partition]++;
+                anyKnown = true;
+            }
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < partitions.size(); i++) {
+            CoffeeStorageService partition = partitions.get(i);
+            List<String> removals = byPartition.get(i);
+            if (!removals.isEmpty()) {
+                tasks.add(() -> {
+                    partition.appendRemovals(removals);
+                    return null;
+                });
+            }
+        }
+        runAll(tasks);
+
+        if (!anyKnown) {
+            return;
+        }
+        for (String id : ids) {
+            locations.remove(id);
+        }
+        synchronized (counts) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = Math.max(0, counts[i] - known[i]);
+            }
+            writeManifest();
+        }
+    }
+
+    /**
+     * Reads all partitions in parallel and concatenates them in partition order.
+     * The manifest is updated with the exact record counts.
+     *
+     * @return the stored items, one per ID
+     * @throws IOException if reading any partition fails
+     */
+    @Override
+    public List<Coffee> getFromFile() throws IOException {
+        long[] expected = getRecordCounts();
+        List<Callable<List<Coffee>>> tasks = new ArrayList<>(partitions.size());
+        long total = 0;
+        for (int i = 0; i < partitions.size(); i++) {
+            CoffeeStorageService partition = partitions.get(i);
+            int expectedSize = (int) Math.min(expected[i], Integer.MAX_VALUE - 8);
+            tasks.add(() -> partition.getFromFile(expectedSize));
+            total += expected[i];
+        }
+        List<List<Coffee>> loaded = runAll(tasks);
+
+        List<Coffee> coffee = new ArrayList<>((int) Math.min(total, Integer.MAX_VALUE - 8));
+        synchronized (counts) {
+            for (int i = 0; i < loaded.size(); i++) {
+                List<Coffee> items = loaded.get(i);
+                coffee.addAll(items);
+                counts[i] = items.size();
+                remember(items, i);
+            }
+            locationsComplete = true;
+            writeManifest();
+        }
+        LOGGER.info("Successfully loaded {} items from {} partitions of {}.", coffee.size(), partitions.size(), filename);
+        return coffee;
+    }
+
+    /**
+     * Streams the records of all partitions one after another. All partition files are opened
+     * up front and closed together with the stream.
+     *
+     * @return the stored records
+     * @throws IOException if a partition cannot be opened
+     */
+    @Override
+    public Stream<Coffee> streamFromFile() throws IOException {
+        List<Stream<Coffee>> streams = new ArrayList<>(partitions.size());
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                int partition = i;
+                Stream<Coffee> stream = partitions.get(i).streamFromFile();
+                streams.add(scheme == PartitionScheme.BY_TYPE
+                        ? stream.peek(coffee -> locations.put(coffee.getId(), partition))
+                        : stream);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeAll(streams);
+            throw e;
+        }
+        return streams.stream().flatMap(stream -> stream).onClose(() -> closeAll(streams));
+    }
+
+    private static void closeAll(List<Stream<Coffee>> streams) {
+        UncheckedIOException failure = null;
+        for (Stream<Coffee> stream : streams) {
+            try {
+                stream.close();
+            } catch (UncheckedIOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private int partitionOf(Coffee coffee) {
+        if (scheme == PartitionScheme.BY_ID_HASH) {
+            return Math.floorMod(Objects.hashCode(coffee.getId()), partitions.size());
+        }
+        if (coffee instanceof BeanCoffee) return 0;
+        if (coffee instanceof GroundCoffee) return 1;
+        if (coffee instanceof InstantCoffee) return 2;
+        throw new IllegalArgumentException("No partition for coffee type: " + coffee.getClass().getName());
+    }
+
+    /**
+     * @return the partition that holds the item, or {@code -1} if it is not known
+     */
+    private int partitionOfId(String id) {
+        if (scheme == PartitionScheme.BY_ID_HASH) {
+            return Math.floorMod(Objects.hashCode(id), partitions.size());
+        }
+        Integer partition = locations.get(id);
+        return partition == null ? -1 : partition;
+    }
+
+    /**
+     * Reads the IDs of all partitions in parallel, unless the locations are already known. With
+     * partitions by ID hash there is nothing to learn.
+     *
+     * @throws IOException if reading any partition fails
+     */
+    private void learnLocations() throws IOException {
+        if (scheme != PartitionScheme.BY_TYPE || locationsComplete) {
+            return;
+        }
+        synchronized (locations) {
+            if (locationsComplete) {
+                return;
+            }
+            List<Callable<Void>> tasks = new ArrayList<>(partitions.size());
+            for (int i = 0; i < partitions.size(); i++) {
+                if (!Files.isRegularFile(Path.of(partitionFiles.get(i)))) {
+                    continue;
+                }
+                int partition = i;
+                CoffeeStorageService storage = partitions.get(i);
+                tasks.add(() -> {
+                    try (Stream<Coffee> stream = storage.streamFromFile()) {
+                        // an item saved meanwhile has its newer location already
+                        stream.forEach(coffee -> locations.putIfAbsent(coffee.getId(), partition));
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                    return null;
+                });
+            }
+            runAll(tasks);
+            locationsComplete = true;
+            LOGGER.info("Learned the partitions of {} items of {}.", locations.size(), filename);
+        }
+    }
+
+    private void remember(List<Coffee> items, int partition) {
+        if (scheme == PartitionScheme.BY_TYPE) {
+            for (Coffee coffee : items) {
+                locations.put(coffee.getId(), partition);
+            }
+        }
+    }
+
+    /**
+     * Runs the tasks on virtual threads and waits for all of them.
+     *
+     * @return the results in task order
+     * @throws IOException the first failure, after every task has finished
+     */
+    private static <T> List<T> runAll(List<Callable<T>> tasks) throws IOException {
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Callable<T> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a partition");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException io) {
+                    throw new IOException(io.getMessage(), io);
+                }
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                throw (Error) cause;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reads the record counts from the manifest, if there is one.
+     *
+     * @throws IllegalArgumentException if the manifest was written for a different partitioning
+     */
+    private void readManifest() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(manifestPath, StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            return;
+        } catch (IOException e) {
+            LOGGER.warn("Cannot read partition manifest {}, loads will not be presized.", manifestPath, e);
+            return;
+        }
+        String expectedHeader = MANIFEST_HEADER + ";" + scheme + ";" + partitions.size();
+        if (lines.isEmpty() || !lines.get(0).equals(expectedHeader)) {
+            throw new IllegalArgumentException("Partition manifest " + manifestPath + " does not match "
+                    + expectedHeader + ": " + (lines.isEmpty() ? "empty" : lines.get(0)));
+        }
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                String[] entry = lines.get(i + 1).split(";");
+                if (!entry[0].equals(Path.of(partitionFiles.get(i)).getFileName().toString())) {
+                    throw new IllegalArgumentException("Unexpected partition file " + entry[0]);
+                }
+                counts[i] = Long.parseLong(entry[1]);
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            LOGGER.warn("Ignoring record counts of malformed partition manifest {}.", manifestPath, e);
+            Arrays.fill(counts, 0);
+        }
+    }
+
+    /**
+     * Rewrites the manifest through a temporary file and a rename. Called with {@link #counts} locked.
+     * It only holds hints, so it is not forced to disk.
+     */
+    private void writeManifest() throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append(MANIFEST_HEADER).append(';').append(scheme).append(';').append(partitions.size()).append('\n');
+        for (int i = 0; i < partitions.size(); i++) {
+            manifest.append(Path.of(partitionFiles.get(i)).getFileName()).append(';').append(counts[i]).append('\n');
+        }
+        Path temp = Path.of(manifestPath + ".tmp");
+        Files.writeString(temp, manifest, StandardCharsets.UTF_8);
+        Files.move(temp, manifestPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,126 @@
+package services;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a byte stream into lines without creating a {@code String} per line.
+ * <p>
+ * After {@link #next()} returns {@code true}, the current line is
+ * {@code buffer()[start(), end())}; it stays valid until the next call.
+ * Like {@link java.io.BufferedReader#readLine()}, a line ends at {@code \n},
+ * {@code \r} or {@code \r\n}, and the terminator is not part of the line.
+ */
+final class RecordLineReader implements Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private byte[] buffer;
+    private int limit;
+    private int position;
+    private int start;
+    private int end;
+    private boolean eof;
+    private boolean terminated;
+    // a '\r' ended the previous line, so a directly following '\n' belongs to it
+    private boolean skipLineFeed;
+
+    RecordLineReader(InputStream in) {
+        this(in, DEFAULT_BUFFER_SIZE);
+    }
+
+    RecordLineReader(InputStream in, int bufferSize) {
+        this.in = in;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return {@code true} if there is a line, {@code false} at the end of the stream
+     * @throws IOException if reading fails
+     */
+    boolean next() throws IOException {
+        while (true) {
+            if (skipLineFeed && position < limit) {
+                if (buffer[position] == '\n') position++;
+                skipLineFeed = false;
+            }
+            for (int i = position; i < limit; i++) {
+                byte b = buffer[i];
+                if (b == '\n' || b == '\r') {
+                    start = position;
+                    end = i;
+                    position = i + 1;
+                    skipLineFeed = b == '\r';
+                    terminated = true;
+                    return true;
+                }
+            }
+            if (eof) {
+                if (position < limit) {
+                    // last line without terminator
+                    start = position;
+                    end = limit;
+                    position = limit;
+                    terminated = false;
+                    return true;
+                }
+                return false;
+            }
+            fill();
+        }
+    }
+
+    /**
+     * @return {@code false} if the current line is the last one and has no terminator
+     */
+    boolean terminated() {
+        return terminated;
+    }
+
+    byte[] buffer() {
+        return buffer;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int end() {
+        return end;
+    }
+
+    /**
+     * @return the current line as a string, for error messages
+     */
+    String lineAsString() {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    private void fill() throws IOException {
+        // keep the unfinished line and move it to the front
+        int remaining = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        } else if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = remaining;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
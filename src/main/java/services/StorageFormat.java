@@ -0,0 +1,16 @@
+package services;
+
+/**
+ * File formats the {@link CoffeeStorageService} can write.
+ * Reading does not need it: the format is detected from the first bytes of the file.
+ */
+public enum StorageFormat {
+    /**
+     * One semicolon separated line per item, see {@link coffee.Coffee#toFileString()}.
+     */
+    TEXT,
+    /**
+     * The compact {@link BinaryCoffeeCodec} format.
+     */
+    BINARY
+}
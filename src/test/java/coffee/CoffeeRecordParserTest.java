@@ -0,0 +1,97 @@
+package coffee;
+
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoffeeRecordParserTest {
+
+    private final CoffeeRecordParser parser = new CoffeeRecordParser();
+
+    private double parsePrice(String price) {
+        return parser.parse("GROUND;id;Name;100.0;" + price + ";5.0;5.0;5.0;Bag;100.0;FINE").getPrice();
+    }
+
+    @Test
+    void parse_ShouldReadRecordFromByteWindow() {
+        byte[] bytes = "xxBEAN;id-1;Arabica;250.0;15.99;8.0;9.0;7.5;Paper;250.0;Brazil;MEDIUMyy".getBytes(StandardCharsets.US_ASCII);
+        Coffee coffee = parser.parse(bytes, 2, bytes.length - 2);
+
+        BeanCoffee bean = assertInstanceOf(BeanCoffee.class, coffee);
+        assertEquals("id-1", bean.getId());
+        assertEquals("Arabica", bean.getName());
+        assertEquals(250.0, bean.getWeight());
+        assertEquals(15.99, bean.getPrice());
+        assertEquals(7.5, bean.getQuality().getFreshnessScore());
+        assertEquals("Paper", bean.getPackaging().getMaterial());
+        assertEquals("Brazil", bean.getOrigin());
+        assertEquals(RoastLevel.MEDIUM, bean.getRoastLevel());
+    }
+
+    @Test
+    void parse_ShouldIgnoreCaseOfTypeAndEnums() {
+        Coffee coffee = parser.parse("Instant;id;Nescafe;100.0;5.99;6.0;7.0;8.0;Jar;100.0;high");
+        assertEquals(ConcentrationLevel.HIGH, ((InstantCoffee) coffee).getConcentrationLevel());
+    }
+
+    @Test
+    void parse_ShouldKeepNonAsciiText() {
+        Coffee coffee = parser.parse("BEAN;id;Кава;250.0;15.99;8.0;9.0;7.0;Папір;250.0;Україна;DARK");
+        assertEquals("Кава", coffee.getName());
+        assertEquals("Папір", coffee.getPackaging().getMaterial());
+        assertEquals("Україна", ((BeanCoffee) coffee).getOrigin());
+    }
+
+    @Test
+    void parse_ShouldIgnoreExtraTrailingFields() {
+        Coffee coffee = parser.parse("GROUND;id;Name;100.0;1.0;5.0;5.0;5.0;Bag;100.0;FINE;extra;more");
+        assertNotNull(coffee);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "BEAN;id;Name",
+            "GROUND;id;Name;100.0;1.0;5.0;5.0;5.0;Bag;100.0",
+            "GROUND;id;Name;100.0;1.0;5.0;5.0;5.0;Bag;100.0;",
+            "GROUND;id;Name;abc;1.0;5.0;5.0;5.0;Bag;100.0;FINE",
+            "GROUND;id;Name;100.0;1.0;5.0;5.0;5.0;Bag;100.0;SUPERFINE",
+            "BEAN;id;Name;100.0;1.0;5.0;5.0;5.0;Bag;100.0;Brazil",
+            "TEA;id;Name;100.0;1.0;5.0;5.0;5.0;Bag;100.0;FINE",
+            "GROUND;id;Name;100.0;1.0;11.0;5.0;5.0;Bag;100.0;FINE"
+    })
+    void parse_ShouldRejectWhatFromFileStringRejects(String line) {
+        assertThrows(IllegalArgumentException.class, () -> parser.parse(line));
+        assertNull(Coffee.fromFileString(line));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "0", "0.0", "-0.0", "15.99", "+2.5", "1.", ".5", "007.250", "1.0E7", "1.5e-3", "2E+2",
+            "123456789012345678", "1234567890.1234567890123", "0.1000000000000000055511151231257827",
+            "9007199254740993", "1e23", "4.9E-324", "1.7976931348623157E308", " 3.5 ", "NaN", "-Infinity", "1.0f", "0x1p3"
+    })
+    void parse_ShouldReadDoublesLikeParseDouble(String value) {
+        assertEquals(Double.parseDouble(value), parsePrice(value));
+    }
+
+    @Test
+    void parse_ShouldReadRandomDoublesLikeParseDouble() {
+        Random random = new Random(1);
+        for (int i = 0; i < 20000; i++) {
+            String value = switch (i % 3) {
+                case 0 -> String.valueOf(random.nextDouble() * Math.pow(10, random.nextInt(20) - 10));
+                case 1 -> String.valueOf(random.nextInt(100000) / 100.0);
+                default -> random.nextInt(1000) + "." + random.nextInt(1000);
+            };
+            assertEquals(Double.parseDouble(value), parsePrice(value), value);
+        }
+    }
+}
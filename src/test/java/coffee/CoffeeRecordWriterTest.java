@@ -0,0 +1,102 @@
+package coffee;
+
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoffeeRecordWriterTest {
+
+    private final CoffeeRecordWriter writer = new CoffeeRecordWriter();
+
+    private String encoded(Coffee coffee) {
+        int length = writer.encode(coffee);
+        return new String(writer.buffer(), 0, length, StandardCharsets.UTF_8);
+    }
+
+    private String formatted(double value) {
+        Coffee coffee = new GroundCoffee("x", value, 1, new QualityParams(1, 1, 1),
+                new Packaging("Bag", 1), GrindSize.FINE, "id");
+        String record = encoded(coffee);
+        return record.split(";")[3];
+    }
+
+    @Test
+    void encode_ShouldWriteTagCommonAndTypeFieldsForEverySubtype() {
+        assertEquals("BEAN;b1;Arabica;250.0;15.99;8.0;9.0;7.5;Paper;250.0;Brazil;MEDIUM",
+                encoded(new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                        new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil", "b1")));
+        assertEquals("GROUND;g1;Robusta;500.0;10.5;6.0;7.0;8.0;Plastic;500.0;COARSE",
+                encoded(new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                        new Packaging("Plastic", 500.0), GrindSize.COARSE, "g1")));
+        assertEquals("INSTANT;i1;Nescafe;100.0;5.99;6.0;7.0;8.0;Jar;100.0;HIGH",
+                encoded(new InstantCoffee("Nescafe", 100.0, 5.99, new QualityParams(6.0, 7.0, 8.0),
+                        new Packaging("Jar", 100.0), ConcentrationLevel.HIGH, "i1")));
+    }
+
+    @Test
+    void encode_ShouldWriteNonAsciiAsUtf8AndNullAsText() {
+        Coffee nonAscii = new BeanCoffee("Café ☕ 😀", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                new Packaging("Papier", 250.0), RoastLevel.DARK, "Côte d'Ivoire", "id");
+        int length = writer.encode(nonAscii);
+        assertArrayEquals("BEAN;id;Café ☕ 😀;250.0;15.99;8.0;9.0;7.5;Papier;250.0;Côte d'Ivoire;DARK"
+                .getBytes(StandardCharsets.UTF_8), Arrays.copyOf(writer.buffer(), length));
+
+        assertEquals("BEAN;id;null;250.0;15.99;8.0;9.0;7.5;null;250.0;null;null",
+                encoded(new BeanCoffee(null, 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                        new Packaging(null, 250.0), null, null, "id")));
+    }
+
+    @Test
+    void encode_ShouldMatchToFileString() {
+        Coffee coffee = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                new Packaging("Plastic", 500.0), GrindSize.COARSE);
+
+        assertEquals(coffee.toFileString(), encoded(coffee));
+    }
+
+    @Test
+    void encode_ShouldReuseBufferAcrossRecords() {
+        Coffee longName = new GroundCoffee("R".repeat(1000), 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                new Packaging("Plastic", 500.0), GrindSize.COARSE, "id");
+        Coffee shortName = new GroundCoffee("R", 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                new Packaging("Plastic", 500.0), GrindSize.COARSE, "id");
+
+        assertEquals("GROUND;id;" + "R".repeat(1000) + ";500.0;10.5;6.0;7.0;8.0;Plastic;500.0;COARSE", encoded(longName));
+        assertEquals("GROUND;id;R;500.0;10.5;6.0;7.0;8.0;Plastic;500.0;COARSE", encoded(shortName));
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = {0.0, -0.0, 1.0, -1.0, 0.1, 0.2, 0.30000000000000004, 15.99, 250.0, 9999999.0, 1e7,
+            1e-3, 0.00099, 1.0E-5, 123456.789, 1e22, 1e300, Double.MIN_VALUE, Double.MAX_VALUE, Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 2.0 / 3, 100.0 / 3, 5e-324, 9007199254740993.0})
+    void encode_ShouldFormatNumbersLikeDoubleToString(double value) {
+        assertEquals(Double.toString(value), formatted(value));
+    }
+
+    @Test
+    void encode_ShouldFormatNumbersLikeDoubleToStringForRandomValues() {
+        Random random = new Random(11);
+        for (int i = 0; i < 200_000; i++) {
+            double value = switch (i % 4) {
+                // prices and scores with a few decimals
+                case 0 -> random.nextInt(10_000_000) / 100.0;
+                case 1 -> random.nextInt(100_000) / Math.pow(10, random.nextInt(8));
+                // arbitrary bits
+                case 2 -> Double.longBitsToDouble(random.nextLong());
+                default -> random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            };
+            assertEquals(Double.toString(value), formatted(value), () -> "bits " + Double.doubleToRawLongBits(value));
+        }
+    }
+}
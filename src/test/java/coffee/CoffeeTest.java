@@ -100,4 +100,20 @@ class CoffeeTest {
         assertEquals(original.getId(), restored.getId());
         assertEquals(ConcentrationLevel.LOW, ((InstantCoffee) restored).getConcentrationLevel());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEquals_sameIdIsSameItem() {
+        Coffee coffee = new GroundCoffee("Robusta", 150.0, 8.99, new QualityParams(7.0, 8.5, 6.0),
+                new Packaging("Plastic", 150.0), GrindSize.COARSE, "test-id");
+        Coffee newer = new GroundCoffee("Robusta", 150.0, 7.49, new QualityParams(7.0, 8.5, 6.0),
+                new Packaging("Plastic", 150.0), GrindSize.FINE, "test-id");
+        Coffee other = new GroundCoffee("Robusta", 150.0, 8.99, new QualityParams(7.0, 8.5, 6.0),
+                new Packaging("Plastic", 150.0), GrindSize.COARSE, "other-id");
+
+        assertEquals(coffee, newer);
+        assertEquals(coffee.hashCode(), newer.hashCode());
+        assertNotEquals(coffee, other);
+        assertNotEquals(coffee, null);
+        assertEquals(1, java.util.Set.of(coffee).size());
+    }
+}
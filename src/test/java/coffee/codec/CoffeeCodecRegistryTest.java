@@ -0,0 +1,187 @@
+package coffee.codec;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.CoffeeRecordParser;
+import coffee.CoffeeRecordWriter;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoffeeCodecRegistryTest {
+
+    /**
+     * A coffee type the main code knows nothing about.
+     */
+    static class CapsuleCoffee extends Coffee {
+        private final int capsules;
+
+        CapsuleCoffee(String name, double weight, double price, QualityParams quality, Packaging packaging, int capsules, String id) {
+            super(name, weight, price, quality, packaging, id);
+            this.capsules = capsules;
+        }
+
+        int getCapsules() {
+            return capsules;
+        }
+
+        @Override
+        public String getInfo() {
+            return "CapsuleCoffee {" + getName() + ", " + capsules + " capsules}";
+        }
+    }
+
+    static class CapsuleCoffeeCodec implements CoffeeCodec<CapsuleCoffee> {
+        @Override
+        public String tag() {
+            return "CAPSULE";
+        }
+
+        @Override
+        public Class<CapsuleCoffee> type() {
+            return CapsuleCoffee.class;
+        }
+
+        @Override
+        public void encode(CapsuleCoffee coffee, RecordWriter out) {
+            out.writeDouble(coffee.getCapsules());
+        }
+
+        @Override
+        public CapsuleCoffee decode(CoffeeFields fields, RecordReader in) {
+            return new CapsuleCoffee(fields.getName(), fields.getWeight(), fields.getPrice(), fields.getQuality(),
+                    fields.getPackaging(), (int) in.nextDouble(), fields.getId());
+        }
+    }
+
+    private static CoffeeCodecRegistry registryWithCapsules() {
+        CoffeeCodecRegistry registry = new CoffeeCodecRegistry();
+        registry.register(new GroundCoffeeCodec());
+        registry.register(new CapsuleCoffeeCodec());
+        return registry;
+    }
+
+    private static CoffeeCodec<?> lookup(CoffeeCodecRegistry registry, String tag) {
+        byte[] bytes = ("x;" + tag + ";y").getBytes(StandardCharsets.US_ASCII);
+        return registry.codecFor(bytes, 2, 2 + tag.length());
+    }
+
+    @Test
+    void getDefault_ShouldFindBuiltInCodecsThroughServiceLoader() {
+        CoffeeCodecRegistry registry = CoffeeCodecRegistry.getDefault();
+
+        assertInstanceOf(BeanCoffeeCodec.class, registry.codecFor(BeanCoffee.class));
+        assertInstanceOf(GroundCoffeeCodec.class, registry.codecFor(GroundCoffee.class));
+        assertInstanceOf(InstantCoffeeCodec.class, registry.codecFor(InstantCoffee.class));
+        assertInstanceOf(BeanCoffeeCodec.class, registry.codecFor("BEAN"));
+        assertNull(registry.codecFor(Coffee.class));
+    }
+
+    @Test
+    void codecFor_ShouldMatchTagIgnoringCaseAndExactLength() {
+        CoffeeCodecRegistry registry = registryWithCapsules();
+
+        assertInstanceOf(CapsuleCoffeeCodec.class, lookup(registry, "capsule"));
+        assertInstanceOf(GroundCoffeeCodec.class, lookup(registry, "GrOuNd"));
+        assertNull(lookup(registry, "CAPSULES"));
+        assertNull(lookup(registry, "CAPS"));
+        assertNull(lookup(registry, "BEAN"));
+        assertNull(lookup(registry, ""));
+        assertNull(registry.codecFor("Gründ"));
+    }
+
+    @Test
+    void codecFor_ShouldUseClosestSuperclassCodec() {
+        CoffeeCodecRegistry registry = registryWithCapsules();
+        Coffee subclass = new GroundCoffee("x", 1, 1, new QualityParams(1, 1, 1), new Packaging("Bag", 1), GrindSize.FINE) {
+        };
+
+        assertInstanceOf(GroundCoffeeCodec.class, registry.codecFor(subclass.getClass()));
+    }
+
+    @Test
+    void register_ShouldRejectDuplicateOrInvalidCodecs() {
+        CoffeeCodecRegistry registry = registryWithCapsules();
+
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new CapsuleCoffeeCodec()));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new CapsuleCoffeeCodec() {
+            @Override
+            public String tag() {
+                return "capsule";
+            }
+        }));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new CapsuleCoffeeCodec() {
+            @Override
+            public String tag() {
+                return "CAP;SULE";
+            }
+        }));
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new CapsuleCoffeeCodec() {
+            @Override
+            public String tag() {
+                return "";
+            }
+        }));
+    }
+
+    @Test
+    void registeredCodec_ShouldRoundTripNewTypeThroughParserAndWriter() {
+        CoffeeCodecRegistry registry = registryWithCapsules();
+        CoffeeRecordWriter writer = new CoffeeRecordWriter(registry);
+        CoffeeRecordParser parser = new CoffeeRecordParser(registry);
+        CapsuleCoffee coffee = new CapsuleCoffee("Lungo", 50.0, 4.5, new QualityParams(7.0, 8.0, 9.0),
+                new Packaging("Box", 60.0), 10, "c1");
+
+        int length = writer.encode(coffee);
+        String record = new String(writer.buffer(), 0, length, StandardCharsets.UTF_8);
+        CapsuleCoffee parsed = (CapsuleCoffee) parser.parse(record);
+
+        assertEquals("CAPSULE;c1;Lungo;50.0;4.5;7.0;8.0;9.0;Box;60.0;10.0", record);
+        assertEquals("c1", parsed.getId());
+        assertEquals(10, parsed.getCapsules());
+        assertEquals(60.0, parsed.getPackaging().getVolume());
+    }
+
+    @Test
+    void parser_ShouldRejectTagsWithoutCodec() {
+        CoffeeRecordParser parser = new CoffeeRecordParser(registryWithCapsules());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse("BEAN;id;Arabica;250.0;15.99;8.0;9.0;7.5;Paper;250.0;Brazil;MEDIUM"));
+        assertEquals("Unknown coffee type: BEAN", e.getMessage());
+    }
+
+    @Test
+    void toFileString_ShouldRejectTypesWithoutCodec() {
+        Coffee unknown = new CapsuleCoffee("Lungo", 50.0, 4.5, new QualityParams(7.0, 8.0, 9.0),
+                new Packaging("Box", 60.0), 10, "c1");
+
+        assertThrows(IllegalArgumentException.class, unknown::toFileString);
+    }
+
+    @Test
+    void writer_ShouldRejectTypesWithoutCodec() {
+        Coffee unknown = new CapsuleCoffee("Lungo", 50.0, 4.5, new QualityParams(7.0, 8.0, 9.0),
+                new Packaging("Box", 60.0), 10, "c1");
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new CoffeeRecordWriter().encode(unknown));
+        assertTrue(e.getMessage().startsWith("No coffee codec for type: "), e.getMessage());
+    }
+
+    @Test
+    void builtInCodecs_ShouldReadTypeFieldsIgnoringCase() {
+        Coffee coffee = new CoffeeRecordParser().parse("bean;id;Arabica;250.0;15.99;8.0;9.0;7.5;Paper;250.0;Brazil;dark");
+
+        assertEquals(RoastLevel.DARK, ((BeanCoffee) coffee).getRoastLevel());
+        assertEquals("Brazil", ((BeanCoffee) coffee).getOrigin());
+    }
+}
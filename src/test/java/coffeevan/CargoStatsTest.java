@@ -0,0 +1,90 @@
+package coffeevan;
+
+import coffee.Coffee;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CargoStatsTest {
+
+    private static Coffee coffee(double volume, double price, double ratio) {
+        Coffee coffee = mock(Coffee.class);
+        when(coffee.getTotalVolume()).thenReturn(volume);
+        when(coffee.getPrice()).thenReturn(price);
+        when(coffee.getPriceToWeightRatio()).thenReturn(ratio);
+        return coffee;
+    }
+
+    @Test
+    void emptyStats_ShouldBeZeroAndNaN() {
+        CargoStats stats = new CargoStats();
+        assertEquals(0, stats.getCount());
+        assertEquals(0.0, stats.getTotalVolume());
+        assertEquals(0.0, stats.getTotalCost());
+        assertTrue(Double.isNaN(stats.getMinPricePerWeight()));
+        assertTrue(Double.isNaN(stats.getMaxPricePerWeight()));
+    }
+
+    @Test
+    void minMax_ShouldBeRestoredAfterRemovingExtremes() {
+        CargoStats stats = new CargoStats();
+        Coffee cheap = coffee(100, 1, 0.5);
+        Coffee middle = coffee(100, 2, 1.0);
+        Coffee expensive = coffee(100, 3, 2.0);
+        stats.add(cheap);
+        stats.add(middle);
+        stats.add(expensive);
+
+        stats.remove(cheap);
+        assertEquals(1.0, stats.getMinPricePerWeight());
+        stats.remove(expensive);
+        assertEquals(1.0, stats.getMaxPricePerWeight());
+        assertEquals(1, stats.getCount());
+    }
+
+    @Test
+    void duplicateRatios_ShouldKeepExtremeUntilLastOneRemoved() {
+        CargoStats stats = new CargoStats();
+        Coffee a = coffee(1, 1, 0.1);
+        Coffee b = coffee(1, 1, 0.1);
+        Coffee c = coffee(1, 1, 0.7);
+        stats.add(a);
+        stats.add(b);
+        stats.add(c);
+
+        stats.remove(a);
+        assertEquals(0.1, stats.getMinPricePerWeight());
+        stats.remove(b);
+        assertEquals(0.7, stats.getMinPricePerWeight());
+    }
+
+    @Test
+    void sums_ShouldNotDrift() {
+        CargoStats stats = new CargoStats();
+        Coffee big = coffee(1e16, 1e16, 1);
+        Coffee small = coffee(1.0, 1.0, 1);
+        stats.add(big);
+        for (int i = 0; i < 1000; i++) {
+            stats.add(small);
+        }
+        stats.remove(big);
+        assertEquals(1000.0, stats.getTotalVolume());
+        assertEquals(1000.0, stats.getTotalCost());
+    }
+
+    @Test
+    void snapshot_ShouldKeepItsValuesAndRejectChanges() {
+        CargoStats stats = new CargoStats();
+        stats.add(coffee(100, 10, 2));
+        CargoStats snapshot = stats.snapshot();
+
+        stats.add(coffee(50, 5, 4));
+
+        assertEquals(1, snapshot.getCount());
+        assertEquals(100.0, snapshot.getTotalVolume());
+        assertEquals(10.0, snapshot.getTotalCost());
+        assertEquals(2.0, snapshot.getMaxPricePerWeight());
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(coffee(1, 1, 1)));
+    }
+}
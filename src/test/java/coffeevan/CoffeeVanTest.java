@@ -1,11 +1,20 @@
 package coffeevan;
 
+import coffee.BeanCoffee;
 import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import packaging.Packaging;
 import qualityparams.QualityParams;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,6 +52,35 @@ class CoffeeVanTest {
         assertThrows(IllegalArgumentException.class, () -> van.addCoffee(null));
     }
 
+    @Test
+    void tryAddCoffee_ShouldAddOnlyWhatFits() {
+        Coffee tooExpensive = mock(Coffee.class);
+        when(tooExpensive.getId()).thenReturn("C");
+        when(tooExpensive.getTotalVolume()).thenReturn(100.0);
+        when(tooExpensive.getPrice()).thenReturn(300.0);
+
+        assertTrue(van.tryAddCoffee(coffee1));
+        assertTrue(van.tryAddCoffee(coffee2));
+        assertFalse(van.tryAddCoffee(tooExpensive));
+
+        assertEquals(2, van.getCargo().size());
+        assertEquals(250.0, van.getTotalCost());
+    }
+
+    @Test
+    void tryAddAll_ShouldAddAllOrNothing() {
+        Coffee coffee3 = mock(Coffee.class);
+        when(coffee3.getId()).thenReturn("C");
+        when(coffee3.getTotalVolume()).thenReturn(600.0);
+        when(coffee3.getPrice()).thenReturn(100.0);
+
+        assertFalse(van.tryAddAll(List.of(coffee1, coffee2, coffee3)));
+        assertTrue(van.getCargo().isEmpty());
+
+        assertTrue(van.tryAddAll(List.of(coffee1, coffee2)));
+        assertEquals(500.0, van.getTotalVolume());
+    }
+
     @Test
     void removeCoffeeById_ShouldWork() {
         van.addCoffee(coffee1);
@@ -76,6 +114,29 @@ class CoffeeVanTest {
         assertEquals(List.of(coffee2, coffee1), van.getCargo());
     }
 
+    @Test
+    void topByPricePerKg_ShouldFollowChangesWithoutReorderingCargo() {
+        when(coffee1.getPriceToWeightRatio()).thenReturn(5.0);
+        when(coffee2.getPriceToWeightRatio()).thenReturn(2.0);
+        Coffee coffee3 = mock(Coffee.class);
+        when(coffee3.getId()).thenReturn("C");
+        when(coffee3.getPriceToWeightRatio()).thenReturn(1.0);
+        van.addCoffee(coffee1);
+        van.addCoffee(coffee2);
+
+        assertEquals(List.of(coffee2, coffee1), van.topByPricePerKg(5, true));
+        van.addCoffee(coffee3);
+        assertEquals(List.of(coffee3, coffee2), van.topByPricePerKg(2, true));
+        assertEquals(List.of(coffee1), van.topByPricePerKg(1, false));
+        van.removeCoffeeById("B");
+        assertEquals(List.of(coffee3, coffee1), van.topByPricePerKg(5, true));
+
+        assertEquals(List.of(coffee1, coffee3), van.getCargo());
+        van.sortByPricePerKg();
+        assertEquals(List.of(coffee3, coffee1), van.getCargo());
+        assertThrows(IllegalArgumentException.class, () -> van.topByPricePerKg(-1, true));
+    }
+
     @Test
     void findByQuality_ShouldFilterCorrectly() {
         QualityParams q = mock(QualityParams.class);
@@ -119,4 +180,225 @@ class CoffeeVanTest {
         van.addCoffee(coffee1);
         assertTrue(van.findByQuality(1, 10, 1, 10, 1, 10).isEmpty());
     }
+
+    @Test
+    void getById_ShouldFindLoadedCoffee() {
+        van.addCoffee(coffee1);
+        van.addCoffee(coffee2);
+        assertSame(coffee2, van.getById("B"));
+        assertTrue(van.containsId("A"));
+        assertNull(van.getById("Z"));
+        assertFalse(van.containsId("Z"));
+    }
+
+    @Test
+    void removeCoffeeById_ShouldKeepOrderAndIndexConsistent() {
+        Coffee coffee3 = mock(Coffee.class);
+        when(coffee3.getId()).thenReturn("C");
+        van.addCoffee(coffee1);
+        van.addCoffee(coffee2);
+        van.addCoffee(coffee3);
+
+        assertTrue(van.removeCoffeeById("B"));
+
+        assertEquals(List.of(coffee1, coffee3), van.getCargo());
+        assertFalse(van.containsId("B"));
+        assertFalse(van.removeCoffeeById("B"));
+    }
+
+    @Test
+    void addCoffee_ShouldReplaceItemWithSameId() {
+        Coffee newer = mock(Coffee.class);
+        when(newer.getId()).thenReturn("A");
+        when(newer.getPrice()).thenReturn(10.0);
+        van.addCoffee(coffee1);
+        van.addCoffee(coffee2);
+
+        van.addCoffee(newer);
+
+        assertEquals(List.of(newer, coffee2), van.getCargo());
+        assertEquals(160.0, van.getTotalCost());
+    }
+
+    @Test
+    void sortByPricePerKg_ShouldKeepIdIndex() {
+        when(coffee1.getPriceToWeightRatio()).thenReturn(5.0);
+        when(coffee2.getPriceToWeightRatio()).thenReturn(2.0);
+        van.addCoffee(coffee1);
+        van.addCoffee(coffee2);
+
+        van.sortByPricePerKg();
+
+        assertSame(coffee1, van.getById("A"));
+        assertTrue(van.removeCoffeeById("B"));
+        assertEquals(List.of(coffee1), van.getCargo());
+    }
+
+    @Test
+    void findByQuality_ShouldUseIndex_ForLargeCargo() {
+        Random random = new Random(3);
+        CoffeeVan bigVan = new CoffeeVan(1e9, 1e9);
+        List<Coffee> mirror = new ArrayList<>();
+        for (int i = 0; i < CoffeeVan.QUALITY_INDEX_THRESHOLD * 2; i++) {
+            Coffee coffee = randomCoffee(random);
+            bigVan.addCoffee(coffee);
+            mirror.add(coffee);
+        }
+        assertEquals(linearFind(mirror, 3, 7, 2, 9, 4, 6), Set.copyOf(bigVan.findByQuality(3, 7, 2, 9, 4, 6)));
+
+        // the index has to follow later changes of the cargo
+        for (Coffee coffee : mirror.subList(0, 300)) {
+            bigVan.removeCoffeeById(coffee.getId());
+        }
+        List<Coffee> remaining = new ArrayList<>(mirror.subList(300, mirror.size()));
+        Coffee late = randomCoffee(random);
+        bigVan.addCoffee(late);
+        remaining.add(late);
+        assertEquals(linearFind(remaining, 1, 10, 1, 10, 1, 10), Set.copyOf(bigVan.findByQuality(1, 10, 1, 10, 1, 10)));
+        assertEquals(linearFind(remaining, 2, 4, 5, 5, 1, 10), Set.copyOf(bigVan.findByQuality(2, 4, 5, 5, 1, 10)));
+    }
+
+    private static Set<Coffee> linearFind(List<Coffee> items, double minA, double maxA, double minT, double maxT, double minF, double maxF) {
+        Set<Coffee> found = new HashSet<>();
+        for (Coffee coffee : items) {
+            if (coffee.getQuality().isInRange(minA, maxA, minT, maxT, minF, maxF)) found.add(coffee);
+        }
+        return found;
+    }
+
+    @Test
+    void getCargo_ShouldBeReadOnly() {
+        van.addCoffee(coffee1);
+        assertThrows(UnsupportedOperationException.class, () -> van.getCargo().add(coffee2));
+    }
+
+    @Test
+    void unsavedChanges_ShouldTrackAdditionsInOrder() {
+        assertFalse(van.hasUnsavedChanges());
+        van.addCoffee(coffee2);
+        van.addCoffee(coffee1);
+        assertTrue(van.hasUnsavedChanges());
+        assertEquals(List.of(coffee2, coffee1), van.getUnsavedCoffee());
+
+        van.markSaved();
+        assertFalse(van.hasUnsavedChanges());
+        assertTrue(van.getUnsavedCoffee().isEmpty());
+    }
+
+    @Test
+    void addSavedCoffee_ShouldNotBeUnsaved() {
+        van.addSavedCoffee(coffee1);
+        assertEquals(1, van.getCargo().size());
+        assertFalse(van.hasUnsavedChanges());
+    }
+
+    @Test
+    void removeCoffeeById_ShouldOnlyRecordRemovalOfSavedItems() {
+        van.addSavedCoffee(coffee1);
+        van.addCoffee(coffee2);
+        van.removeCoffeeById("A");
+        // B was never saved, so removing it leaves nothing to save
+        van.removeCoffeeById("B");
+        assertEquals(Set.of("A"), van.getUnsavedRemovals());
+        assertTrue(van.getUnsavedCoffee().isEmpty());
+
+        van.markRemovalSaved("A");
+        assertFalse(van.hasUnsavedChanges());
+    }
+
+    @Test
+    void applySavedChanges_ShouldKeepUnsavedChanges() {
+        van.addSavedCoffee(coffee1);
+        van.addCoffee(coffee2);
+        Coffee storedB = mock(Coffee.class);
+        when(storedB.getId()).thenReturn("B");
+        Coffee storedA = mock(Coffee.class);
+        when(storedA.getId()).thenReturn("A");
+
+        // B has unsaved changes in the van, A does not
+        assertFalse(van.applySavedCoffee(storedB));
+        assertTrue(van.applySavedCoffee(storedA));
+        assertSame(coffee2, van.getById("B"));
+        assertSame(storedA, van.getById("A"));
+        assertEquals(List.of(coffee2), van.getUnsavedCoffee());
+
+        assertFalse(van.applySavedRemoval("B"));
+        assertTrue(van.applySavedRemoval("A"));
+        assertFalse(van.containsId("A"));
+        assertTrue(van.getUnsavedRemovals().isEmpty());
+    }
+
+    @Test
+    void replacedSavedCoffee_ShouldBeUnsavedAndKeepRemoval() {
+        van.addSavedCoffee(coffee1);
+        Coffee newer = mock(Coffee.class);
+        when(newer.getId()).thenReturn("A");
+        van.addCoffee(newer);
+        assertEquals(List.of(newer), van.getUnsavedCoffee());
+
+        // the saved version still has to be removed from the file
+        van.removeCoffeeById("A");
+        assertEquals(Set.of("A"), van.getUnsavedRemovals());
+
+        // adding it again replaces the saved version, so no removal is needed
+        van.addCoffee(coffee1);
+        assertTrue(van.getUnsavedRemovals().isEmpty());
+        assertEquals(List.of(coffee1), van.getUnsavedCoffee());
+    }
+
+    @Test
+    void stats_ShouldMatchFullRescan_AfterRandomAddRemove() {
+        Random random = new Random(42);
+        CoffeeVan bigVan = new CoffeeVan(1e9, 1e9);
+        List<Coffee> mirror = new ArrayList<>();
+        for (int step = 0; step < 5000; step++) {
+            if (mirror.isEmpty() || random.nextInt(3) > 0) {
+                Coffee coffee = randomCoffee(random);
+                bigVan.addCoffee(coffee);
+                mirror.add(coffee);
+            } else {
+                Coffee victim = mirror.remove(random.nextInt(mirror.size()));
+                assertTrue(bigVan.removeCoffeeById(victim.getId()));
+            }
+            if (step % 250 == 0) {
+                assertStatsMatch(bigVan, mirror);
+            }
+        }
+        assertStatsMatch(bigVan, mirror);
+    }
+
+    private static Coffee randomCoffee(Random random) {
+        QualityParams quality = new QualityParams(1 + random.nextInt(10), 1 + random.nextInt(10), 1 + random.nextInt(10));
+        Packaging packaging = new Packaging("Paper", 0.1 + random.nextDouble() * 1000);
+        double weight = 10 + random.nextDouble() * 990;
+        double price = 0.01 + random.nextDouble() * 100;
+        return random.nextBoolean()
+                ? new BeanCoffee("Bean", weight, price, quality, packaging, RoastLevel.DARK, "Brazil")
+                : new GroundCoffee("Ground", weight, price, quality, packaging, GrindSize.FINE);
+    }
+
+    private static void assertStatsMatch(CoffeeVan van, List<Coffee> expected) {
+        assertStatsMatch(van.getStats(), expected);
+        assertStatsMatch(van.getStats(BeanCoffee.class), expected.stream().filter(c -> c instanceof BeanCoffee).toList());
+        assertStatsMatch(van.getStats(GroundCoffee.class), expected.stream().filter(c -> c instanceof GroundCoffee).toList());
+        assertEquals(van.getTotalVolume(), van.getStats().getTotalVolume());
+        assertEquals(van.getTotalCost(), van.getStats().getTotalCost());
+    }
+
+    private static void assertStatsMatch(CargoStats stats, List<Coffee> expected) {
+        double volume = 0, cost = 0;
+        double min = Double.NaN, max = Double.NaN;
+        for (Coffee coffee : expected) {
+            volume += coffee.getTotalVolume();
+            cost += coffee.getPrice();
+            double ratio = coffee.getPriceToWeightRatio();
+            if (Double.isNaN(min) || ratio < min) min = ratio;
+            if (Double.isNaN(max) || ratio > max) max = ratio;
+        }
+        assertEquals(expected.size(), stats.getCount());
+        assertEquals(volume, stats.getTotalVolume(), 1e-6);
+        assertEquals(cost, stats.getTotalCost(), 1e-6);
+        assertEquals(min, stats.getMinPricePerWeight());
+        assertEquals(max, stats.getMaxPricePerWeight());
+    }
 }
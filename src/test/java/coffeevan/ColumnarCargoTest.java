@@ -0,0 +1,85 @@
+package coffeevan;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnarCargoTest {
+
+    private static Coffee randomCoffee(Random random) {
+        QualityParams quality = new QualityParams(1 + random.nextInt(10), 1 + random.nextInt(10), 1 + random.nextDouble() * 9);
+        Packaging packaging = new Packaging("Paper", 1 + random.nextDouble() * 500);
+        return random.nextBoolean()
+                ? new BeanCoffee("Bean", 100, random.nextDouble() * 50, quality, packaging, RoastLevel.LIGHT, "Peru")
+                : new GroundCoffee("Ground", 100, random.nextDouble() * 50, quality, packaging, GrindSize.COARSE);
+    }
+
+    @Test
+    void scansAndSums_ShouldMatchObjects_AfterAddRemove() {
+        Random random = new Random(11);
+        ColumnarCargo columns = new ColumnarCargo();
+        List<Coffee> mirror = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Coffee coffee = randomCoffee(random);
+            columns.add(coffee);
+            mirror.add(coffee);
+        }
+        for (int i = 0; i < 333; i++) {
+            columns.remove(mirror.remove(random.nextInt(mirror.size())));
+        }
+
+        double price = 0, volume = 0;
+        Set<Coffee> expected = new HashSet<>();
+        for (Coffee coffee : mirror) {
+            price += coffee.getPrice();
+            volume += coffee.getTotalVolume();
+            if (coffee.getQuality().isInRange(2, 6, 3, 9, 1, 5.5)) expected.add(coffee);
+        }
+        assertEquals(mirror.size(), columns.size());
+        assertEquals(price, columns.sumPrice(), 1e-9);
+        assertEquals(volume, columns.sumVolume(), 1e-9);
+        assertEquals(expected, new HashSet<>(columns.find(2, 6, 3, 9, 1, 5.5)));
+        assertEquals(mirror.stream().filter(c -> c instanceof BeanCoffee).count(), columns.countType(ColumnarCargo.TAG_BEAN));
+    }
+
+    @Test
+    void find_ShouldIncludeBounds_AndTail() {
+        ColumnarCargo columns = new ColumnarCargo();
+        // fewer rows than one vector, so only the scalar tail runs
+        Coffee exact = new GroundCoffee("Edge", 100, 1, new QualityParams(5, 5, 5), new Packaging("Bag", 1), GrindSize.FINE);
+        columns.add(exact);
+        assertEquals(List.of(exact), columns.find(5, 5, 5, 5, 5, 5));
+        assertTrue(columns.find(5.1, 6, 5, 5, 5, 5).isEmpty());
+    }
+
+    @Test
+    void vanWithColumnLayout_ShouldSearchOverColumns() {
+        Random random = new Random(5);
+        CoffeeVan van = new CoffeeVan(1e9, 1e9, CargoLayout.COLUMNS);
+        CoffeeVan reference = new CoffeeVan(1e9, 1e9);
+        for (int i = 0; i < 200; i++) {
+            Coffee coffee = randomCoffee(random);
+            van.addCoffee(coffee);
+            reference.addCoffee(coffee);
+        }
+        Coffee removed = van.getCargo().get(17);
+        van.removeCoffeeById(removed.getId());
+        reference.removeCoffeeById(removed.getId());
+
+        assertEquals(new HashSet<>(reference.findByQuality(3, 8, 1, 10, 2, 7)), new HashSet<>(van.findByQuality(3, 8, 1, 10, 2, 7)));
+        assertEquals(reference.getTotalCost(), van.getTotalCost(), 1e-9);
+    }
+}
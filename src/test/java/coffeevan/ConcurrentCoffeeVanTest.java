@@ -0,0 +1,109 @@
+package coffeevan;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentCoffeeVanTest {
+
+    private static Coffee ground(String id, double price, double volume) {
+        return new GroundCoffee("Robusta", 500.0, price, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", volume), GrindSize.MEDIUM, id);
+    }
+
+    @Test
+    void tryAddCoffee_ShouldRejectItemsThatDoNotFit() {
+        ConcurrentCoffeeVan van = new ConcurrentCoffeeVan(1000, 100);
+
+        assertTrue(van.tryAddCoffee(ground("a", 60, 400)));
+        assertFalse(van.tryAddCoffee(ground("b", 50, 100)));
+        assertFalse(van.tryAddCoffee(ground("c", 10, 700)));
+        assertTrue(van.tryAddCoffee(ground("d", 40, 600)));
+
+        assertEquals(2, van.size());
+        assertEquals(1000, van.getTotalVolume());
+        assertEquals(0, van.getRemainingBudget());
+        assertEquals(2, van.getAddedCount());
+        assertEquals(2, van.getRejectedCount());
+        assertThrows(IllegalArgumentException.class, () -> van.tryAddCoffee(null));
+    }
+
+    @Test
+    void tryAddCoffee_ShouldReserveOnlyTheDifferenceWhenReplacing() {
+        ConcurrentCoffeeVan van = new ConcurrentCoffeeVan(1000, 100);
+        van.tryAddCoffee(ground("a", 90, 500));
+
+        assertTrue(van.tryAddCoffee(ground("a", 100, 1000)));
+        assertFalse(van.tryAddCoffee(ground("a", 101, 100)));
+        assertTrue(van.tryAddCoffee(ground("a", 10, 100)));
+
+        assertEquals(1, van.size());
+        assertEquals(10, van.getTotalCost());
+        assertEquals(100, van.getTotalVolume());
+    }
+
+    @Test
+    void removeCoffeeById_ShouldReleaseTheReservation() {
+        ConcurrentCoffeeVan van = new ConcurrentCoffeeVan(1000, 100);
+        van.tryAddCoffee(ground("a", 100, 1000));
+
+        assertTrue(van.removeCoffeeById("a"));
+        assertFalse(van.removeCoffeeById("a"));
+
+        assertEquals(0, van.getTotalCost());
+        assertTrue(van.tryAddCoffee(ground("b", 100, 1000)));
+        assertEquals(List.of("b"), van.getCargo().stream().map(Coffee::getId).toList());
+        assertEquals(1, van.getRemovedCount());
+    }
+
+    @Test
+    void concurrentLoaders_ShouldNeverOvershootTheLimits() throws Exception {
+        ConcurrentCoffeeVan van = new ConcurrentCoffeeVan(50_000, 2_000);
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < 20_000; i++) {
+                        String id = "id-" + random.nextInt(500);
+                        if (random.nextInt(3) == 0) {
+                            van.removeCoffeeById(id);
+                        } else {
+                            van.tryAddCoffee(ground(id, 1 + random.nextInt(20), 100 + random.nextInt(400)));
+                        }
+                        assertTrue(van.getTotalCost() <= 2_000 && van.getTotalVolume() <= 50_000);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        double volume = 0;
+        double cost = 0;
+        for (Coffee coffee : van.getCargo()) {
+            volume += coffee.getTotalVolume();
+            cost += coffee.getPrice();
+        }
+        assertEquals(volume, van.getTotalVolume(), 1e-6);
+        assertEquals(cost, van.getTotalCost(), 1e-6);
+        assertTrue(van.getRejectedCount() > 0);
+    }
+}
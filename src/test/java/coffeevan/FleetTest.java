@@ -0,0 +1,134 @@
+package coffeevan;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FleetTest {
+
+    private static Coffee ground(String id, double price, double weight, double aroma) {
+        return new GroundCoffee("Robusta", weight, price, new QualityParams(aroma, 7, 8),
+                new Packaging("Plastic", 100), GrindSize.MEDIUM, id);
+    }
+
+    private static List<Coffee> randomCargo(int size, long seed) {
+        Random random = new Random(seed);
+        List<Coffee> cargo = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            cargo.add(ground("id-" + i, 1 + random.nextInt(50), 100 + random.nextInt(900), 1 + random.nextInt(10)));
+        }
+        return cargo;
+    }
+
+    @Test
+    void queries_ShouldMatchOneVanHoldingEverything() {
+        List<Coffee> cargo = randomCargo(3000, 5);
+        Fleet fleet = new Fleet(200, 1e9, 1e9, RoutingPolicy.byId());
+        CoffeeVan single = new CoffeeVan(1e9, 1e9);
+        for (Coffee coffee : cargo) {
+            assertTrue(fleet.load(coffee));
+            single.addCoffee(coffee);
+        }
+
+        assertEquals(3000, fleet.size());
+        assertEquals(single.getTotalCost(), fleet.getTotalCost(), 1e-6);
+        assertEquals(single.getTotalVolume(), fleet.getTotalVolume(), 1e-6);
+        assertEquals(new HashSet<>(single.findByQuality(3, 6, 1, 10, 1, 10)),
+                new HashSet<>(fleet.findByQuality(3, 6, 1, 10, 1, 10)));
+
+        List<Coffee> sorted = fleet.getSortedByPricePerKg();
+        assertEquals(3000, sorted.size());
+        assertEquals(new HashSet<>(cargo), new HashSet<>(sorted));
+        for (int i = 1; i < sorted.size(); i++) {
+            assertTrue(sorted.get(i - 1).getPriceToWeightRatio() <= sorted.get(i).getPriceToWeightRatio());
+        }
+    }
+
+    @Test
+    void load_ShouldReplaceAnItemInItsOwnVan() {
+        Fleet fleet = new Fleet(4, 1000, 100, RoutingPolicy.roundRobin());
+        fleet.load(ground("a", 10, 500, 5));
+        CoffeeVan van = fleet.getVanOf("a");
+
+        assertTrue(fleet.load(ground("a", 20, 500, 5)));
+        assertSame(van, fleet.getVanOf("a"));
+        assertEquals(1, fleet.size());
+        assertEquals(20, fleet.getTotalCost());
+
+        assertFalse(fleet.load(ground("a", 200, 500, 5)));
+        assertEquals(20, van.getById("a").getPrice());
+    }
+
+    @Test
+    void removeById_ShouldForgetTheVan() {
+        Fleet fleet = new Fleet(3, 1000, 100, RoutingPolicy.byId());
+        fleet.load(ground("a", 10, 500, 5));
+
+        assertTrue(fleet.removeById("a"));
+        assertFalse(fleet.removeById("a"));
+        assertNull(fleet.getVanOf("a"));
+        assertEquals(0, fleet.size());
+    }
+
+    @Test
+    void mostRoom_ShouldSpreadTheBudgetEvenly() {
+        Fleet fleet = new Fleet(4, 1e9, 100, RoutingPolicy.mostRoom());
+        for (int i = 0; i < 16; i++) {
+            assertTrue(fleet.load(ground("id-" + i, 25, 500, 5)));
+        }
+
+        assertFalse(fleet.load(ground("full", 1, 500, 5)));
+        for (CoffeeVan van : fleet.getVans()) {
+            assertEquals(100, van.getTotalCost());
+        }
+    }
+
+    @Test
+    void constructor_ShouldRejectAnIdInTwoVans() {
+        CoffeeVan first = new CoffeeVan(1000, 100);
+        CoffeeVan second = new CoffeeVan(1000, 100);
+        first.addCoffee(ground("a", 1, 500, 5));
+        second.addCoffee(ground("a", 2, 500, 5));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new Fleet(List.of(first, second), RoutingPolicy.byId(), ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class, () -> new Fleet(0, 1000, 100, RoutingPolicy.byId()));
+    }
+
+    @Test
+    void merge_ShouldKeepRunOrderForEqualRatios() {
+        Coffee a = ground("a", 10, 500, 5);
+        Coffee b = ground("b", 10, 500, 5);
+        Coffee c = ground("c", 1, 500, 5);
+
+        List<Coffee> merged = Fleet.merge(List.of(List.of(a), List.of(c, b), List.of()));
+
+        assertEquals(List.of(c, a, b), merged);
+        assertEquals(List.of(), Fleet.merge(List.of()));
+    }
+
+    @Test
+    void routing_ShouldKeepEveryVanIndexInRange() {
+        List<CoffeeVan> vans = List.of(new CoffeeVan(1, 1), new CoffeeVan(1, 1), new CoffeeVan(1, 1));
+        Set<Integer> used = new HashSet<>();
+        RoutingPolicy byId = RoutingPolicy.byId();
+        for (Coffee coffee : randomCargo(100, 1)) {
+            int van = byId.route(coffee, vans);
+            assertEquals(van, byId.route(coffee, vans));
+            used.add(van);
+        }
+        assertEquals(Set.of(0, 1, 2), used);
+    }
+}
@@ -0,0 +1,119 @@
+package coffeevan;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadPlannerTest {
+
+    private static Coffee ground(String id, double price, double volume, double aroma) {
+        return new GroundCoffee("Robusta", 500.0, price, new QualityParams(aroma, aroma, aroma),
+                new Packaging("Plastic", volume), GrindSize.MEDIUM, id);
+    }
+
+    private static List<Coffee> randomCandidates(int size, Random random) {
+        List<Coffee> candidates = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            candidates.add(ground("id-" + i, 1 + random.nextInt(100), 50 + random.nextInt(500), 1 + random.nextInt(10)));
+        }
+        return candidates;
+    }
+
+    private static double bruteForce(List<Coffee> candidates, double maxVolume, double maxBudget) {
+        double best = 0;
+        for (int mask = 0; mask < 1 << candidates.size(); mask++) {
+            double volume = 0;
+            double cost = 0;
+            double quality = 0;
+            for (int i = 0; i < candidates.size(); i++) {
+                if ((mask & 1 << i) != 0) {
+                    Coffee coffee = candidates.get(i);
+                    volume += coffee.getTotalVolume();
+                    cost += coffee.getPrice();
+                    quality += LoadPlanner.averageQuality(coffee);
+                }
+            }
+            if (volume <= maxVolume && cost <= maxBudget) {
+                best = Math.max(best, quality);
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void plan_ShouldMatchBruteForceOnSmallInstances() {
+        Random random = new Random(3);
+        LoadPlanner planner = new LoadPlanner();
+        for (int round = 0; round < 30; round++) {
+            List<Coffee> candidates = randomCandidates(14, random);
+            double maxVolume = 500 + random.nextInt(2000);
+            double maxBudget = 50 + random.nextInt(400);
+
+            LoadPlan plan = planner.plan(candidates, maxVolume, maxBudget, Duration.ofSeconds(10));
+
+            assertTrue(plan.isOptimal());
+            assertEquals(bruteForce(candidates, maxVolume, maxBudget), plan.getTotalQuality(), 1e-9);
+            assertTrue(plan.getTotalVolume() <= maxVolume && plan.getTotalCost() <= maxBudget);
+            // chosen items keep the candidate order
+            List<Coffee> inOrder = new ArrayList<>(candidates);
+            inOrder.retainAll(plan.getItems());
+            assertEquals(inOrder, plan.getItems());
+        }
+    }
+
+    @Test
+    void plan_ShouldReturnTheBestChoiceFoundWhenTimeRunsOut() {
+        Random random = new Random(9);
+        List<Coffee> candidates = new ArrayList<>();
+        // quality that follows the size closely makes every item about equally good, the hard case
+        for (int i = 0; i < 3000; i++) {
+            double volume = 100 + random.nextInt(900);
+            double price = 10 + random.nextInt(90);
+            candidates.add(ground("id-" + i, price, volume, 1 + (volume / 1000 + price / 100) * 4 + random.nextDouble() * 0.01));
+        }
+
+        LoadPlan plan = new LoadPlanner().plan(candidates, 100_000, 10_000, Duration.ZERO);
+
+        assertFalse(plan.isOptimal());
+        assertFalse(plan.getItems().isEmpty());
+        assertTrue(plan.getTotalVolume() <= 100_000 && plan.getTotalCost() <= 10_000);
+    }
+
+    @Test
+    void plan_ShouldSkipItemsInTheVanAndLoadInOneStep() {
+        CoffeeVan van = new CoffeeVan(1000, 100);
+        Coffee loaded = ground("a", 50, 500, 10);
+        van.addCoffee(loaded);
+        List<Coffee> candidates = List.of(ground("a", 1, 1, 10), ground("b", 30, 300, 9),
+                ground("c", 30, 300, 5), ground("d", 20, 200, 8), ground("b", 1, 1, 10));
+
+        LoadPlan plan = new LoadPlanner(LoadPlanner::averageQuality, ForkJoinPool.commonPool())
+                .plan(candidates, van, Duration.ofSeconds(10));
+
+        assertEquals(List.of("b", "d"), plan.getItems().stream().map(Coffee::getId).toList());
+        assertEquals(17, plan.getTotalQuality(), 1e-9);
+        assertTrue(plan.loadInto(van));
+        assertEquals(3, van.getCargo().size());
+        assertFalse(plan.loadInto(new CoffeeVan(100, 100)));
+    }
+
+    @Test
+    void plan_ShouldRejectANegativeQuality() {
+        LoadPlanner planner = new LoadPlanner(coffee -> -1, ForkJoinPool.commonPool());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> planner.plan(List.of(ground("a", 1, 1, 1)), 10, 10, Duration.ofSeconds(1)));
+        assertTrue(new LoadPlanner().plan(List.of(), 10, 10, Duration.ofSeconds(1)).isOptimal());
+    }
+}
@@ -0,0 +1,62 @@
+package coffeevan;
+
+import coffee.Coffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PricePerKgIndexTest {
+
+    private static Coffee coffee(String id, double weight, double price) {
+        return new InstantCoffee("Test", weight, price,
+                new QualityParams(5, 5, 5),
+                new Packaging("Jar", 100.0),
+                ConcentrationLevel.MEDIUM, id);
+    }
+
+    private static final Comparator<Coffee> ORDER = Comparator.comparingDouble(Coffee::getPriceToWeightRatio)
+            .thenComparing(Coffee::getId);
+
+    @Test
+    void topK_ShouldMatchFullSort_AfterRandomAddRemove() {
+        Random random = new Random(17);
+        List<Coffee> live = new ArrayList<>();
+        PricePerKgIndex index = new PricePerKgIndex(List.of());
+        for (int i = 0; i < 3000; i++) {
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                Coffee removed = live.remove(random.nextInt(live.size()));
+                index.remove(removed);
+            } else {
+                // few distinct ratios, so ties are common
+                Coffee added = coffee("id-" + i, 100, 1 + random.nextInt(20));
+                live.add(added);
+                index.add(added);
+            }
+        }
+
+        List<Coffee> expected = new ArrayList<>(live);
+        expected.sort(ORDER);
+        assertEquals(live.size(), index.size());
+        assertEquals(expected, index.topK(live.size(), true));
+        assertEquals(expected.subList(0, 10), index.topK(10, true));
+        assertEquals(expected.reversed().subList(0, 10), index.topK(10, false));
+        assertEquals(expected, PricePerKgIndex.sort(live));
+    }
+
+    @Test
+    void topK_ShouldStopAtTheIndexSize() {
+        PricePerKgIndex index = new PricePerKgIndex(List.of(coffee("a", 100, 2), coffee("b", 100, 1)));
+
+        assertEquals(List.of("b", "a"), index.topK(5, true).stream().map(Coffee::getId).toList());
+        assertEquals(List.of(), index.topK(0, false));
+    }
+}
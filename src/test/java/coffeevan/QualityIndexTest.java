@@ -0,0 +1,87 @@
+package coffeevan;
+
+import coffee.Coffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QualityIndexTest {
+
+    private static Coffee coffee(double aroma, double taste, double freshness) {
+        return new InstantCoffee("Test", 100.0, 5.0,
+                new QualityParams(aroma, taste, freshness),
+                new Packaging("Jar", 100.0),
+                ConcentrationLevel.MEDIUM);
+    }
+
+    private static Set<Coffee> scan(List<Coffee> items, double[] box) {
+        Set<Coffee> found = new HashSet<>();
+        for (Coffee coffee : items) {
+            if (coffee.getQuality().isInRange(box[0], box[1], box[2], box[3], box[4], box[5])) {
+                found.add(coffee);
+            }
+        }
+        return found;
+    }
+
+    private static double[] randomBox(Random random) {
+        double[] box = new double[6];
+        for (int axis = 0; axis < 3; axis++) {
+            double a = 1 + random.nextInt(10), b = 1 + random.nextInt(10);
+            box[2 * axis] = Math.min(a, b);
+            box[2 * axis + 1] = Math.max(a, b);
+        }
+        return box;
+    }
+
+    @Test
+    void find_ShouldMatchLinearScan_WithIncrementalUpdates() {
+        Random random = new Random(7);
+        List<Coffee> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(coffee(1 + random.nextInt(10), 1 + random.nextInt(10), 1 + random.nextInt(10)));
+        }
+        QualityIndex index = new QualityIndex(items);
+
+        for (int round = 0; round < 300; round++) {
+            if (random.nextBoolean()) {
+                Coffee added = coffee(1 + random.nextInt(10), 1 + random.nextInt(10), 1 + random.nextDouble() * 9);
+                items.add(added);
+                index.add(added);
+            } else {
+                Coffee removed = items.remove(random.nextInt(items.size()));
+                index.remove(removed);
+            }
+            double[] box = randomBox(random);
+            assertEquals(scan(items, box), new HashSet<>(index.find(box[0], box[1], box[2], box[3], box[4], box[5])));
+        }
+        assertEquals(items.size(), index.size());
+    }
+
+    @Test
+    void find_ShouldHandleIdenticalPoints() {
+        QualityIndex index = new QualityIndex(List.of());
+        List<Coffee> items = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Coffee coffee = coffee(5, 5, 5);
+            items.add(coffee);
+            index.add(coffee);
+        }
+        assertEquals(2000, index.find(5, 5, 5, 5, 5, 5).size());
+        assertTrue(index.find(6, 10, 1, 10, 1, 10).isEmpty());
+        for (Coffee coffee : items.subList(0, 1500)) {
+            index.remove(coffee);
+        }
+        assertEquals(500, index.find(1, 10, 1, 10, 1, 10).size());
+    }
+}
@@ -0,0 +1,57 @@
+package commands;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffeevan.CoffeeVan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ExportJsonCommandTest {
+
+    @Test
+    void testExecute_exportsWholeCargoAndReplacesTheFile(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.json");
+        Files.writeString(file, "old content", StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        van.addCoffee(new GroundCoffee("Robusta", 100.0, 5.99, new QualityParams(7.0, 6.0, 8.0),
+                new Packaging("Plastic", 100.0), GrindSize.COARSE, "g1"));
+        van.addCoffee(new GroundCoffee("Liberica", 100.0, 6.99, new QualityParams(7.0, 6.0, 8.0),
+                new Packaging("Plastic", 100.0), GrindSize.FINE, "g2"));
+
+        // Action
+        new ExportJsonCommand(van, file.toString()).execute();
+
+        // Verification
+        String json = Files.readString(file, StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[\n{\"type\":\"GROUND\",\"id\":\"g1\""), json);
+        assertTrue(json.contains(",\n{\"type\":\"GROUND\",\"id\":\"g2\""), json);
+        assertTrue(json.endsWith("}\n]\n"), json);
+        assertFalse(Files.exists(tempDir.resolve("coffee_data.json.tmp")));
+    }
+
+    @Test
+    void testExecute_keepsTheOldFileWhenAnItemCannotBeExported(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.json");
+        Files.writeString(file, "[\n]\n", StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        Coffee unknown = mock(Coffee.class);
+        van.addCoffee(unknown);
+
+        // Action & Verification
+        assertThrows(IllegalArgumentException.class, () -> new ExportJsonCommand(van, file.toString()).execute());
+        assertEquals("[\n]\n", Files.readString(file, StandardCharsets.UTF_8));
+        assertFalse(Files.exists(tempDir.resolve("coffee_data.json.tmp")));
+    }
+}
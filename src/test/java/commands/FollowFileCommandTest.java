@@ -0,0 +1,84 @@
+package commands;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import coffeevan.CoffeeVan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+class FollowFileCommandTest {
+
+    private static String line(String id, double price) {
+        return "GROUND;" + id + ";Robusta;100.0;" + price + ";7.0;6.0;8.0;Plastic;100.0;COARSE\n";
+    }
+
+    private static void waitFor(CoffeeVan van, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (van.getCargo().size() != size && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testExecute_followsAppendsUntilSwitchedOff(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.txt");
+        Files.writeString(file, line("g1", 5.99), StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        FollowFileCommand command = new FollowFileCommand(van, file.toString());
+
+        // Action: switch on, the current content is loaded right away
+        command.execute();
+        try {
+            assertTrue(command.isFollowing());
+            assertEquals(1, van.getCargo().size());
+            assertFalse(van.hasUnsavedChanges());
+
+            Files.writeString(file, line("g2", 6.99), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+            waitFor(van, 2);
+            assertEquals(2, van.getCargo().size());
+        } finally {
+            // Action: switch off
+            command.execute();
+        }
+
+        // Verify: nothing is picked up any more
+        assertFalse(command.isFollowing());
+        Files.writeString(file, line("g3", 7.99), StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        Thread.sleep(300);
+        assertEquals(2, van.getCargo().size());
+    }
+
+    @Test
+    void testExecute_missingFileIsFollowedOnceCreated(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("coffee_data.txt");
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        FollowFileCommand command = new FollowFileCommand(van, file.toString());
+
+        command.execute();
+        try {
+            assertTrue(van.getCargo().isEmpty());
+            Files.writeString(file, line("g1", 5.99), StandardCharsets.UTF_8);
+            waitFor(van, 1);
+            assertEquals(1, van.getCargo().size());
+        } finally {
+            command.execute();
+        }
+    }
+
+    @Test
+    void testExecute_binaryFileIsRejected(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("coffee_data.bin");
+        Files.write(file, new byte[]{'C', 'V', 'B', 1});
+        FollowFileCommand command = new FollowFileCommand(new CoffeeVan(10, 10), file.toString());
+
+        assertThrows(IOException.class, command::execute);
+        assertFalse(command.isFollowing());
+    }
+}
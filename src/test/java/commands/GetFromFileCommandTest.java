@@ -1,6 +1,9 @@
 package commands;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
 import coffee.BeanCoffee;
@@ -9,15 +12,25 @@ import coffee.enums.RoastLevel;
 import coffeevan.CoffeeVan;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import packaging.Packaging;
 import qualityparams.QualityParams;
+import services.CoffeeStorage;
 import services.CoffeeStorageService;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @ExtendWith(MockitoExtension.class)
 class GetFromFileCommandTest {
@@ -25,7 +38,7 @@ class GetFromFileCommandTest {
     private CoffeeVan coffeeVan;
 
     @Mock
-    private CoffeeStorageService storageService;
+    private CoffeeStorage storageService;
 
     @Test
     void testExecute_successfulLoad() throws IOException {
@@ -37,38 +50,127 @@ class GetFromFileCommandTest {
                 RoastLevel.MEDIUM, "Brazil");
         mockCoffees.add(coffee1);
 
-        when(storageService.getFromFile()).thenReturn(mockCoffees);
+        when(storageService.streamFromFile()).thenReturn(mockCoffees.stream());
 
         // Action
         GetFromFileCommand command = new GetFromFileCommand(coffeeVan, storageService);
         command.execute();
 
         // Verify
-        verify(storageService, times(1)).getFromFile();
-        verify(coffeeVan, times(1)).addCoffee(coffee1); // Verify that the coffee was added
+        verify(storageService, times(1)).streamFromFile();
+        verify(coffeeVan, times(1)).applySavedCoffee(coffee1); // Verify that the coffee was applied as saved
     }
 
     @Test
     void testExecute_emptyFile() throws IOException {
         // Setup
-        when(storageService.getFromFile()).thenReturn(new ArrayList<>());
+        when(storageService.streamFromFile()).thenReturn(Stream.empty());
         GetFromFileCommand command = new GetFromFileCommand(coffeeVan, storageService);
 
         // Action
         command.execute();
 
         // Verify
-        verify(storageService, times(1)).getFromFile();
+        verify(storageService, times(1)).streamFromFile();
         // Verify that addCoffee was NOT called
-        verify(coffeeVan, never()).addCoffee(any(Coffee.class));
+        verify(coffeeVan, never()).applySavedCoffee(any(Coffee.class));
     }
 
     @Test
     void testExecute_ioException() throws IOException {
         // Setup: storageService throws an error
-        when(storageService.getFromFile()).thenThrow(new IOException("File not found"));
+        when(storageService.streamFromFile()).thenThrow(new IOException("File not found"));
         GetFromFileCommand command = new GetFromFileCommand(coffeeVan, storageService);
 
         assertThrows(IOException.class, command::execute);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExecute_readErrorWhileStreaming() throws IOException {
+        // Setup: the file breaks after the first item
+        Coffee coffee1 = new BeanCoffee("Arabica", 250.0, 15.99,
+                new QualityParams(8.0, 9.0, 7.0),
+                new Packaging("Paper", 250.0),
+                RoastLevel.MEDIUM, "Brazil");
+        AtomicBoolean closed = new AtomicBoolean();
+        Stream<Coffee> stream = Stream.<Supplier<Coffee>>of(() -> coffee1, () -> {
+            throw new UncheckedIOException(new IOException("Disk error"));
+        }).map(Supplier::get).onClose(() -> closed.set(true));
+        when(storageService.streamFromFile()).thenReturn(stream);
+        GetFromFileCommand command = new GetFromFileCommand(coffeeVan, storageService);
+
+        assertThrows(IOException.class, command::execute);
+        verify(coffeeVan, times(1)).applySavedCoffee(coffee1);
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testExecute_repeatedLoadMergesById() throws IOException {
+        // Setup: a real van, and a file that holds an older and a newer version of the same item
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        Coffee older = new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.0),
+                new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil", "a");
+        Coffee other = new BeanCoffee("Kenya AA", 250.0, 19.99, new QualityParams(9.0, 9.0, 8.0),
+                new Packaging("Paper", 250.0), RoastLevel.LIGHT, "Kenya", "b");
+        Coffee newer = new BeanCoffee("Arabica", 250.0, 12.99, new QualityParams(8.0, 9.0, 7.0),
+                new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil", "a");
+        when(storageService.streamFromFile()).thenAnswer(invocation -> Stream.of(older, other, newer));
+        GetFromFileCommand command = new GetFromFileCommand(van, storageService);
+
+        // Action: load the same file twice
+        command.execute();
+        command.execute();
+
+        // Verify: one item per ID, the last record wins, and nothing is left to save
+        assertEquals(List.of(newer, other), van.getCargo());
+        assertEquals(12.99, van.getCargo().get(0).getPrice());
+        assertEquals(12.99 + 19.99, van.getTotalCost(), 1e-9);
+        assertFalse(van.hasUnsavedChanges());
+    }
+
+    @Test
+    void testExecute_reloadKeepsUnsavedChanges() throws IOException {
+        // Setup: a real van loaded from the file, then edited without saving
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        Coffee saved = new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.0),
+                new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil", "a");
+        Coffee removed = new BeanCoffee("Kenya AA", 250.0, 19.99, new QualityParams(9.0, 9.0, 8.0),
+                new Packaging("Paper", 250.0), RoastLevel.LIGHT, "Kenya", "b");
+        Coffee edited = new BeanCoffee("Arabica", 250.0, 9.99, new QualityParams(8.0, 9.0, 7.0),
+                new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil", "a");
+        when(storageService.streamFromFile()).thenAnswer(invocation -> Stream.of(saved, removed));
+        GetFromFileCommand command = new GetFromFileCommand(van, storageService);
+        command.execute();
+        van.addCoffee(edited);
+        van.removeCoffeeById("b");
+
+        // Action: reload the file
+        command.execute();
+
+        // Verify: the edit and the removal survive and are still waiting to be saved
+        assertEquals(List.of(edited), van.getCargo());
+        assertEquals(List.of(edited), van.getUnsavedCoffee());
+        assertEquals(Set.of("b"), van.getUnsavedRemovals());
+        assertTrue(van.hasUnsavedChanges());
+    }
+
+    @Test
+    void testExecute_parallelLoad(@TempDir Path tempDir) throws IOException {
+        // Setup: a text file with two records, one of them replaced later in the file
+        Path file = tempDir.resolve("coffee_data.txt");
+        Files.write(file, List.of(
+                "BEAN;a;Arabica;250.0;15.99;8.0;9.0;7.0;Paper;250.0;Brazil;MEDIUM",
+                "GROUND;b;Robusta;100.0;5.99;7.0;6.0;8.0;Plastic;100.0;COARSE",
+                "BEAN;a;Arabica;250.0;9.99;8.0;9.0;7.0;Paper;250.0;Brazil;MEDIUM"));
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        GetFromFileCommand command = new GetFromFileCommand(van, new CoffeeStorageService(file.toString()), ForkJoinPool.commonPool());
+
+        // Action
+        command.execute();
+
+        // Verify: one item per ID, the last record winning, and nothing left to save
+        assertEquals(List.of("a", "b"), van.getCargo().stream().map(Coffee::getId).toList());
+        assertEquals(9.99, van.getCargo().get(0).getPrice());
+        assertFalse(van.hasUnsavedChanges());
+    }
+}
@@ -0,0 +1,71 @@
+package commands;
+
+import coffeevan.CoffeeVan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportCsvCommandTest {
+
+    private static final String HEADER = "type,id,name,weight,price,aroma,taste,freshness,material,volume,grindSize\n";
+
+    @Test
+    void testExecute_importsValidRowsAndReportsInvalidOnes(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.csv");
+        Files.writeString(file, HEADER
+                + "GROUND,g1,Robusta,100,5.99,7,6,8,Plastic,100,FINE\n"
+                + "GROUND,g2,\"Say \"\"hi\"\"\",100,5.99,7,6,8,Plastic,100,HUGE\n"
+                + "GROUND,g3,Robusta,100,5.99,7,6,8,Plastic,100,COARSE\n", StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+
+        // Action
+        new ImportCsvCommand(van, file.toString()).execute();
+
+        // Verification
+        assertEquals(2, van.getCargo().size());
+        assertTrue(van.containsId("g1"));
+        assertTrue(van.containsId("g3"));
+        assertTrue(van.hasUnsavedChanges());
+        List<String> report = Files.readAllLines(tempDir.resolve("coffee_data.csv.errors.csv"));
+        assertEquals(2, report.size());
+        assertEquals("line,error", report.get(0));
+        assertTrue(report.get(1).startsWith("3,\"unknown grindSize 'HUGE'"));
+    }
+
+    @Test
+    void testExecute_removesStaleReportWhenAllRowsAreValid(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.csv");
+        Path report = tempDir.resolve("coffee_data.csv.errors.csv");
+        Files.writeString(file, HEADER + "GROUND,g1,Robusta,100,5.99,7,6,8,Plastic,100,FINE\n", StandardCharsets.UTF_8);
+        Files.writeString(report, "line,error\n2,\"old\"\n", StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+
+        // Action
+        new ImportCsvCommand(van, file.toString()).execute();
+
+        // Verification
+        assertEquals(1, van.getCargo().size());
+        assertFalse(Files.exists(report));
+    }
+
+    @Test
+    void testExecute_failsWithoutRequiredColumn(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.csv");
+        Files.writeString(file, "type,name\nGROUND,Robusta\n", StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+
+        // Action & Verification
+        assertThrows(IOException.class, () -> new ImportCsvCommand(van, file.toString()).execute());
+        assertTrue(van.getCargo().isEmpty());
+    }
+}
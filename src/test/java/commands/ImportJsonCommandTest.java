@@ -0,0 +1,74 @@
+package commands;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffeevan.CoffeeVan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportJsonCommandTest {
+
+    private static String item(String id, String grind) {
+        return "{\"type\":\"GROUND\",\"id\":\"" + id + "\",\"name\":\"Robusta\",\"weight\":100.0,\"price\":5.99,"
+                + "\"quality\":{\"aroma\":7.0,\"taste\":6.0,\"freshness\":8.0},"
+                + "\"packaging\":{\"material\":\"Plastic\",\"volume\":100.0},\"grindSize\":\"" + grind + "\"}";
+    }
+
+    @Test
+    void testExecute_importsValidItemsAsUnsavedChanges(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.json");
+        Files.writeString(file, "[" + item("g1", "FINE") + "," + item("g2", "POWDER") + "," + item("g3", "COARSE") + "]",
+                StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+
+        // Action
+        new ImportJsonCommand(van, file.toString()).execute();
+
+        // Verification: the invalid grind size is skipped
+        assertEquals(2, van.getCargo().size());
+        assertTrue(van.containsId("g1"));
+        assertTrue(van.containsId("g3"));
+        assertTrue(van.hasUnsavedChanges());
+    }
+
+    @Test
+    void testExecute_roundTripsAnExport(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.json");
+        CoffeeVan source = new CoffeeVan(10_000, 10_000);
+        source.addCoffee(new GroundCoffee("Robusta", 100.0, 5.99, new QualityParams(7.0, 6.0, 8.0),
+                new Packaging("Plastic", 100.0), GrindSize.COARSE, "g1"));
+        new ExportJsonCommand(source, file.toString()).execute();
+        CoffeeVan target = new CoffeeVan(10_000, 10_000);
+
+        // Action
+        new ImportJsonCommand(target, file.toString()).execute();
+
+        // Verification
+        Coffee imported = target.getById("g1");
+        assertEquals(source.getById("g1").toFileString(), imported.toFileString());
+    }
+
+    @Test
+    void testExecute_stopsAtBrokenJson(@TempDir Path tempDir) throws Exception {
+        // Setup
+        Path file = tempDir.resolve("coffee_data.json");
+        Files.writeString(file, "[" + item("g1", "FINE") + "," + item("g2", "FINE").substring(10), StandardCharsets.UTF_8);
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+
+        // Action & Verification: the items before the error stay
+        assertThrows(IOException.class, () -> new ImportJsonCommand(van, file.toString()).execute());
+        assertEquals(1, van.getCargo().size());
+    }
+}
@@ -48,8 +48,8 @@ class LoadVanCommandTest {
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        // Verify: addCoffee should not have been called
-        verify(coffeeVan, never()).addCoffee(any());
+        // Verify: tryAddCoffee should not have been called
+        verify(coffeeVan, never()).tryAddCoffee(any());
     }
 
     @Test
@@ -61,8 +61,8 @@ class LoadVanCommandTest {
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        // Verify: addCoffee should not have been called
-        verify(coffeeVan, never()).addCoffee(any());
+        // Verify: tryAddCoffee should not have been called
+        verify(coffeeVan, never()).tryAddCoffee(any());
     }
 
     @Test
@@ -71,13 +71,13 @@ class LoadVanCommandTest {
         String input = "Arabica\n250.0\n15.99\nbean\nBrazil MEDIUM\n8.0\n9.0\n7.0\nPaper\n250.0\ny\n";
         simulateInput(input);
 
-        when(coffeeVan.addCoffee(any(BeanCoffee.class))).thenReturn(true);
+        when(coffeeVan.tryAddCoffee(any(BeanCoffee.class))).thenReturn(true);
 
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        // Verify: was addCoffee called 1 time with any BeanCoffee?
-        verify(coffeeVan, times(1)).addCoffee(any(BeanCoffee.class));
+        // Verify: was tryAddCoffee called 1 time with any BeanCoffee?
+        verify(coffeeVan, times(1)).tryAddCoffee(any(BeanCoffee.class));
     }
 
     @Test
@@ -85,12 +85,12 @@ class LoadVanCommandTest {
         String input = "Robusta\n100.0\n5.99\nground\nCOARSE\n7.0\n6.0\n8.0\nPlastic\n100.0\ny\n";
         simulateInput(input);
 
-        when(coffeeVan.addCoffee(any(GroundCoffee.class))).thenReturn(true);
+        when(coffeeVan.tryAddCoffee(any(GroundCoffee.class))).thenReturn(true);
 
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        verify(coffeeVan, times(1)).addCoffee(any(GroundCoffee.class));
+        verify(coffeeVan, times(1)).tryAddCoffee(any(GroundCoffee.class));
     }
 
     @Test
@@ -98,12 +98,12 @@ class LoadVanCommandTest {
         String input = "Nescafe\n50.0\n3.99\ninstant\nHIGH\n6.0\n7.0\n5.0\nJar\n50.0\ny\n";
         simulateInput(input);
 
-        when(coffeeVan.addCoffee(any(InstantCoffee.class))).thenReturn(true);
+        when(coffeeVan.tryAddCoffee(any(InstantCoffee.class))).thenReturn(true);
 
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        verify(coffeeVan, times(1)).addCoffee(any(InstantCoffee.class));
+        verify(coffeeVan, times(1)).tryAddCoffee(any(InstantCoffee.class));
     }
 
 
@@ -117,8 +117,8 @@ class LoadVanCommandTest {
         command.execute();
 
         // Verify: despite the error, the command continued
-        // and finally called addCoffee 1 time.
-        verify(coffeeVan, times(1)).addCoffee(any(BeanCoffee.class));
+        // and finally called tryAddCoffee 1 time.
+        verify(coffeeVan, times(1)).tryAddCoffee(any(BeanCoffee.class));
     }
 
     @Test
@@ -130,8 +130,8 @@ class LoadVanCommandTest {
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        // Verify: addCoffee was called 1 time at the end.
-        verify(coffeeVan, times(1)).addCoffee(any(BeanCoffee.class));
+        // Verify: tryAddCoffee was called 1 time at the end.
+        verify(coffeeVan, times(1)).tryAddCoffee(any(BeanCoffee.class));
     }
 
     @Test
@@ -143,7 +143,7 @@ class LoadVanCommandTest {
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        verify(coffeeVan, times(1)).addCoffee(any(BeanCoffee.class));
+        verify(coffeeVan, times(1)).tryAddCoffee(any(BeanCoffee.class));
     }
 
     @Test
@@ -155,6 +155,6 @@ class LoadVanCommandTest {
         LoadVanCommand command = new LoadVanCommand(coffeeVan);
         command.execute();
 
-        verify(coffeeVan, times(1)).addCoffee(any(BeanCoffee.class));
+        verify(coffeeVan, times(1)).tryAddCoffee(any(BeanCoffee.class));
     }
 }
\ No newline at end of file
@@ -10,19 +10,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import services.CoffeeStorageService;
+import services.CoffeeStorage;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.Set;
 
 @ExtendWith(MockitoExtension.class)
 class RemoveByIdCommandTest {
     @Mock
     private CoffeeVan coffeeVan;
     @Mock
-    private CoffeeStorageService coffeeStorage;
+    private CoffeeStorage coffeeStorage;
 
     private final InputStream originalIn = System.in;
 
@@ -40,19 +40,22 @@ class RemoveByIdCommandTest {
     }
 
     @Test
-    void testExecute_successfulRemoval_shouldSaveToFile() throws IOException {
+    void testExecute_successfulRemoval_shouldLogRemoval() throws IOException {
         simulateInput("12345\n");
 
-        // Setup: removeCoffeeById returned true
+        // Setup: removeCoffeeById returned true for a saved item
         when(coffeeVan.removeCoffeeById("12345")).thenReturn(true);
-        when(coffeeVan.getCargo()).thenReturn(new ArrayList<>()); // Needed for saveToFile
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of("12345"));
 
         RemoveByIdCommand command = new RemoveByIdCommand(coffeeVan, coffeeStorage);
         command.execute();
 
         // Verify:
         verify(coffeeVan, times(1)).removeCoffeeById("12345");
-        verify(coffeeStorage, times(1)).saveToFile(any(), eq(false));
+        verify(coffeeStorage, times(1)).appendRemoval("12345");
+        verify(coffeeVan, times(1)).markRemovalSaved("12345");
+        // the file is not rewritten
+        verify(coffeeStorage, never()).saveToFile(any(), anyBoolean());
     }
 
     @Test
@@ -67,22 +70,40 @@ class RemoveByIdCommandTest {
 
         // Verify:
         verify(coffeeVan, times(1)).removeCoffeeById("99999");
+        verify(coffeeStorage, never()).appendRemoval(any());
         verify(coffeeStorage, never()).saveToFile(any(), anyBoolean());
     }
 
+    @Test
+    void testExecute_unsavedItem_shouldNotLogRemoval() throws IOException {
+        simulateInput("12345\n");
+
+        // Setup: the item was only in the van, so the van has no removal to save
+        when(coffeeVan.removeCoffeeById("12345")).thenReturn(true);
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of());
+
+        RemoveByIdCommand command = new RemoveByIdCommand(coffeeVan, coffeeStorage);
+        command.execute();
+
+        // Verify:
+        verify(coffeeVan, times(1)).removeCoffeeById("12345");
+        verifyNoInteractions(coffeeStorage);
+        verify(coffeeVan, never()).markRemovalSaved(any());
+    }
+
     @Test
     void testExecute_handlesEmptyIdLoop() throws IOException {
         // 1. "" (incorrect) -> 2. "" (incorrect) -> 3. "12345" (correct)
         simulateInput("\n\n12345\n");
 
         when(coffeeVan.removeCoffeeById("12345")).thenReturn(true);
-        when(coffeeVan.getCargo()).thenReturn(new ArrayList<>());
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of("12345"));
 
         RemoveByIdCommand command = new RemoveByIdCommand(coffeeVan, coffeeStorage);
         command.execute();
 
         // Verify: it was still called 1 time with the correct ID
         verify(coffeeVan, times(1)).removeCoffeeById("12345");
-        verify(coffeeStorage, times(1)).saveToFile(any(), eq(false));
+        verify(coffeeStorage, times(1)).appendRemoval("12345");
     }
 }
\ No newline at end of file
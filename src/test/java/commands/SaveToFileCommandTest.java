@@ -9,22 +9,28 @@ import coffee.enums.GrindSize;
 import coffeevan.CoffeeVan;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import packaging.Packaging;
 import qualityparams.QualityParams;
+import services.CoffeeStorage;
 import services.CoffeeStorageService;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 @ExtendWith(MockitoExtension.class)
 class SaveToFileCommandTest {
     @Mock
     private CoffeeVan coffeeVan;
     @Mock
-    private CoffeeStorageService storageService;
+    private CoffeeStorage storageService;
 
     @Test
     void testExecute_successfulSave() throws IOException {
@@ -36,23 +42,28 @@ class SaveToFileCommandTest {
                 GrindSize.COARSE);
         mockCargo.add(coffee);
 
-        when(coffeeVan.getCargo()).thenReturn(mockCargo);
+        when(coffeeVan.hasUnsavedChanges()).thenReturn(true);
+        when(coffeeVan.getUnsavedCoffee()).thenReturn(mockCargo);
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of());
         doNothing().when(storageService).saveToFile(mockCargo, true);
 
         // Action
         SaveToFileCommand command = new SaveToFileCommand(coffeeVan, storageService);
         command.execute();
 
-        // Verify:
-        verify(coffeeVan, times(1)).getCargo();
+        // Verify: only the unsaved items are appended, then the van is clean
         verify(storageService, times(1)).saveToFile(mockCargo, true);
+        verify(storageService, never()).appendRemovals(anyCollection());
+        verify(coffeeVan, times(1)).markSaved();
     }
 
     @Test
     void testExecute_ioException() throws IOException {
         // Setup
-        List<Coffee> mockCargo = new ArrayList<>();
-        when(coffeeVan.getCargo()).thenReturn(mockCargo);
+        List<Coffee> mockCargo = List.of(mock(Coffee.class));
+        when(coffeeVan.hasUnsavedChanges()).thenReturn(true);
+        when(coffeeVan.getUnsavedCoffee()).thenReturn(mockCargo);
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of());
         // Setup mock to throw an error
         doThrow(new IOException("Write error")).when(storageService).saveToFile(mockCargo, true);
 
@@ -60,21 +71,94 @@ class SaveToFileCommandTest {
 
         // Action and Verify: expect the command to re-throw the exception
         assertThrows(IOException.class, command::execute);
+        // the changes stay unsaved, so the next save tries again
+        verify(coffeeVan, never()).markSaved();
+    }
+
+    @Test
+    void testExecute_noChanges() throws IOException {
+        // Setup
+        when(coffeeVan.hasUnsavedChanges()).thenReturn(false);
+
+        SaveToFileCommand command = new SaveToFileCommand(coffeeVan, storageService);
+
+        // Action
+        command.execute();
+
+        // Verify: nothing is written at all
+        verifyNoInteractions(storageService);
+        verify(coffeeVan, never()).markSaved();
     }
 
     @Test
-    void testExecute_emptyCargo() throws IOException {
+    void testExecute_removalsBeforeAdditions() throws IOException {
         // Setup
-        List<Coffee> emptyCargo = new ArrayList<>();
-        when(coffeeVan.getCargo()).thenReturn(emptyCargo);
-        doNothing().when(storageService).saveToFile(emptyCargo, true);
+        List<Coffee> mockCargo = List.of(mock(Coffee.class));
+        when(coffeeVan.hasUnsavedChanges()).thenReturn(true);
+        when(coffeeVan.getUnsavedCoffee()).thenReturn(mockCargo);
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of("12345"));
 
         SaveToFileCommand command = new SaveToFileCommand(coffeeVan, storageService);
 
         // Action
         command.execute();
 
-        // Verify: was saveToFile called with an empty list?
-        verify(storageService, times(1)).saveToFile(emptyCargo, true);
+        // Verify
+        InOrder order = inOrder(storageService, coffeeVan);
+        order.verify(storageService).appendRemovals(Set.of("12345"));
+        order.verify(storageService).saveToFile(mockCargo, true);
+        order.verify(coffeeVan).markSaved();
+    }
+
+    @Test
+    void testExecute_onlyRemovals() throws IOException {
+        // Setup
+        when(coffeeVan.hasUnsavedChanges()).thenReturn(true);
+        when(coffeeVan.getUnsavedCoffee()).thenReturn(List.of());
+        when(coffeeVan.getUnsavedRemovals()).thenReturn(Set.of("1", "2", "3"));
+
+        SaveToFileCommand command = new SaveToFileCommand(coffeeVan, storageService);
+
+        // Action
+        command.execute();
+
+        // Verify: all removals in one batch, and no empty append
+        verify(storageService, times(1)).appendRemovals(Set.of("1", "2", "3"));
+        verify(storageService, never()).appendRemoval(anyString());
+        verify(storageService, never()).saveToFile(anyList(), anyBoolean());
+        verify(coffeeVan, times(1)).markSaved();
+    }
+
+    @Test
+    void testExecute_repeatedSaveWritesNothing(@TempDir Path tempDir) throws IOException {
+        // Setup: a real van and a real file
+        Path file = tempDir.resolve("cargo.txt");
+        CoffeeStorageService storage = new CoffeeStorageService(file.toString());
+        CoffeeVan van = new CoffeeVan(10_000, 10_000);
+        van.addCoffee(new GroundCoffee("Robusta", 100.0, 5.99, new QualityParams(7.0, 6.0, 8.0),
+                new Packaging("Plastic", 100.0), GrindSize.COARSE, "g1"));
+        van.addCoffee(new GroundCoffee("Arabica", 100.0, 7.99, new QualityParams(8.0, 8.0, 8.0),
+                new Packaging("Paper", 100.0), GrindSize.FINE, "g2"));
+        SaveToFileCommand command = new SaveToFileCommand(van, storage);
+
+        // Action
+        command.execute();
+        long size = Files.size(file);
+        command.execute();
+
+        // Verify: the second save did not touch the file
+        assertEquals(size, Files.size(file));
+        assertFalse(Files.exists(Path.of(file + ".log")));
+
+        // a van loaded from the file is clean as well
+        CoffeeVan loaded = new CoffeeVan(10_000, 10_000);
+        new GetFromFileCommand(loaded, storage).execute();
+        new SaveToFileCommand(loaded, storage).execute();
+        assertEquals(size, Files.size(file));
+
+        // a removal is saved, and the item does not come back
+        assertTrue(loaded.removeCoffeeById("g1"));
+        new SaveToFileCommand(loaded, storage).execute();
+        assertEquals(List.of("g2"), storage.getFromFile().stream().map(Coffee::getId).toList());
     }
-}
\ No newline at end of file
+}
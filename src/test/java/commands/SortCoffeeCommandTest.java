@@ -19,32 +19,41 @@ class SortCoffeeCommandTest {
 
     @Test
     void testExecute_successfulSort() {
-        // Setup: return a non-empty list so the command doesn't exit early
+        // Setup: return a non-empty ordering so the command doesn't exit early
         List<Coffee> mockCargo = new ArrayList<>();
         mockCargo.add(mock(Coffee.class)); // Content doesn't matter
 
-        when(coffeeVan.getCargo()).thenReturn(mockCargo);
-        doNothing().when(coffeeVan).sortByPricePerKg();
+        when(coffeeVan.topByPricePerKg(Integer.MAX_VALUE, true)).thenReturn(mockCargo);
 
         // Action
         SortCoffeeCommand command = new SortCoffeeCommand(coffeeVan);
         command.execute();
 
-        // Verify:
-        verify(coffeeVan, times(1)).sortByPricePerKg();
-        verify(coffeeVan, times(2)).getCargo();
+        // Verify: the ordering comes from the index, the cargo is not re-sorted
+        verify(coffeeVan, times(1)).topByPricePerKg(Integer.MAX_VALUE, true);
+        verify(coffeeVan, never()).sortByPricePerKg();
+        verify(coffeeVan, never()).getCargo();
+    }
+
+    @Test
+    void testExecute_limit() {
+        when(coffeeVan.topByPricePerKg(5, true)).thenReturn(List.of(mock(Coffee.class)));
+
+        SortCoffeeCommand command = new SortCoffeeCommand(coffeeVan, 5);
+        command.execute();
+
+        verify(coffeeVan, times(1)).topByPricePerKg(5, true);
     }
 
     @Test
     void testExecute_emptyCargo() {
-        // Setup: van returns an empty list
-        when(coffeeVan.getCargo()).thenReturn(new ArrayList<>());
+        // Setup: van returns an empty ordering
+        when(coffeeVan.topByPricePerKg(Integer.MAX_VALUE, true)).thenReturn(new ArrayList<>());
 
         SortCoffeeCommand command = new SortCoffeeCommand(coffeeVan);
         command.execute();
 
         // Verify:
         verify(coffeeVan, never()).sortByPricePerKg();
-        verify(coffeeVan, times(1)).getCargo();
     }
-}
\ No newline at end of file
+}
@@ -25,9 +25,14 @@ class MenuEnumTest {
             "8, COUNTTOTALPRICE",
             "9, GETFROMFILE",
             "10, SAVETOFILE",
-            "11, EXIT"
+            "11, EXIT",
+            "12, FOLLOWFILE",
+            "13, EXPORTJSON",
+            "14, IMPORTJSON",
+            "15, IMPORTCSV",
+            "16, GETFROMFILEPARALLEL"
     })
-    @DisplayName("Should return correct enum for valid numbers (1-11)")
+    @DisplayName("Should return correct enum for valid numbers (1-16)")
     void fromNumber_ShouldReturnCorrectEnum(int choice, MenuEnum expectedEnum) {
 
         MenuEnum actual = MenuEnum.fromNumber(choice);
@@ -31,7 +31,7 @@ class MenuTest {
     @Mock
     private Command showCoffeeCommand;
     @Mock
-    private GetFromFileCommand getFromFileCommand; // Mocked concrete class for 'instanceof' check
+    private GetFromFileCommand getFromFileCommand;
     @Mock
     private ExitCommand exitCommand; // Mocked concrete class for 'instanceof' check
 
@@ -122,15 +122,15 @@ class MenuTest {
     }
 
     @Test
-    void run_ShouldExecuteGetFromFileCommand_OnlyOnce() throws IOException {
+    void run_ShouldExecuteGetFromFileCommand_EveryTime() throws IOException {
         // Arrange: User types "9", then "9" again, then "11" (Exit)
         provideInput("9\n9\n11\n");
 
         // Act
         menu.run();
 
-        // Assert: The 'getFromFile' command was executed *only once*
-        verify(getFromFileCommand, times(1)).execute();
+        // Assert: loading is idempotent, so the 'getFromFile' command runs both times
+        verify(getFromFileCommand, times(2)).execute();
 
         // Assert: The loop continued and exited
         verify(exitCommand, times(1)).execute();
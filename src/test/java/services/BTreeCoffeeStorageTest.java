@@ -0,0 +1,203 @@
+package services;
+
+import coffee.Coffee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static services.CoffeeFixtures.bean;
+import static services.CoffeeFixtures.ground;
+
+class BTreeCoffeeStorageTest {
+
+    private static List<String> ids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(String.format("id-%06d", i));
+        }
+        return ids;
+    }
+
+    @Test
+    void putGetDelete_ShouldWorkOnSingleItems(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.btree").toString();
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(file)) {
+            storage.put(bean("b1"));
+            storage.put(ground("g1", 1));
+            storage.put(ground("g1", 2));
+
+            assertEquals(2, storage.size());
+            assertEquals(2, storage.get("g1").getPrice());
+            assertEquals(bean("b1").toFileString(), storage.get("b1").toFileString());
+            assertNull(storage.get("x"));
+            assertTrue(storage.delete("b1"));
+            assertFalse(storage.delete("b1"));
+            assertNull(storage.get("b1"));
+        }
+
+        try (BTreeCoffeeStorage reopened = new BTreeCoffeeStorage(file)) {
+            assertEquals(1, reopened.size());
+            assertEquals(List.of("g1"), reopened.getFromFile().stream().map(Coffee::getId).toList());
+        }
+    }
+
+    @Test
+    void deleteAll_ShouldRemoveManyItemsAndSkipUnknownOnes(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.btree").toString();
+        List<String> ids = ids(2000);
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(file, 4)) {
+            List<Coffee> coffee = new ArrayList<>();
+            for (String id : ids) {
+                coffee.add(ground(id, 1));
+            }
+            storage.saveToFile(coffee, true);
+
+            List<String> removed = new ArrayList<>(ids.subList(0, 1500));
+            removed.add("unknown");
+            assertEquals(1500, storage.deleteAll(removed));
+            storage.appendRemovals(List.of(ids.get(1999)));
+        }
+
+        try (BTreeCoffeeStorage reopened = new BTreeCoffeeStorage(file)) {
+            assertEquals(ids.subList(1500, 1999), reopened.getFromFile().stream().map(Coffee::getId).toList());
+        }
+    }
+
+    @Test
+    void put_ShouldSplitPagesAndKeepIdOrder(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.btree").toString();
+        List<String> ids = ids(20_000);
+        List<String> shuffled = new ArrayList<>(ids);
+        Collections.shuffle(shuffled, new Random(7));
+        // a small cache, so that pages are evicted and read back during the inserts
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(file, 16)) {
+            List<Coffee> batch = new ArrayList<>();
+            for (String id : shuffled) {
+                batch.add(ground(id, 1));
+            }
+            storage.saveToFile(batch, true);
+            for (int i = 0; i < ids.size(); i += 2) {
+                storage.delete(ids.get(i));
+            }
+
+            assertTrue(storage.getHeight() >= 3);
+            assertEquals(10_000, storage.size());
+        }
+
+        try (BTreeCoffeeStorage reopened = new BTreeCoffeeStorage(file, 16)) {
+            List<String> expected = new ArrayList<>();
+            for (int i = 1; i < ids.size(); i += 2) {
+                expected.add(ids.get(i));
+            }
+            assertEquals(expected, reopened.getFromFile().stream().map(Coffee::getId).toList());
+            try (Stream<Coffee> stream = reopened.streamFromFile()) {
+                assertEquals(expected, stream.map(Coffee::getId).toList());
+            }
+            for (int i = 0; i < ids.size(); i += 997) {
+                assertEquals(i % 2 == 1, reopened.get(ids.get(i)) != null);
+            }
+        }
+    }
+
+    @Test
+    void get_ShouldReadOnePagePerLevel(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.btree").toString();
+        List<Coffee> coffee = new ArrayList<>();
+        for (String id : ids(50_000)) {
+            coffee.add(ground(id, 1));
+        }
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(file)) {
+            storage.saveToFile(coffee, false);
+        }
+
+        try (BTreeCoffeeStorage reopened = new BTreeCoffeeStorage(file)) {
+            long before = reopened.getPageReads();
+            assertNotNull(reopened.get("id-031415"));
+            assertEquals(reopened.getHeight(), reopened.getPageReads() - before);
+
+            // the upper levels are cached now
+            before = reopened.getPageReads();
+            assertNotNull(reopened.get("id-000001"));
+            assertTrue(reopened.getPageReads() - before < reopened.getHeight());
+        }
+    }
+
+    @Test
+    void saveToFile_ShouldReplaceAllItemsWithCompactTree(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("cargo.btree");
+        List<String> ids = ids(5000);
+        List<Coffee> coffee = new ArrayList<>();
+        for (String id : ids) {
+            coffee.add(ground(id, 1));
+        }
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(path.toString())) {
+            Collections.shuffle(coffee, new Random(3));
+            storage.saveToFile(coffee, true);
+            long scattered = Files.size(path);
+
+            storage.saveToFile(coffee, false);
+
+            assertTrue(Files.size(path) < scattered);
+            assertEquals(ids, storage.getFromFile().stream().map(Coffee::getId).toList());
+
+            storage.saveToFile(List.of(bean("b1"), ground("g1", 1), ground("g1", 3)), false);
+
+            assertEquals(2, storage.size());
+            assertEquals(3, storage.get("g1").getPrice());
+            assertNull(storage.get(ids.get(0)));
+        }
+        assertFalse(Files.exists(Path.of(path + ".rebuild")));
+    }
+
+    @Test
+    void saveToFile_ShouldRejectInvalidItemsBeforeWriting(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.btree").toString();
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(file)) {
+            storage.put(bean("b1"));
+
+            assertThrows(IllegalArgumentException.class, () -> storage.saveToFile(List.of(ground("g1", 1), mock(Coffee.class)), true));
+            assertThrows(IllegalArgumentException.class, () -> storage.put(ground("x".repeat(300), 1)));
+
+            assertEquals(List.of("b1"), storage.getFromFile().stream().map(Coffee::getId).toList());
+        }
+    }
+
+    @Test
+    void get_ShouldDetectCorruptPage(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("cargo.btree");
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(path.toString())) {
+            storage.put(bean("b1"));
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            // a byte inside the root leaf
+            channel.write(ByteBuffer.wrap(new byte[]{42}), PageFile.PAGE_SIZE + 100);
+        }
+
+        try (BTreeCoffeeStorage storage = new BTreeCoffeeStorage(path.toString())) {
+            IOException e = assertThrows(IOException.class, () -> storage.get("b1"));
+            assertTrue(e.getMessage().contains("Checksum"));
+        }
+    }
+
+    @Test
+    void constructor_ShouldRejectOtherFiles(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("cargo.txt");
+        new CoffeeStorageService(path.toString()).saveToFile(List.of(bean("b1")), false);
+
+        assertThrows(IOException.class, () -> new BTreeCoffeeStorage(path.toString()));
+        assertThrows(IllegalArgumentException.class, () -> new BTreeCoffeeStorage(tempDir.resolve("x").toString(), 0));
+    }
+}
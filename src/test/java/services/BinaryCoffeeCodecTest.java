@@ -0,0 +1,226 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryCoffeeCodecTest {
+
+    private static byte[] encode(List<Coffee> coffee) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BinaryCoffeeCodec.Encoder encoder = new BinaryCoffeeCodec.Encoder(out)) {
+            for (Coffee c : coffee) {
+                encoder.write(c);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static List<Coffee> decode(byte[] bytes) throws IOException {
+        List<Coffee> result = new ArrayList<>();
+        try (BinaryCoffeeCodec.Decoder decoder = new BinaryCoffeeCodec.Decoder(new ByteArrayInputStream(bytes))) {
+            Coffee coffee;
+            while ((coffee = decoder.read()) != null) {
+                result.add(coffee);
+            }
+        }
+        return result;
+    }
+
+    private static int indexOf(byte[] bytes, byte[] part) {
+        for (int i = 0; i + part.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+                return i;
+            }
+        }
+        throw new AssertionError("pattern not found");
+    }
+
+    private static void assertSameCoffee(Coffee expected, Coffee actual) {
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getName(), actual.getName());
+        // compare bits, so that -0.0 and NaN have to survive as well
+        assertEquals(Double.doubleToRawLongBits(expected.getWeight()), Double.doubleToRawLongBits(actual.getWeight()));
+        assertEquals(Double.doubleToRawLongBits(expected.getPrice()), Double.doubleToRawLongBits(actual.getPrice()));
+        assertEquals(Double.doubleToRawLongBits(expected.getQuality().getAromaScore()),
+                Double.doubleToRawLongBits(actual.getQuality().getAromaScore()));
+        assertEquals(Double.doubleToRawLongBits(expected.getQuality().getTasteScore()),
+                Double.doubleToRawLongBits(actual.getQuality().getTasteScore()));
+        assertEquals(Double.doubleToRawLongBits(expected.getQuality().getFreshnessScore()),
+                Double.doubleToRawLongBits(actual.getQuality().getFreshnessScore()));
+        assertEquals(expected.getPackaging().getMaterial(), actual.getPackaging().getMaterial());
+        assertEquals(Double.doubleToRawLongBits(expected.getPackaging().getVolume()),
+                Double.doubleToRawLongBits(actual.getPackaging().getVolume()));
+        assertEquals(expected.toFileString(), actual.toFileString());
+    }
+
+    @Test
+    void roundTrip_ShouldKeepEverySubtypeAndValue() throws IOException {
+        List<Coffee> coffee = List.of(
+                new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8, 9, 7),
+                        new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil"),
+                new GroundCoffee("Robusta", 0.1 + 0.2, -0.0, new QualityParams(0.1 + 0.2, 7.123456789, 4.25),
+                        new Packaging("Plastic", Double.NaN), GrindSize.COARSE, "not-a-uuid"),
+                new InstantCoffee("Café ☕", Double.MAX_VALUE, Double.POSITIVE_INFINITY, new QualityParams(1, 2, 3),
+                        new Packaging("Glass", 100), ConcentrationLevel.LOW, "123"),
+                // upper-case UUID text must come back unchanged, so it is not stored as two longs
+                new BeanCoffee("Arabica", 1, 2, new QualityParams(3, 4, 5), new Packaging("Paper", 6),
+                        RoastLevel.DARK, "Brazil", "0F3B5C2A-1111-4222-8333-444455556666"));
+
+        List<Coffee> decoded = decode(encode(coffee));
+
+        assertEquals(coffee.size(), decoded.size());
+        for (int i = 0; i < coffee.size(); i++) {
+            assertSameCoffee(coffee.get(i), decoded.get(i));
+        }
+        BeanCoffee bean = (BeanCoffee) decoded.get(0);
+        assertEquals("Brazil", bean.getOrigin());
+        assertEquals(RoastLevel.MEDIUM, bean.getRoastLevel());
+        assertEquals(GrindSize.COARSE, ((GroundCoffee) decoded.get(1)).getGrindSize());
+    }
+
+    @Test
+    void roundTrip_ShouldKeepNullTextAndEnumFields() throws IOException {
+        List<Coffee> coffee = List.of(
+                new BeanCoffee(null, 1, 2, new QualityParams(3, 4, 5), new Packaging(null, 6), null, null, null),
+                new GroundCoffee(null, 1, 2, new QualityParams(3, 4, 5), new Packaging(null, 6), null, "g-1"),
+                new InstantCoffee("Nescafe", 1, 2, new QualityParams(3, 4, 5), new Packaging("Glass", 6), null, "i-1"),
+                // a string after the nulls must still get the right dictionary entry
+                new BeanCoffee("Nescafe", 1, 2, new QualityParams(3, 4, 5), new Packaging("Glass", 6),
+                        RoastLevel.LIGHT, "Glass", "b-2"));
+
+        List<Coffee> decoded = decode(encode(coffee));
+
+        assertEquals(coffee.size(), decoded.size());
+        BeanCoffee bean = (BeanCoffee) decoded.get(0);
+        assertNull(bean.getId());
+        assertNull(bean.getName());
+        assertNull(bean.getPackaging().getMaterial());
+        assertNull(bean.getOrigin());
+        assertNull(bean.getRoastLevel());
+        GroundCoffee ground = (GroundCoffee) decoded.get(1);
+        assertEquals("g-1", ground.getId());
+        assertNull(ground.getName());
+        assertNull(ground.getGrindSize());
+        assertNull(((InstantCoffee) decoded.get(2)).getConcentrationLevel());
+        BeanCoffee last = (BeanCoffee) decoded.get(3);
+        assertEquals("Nescafe", last.getName());
+        assertEquals("Glass", last.getPackaging().getMaterial());
+        assertEquals("Glass", last.getOrigin());
+        assertEquals(RoastLevel.LIGHT, last.getRoastLevel());
+    }
+
+    @Test
+    void decode_ShouldReadVersionOneSegment() throws IOException {
+        // 'CVB' 1, ground coffee with text id "x", name "Ab", numbers 1..5 (varint 400 * n), material "Ab"
+        // (reference 1), volume 6, grind ordinal 0
+        byte[] bytes = {'C', 'V', 'B', 1, 2, 1, 1, 'x', 0, 2, 'A', 'b',
+                (byte) 0x90, 0x03, (byte) 0xA0, 0x06, (byte) 0xB0, 0x09, (byte) 0xC0, 0x0C, (byte) 0xD0, 0x0F,
+                1, (byte) 0xE0, 0x12, 0};
+
+        List<Coffee> decoded = decode(bytes);
+
+        assertEquals(1, decoded.size());
+        GroundCoffee ground = (GroundCoffee) decoded.get(0);
+        assertEquals("x", ground.getId());
+        assertEquals("Ab", ground.getName());
+        assertEquals("Ab", ground.getPackaging().getMaterial());
+        assertEquals(5.0, ground.getQuality().getFreshnessScore());
+        assertEquals(GrindSize.values()[0], ground.getGrindSize());
+    }
+
+    @Test
+    void decode_ShouldReportOutOfRangeOrdinalAsCorruptData() throws IOException {
+        byte[] bytes = encode(List.of(new GroundCoffee("Robusta", 500, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.FINE)));
+        bytes[bytes.length - 1] = (byte) GrindSize.values().length;
+
+        IOException e = assertThrows(IOException.class, () -> decode(bytes));
+        assertTrue(e.getMessage().startsWith("Corrupt binary coffee data"), e.getMessage());
+    }
+
+    @Test
+    void decode_ShouldReportInvalidScoreAsCorruptData() throws IOException {
+        byte[] bytes = encode(List.of(new InstantCoffee("Nescafe", 1, 2, new QualityParams(3, 4, 5),
+                new Packaging("Glass", 6), ConcentrationLevel.LOW, "i-1")));
+        // the aroma score 3 is the varint 1200 (0xB0 0x09); 0xB0 0x22 makes it 4400, a score of 11
+        int aroma = indexOf(bytes, new byte[]{(byte) 0xB0, 0x09});
+        bytes[aroma + 1] = 0x22;
+
+        IOException e = assertThrows(IOException.class, () -> decode(bytes));
+        assertTrue(e.getMessage().startsWith("Corrupt binary coffee data"), e.getMessage());
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+    }
+
+    @Test
+    void encode_ShouldBeMuchSmallerThanText() throws IOException {
+        List<Coffee> coffee = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            Coffee c = new BeanCoffee("Arabica", 250 + i, 10 + i / 100.0, new QualityParams(8.5, 9, 7.25),
+                    new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil");
+            coffee.add(c);
+            text.append(c.toFileString()).append('\n');
+        }
+
+        byte[] binary = encode(coffee);
+
+        assertTrue(binary.length * 5 / 2 < text.toString().getBytes(StandardCharsets.UTF_8).length,
+                "binary " + binary.length + " bytes, text " + text.length() + " bytes");
+    }
+
+    @Test
+    void decode_ShouldReadAppendedSegments() throws IOException {
+        Coffee first = new GroundCoffee("Robusta", 500, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.FINE);
+        Coffee second = new GroundCoffee("Robusta", 400, 9.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 400), GrindSize.FINE);
+        byte[] a = encode(List.of(first));
+        byte[] b = encode(List.of(second));
+        byte[] both = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, both, a.length, b.length);
+
+        List<Coffee> decoded = decode(both);
+
+        assertEquals(2, decoded.size());
+        assertSameCoffee(first, decoded.get(0));
+        assertSameCoffee(second, decoded.get(1));
+    }
+
+    @Test
+    void decode_ShouldFailOnTruncatedRecord() throws IOException {
+        byte[] bytes = encode(List.of(new BeanCoffee("Arabica", 250, 15.99, new QualityParams(8, 9, 7),
+                new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil")));
+
+        assertThrows(EOFException.class, () -> decode(Arrays.copyOf(bytes, bytes.length - 3)));
+    }
+
+    @Test
+    void isBinary_ShouldRecognizeHeaderOnly() throws IOException {
+        byte[] binary = encode(List.of());
+        byte[] text = "CVB;123;Arabica".getBytes(StandardCharsets.US_ASCII);
+
+        assertTrue(BinaryCoffeeCodec.isBinary(binary, binary.length));
+        assertFalse(BinaryCoffeeCodec.isBinary(text, text.length));
+        assertFalse(BinaryCoffeeCodec.isBinary(binary, 2));
+    }
+}
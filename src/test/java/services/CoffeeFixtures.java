@@ -0,0 +1,36 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+/**
+ * Coffee items shared by the storage tests. Items of one type differ only in ID and, for ground
+ * coffee, price.
+ */
+final class CoffeeFixtures {
+
+    private CoffeeFixtures() {
+    }
+
+    static Coffee bean(String id) {
+        return new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8, 9, 7),
+                new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil", id);
+    }
+
+    static Coffee ground(String id, double price) {
+        return new GroundCoffee("Robusta", 500.0, price, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.MEDIUM, id);
+    }
+
+    static Coffee instant(String id) {
+        return new InstantCoffee("Nescafe", 100.0, 5.99, new QualityParams(6, 7, 8),
+                new Packaging("Jar", 100), ConcentrationLevel.HIGH, id);
+    }
+}
@@ -1,18 +1,43 @@
 package services;
 
+import coffee.BeanCoffee;
 import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import packaging.Packaging;
+import qualityparams.QualityParams;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 /**
@@ -98,5 +123,391 @@ class CoffeeStorageServiceTest {
         assertEquals("Arabica", actualCoffeeList.get(0).getName());
         assertEquals("Robusta", actualCoffeeList.get(1).getName());
     }
-}
 
+    @Test
+    void getFromFile_ShouldDetectBinaryFormat(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_binary.bin");
+        List<Coffee> coffee = List.of(
+                new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8, 9, 7),
+                        new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil"),
+                new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                        new Packaging("Plastic", 500), GrindSize.MEDIUM),
+                // same strings as the first item, so the appended segment must not use the old dictionary
+                new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8, 9, 7),
+                        new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil"));
+
+        new CoffeeStorageService(tempFile.toString(), StorageFormat.BINARY).saveToFile(coffee.subList(0, 2), false);
+        new CoffeeStorageService(tempFile.toString(), StorageFormat.BINARY).saveToFile(coffee.subList(2, 3), true);
+
+        // a service set up for text still reads the binary file
+        List<Coffee> loaded = new CoffeeStorageService(tempFile.toString()).getFromFile();
+
+        assertEquals(3, loaded.size());
+        assertEquals(coffee.get(0).toFileString(), loaded.get(0).toFileString());
+        assertEquals(coffee.get(1).toFileString(), loaded.get(1).toFileString());
+        assertEquals(coffee.get(2).toFileString(), loaded.get(2).toFileString());
+    }
+
+    @Test
+    void saveToFile_ShouldRefuseToAppendAnotherFormat(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_mixed.txt");
+        Files.write(tempFile, List.of("GROUND;456;Robusta;500.0;10.50;6.0;7.0;8.0;Plastic;500.0;MEDIUM"));
+        Coffee coffee = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.MEDIUM);
+
+        CoffeeStorageService binary = new CoffeeStorageService(tempFile.toString(), StorageFormat.BINARY);
+
+        assertThrows(IOException.class, () -> binary.saveToFile(List.of(coffee), true));
+        assertEquals(1, Files.readAllLines(tempFile).size());
+    }
+
+    @Test
+    void appendRemoval_ShouldBeReplayedAndCompacted(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_log.txt");
+        String line1 = "BEAN;123;Arabica;250.0;15.99;8.0;9.0;7.0;Paper;250.0;Brazil;MEDIUM";
+        String line2 = "GROUND;456;Robusta;500.0;10.50;6.0;7.0;8.0;Plastic;500.0;MEDIUM";
+        Files.write(tempFile, List.of(line1, line2));
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        storageService.appendRemoval("123");
+
+        // the base file is untouched, the removal is only in the log
+        assertEquals(List.of(line1, line2), Files.readAllLines(tempFile));
+        List<Coffee> loaded = storageService.getFromFile();
+        assertEquals(1, loaded.size());
+        assertEquals("456", loaded.get(0).getId());
+
+        storageService.compact();
+
+        assertEquals(1, Files.readAllLines(tempFile).size());
+        assertFalse(Files.exists(tempDir.resolve("test_log.txt.log")));
+        assertEquals("456", storageService.getFromFile().get(0).getId());
+    }
+
+    @Test
+    void appendRemovals_ShouldLogAllTombstonesInOneBatch(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_removals.txt");
+        Files.write(tempFile, beanLines(4));
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        storageService.appendRemovals(List.of("id-0", "id-2"));
+        storageService.appendRemovals(List.of());
+
+        assertEquals(List.of("D;id-0", "D;id-2"), Files.readAllLines(Path.of(tempFile + ".log")));
+        assertEquals(List.of("id-1", "id-3"), storageService.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldKeepAppendedItemsAfterTombstones(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_readd.txt");
+        Coffee coffee = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.MEDIUM);
+        storageService = new CoffeeStorageService(tempFile.toString());
+        storageService.saveToFile(List.of(coffee), false);
+
+        storageService.appendRemoval(coffee.getId());
+        storageService.saveToFile(List.of(coffee), true);
+
+        assertEquals(1, storageService.getFromFile().size());
+
+        // a full rewrite is a new base, the old log must not be replayed over it
+        storageService.appendRemoval(coffee.getId());
+        storageService.saveToFile(List.of(coffee), false);
+
+        assertEquals(1, storageService.getFromFile().size());
+    }
+
+    @Test
+    void getFromFile_ShouldMergeRepeatedAppendsById(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_duplicates.txt");
+        List<String> lines = new ArrayList<>();
+        for (int round = 0; round < 50; round++) {
+            lines.addAll(beanLines(20));
+        }
+        lines.set(lines.size() - 1, "BEAN;id-19;Arabica last;250.0;15.99;8.0;9.0;7.0;Paper;250.0;Brazil;DARK");
+        Files.write(tempFile, lines);
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        List<Coffee> coffee = storageService.getFromFile();
+
+        // one item per ID in first-seen order, the last record of an ID wins
+        assertEquals(beanLines(20).stream().map(line -> line.split(";")[1]).toList(), coffee.stream().map(Coffee::getId).toList());
+        assertEquals("Arabica last", coffee.get(19).getName());
+        assertEquals(coffee.stream().map(Coffee::toFileString).toList(),
+                storageService.getFromFileParallel(java.util.concurrent.ForkJoinPool.commonPool()).getCoffee().stream().map(Coffee::toFileString).toList());
+    }
+
+    private static List<String> beanLines(int count) {
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            lines.add("BEAN;id-" + i + ";Arabica " + i + ";250.0;15.99;8.0;9.0;7.0;Paper;250.0;Brazil;MEDIUM");
+        }
+        return lines;
+    }
+
+    @Test
+    void streamFromFile_ShouldMatchGetFromFileWithLog(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_stream.txt");
+        Files.write(tempFile, beanLines(10));
+        storageService = new CoffeeStorageService(tempFile.toString());
+        storageService.appendRemoval("id-3");
+        storageService.saveToFile(List.of(new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.MEDIUM, "id-3")), true);
+
+        List<String> streamed;
+        try (Stream<Coffee> coffee = storageService.streamFromFile()) {
+            streamed = coffee.map(Coffee::getId).toList();
+        }
+
+        assertEquals(storageService.getFromFile().stream().map(Coffee::getId).toList(), streamed);
+        assertEquals(10, streamed.size());
+        assertEquals("id-3", streamed.get(9));
+    }
+
+    @Test
+    void streamFromFile_ShouldStopEarlyWithoutReadingTheRest(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_early.txt");
+        Files.write(tempFile, beanLines(200_000));
+        storageService = new CoffeeStorageService(tempFile.toString());
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        long before = threads.getCurrentThreadAllocatedBytes();
+        List<Coffee> firstThree;
+        try (Stream<Coffee> coffee = storageService.streamFromFile()) {
+            firstThree = coffee.limit(3).toList();
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(List.of("id-0", "id-1", "id-2"), firstThree.stream().map(Coffee::getId).toList());
+        // parsing all 200 000 records would allocate tens of megabytes
+        assertTrue(allocated < 4L << 20, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void streamFromFile_ShouldNotHoldOnToConsumedItems(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_heap.txt");
+        Files.write(tempFile, beanLines(50_000));
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        WeakReference<Coffee> first = null;
+        boolean collected = false;
+        int count = 0;
+        try (Stream<Coffee> coffee = storageService.streamFromFile()) {
+            Iterator<Coffee> iterator = coffee.iterator();
+            while (iterator.hasNext()) {
+                Coffee next = iterator.next();
+                if (first == null) {
+                    first = new WeakReference<>(next);
+                }
+                count++;
+                // halfway through: the consumer dropped the first item, so nothing else may keep it alive
+                if (count == 25_000) {
+                    for (int i = 0; i < 10 && !collected; i++) {
+                        System.gc();
+                        collected = first.get() == null;
+                    }
+                }
+            }
+        }
+
+        assertEquals(50_000, count);
+        assertTrue(collected, "the stream keeps consumed items reachable");
+    }
+
+    @Test
+    void saveToFile_ShouldWriteSameBytesAsToFileString(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_bytes.txt");
+        Random random = new Random(5);
+        List<Coffee> coffee = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+        // enough records to fill the write buffer several times
+        for (int i = 0; i < 30_000; i++) {
+            Coffee c = new BeanCoffee("Arabica " + i, random.nextDouble() * 1000, random.nextInt(100_000) / 100.0,
+                    new QualityParams(random.nextDouble() * 10, random.nextInt(11), 7.5),
+                    new Packaging(i % 2 == 0 ? "Paper" : "Papier recyclé", 250), RoastLevel.MEDIUM, "Brazil");
+            coffee.add(c);
+            expected.append(c.toFileString()).append(System.lineSeparator());
+        }
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        storageService.saveToFile(coffee.subList(0, 10_000), false);
+        storageService.saveToFile(coffee.subList(10_000, coffee.size()), true);
+
+        assertArrayEquals(expected.toString().getBytes(StandardCharsets.UTF_8), Files.readAllBytes(tempFile));
+    }
+
+    /**
+     * Lets the first {@code limit} bytes through and then fails every write, like a process killed mid-save.
+     */
+    private static UnaryOperator<WritableByteChannel> failAfter(long limit) {
+        return channel -> new WritableByteChannel() {
+            private long written;
+
+            @Override
+            public int write(ByteBuffer bytes) throws IOException {
+                if (written >= limit) {
+                    throw new IOException("injected crash");
+                }
+                int allowed = (int) Math.min(bytes.remaining(), limit - written);
+                ByteBuffer slice = bytes.slice(bytes.position(), allowed);
+                int count = channel.write(slice);
+                bytes.position(bytes.position() + count);
+                written += count;
+                return count;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return channel.isOpen();
+            }
+
+            @Override
+            public void close() throws IOException {
+                channel.close();
+            }
+        };
+    }
+
+    @Test
+    void saveToFile_ShouldKeepOldFileWhenWriteDiesPartway(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_crash.txt");
+        Files.write(tempFile, beanLines(100));
+        byte[] before = Files.readAllBytes(tempFile);
+        List<Coffee> replacement = new CoffeeStorageService(tempFile.toString()).getFromFile().subList(0, 50);
+
+        for (long limit : new long[]{0, 1, 100, 1000, 2000}) {
+            CoffeeStorageService failing = new CoffeeStorageService(tempFile.toString(), StorageFormat.TEXT, failAfter(limit));
+            assertThrows(IOException.class, () -> failing.saveToFile(replacement, false));
+
+            assertArrayEquals(before, Files.readAllBytes(tempFile));
+            assertFalse(Files.exists(tempDir.resolve("test_crash.txt.tmp")));
+        }
+
+        storageService = new CoffeeStorageService(tempFile.toString());
+        storageService.saveToFile(replacement, false);
+        assertEquals(50, storageService.getFromFile().size());
+    }
+
+    @Test
+    void appendRemovals_ShouldNotLeaveTornRecordsInLog(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_log_crash.txt");
+        Path log = tempDir.resolve("test_log_crash.txt.log");
+        Files.write(tempFile, beanLines(12));
+        new CoffeeStorageService(tempFile.toString()).appendRemoval("id-0");
+
+        // cut inside the first tombstone, right after "D;id-1" of "D;id-10", and inside the second
+        for (long limit : new long[]{1, 6, 10}) {
+            CoffeeStorageService failing = new CoffeeStorageService(tempFile.toString(), StorageFormat.TEXT, failAfter(limit));
+            assertThrows(IOException.class, () -> failing.appendRemovals(List.of("id-10", "id-11")));
+            assertEquals(List.of("D;id-0"), Files.readAllLines(log));
+        }
+        // a process killed in the middle of the same write
+        Files.writeString(log, "D;id-1", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        storageService = new CoffeeStorageService(tempFile.toString());
+        assertEquals(11, storageService.getFromFile().size());
+
+        storageService.appendRemovals(List.of("id-10", "id-11"));
+
+        assertEquals(List.of("D;id-0", "D;id-10", "D;id-11"), Files.readAllLines(log));
+        assertEquals(beanLines(10).subList(1, 10).stream().map(line -> line.split(";")[1]).toList(),
+                storageService.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldRecoverFromCrashBetweenSteps(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_steps.txt");
+        Path tmp = tempDir.resolve("test_steps.txt.tmp");
+        Path log = tempDir.resolve("test_steps.txt.log");
+        Path stash = tempDir.resolve("test_steps.txt.log.old");
+        Files.write(tempFile, beanLines(3));
+        new CoffeeStorageService(tempFile.toString()).appendRemoval("id-0");
+
+        // killed after the log was stashed, before the new file was renamed into place
+        Files.write(tmp, beanLines(1));
+        Files.move(log, stash);
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        assertEquals(List.of("id-1", "id-2"), storageService.getFromFile().stream().map(Coffee::getId).toList());
+        assertFalse(Files.exists(tmp));
+        assertFalse(Files.exists(stash));
+
+        // killed after the rename, before the stashed log was deleted
+        Files.move(log, stash);
+        Files.write(tempFile, beanLines(1));
+        storageService = new CoffeeStorageService(tempFile.toString());
+
+        assertEquals(List.of("id-0"), storageService.getFromFile().stream().map(Coffee::getId).toList());
+        assertFalse(Files.exists(stash));
+        assertFalse(Files.exists(log));
+    }
+
+    @Test
+    void saveToFile_ShouldStartNewLineAfterTornAppend(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path tempFile = tempDir.resolve("test_torn.txt");
+        Files.write(tempFile, beanLines(2));
+        Coffee coffee = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.MEDIUM, "g");
+
+        CoffeeStorageService failing = new CoffeeStorageService(tempFile.toString(), StorageFormat.TEXT, failAfter(20));
+        assertThrows(IOException.class, () -> failing.saveToFile(List.of(coffee), true));
+        storageService = new CoffeeStorageService(tempFile.toString());
+        storageService.saveToFile(List.of(coffee), true);
+
+        // the torn record is skipped, the records around it survive
+        assertEquals(List.of("id-0", "id-1", "g"), storageService.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldDropTornBinaryAppend(@org.junit.jupiter.api.io.TempDir Path tempDir) throws IOException {
+        Path textFile = tempDir.resolve("test_beans.txt");
+        Files.write(textFile, beanLines(2));
+        Path tempFile = tempDir.resolve("test_torn.bin");
+        new CoffeeStorageService(tempFile.toString(), StorageFormat.BINARY)
+                .saveToFile(new CoffeeStorageService(textFile.toString()).getFromFile(), false);
+        Coffee coffee = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.MEDIUM, "g");
+
+        // the new segment's header and the start of its record get through
+        CoffeeStorageService failing = new CoffeeStorageService(tempFile.toString(), StorageFormat.BINARY, failAfter(12));
+        assertThrows(IOException.class, () -> failing.saveToFile(List.of(coffee), true));
+        storageService = new CoffeeStorageService(tempFile.toString(), StorageFormat.BINARY);
+        storageService.saveToFile(List.of(coffee), true);
+
+        // the torn record is cut off, so the records after it are still readable
+        assertEquals(List.of("id-0", "id-1", "g"), storageService.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldCommitConcurrentSavesTogether(@org.junit.jupiter.api.io.TempDir Path tempDir) throws Exception {
+        Path tempFile = tempDir.resolve("test_group.txt");
+        storageService = new CoffeeStorageService(tempFile.toString());
+        storageService.saveToFile(List.of(), false);
+        List<Coffee> coffee = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            coffee.add(new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6, 7, 8),
+                    new Packaging("Plastic", 500), GrindSize.MEDIUM, "g" + i));
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> saves = new ArrayList<>();
+            for (Coffee c : coffee) {
+                saves.add(threads.submit(() -> {
+                    storageService.saveToFile(List.of(c), true);
+                    return null;
+                }));
+            }
+            for (Future<?> save : saves) {
+                save.get();
+            }
+        } finally {
+            threads.shutdown();
+        }
+
+        List<String> ids = new ArrayList<>(storageService.getFromFile().stream().map(Coffee::getId).toList());
+        Collections.sort(ids);
+        List<String> expected = new ArrayList<>(coffee.stream().map(Coffee::getId).toList());
+        Collections.sort(expected);
+        assertEquals(expected, ids);
+    }
+}
@@ -0,0 +1,153 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvCoffeeImporterTest {
+
+    private static CsvImportResult load(Path dir, String csv) throws IOException {
+        Path file = dir.resolve("data.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return new CsvCoffeeImporter(file).load(ForkJoinPool.commonPool());
+    }
+
+    @Test
+    void load_ShouldMapColumnsByHeaderName(@TempDir Path dir) throws IOException {
+        CsvImportResult result = load(dir, """
+                Price,Name,Type,Weight,Aroma,Taste,Freshness,Material,Volume,Origin,Roast Level,grind_size,CONCENTRATIONLEVEL,id,notes
+                15.99,Arabica,bean,250,8,9,7.5,Paper,250,Brazil,medium,,,b1,ignored
+                5.99,Robusta,GROUND,100,7,6,8,Plastic,100,,,Coarse,,,
+                3.5,Nescafe,Instant,50,5,5,9,Jar,60,,,,HIGH,i1,
+                """);
+
+        assertEquals(0, result.getErrorCount());
+        assertEquals(3, result.getRowCount());
+        BeanCoffee bean = (BeanCoffee) result.getCoffee().get(0);
+        assertEquals("b1", bean.getId());
+        assertEquals("Arabica", bean.getName());
+        assertEquals(15.99, bean.getPrice());
+        assertEquals(RoastLevel.MEDIUM, bean.getRoastLevel());
+        assertEquals("Brazil", bean.getOrigin());
+        GroundCoffee ground = (GroundCoffee) result.getCoffee().get(1);
+        assertEquals(GrindSize.COARSE, ground.getGrindSize());
+        // no ID in the file: a new one is generated
+        assertNotNull(ground.getId());
+        assertFalse(ground.getId().isEmpty());
+        InstantCoffee instant = (InstantCoffee) result.getCoffee().get(2);
+        assertEquals(ConcentrationLevel.HIGH, instant.getConcentrationLevel());
+        assertEquals(60.0, instant.getPackaging().getVolume());
+    }
+
+    @Test
+    void load_ShouldHandleQuotedFieldsAndSemicolons(@TempDir Path dir) throws IOException {
+        CsvImportResult result = load(dir, "﻿type;name;weight;price;aroma;taste;freshness;material;volume;grindSize\r\n"
+                + "GROUND;\"Mocha; \"\"House\"\" blend, dark\";100;5.99;7;6;8;\"Plastic\";100;FINE\r\n"
+                + "GROUND;\"Two\r\nlines\";100;5.99;7;6;8;Plastic;100;FINE\r\n");
+
+        assertEquals(0, result.getErrorCount());
+        assertEquals("Mocha; \"House\" blend, dark", result.getCoffee().get(0).getName());
+        assertEquals("Two\r\nlines", result.getCoffee().get(1).getName());
+    }
+
+    @Test
+    void load_ShouldReportInvalidRowsWithTheirLine(@TempDir Path dir) throws IOException {
+        CsvImportResult result = load(dir, """
+                type,name,weight,price,aroma,taste,freshness,material,volume,grindSize
+                GROUND,"Multi
+                line",100,5.99,7,6,8,Plastic,100,FINE
+                GROUND,Bad price,100,abc,7,6,8,Plastic,100,FINE
+
+                GROUND,Negative,-1,5.99,7,6,8,Plastic,100,FINE
+                GROUND,Too few,100
+                TEA,Unknown,100,5.99,7,6,8,Plastic,100,FINE
+                GROUND,No grind,100,5.99,7,6,8,Plastic,100,SMALL
+                GROUND,Bad quality,100,5.99,11,6,8,Plastic,100,FINE
+                GROUND,Fine,100,5.99,7,6,8,Plastic,100,FINE
+                """);
+
+        assertEquals(8, result.getRowCount());
+        assertEquals(2, result.getCoffee().size());
+        assertEquals("Fine", result.getCoffee().get(1).getName());
+        assertEquals(6, result.getErrorCount());
+        assertEquals(4, result.getErrors().get(0).getLine());
+        assertTrue(result.getErrors().get(0).getMessage().contains("price"));
+        assertEquals(6, result.getErrors().get(1).getLine());
+        assertTrue(result.getErrors().get(1).getMessage().contains("positive"));
+        assertEquals(7, result.getErrors().get(2).getLine());
+        assertTrue(result.getErrors().get(2).getMessage().contains("fields"));
+        assertEquals(8, result.getErrors().get(3).getLine());
+        assertTrue(result.getErrors().get(3).getMessage().contains("TEA"));
+        assertEquals(9, result.getErrors().get(4).getLine());
+        assertTrue(result.getErrors().get(4).getMessage().contains("SMALL"));
+        assertEquals(10, result.getErrors().get(5).getLine());
+    }
+
+    @Test
+    void load_ShouldRejectHeaderWithoutRequiredColumn(@TempDir Path dir) {
+        IOException e = assertThrows(IOException.class,
+                () -> load(dir, "type,name,weight,aroma,taste,freshness,material,volume\n"));
+        assertTrue(e.getMessage().contains("price"));
+    }
+
+    @Test
+    void load_ShouldReturnNothingForEmptyFile(@TempDir Path dir) throws IOException {
+        CsvImportResult result = load(dir, "");
+
+        assertTrue(result.getCoffee().isEmpty());
+        assertEquals(0, result.getRowCount());
+    }
+
+    @Test
+    void load_ShouldKeepFileOrderAndLinesAcrossChunks(@TempDir Path dir) throws IOException {
+        StringBuilder csv = new StringBuilder("type,id,name,weight,price,aroma,taste,freshness,material,volume,origin,roastLevel\n");
+        for (int i = 0; i < 5000; i++) {
+            // every 100th name spans two lines, every 777th row is invalid
+            String name = i % 100 == 0 ? "\"Bean,\n" + i + "\"" : "Bean " + i;
+            String weight = i % 777 == 0 ? "heavy" : String.valueOf(100 + i);
+            csv.append("BEAN,b").append(i).append(',').append(name).append(',').append(weight)
+                    .append(",1.5,5,6,7,Paper,100,Peru,DARK\n");
+        }
+        Path file = dir.resolve("data.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // tiny chunks, so that the file is split into many pieces
+            CsvImportResult result = new CsvCoffeeImporter(file, 1000).load(pool);
+
+            assertEquals(5000, result.getRowCount());
+            assertEquals(7, result.getErrorCount());
+            int expected = 0;
+            for (Coffee coffee : result.getCoffee()) {
+                if (expected % 777 == 0) {
+                    expected++;
+                }
+                assertEquals("b" + expected, coffee.getId());
+                expected++;
+            }
+            assertEquals(5000 - 7, result.getCoffee().size());
+            // row i starts on line 2 + i + (multi-line rows before it)
+            for (int k = 0; k < 7; k++) {
+                int row = k * 777;
+                assertEquals(2 + row + (row + 99) / 100, result.getErrors().get(k).getLine());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package services;
+
+import coffee.Coffee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static services.CoffeeFixtures.bean;
+
+class DataFileFollowerTest {
+
+    /**
+     * Records the changes as "+id" and "-id".
+     */
+    private static final class RecordingListener implements DataFileFollower.Listener {
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void added(Coffee coffee) {
+            events.add("+" + coffee.getId());
+        }
+
+        @Override
+        public void removed(String id) {
+            events.add("-" + id);
+        }
+
+        List<String> drain() {
+            synchronized (events) {
+                List<String> copy = new ArrayList<>(events);
+                events.clear();
+                return copy;
+            }
+        }
+    }
+
+    private static String line(String id) {
+        return "BEAN;" + id + ";Arabica;250.0;15.99;8.0;9.0;7.0;Paper;250.0;Brazil;MEDIUM\n";
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.writeString(file, text, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Test
+    void poll_ShouldReadOnlyAppendedLines(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("cargo.txt");
+        append(file, line("a") + line("b"));
+        RecordingListener listener = new RecordingListener();
+        DataFileFollower follower = new DataFileFollower(file.toString(), listener);
+
+        follower.poll();
+        assertEquals(List.of("+a", "+b"), listener.drain());
+
+        follower.poll();
+        assertTrue(listener.drain().isEmpty());
+
+        append(file, line("c"));
+        follower.poll();
+        assertEquals(List.of("+c"), listener.drain());
+    }
+
+    @Test
+    void poll_ShouldWaitForUnfinishedLine(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("cargo.txt");
+        append(file, line("a"));
+        RecordingListener listener = new RecordingListener();
+        DataFileFollower follower = new DataFileFollower(file.toString(), listener);
+        follower.poll();
+        listener.drain();
+
+        String record = line("b");
+        append(file, record.substring(0, 20));
+        follower.poll();
+        assertTrue(listener.drain().isEmpty());
+
+        append(file, record.substring(20) + line("c").replace("\n", "\r\n"));
+        follower.poll();
+        assertEquals(List.of("+b", "+c"), listener.drain());
+    }
+
+    @Test
+    void poll_ShouldReloadAfterTruncation(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("cargo.txt");
+        append(file, line("a") + line("b") + line("c"));
+        RecordingListener listener = new RecordingListener();
+        DataFileFollower follower = new DataFileFollower(file.toString(), listener);
+        follower.poll();
+        listener.drain();
+
+        Files.writeString(file, line("b"), StandardCharsets.UTF_8);
+        follower.poll();
+
+        assertEquals(List.of("+b", "-a", "-c"), listener.drain());
+    }
+
+    @Test
+    void poll_ShouldReloadAfterRotation(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("cargo.txt");
+        append(file, line("a"));
+        RecordingListener listener = new RecordingListener();
+        DataFileFollower follower = new DataFileFollower(file.toString(), listener);
+        follower.poll();
+        listener.drain();
+
+        // a longer file renamed over the old one, as a full save does
+        Path replacement = tempDir.resolve("cargo.txt.tmp");
+        Files.writeString(replacement, line("x") + line("y"), StandardCharsets.UTF_8);
+        Files.move(replacement, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        follower.poll();
+
+        assertEquals(List.of("+x", "+y", "-a"), listener.drain());
+    }
+
+    @Test
+    void poll_ShouldFollowMutationLogOfStorageService(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("cargo.txt");
+        CoffeeStorageService storage = new CoffeeStorageService(file.toString());
+        storage.saveToFile(List.of(bean("a"), bean("b")), false);
+        RecordingListener listener = new RecordingListener();
+        DataFileFollower follower = new DataFileFollower(file.toString(), listener);
+        follower.poll();
+        assertEquals(List.of("+a", "+b"), listener.drain());
+
+        storage.appendRemoval("a");
+        storage.saveToFile(List.of(bean("c")), true);
+        follower.poll();
+        assertEquals(List.of("-a", "+c"), listener.drain());
+
+        // compaction replaces the base file and drops the log
+        storage.compact();
+        follower.poll();
+        assertEquals(List.of("+b", "+c"), listener.drain());
+    }
+
+    @Test
+    void poll_ShouldRejectBinaryFile(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("cargo.bin");
+        new CoffeeStorageService(file.toString(), StorageFormat.BINARY).saveToFile(List.of(bean("a")), false);
+        DataFileFollower follower = new DataFileFollower(file.toString(), new RecordingListener());
+
+        assertThrows(IOException.class, follower::poll);
+    }
+
+    @Test
+    void start_ShouldPickUpAppendsInTheBackground(@TempDir Path tempDir) throws Exception {
+        Path file = tempDir.resolve("cargo.txt");
+        RecordingListener listener = new RecordingListener();
+        try (DataFileFollower follower = new DataFileFollower(file.toString(), listener)) {
+            follower.start();
+            assertTrue(follower.isRunning());
+
+            append(file, line("a"));
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (listener.events.isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(List.of("+a"), listener.drain());
+
+            follower.close();
+            assertFalse(follower.isRunning());
+        }
+    }
+}
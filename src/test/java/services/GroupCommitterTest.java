@@ -0,0 +1,97 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitterTest {
+
+    @Test
+    void submit_ShouldCoalesceRequestsThatArriveDuringACommit() throws Exception {
+        CountDownLatch firstCommitStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCommit = new CountDownLatch(1);
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        GroupCommitter<Integer> committer = new GroupCommitter<>(batch -> {
+            batches.add(List.copyOf(batch));
+            if (batches.size() == 1) {
+                firstCommitStarted.countDown();
+                try {
+                    releaseFirstCommit.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+        });
+        ExecutorService threads = Executors.newFixedThreadPool(11);
+        try {
+            Future<?> first = threads.submit(() -> {
+                committer.submit(0);
+                return null;
+            });
+            assertTrue(firstCommitStarted.await(10, TimeUnit.SECONDS));
+            List<Future<?>> others = new ArrayList<>();
+            for (int i = 1; i <= 10; i++) {
+                int request = i;
+                others.add(threads.submit(() -> {
+                    committer.submit(request);
+                    return null;
+                }));
+            }
+            // wait until all ten are queued behind the running commit
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (committer.queuedCount() < 10 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            releaseFirstCommit.countDown();
+            first.get(10, TimeUnit.SECONDS);
+            for (Future<?> other : others) {
+                other.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+
+        assertEquals(List.of(0), batches.get(0));
+        List<Integer> rest = new ArrayList<>();
+        for (List<Integer> batch : batches.subList(1, batches.size())) {
+            rest.addAll(batch);
+        }
+        Collections.sort(rest);
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10), rest);
+        // the ten queued requests went out as one group commit
+        assertEquals(2, batches.size());
+        assertEquals(2, committer.commitCount());
+    }
+
+    @Test
+    void submit_ShouldReportFailureToEveryRequestOfTheBatch() {
+        GroupCommitter<String> committer = new GroupCommitter<>(batch -> {
+            throw new IOException("disk full");
+        });
+
+        IOException e = assertThrows(IOException.class, () -> committer.submit("a"));
+        assertEquals("disk full", e.getMessage());
+        assertEquals(1, committer.commitCount());
+    }
+
+    @Test
+    void submit_ShouldRunSequentialRequestsOnePerBatch() throws IOException {
+        List<List<String>> batches = new ArrayList<>();
+        GroupCommitter<String> committer = new GroupCommitter<>(batch -> batches.add(List.copyOf(batch)));
+
+        committer.submit("a");
+        committer.submit("b");
+
+        assertEquals(List.of(List.of("a"), List.of("b")), batches);
+    }
+}
@@ -0,0 +1,171 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCoffeeReaderTest {
+
+    private static JsonCoffeeReader reader(String json) {
+        return new JsonCoffeeReader(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static List<Coffee> readAll(JsonCoffeeReader reader) throws IOException {
+        List<Coffee> items = new ArrayList<>();
+        for (Coffee coffee = reader.read(); coffee != null; coffee = reader.read()) {
+            items.add(coffee);
+        }
+        return items;
+    }
+
+    @Test
+    void read_ShouldRestoreWhatTheWriterWrote() throws IOException {
+        List<Coffee> original = List.of(
+                new BeanCoffee("Café \"☕\" 😀\n", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                        new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Côte d'Ivoire"),
+                new GroundCoffee("Robusta", 500.0, 0.1 + 0.2, new QualityParams(6.0, 7.0, 8.0),
+                        new Packaging(null, 1e7), GrindSize.COARSE),
+                new InstantCoffee("Nescafe", 100.0, 5.99, new QualityParams(0.0, 10.0, 8.0),
+                        new Packaging("Jar", 100.0), null));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonCoffeeWriter writer = new JsonCoffeeWriter(out)) {
+            for (Coffee coffee : original) {
+                writer.write(coffee);
+            }
+        }
+
+        List<Coffee> restored = readAll(new JsonCoffeeReader(new ByteArrayInputStream(out.toByteArray())));
+
+        assertEquals(3, restored.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(original.get(i).toFileString(), restored.get(i).toFileString());
+        }
+    }
+
+    @Test
+    void read_ShouldAcceptAnyKeyOrderWhitespaceAndUnknownKeys() throws IOException {
+        String json = " [ {\n"
+                + "  \"roastLevel\" : \"dark\", \"extra\": {\"nested\": [1, -2.5e3, true, false, null, {\"a\": \"}\"}]},\n"
+                + "  \"packaging\": {\"volume\": 250, \"material\": \"Pa\\u0070er\", \"label\": \"x\"},\n"
+                + "  \"quality\": {\"freshness\": 7.5, \"taste\": 9, \"aroma\": 8},\n"
+                + "  \"price\": 15.99, \"weight\": 250, \"name\": \"Arabica\", \"origin\": \"Brazil\",\n"
+                + "  \"id\": \"b1\", \"type\": \"bean\"\n"
+                + "} ]\n";
+
+        List<Coffee> items = readAll(reader(json));
+
+        assertEquals(1, items.size());
+        assertEquals("BEAN;b1;Arabica;250.0;15.99;8.0;9.0;7.5;Paper;250.0;Brazil;DARK", items.get(0).toFileString());
+    }
+
+    @Test
+    void read_ShouldDecodeSurrogatePairEscapes() throws IOException {
+        Coffee coffee = readAll(reader("[{\"type\":\"GROUND\",\"name\":\"\\ud83d\\ude00\",\"weight\":1,\"price\":1,"
+                + "\"quality\":{\"aroma\":1,\"taste\":1,\"freshness\":1},\"packaging\":{\"material\":\"Bag\",\"volume\":1},"
+                + "\"grindSize\":\"FINE\"}]")).get(0);
+
+        assertEquals("😀", coffee.getName());
+        assertNotNull(coffee.getId());
+    }
+
+    @Test
+    void read_ShouldReturnNullForAnEmptyArray() throws IOException {
+        JsonCoffeeReader reader = reader("[ ]");
+
+        assertNull(reader.read());
+        assertNull(reader.read());
+    }
+
+    @Test
+    void read_ShouldSkipInvalidItemsAndContinue() throws IOException {
+        String valid = "{\"type\":\"INSTANT\",\"id\":\"i1\",\"name\":\"N\",\"weight\":1,\"price\":1,"
+                + "\"quality\":{\"aroma\":1,\"taste\":1,\"freshness\":1},\"packaging\":{\"material\":\"Jar\",\"volume\":1},"
+                + "\"concentrationLevel\":\"LOW\"}";
+        JsonCoffeeReader reader = reader("[" + valid.replace("INSTANT", "CAPSULE") + ","
+                + valid.replace("LOW", "EXTREME") + "," + valid.replace("\"weight\":1,", "") + ","
+                + valid.replace("\"aroma\":1", "\"aroma\":11") + "," + valid + "]");
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IllegalArgumentException.class, reader::read);
+        }
+        Coffee coffee = reader.read();
+        assertEquals(ConcentrationLevel.LOW, ((InstantCoffee) coffee).getConcentrationLevel());
+        assertNull(reader.read());
+        assertEquals(5, reader.count());
+    }
+
+    @Test
+    void read_ShouldRejectMalformedJson() {
+        assertThrows(IOException.class, () -> readAll(reader("{\"type\":\"BEAN\"}")));
+        assertThrows(IOException.class, () -> readAll(reader("[{\"type\":\"BEAN\" \"id\":\"x\"}]")));
+        assertThrows(IOException.class, () -> readAll(reader("[{\"type\":\"BEAN\",\"weight\":\"heavy\"}]")));
+        assertThrows(IOException.class, () -> readAll(reader("[{\"type\":\"BEAN\"")));
+        assertThrows(IOException.class, () -> readAll(reader("[{\"name\":\"a\\qb\"}]")));
+        assertThrows(IOException.class, () -> readAll(reader("[] []")));
+        assertThrows(IOException.class, () -> readAll(reader("[1]")));
+    }
+
+    @Test
+    void read_ShouldStreamLargeInputsThroughAFixedBuffer() throws IOException {
+        // about 10 MB: elements and strings straddle the 64 KB input buffer boundary again and again
+        int items = 50_000;
+        byte[] element = ("{\"type\":\"GROUND\",\"id\":\"g\",\"name\":\"Robusta\",\"weight\":500.0,\"price\":10.5,"
+                + "\"quality\":{\"aroma\":6.0,\"taste\":7.0,\"freshness\":8.0},\"packaging\":{\"material\":\"Plastic\",\"volume\":500.0},"
+                + "\"grindSize\":\"COARSE\"}").getBytes(StandardCharsets.UTF_8);
+        Random random = new Random(5);
+        long length = 2 + items * (element.length + 1L) - 1;
+        // "[" element ("," element)* "]", generated byte by byte and handed out in small random chunks
+        InputStream generated = new InputStream() {
+            private long position;
+
+            @Override
+            public int read() {
+                byte[] one = new byte[1];
+                return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (position == length) {
+                    return -1;
+                }
+                int n = (int) Math.min(Math.min(len, 1 + random.nextInt(200)), length - position);
+                for (int i = 0; i < n; i++, position++) {
+                    long inElements = position - 1;
+                    int index = (int) (inElements % (element.length + 1));
+                    b[off + i] = position == 0 ? (byte) '[' : position == length - 1 ? (byte) ']'
+                            : index == element.length ? (byte) ',' : element[index];
+                }
+                return n;
+            }
+        };
+
+        int count = 0;
+        try (JsonCoffeeReader reader = new JsonCoffeeReader(generated)) {
+            for (Coffee coffee = reader.read(); coffee != null; coffee = reader.read()) {
+                assertEquals(10.5, coffee.getPrice());
+                count++;
+            }
+        }
+
+        assertEquals(items, count);
+    }
+}
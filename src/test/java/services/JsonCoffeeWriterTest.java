@@ -0,0 +1,111 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.InstantCoffee;
+import coffee.enums.ConcentrationLevel;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class JsonCoffeeWriterTest {
+
+    private static String export(Coffee... items) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonCoffeeWriter writer = new JsonCoffeeWriter(out)) {
+            for (Coffee coffee : items) {
+                writer.write(coffee);
+            }
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void write_ShouldWriteOneObjectPerLineForEverySubtype() throws IOException {
+        String json = export(
+                new BeanCoffee("Arabica", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                        new Packaging("Paper", 250.0), RoastLevel.MEDIUM, "Brazil", "b1"),
+                new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                        new Packaging("Plastic", 500.0), GrindSize.COARSE, "g1"),
+                new InstantCoffee("Nescafe", 100.0, 5.99, new QualityParams(6.0, 7.0, 8.0),
+                        new Packaging("Jar", 100.0), ConcentrationLevel.HIGH, "i1"));
+
+        assertEquals("[\n"
+                + "{\"type\":\"BEAN\",\"id\":\"b1\",\"name\":\"Arabica\",\"weight\":250.0,\"price\":15.99,"
+                + "\"quality\":{\"aroma\":8.0,\"taste\":9.0,\"freshness\":7.5},\"packaging\":{\"material\":\"Paper\",\"volume\":250.0},"
+                + "\"origin\":\"Brazil\",\"roastLevel\":\"MEDIUM\"},\n"
+                + "{\"type\":\"GROUND\",\"id\":\"g1\",\"name\":\"Robusta\",\"weight\":500.0,\"price\":10.5,"
+                + "\"quality\":{\"aroma\":6.0,\"taste\":7.0,\"freshness\":8.0},\"packaging\":{\"material\":\"Plastic\",\"volume\":500.0},"
+                + "\"grindSize\":\"COARSE\"},\n"
+                + "{\"type\":\"INSTANT\",\"id\":\"i1\",\"name\":\"Nescafe\",\"weight\":100.0,\"price\":5.99,"
+                + "\"quality\":{\"aroma\":6.0,\"taste\":7.0,\"freshness\":8.0},\"packaging\":{\"material\":\"Jar\",\"volume\":100.0},"
+                + "\"concentrationLevel\":\"HIGH\"}\n"
+                + "]\n", json);
+    }
+
+    @Test
+    void write_ShouldWriteAnEmptyArrayWithoutItems() throws IOException {
+        assertEquals("[\n]\n", export());
+    }
+
+    @Test
+    void write_ShouldEscapeTextAndWriteNulls() throws IOException {
+        String json = export(new BeanCoffee("Say \"hi\"\\\n\t\u0001 Café ☕ 😀", 250.0, 15.99, new QualityParams(8.0, 9.0, 7.5),
+                new Packaging(null, 250.0), null, null, "id"));
+
+        assertTrue(json.contains("\"name\":\"Say \\\"hi\\\"\\\\\\n\\t\\u0001 Café ☕ 😀\""), json);
+        assertTrue(json.contains("\"material\":null"), json);
+        assertTrue(json.contains("\"origin\":null,\"roastLevel\":null}"), json);
+    }
+
+    @Test
+    void write_ShouldStreamThroughAFixedBuffer() throws IOException {
+        long[] written = new long[1];
+        int[] largestWrite = new int[1];
+        OutputStream counting = new OutputStream() {
+            @Override
+            public void write(int b) {
+                written[0]++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                written[0] += len;
+                largestWrite[0] = Math.max(largestWrite[0], len);
+            }
+        };
+        Coffee coffee = new GroundCoffee("Robusta", 500.0, 10.5, new QualityParams(6.0, 7.0, 8.0),
+                new Packaging("Plastic", 500.0), GrindSize.COARSE);
+
+        try (JsonCoffeeWriter writer = new JsonCoffeeWriter(counting)) {
+            for (int i = 0; i < 100_000; i++) {
+                writer.write(coffee);
+            }
+            assertEquals(100_000, writer.count());
+        }
+
+        assertTrue(written[0] > 10_000_000, "bytes written: " + written[0]);
+        assertTrue(largestWrite[0] <= 1 << 16, "largest write: " + largestWrite[0]);
+    }
+
+    @Test
+    void write_ShouldRejectUnknownTypesAndNonFiniteNumbers() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonCoffeeWriter writer = new JsonCoffeeWriter(out);
+
+        assertThrows(IllegalArgumentException.class, () -> writer.write(mock(Coffee.class)));
+        assertThrows(IllegalArgumentException.class, () -> writer.write(new GroundCoffee("Robusta", Double.NaN, 10.5,
+                new QualityParams(6.0, 7.0, 8.0), new Packaging("Plastic", 500.0), GrindSize.COARSE)));
+    }
+}
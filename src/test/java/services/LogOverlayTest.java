@@ -0,0 +1,63 @@
+package services;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import org.junit.jupiter.api.Test;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogOverlayTest {
+
+    private static Coffee ground(String id, double price) {
+        return new GroundCoffee("Robusta", 500, price, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.FINE, id);
+    }
+
+    @Test
+    void applyAll_ShouldMatchReplayingIntoMap() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            List<Coffee> base = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                base.add(ground("id-" + i, i));
+            }
+            Map<String, Coffee> expected = new LinkedHashMap<>();
+            for (Coffee coffee : base) {
+                expected.put(coffee.getId(), coffee);
+            }
+            LogOverlay overlay = new LogOverlay();
+            for (int op = 0; op < 30; op++) {
+                String id = "id-" + random.nextInt(15);
+                if (random.nextBoolean()) {
+                    Coffee coffee = ground(id, 100 + op);
+                    overlay.add(coffee);
+                    expected.put(id, coffee);
+                } else {
+                    overlay.delete(id);
+                    expected.remove(id);
+                }
+            }
+
+            assertEquals(List.copyOf(expected.values()), overlay.applyAll(base));
+        }
+    }
+
+    @Test
+    void apply_ShouldPassThroughUnloggedItems() {
+        LogOverlay overlay = new LogOverlay();
+        Coffee coffee = ground("a", 1);
+
+        assertTrue(overlay.isEmpty());
+        assertSame(coffee, overlay.apply(coffee));
+        assertTrue(overlay.tail().isEmpty());
+    }
+}
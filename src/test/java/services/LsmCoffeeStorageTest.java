@@ -0,0 +1,188 @@
+package services;
+
+import coffee.Coffee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static services.CoffeeFixtures.bean;
+import static services.CoffeeFixtures.ground;
+
+class LsmCoffeeStorageTest {
+
+    private static long segmentBytes(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            long total = 0;
+            for (Path file : files.filter(f -> f.toString().endsWith(".seg")).toList()) {
+                total += Files.size(file);
+            }
+            return total;
+        }
+    }
+
+    @Test
+    void putGetDelete_ShouldSurviveReopenFromTheLog(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.lsm").toString();
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file)) {
+            storage.put(bean("b1"));
+            storage.put(ground("g1", 1));
+            storage.put(ground("g1", 2));
+            storage.delete("b1");
+
+            assertNull(storage.get("b1"));
+            assertEquals(2, storage.get("g1").getPrice());
+            assertEquals(0, storage.getSegmentCount());
+        }
+
+        try (LsmCoffeeStorage reopened = new LsmCoffeeStorage(file)) {
+            assertNull(reopened.get("b1"));
+            assertEquals(List.of("g1"), reopened.getFromFile().stream().map(Coffee::getId).toList());
+        }
+    }
+
+    @Test
+    void appendRemovals_ShouldLogAllTombstonesAndSurviveReopen(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.lsm").toString();
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file)) {
+            storage.saveToFile(List.of(bean("b1"), ground("g1", 1), ground("g2", 2)), true);
+
+            storage.appendRemovals(List.of("b1", "g2", "unknown"));
+
+            assertNull(storage.get("b1"));
+            assertNull(storage.get("g2"));
+        }
+
+        try (LsmCoffeeStorage reopened = new LsmCoffeeStorage(file)) {
+            assertEquals(List.of("g1"), reopened.getFromFile().stream().map(Coffee::getId).toList());
+        }
+    }
+
+    @Test
+    void churn_ShouldMatchAMapAcrossFlushesAndCompactions(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.lsm").toString();
+        TreeMap<String, Coffee> expected = new TreeMap<>();
+        Random random = new Random(11);
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file, 4096)) {
+            for (int i = 0; i < 5000; i++) {
+                String id = "id-" + random.nextInt(800);
+                if (random.nextInt(4) == 0) {
+                    storage.appendRemoval(id);
+                    expected.remove(id);
+                } else {
+                    Coffee coffee = ground(id, i);
+                    storage.put(coffee);
+                    expected.put(id, coffee);
+                }
+            }
+            storage.awaitCompaction();
+
+            assertTrue(storage.getCompactionCount() > 0);
+            assertTrue(storage.getWriteAmplification() > 1);
+            assertEquals(List.copyOf(expected.keySet()), storage.getFromFile().stream().map(Coffee::getId).toList());
+            for (int i = 0; i < 800; i += 7) {
+                Coffee stored = storage.get("id-" + i);
+                Coffee model = expected.get("id-" + i);
+                assertEquals(model == null ? null : model.toFileString(), stored == null ? null : stored.toFileString());
+            }
+        }
+
+        try (LsmCoffeeStorage reopened = new LsmCoffeeStorage(file, 4096)) {
+            List<String> lines = new ArrayList<>();
+            for (Coffee coffee : expected.values()) {
+                lines.add(coffee.toFileString());
+            }
+            assertEquals(lines, reopened.getFromFile().stream().map(Coffee::toFileString).toList());
+        }
+    }
+
+    @Test
+    void compaction_ShouldDropOverwrittenVersions(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.lsm").toString();
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file, 8192)) {
+            long oneRound = 0;
+            for (int round = 0; round < 12; round++) {
+                List<Coffee> coffee = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    coffee.add(ground(String.format("id-%03d", i), round));
+                }
+                storage.saveToFile(coffee, true);
+                storage.awaitCompaction();
+                if (round == 0) {
+                    oneRound = segmentBytes(tempDir);
+                }
+            }
+
+            assertTrue(storage.getCompactionCount() > 0);
+            assertTrue(segmentBytes(tempDir) < 4 * oneRound);
+            assertEquals(200, storage.getFromFile().size());
+            assertEquals(11, storage.get("id-007").getPrice());
+        }
+    }
+
+    @Test
+    void saveToFile_ShouldReplaceEverything(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.lsm").toString();
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file, 4096)) {
+            List<Coffee> coffee = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                coffee.add(ground("g" + i, 1));
+            }
+            storage.saveToFile(coffee, true);
+            storage.put(bean("b1"));
+
+            storage.saveToFile(List.of(bean("b2"), ground("g1", 5), ground("g1", 6)), false);
+
+            assertEquals(1, storage.getSegmentCount());
+            assertEquals(List.of("b2", "g1"), storage.getFromFile().stream().map(Coffee::getId).toList());
+            assertEquals(6, storage.get("g1").getPrice());
+            assertNull(storage.get("b1"));
+        }
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    @Test
+    void saveToFile_ShouldRejectInvalidItemsBeforeWriting(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.lsm").toString();
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file)) {
+            storage.put(bean("b1"));
+
+            assertThrows(IllegalArgumentException.class, () -> storage.saveToFile(List.of(ground("g1", 1), mock(Coffee.class)), true));
+
+            assertEquals(List.of("b1"), storage.getFromFile().stream().map(Coffee::getId).toList());
+        }
+    }
+
+    @Test
+    void constructor_ShouldDeleteOnlyFilesLeftByInterruptedWrites(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo").toString();
+        try (LsmCoffeeStorage storage = new LsmCoffeeStorage(file, 2048)) {
+            for (int i = 0; i < 100; i++) {
+                storage.put(ground("g" + i, i));
+            }
+        }
+        Files.writeString(tempDir.resolve("cargo.99.seg"), "half written");
+        Files.writeString(tempDir.resolve("cargo.98.seg.tmp"), "half written");
+        Files.writeString(tempDir.resolve("cargo.0.log"), "A;stale");
+        Files.writeString(tempDir.resolve("cargo.log"), "not ours");
+
+        try (LsmCoffeeStorage reopened = new LsmCoffeeStorage(file, 2048)) {
+            assertEquals(100, reopened.getFromFile().size());
+        }
+        assertFalse(Files.exists(tempDir.resolve("cargo.99.seg")));
+        assertFalse(Files.exists(tempDir.resolve("cargo.98.seg.tmp")));
+        assertFalse(Files.exists(tempDir.resolve("cargo.0.log")));
+        assertTrue(Files.exists(tempDir.resolve("cargo.log")));
+    }
+}
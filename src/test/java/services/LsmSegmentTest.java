@@ -0,0 +1,126 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LsmSegmentTest {
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static LsmSegment.Cursor cursor(TreeMap<byte[], byte[]> entries) {
+        Iterator<Map.Entry<byte[], byte[]>> iterator = entries.entrySet().iterator();
+        return new LsmSegment.Cursor() {
+            private Map.Entry<byte[], byte[]> current;
+
+            @Override
+            public boolean next() {
+                current = iterator.hasNext() ? iterator.next() : null;
+                return current != null;
+            }
+
+            @Override
+            public byte[] key() {
+                return current.getKey();
+            }
+
+            @Override
+            public byte[] value() {
+                return current.getValue();
+            }
+        };
+    }
+
+    private static TreeMap<byte[], byte[]> entries(int count) {
+        TreeMap<byte[], byte[]> entries = new TreeMap<>(Arrays::compareUnsigned);
+        for (int i = 0; i < count; i++) {
+            entries.put(bytes("key-" + i), i % 10 == 0 ? LsmSegment.TOMBSTONE : bytes("value-" + i));
+        }
+        return entries;
+    }
+
+    @Test
+    void get_ShouldFindEveryKeyAndNoMissingOne(@TempDir Path tempDir) throws IOException {
+        TreeMap<byte[], byte[]> entries = entries(1000);
+        try (LsmSegment segment = LsmSegment.write(tempDir.resolve("s.seg"), cursor(entries), entries.size())) {
+            assertEquals(1000, segment.count());
+            for (int i = 0; i < 1000; i++) {
+                byte[] value = segment.get(bytes("key-" + i));
+                if (i % 10 == 0) {
+                    assertSame(LsmSegment.TOMBSTONE, value);
+                } else {
+                    assertArrayEquals(bytes("value-" + i), value);
+                }
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertNull(segment.get(bytes("other-" + i)));
+            }
+            // before the first and after the last key
+            assertNull(segment.get(bytes("a")));
+            assertNull(segment.get(bytes("zzz")));
+        }
+        assertFalse(Files.exists(tempDir.resolve("s.seg.tmp")));
+    }
+
+    @Test
+    void bloomFilter_ShouldHaveFewFalsePositives() {
+        BloomFilter filter = new BloomFilter(10_000);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add(bytes("key-" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain(bytes("key-" + i)));
+            if (filter.mightContain(bytes("other-" + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 300, "false positives: " + falsePositives);
+    }
+
+    @Test
+    void cursor_ShouldReturnEntriesInKeyOrder(@TempDir Path tempDir) throws IOException {
+        TreeMap<byte[], byte[]> entries = entries(100);
+        try (LsmSegment segment = LsmSegment.write(tempDir.resolve("s.seg"), cursor(entries), entries.size());
+             LsmSegment.Cursor cursor = segment.cursor()) {
+            for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+                assertTrue(cursor.next());
+                assertArrayEquals(entry.getKey(), cursor.key());
+                assertEquals(entry.getValue() == LsmSegment.TOMBSTONE, cursor.value() == LsmSegment.TOMBSTONE);
+                assertArrayEquals(entry.getValue(), cursor.value());
+            }
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    void open_ShouldRejectTruncatedSegment(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("s.seg");
+        TreeMap<byte[], byte[]> entries = entries(100);
+        LsmSegment.write(path, cursor(entries), entries.size()).close();
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 10));
+
+        assertThrows(IOException.class, () -> LsmSegment.open(path));
+    }
+
+    @Test
+    void write_ShouldCreateNothingWithoutEntries(@TempDir Path tempDir) throws IOException {
+        assertNull(LsmSegment.write(tempDir.resolve("s.seg"), cursor(entries(0)), 0));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MutationLogTest {
+
+    private static Coffee bean(String id, double price) {
+        return new BeanCoffee("Arabica", 250, price, new QualityParams(8, 9, 7),
+                new Packaging("Paper", 250), RoastLevel.MEDIUM, "Brazil", id);
+    }
+
+    private static Map<String, Coffee> replay(MutationLog log, Coffee... base) throws IOException {
+        Map<String, Coffee> state = new LinkedHashMap<>();
+        for (Coffee c : log.read().applyAll(List.of(base))) {
+            state.put(c.getId(), c);
+        }
+        return state;
+    }
+
+    @Test
+    void read_ShouldApplyAddsAndTombstonesInOrder(@TempDir Path dir) throws IOException {
+        MutationLog log = new MutationLog(dir.resolve("data.txt.log"));
+        log.appendRemoval("a");
+        log.appendAdditions(List.of(bean("c", 3), bean("b", 20)));
+        log.appendAdditions(List.of(bean("a", 10)));
+        log.appendRemoval("c");
+
+        Map<String, Coffee> state = replay(log, bean("a", 1), bean("b", 2));
+
+        // b is replaced in place, a was removed and added again at the end
+        assertEquals(List.of("b", "a"), List.copyOf(state.keySet()));
+        assertEquals(20, state.get("b").getPrice());
+        assertEquals(10, state.get("a").getPrice());
+    }
+
+    @Test
+    void read_ShouldBeIdempotent(@TempDir Path dir) throws IOException {
+        MutationLog log = new MutationLog(dir.resolve("data.txt.log"));
+        log.appendRemoval("a");
+        log.appendAdditions(List.of(new GroundCoffee("Robusta", 500, 10.5, new QualityParams(6, 7, 8),
+                new Packaging("Plastic", 500), GrindSize.FINE, "g")));
+
+        Map<String, Coffee> once = replay(log, bean("a", 1), bean("b", 2));
+        Map<String, Coffee> twice = replay(log, once.values().toArray(new Coffee[0]));
+
+        assertEquals(List.of("b", "g"), List.copyOf(twice.keySet()));
+        for (String id : once.keySet()) {
+            assertEquals(once.get(id).toFileString(), twice.get(id).toFileString());
+        }
+    }
+
+    @Test
+    void read_ShouldSkipTornLastRecord(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.txt.log");
+        MutationLog log = new MutationLog(file);
+        log.appendRemoval("a");
+        // a crash in the middle of an append
+        Files.writeString(file, "A;BEAN;x;Arab", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        Map<String, Coffee> state = replay(log, bean("a", 1), bean("b", 2));
+
+        assertEquals(List.of("b"), List.copyOf(state.keySet()));
+    }
+
+    @Test
+    void append_ShouldCutOffTornRecord(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.txt.log");
+        MutationLog log = new MutationLog(file);
+        log.appendRemoval("c");
+        // a crash in the middle of an append
+        Files.writeString(file, "A;BEAN;z;Arab", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        log.appendRemoval("a");
+
+        // the torn record is gone, the records around it are not
+        assertEquals("D;c\nD;a\n", Files.readString(file));
+        assertEquals(List.of("b"), List.copyOf(replay(log, bean("a", 1), bean("b", 2)).keySet()));
+    }
+
+    @Test
+    void read_ShouldSkipTornTombstone(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.txt.log");
+        MutationLog log = new MutationLog(file);
+        // "D;a1" cut short by a crash would otherwise remove "a"
+        Files.writeString(file, "D;a", StandardCharsets.UTF_8);
+
+        assertEquals(List.of("a", "b"), List.copyOf(replay(log, bean("a", 1), bean("b", 2)).keySet()));
+    }
+
+    @Test
+    void truncate_ShouldDeleteLog(@TempDir Path dir) throws IOException {
+        MutationLog log = new MutationLog(dir.resolve("data.txt.log"));
+        assertEquals(0, log.size());
+        log.appendRemoval("a");
+        assertTrue(log.size() > 0);
+
+        log.truncate();
+
+        assertEquals(0, log.size());
+    }
+}
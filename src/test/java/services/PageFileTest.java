@@ -0,0 +1,108 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PageFileTest {
+
+    private static ByteBuffer page(int fill) {
+        byte[] bytes = new byte[PageFile.PAGE_SIZE];
+        Arrays.fill(bytes, PageFile.CHECKSUM_LENGTH, bytes.length, (byte) fill);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * A journal as {@link PageFile#write(Map)} leaves it when a crash stops it before the pages are written in place.
+     */
+    private static byte[] journal(int page, ByteBuffer image) {
+        CRC32 crc = new CRC32();
+        crc.update(image.array(), PageFile.CHECKSUM_LENGTH, PageFile.PAGE_SIZE - PageFile.CHECKSUM_LENGTH);
+        image.putInt(0, (int) crc.getValue());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(new byte[]{'C', 'V', 'J', 1});
+        out.writeBytes(ByteBuffer.allocate(4).putInt(page).array());
+        out.writeBytes(image.array());
+        CRC32 journalCrc = new CRC32();
+        journalCrc.update(out.toByteArray());
+        out.writeBytes(ByteBuffer.allocate(12).putInt(-1).putLong(journalCrc.getValue()).array());
+        return out.toByteArray();
+    }
+
+    @Test
+    void write_ShouldStorePagesWithChecksums(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("pages");
+        try (PageFile file = new PageFile(path)) {
+            file.allocate();
+            file.allocate();
+            Map<Integer, ByteBuffer> pages = new TreeMap<>();
+            pages.put(0, page(1));
+            pages.put(1, page(2));
+
+            file.write(pages);
+
+            assertEquals(2 * PageFile.PAGE_SIZE, Files.size(path));
+            assertFalse(Files.exists(Path.of(path + ".journal")));
+            assertEquals(2, file.read(1).get(PageFile.CHECKSUM_LENGTH));
+        }
+    }
+
+    @Test
+    void open_ShouldReplayCompleteJournal(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("pages");
+        try (PageFile file = new PageFile(path)) {
+            file.allocate();
+            file.write(Map.of(0, page(1)));
+        }
+        Files.write(Path.of(path + ".journal"), journal(0, page(9)));
+
+        try (PageFile file = new PageFile(path)) {
+            assertEquals(9, file.read(0).get(PageFile.CHECKSUM_LENGTH));
+        }
+        assertFalse(Files.exists(Path.of(path + ".journal")));
+    }
+
+    @Test
+    void open_ShouldDiscardIncompleteJournal(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("pages");
+        try (PageFile file = new PageFile(path)) {
+            file.allocate();
+            file.write(Map.of(0, page(1)));
+        }
+        byte[] journal = journal(0, page(9));
+        Files.write(Path.of(path + ".journal"), Arrays.copyOf(journal, journal.length - 5));
+
+        try (PageFile file = new PageFile(path)) {
+            assertEquals(1, file.read(0).get(PageFile.CHECKSUM_LENGTH));
+        }
+        assertFalse(Files.exists(Path.of(path + ".journal")));
+    }
+
+    @Test
+    void read_ShouldRejectTornPage(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("pages");
+        try (PageFile file = new PageFile(path)) {
+            file.allocate();
+            file.write(Map.of(0, page(1)));
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        // the second half of the page did not reach the disk
+        Arrays.fill(bytes, PageFile.PAGE_SIZE / 2, bytes.length, (byte) 0);
+        Files.write(path, bytes);
+
+        try (PageFile file = new PageFile(path)) {
+            assertThrows(IOException.class, () -> file.read(0));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package services;
+
+import coffee.BeanCoffee;
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import coffee.enums.GrindSize;
+import coffee.enums.RoastLevel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import packaging.Packaging;
+import qualityparams.QualityParams;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelCoffeeLoaderTest {
+
+    private static List<String> lines(int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Coffee coffee = i % 2 == 0
+                    ? new BeanCoffee("Bean " + i, 100 + i, 1 + i / 100.0, new QualityParams(5, 6, 7),
+                    new Packaging("Paper", 100), RoastLevel.DARK, "Peru")
+                    : new GroundCoffee("Ground " + i, 100 + i, 2 + i / 100.0, new QualityParams(7, 6, 5),
+                    new Packaging("Bag", 200), GrindSize.FINE);
+            lines.add(coffee.toFileString());
+        }
+        return lines;
+    }
+
+    @Test
+    void load_ShouldKeepFileOrderAcrossChunks(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.txt");
+        List<String> lines = lines(5000);
+        Files.write(file, lines);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // tiny chunks, so that the file is split into many pieces
+            ParallelLoadResult result = new ParallelCoffeeLoader(file, 1000).load(pool);
+
+            assertTrue(result.getFailures().isEmpty());
+            assertEquals(lines.size(), result.getCoffee().size());
+            for (int i = 0; i < lines.size(); i++) {
+                assertEquals(lines.get(i), result.getCoffee().get(i).toFileString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void load_ShouldMatchSequentialReader_WithCrLfAndBadLines(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("data.txt");
+        List<String> lines = lines(3000);
+        lines.set(10, "garbage");
+        lines.set(2500, "BEAN;broken");
+        Files.writeString(file, String.join("\r\n", lines) + "\r\n", StandardCharsets.UTF_8);
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            ParallelLoadResult result = new ParallelCoffeeLoader(file, 997).load(pool);
+            List<Coffee> sequential = new CoffeeStorageService(file.toString()).getFromFile();
+
+            assertEquals(sequential.size(), result.getCoffee().size());
+            for (int i = 0; i < sequential.size(); i++) {
+                assertEquals(sequential.get(i).getId(), result.getCoffee().get(i).getId());
+            }
+            assertEquals(2, result.getFailedLineCount());
+            assertEquals(2, result.getFailures().size());
+            assertTrue(result.getFailures().get(0).getSamples().get(0).contains("garbage"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void load_ShouldHandleEmptyFile(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("empty.txt");
+        Files.createFile(file);
+        ParallelLoadResult result = new CoffeeStorageService(file.toString()).getFromFileParallel(ForkJoinPool.commonPool());
+        assertTrue(result.getCoffee().isEmpty());
+        assertTrue(result.getFailures().isEmpty());
+    }
+}
@@ -0,0 +1,196 @@
+package services;
+
+import coffee.Coffee;
+import coffee.GroundCoffee;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static services.CoffeeFixtures.bean;
+import static services.CoffeeFixtures.ground;
+import static services.CoffeeFixtures.instant;
+
+class PartitionedCoffeeStorageServiceTest {
+
+    private static List<String> sortedLines(List<Coffee> coffee) {
+        return coffee.stream().map(Coffee::toFileString).sorted().toList();
+    }
+
+    @Test
+    void saveAndLoad_ShouldRoundTripAcrossHashPartitions(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        List<Coffee> coffee = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            coffee.add(ground("g" + i, i));
+        }
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, 4, StorageFormat.TEXT);
+
+        storage.saveToFile(coffee, false);
+
+        for (int i = 0; i < 4; i++) {
+            assertTrue(Files.size(Path.of(file + ".p" + i)) > 0);
+        }
+        List<Coffee> loaded = new PartitionedCoffeeStorageService(file, 4, StorageFormat.TEXT).getFromFile();
+        assertEquals(sortedLines(coffee), sortedLines(loaded));
+        try (Stream<Coffee> stream = storage.streamFromFile()) {
+            assertEquals(sortedLines(coffee), sortedLines(stream.toList()));
+        }
+    }
+
+    @Test
+    void manifest_ShouldListRecordCountsAcrossInstances(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.bin").toString();
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.BINARY);
+
+        storage.saveToFile(List.of(bean("b1"), bean("b2"), ground("g1", 1), instant("i1")), false);
+
+        assertArrayEquals(new long[]{2, 1, 1}, storage.getRecordCounts());
+        List<String> manifest = Files.readAllLines(Path.of(file + ".manifest"));
+        assertEquals(List.of("PARTITIONS;BY_TYPE;3", "cargo.bin.bean;2", "cargo.bin.ground;1", "cargo.bin.instant;1"), manifest);
+        assertArrayEquals(new long[]{2, 1, 1}, new PartitionedCoffeeStorageService(file, StorageFormat.BINARY).getRecordCounts());
+    }
+
+    @Test
+    void constructor_ShouldRejectManifestOfOtherPartitioning(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        new PartitionedCoffeeStorageService(file, 4, StorageFormat.TEXT).saveToFile(List.of(ground("g", 1)), false);
+
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedCoffeeStorageService(file, 8, StorageFormat.TEXT));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedCoffeeStorageService(file, StorageFormat.TEXT));
+        assertThrows(IllegalArgumentException.class, () -> new PartitionedCoffeeStorageService(file, 0, StorageFormat.TEXT));
+    }
+
+    @Test
+    void appendRemoval_ShouldTouchOnlyTheAffectedPartition(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        storage.saveToFile(List.of(bean("b1"), ground("g1", 1), ground("g2", 2), instant("i1")), false);
+
+        storage.appendRemoval("g1");
+
+        assertTrue(Files.exists(Path.of(file + ".ground.log")));
+        assertFalse(Files.exists(Path.of(file + ".bean.log")));
+        assertFalse(Files.exists(Path.of(file + ".instant.log")));
+        assertArrayEquals(new long[]{1, 1, 1}, storage.getRecordCounts());
+        assertEquals(List.of("b1", "g2", "i1"), storage.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void appendRemoval_ShouldFindTheTypePartition_WhenLocationUnknown(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        new PartitionedCoffeeStorageService(file, StorageFormat.TEXT)
+                .saveToFile(List.of(bean("b1"), ground("g1", 1), instant("i1")), false);
+
+        // a fresh instance has not seen the item yet
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        storage.appendRemovals(List.of("g1", "unknown"));
+
+        assertEquals(List.of("D;g1"), Files.readAllLines(Path.of(file + ".ground.log")));
+        assertFalse(Files.exists(Path.of(file + ".bean.log")));
+        assertFalse(Files.exists(Path.of(file + ".instant.log")));
+        assertArrayEquals(new long[]{1, 0, 1}, storage.getRecordCounts());
+        assertEquals(List.of("b1", "i1"), storage.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void appendRemovals_ShouldWriteEachAffectedPartitionOnce(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        storage.saveToFile(List.of(bean("b1"), bean("b2"), ground("g1", 1), ground("g2", 2), instant("i1")), false);
+
+        storage.appendRemovals(List.of("b1", "g1", "g2"));
+
+        assertEquals(List.of("D;b1"), Files.readAllLines(Path.of(file + ".bean.log")));
+        assertEquals(List.of("D;g1", "D;g2"), Files.readAllLines(Path.of(file + ".ground.log")));
+        assertFalse(Files.exists(Path.of(file + ".instant.log")));
+        assertArrayEquals(new long[]{1, 0, 1}, storage.getRecordCounts());
+        assertEquals(List.of("b2", "i1"), storage.getFromFile().stream().map(Coffee::getId).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldMoveItemWhoseTypeChanged(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        storage.saveToFile(List.of(bean("x"), ground("g1", 1)), false);
+
+        storage.saveToFile(List.of(ground("x", 3)), true);
+
+        List<Coffee> loaded = storage.getFromFile();
+        assertEquals(2, loaded.size());
+        Coffee moved = loaded.stream().filter(c -> c.getId().equals("x")).findFirst().orElseThrow();
+        assertTrue(moved instanceof GroundCoffee);
+        assertEquals(3, moved.getPrice());
+    }
+
+    @Test
+    void saveToFile_ShouldMoveItemWhoseTypeChanged_WhenLocationUnknown(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        new PartitionedCoffeeStorageService(file, StorageFormat.TEXT).saveToFile(List.of(bean("x"), ground("g1", 1)), false);
+
+        // a fresh instance does not know which partition holds the item
+        new PartitionedCoffeeStorageService(file, StorageFormat.TEXT).saveToFile(List.of(ground("x", 3)), true);
+
+        assertEquals(List.of("D;x"), Files.readAllLines(Path.of(file + ".bean.log")));
+        assertFalse(Files.exists(Path.of(file + ".ground.log")));
+        List<Coffee> loaded = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT).getFromFile();
+        assertEquals(List.of("g1", "x"), loaded.stream().map(Coffee::getId).sorted(Comparator.naturalOrder()).toList());
+        assertTrue(loaded.stream().allMatch(c -> c instanceof GroundCoffee));
+    }
+
+    @Test
+    void saveToFile_ShouldAppendOnlyToPartitionsOfNewItems(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        storage.saveToFile(List.of(bean("b1"), ground("g1", 1), instant("i1")), false);
+        long beanSize = Files.size(Path.of(file + ".bean"));
+        long instantSize = Files.size(Path.of(file + ".instant"));
+
+        storage.saveToFile(List.of(ground("g2", 2)), true);
+
+        assertEquals(beanSize, Files.size(Path.of(file + ".bean")));
+        assertEquals(instantSize, Files.size(Path.of(file + ".instant")));
+        // the storage knows every location since its replace, so no removal is logged either
+        assertFalse(Files.exists(Path.of(file + ".bean.log")));
+        assertEquals(List.of("b1", "g1", "g2", "i1"),
+                storage.getFromFile().stream().map(Coffee::getId).sorted(Comparator.naturalOrder()).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldNotLogRemovalsOfNewItems_WhenLocationsUnknown(@TempDir Path tempDir) throws IOException {
+        String file = tempDir.resolve("cargo.txt").toString();
+        new PartitionedCoffeeStorageService(file, StorageFormat.TEXT)
+                .saveToFile(List.of(bean("b1"), ground("g1", 1), instant("i1")), false);
+
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        storage.saveToFile(List.of(ground("g2", 2), instant("i2")), true);
+        storage.saveToFile(List.of(bean("b2")), true);
+
+        assertFalse(Files.exists(Path.of(file + ".bean.log")));
+        assertFalse(Files.exists(Path.of(file + ".ground.log")));
+        assertFalse(Files.exists(Path.of(file + ".instant.log")));
+        assertEquals(List.of("b1", "b2", "g1", "g2", "i1", "i2"),
+                storage.getFromFile().stream().map(Coffee::getId).sorted(Comparator.naturalOrder()).toList());
+    }
+
+    @Test
+    void saveToFile_ShouldRejectUnknownCoffeeType_WhenPartitionedByType(@TempDir Path tempDir) {
+        String file = tempDir.resolve("cargo.txt").toString();
+        PartitionedCoffeeStorageService storage = new PartitionedCoffeeStorageService(file, StorageFormat.TEXT);
+        Coffee custom = mock(Coffee.class);
+
+        assertThrows(IllegalArgumentException.class, () -> storage.saveToFile(List.of(custom), true));
+    }
+}
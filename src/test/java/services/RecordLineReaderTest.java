@@ -0,0 +1,46 @@
+package services;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordLineReaderTest {
+
+    private static List<String> readAll(String text, int bufferSize) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (RecordLineReader reader = new RecordLineReader(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), bufferSize)) {
+            while (reader.next()) {
+                lines.add(reader.lineAsString());
+            }
+        }
+        return lines;
+    }
+
+    @Test
+    void next_ShouldSplitLikeBufferedReader() throws IOException {
+        String text = "a\nbb\r\nccc\rdddd\n\neee";
+        List<String> expected = text.lines().toList();
+        for (int bufferSize = 1; bufferSize < 8; bufferSize++) {
+            assertEquals(expected, readAll(text, bufferSize), "buffer size " + bufferSize);
+        }
+    }
+
+    @Test
+    void next_ShouldNotReturnEmptyLineAfterFinalTerminator() throws IOException {
+        assertEquals(List.of("one", "two"), readAll("one\ntwo\n", 4));
+        assertEquals(List.of(), readAll("", 4));
+    }
+
+    @Test
+    void next_ShouldGrowBufferForLongLines() throws IOException {
+        String longLine = "x".repeat(1000);
+        assertEquals(List.of(longLine, "y"), readAll(longLine + "\ny", 16));
+    }
+}